@@ -0,0 +1,129 @@
+package com.s23010234.devnextdoor;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Group chat load scenario, run against the local Firebase emulator.
+ *
+ * Makes groups of 5, 50 and 500 members, sends the same messages to each,
+ * and reads them back the way GroupChatActivity does. Sending and reading
+ * should cost the same for every group size: the same number of paths
+ * written per message, and the same number of messages downloaded per page.
+ * Timings are written to logcat under "GroupChatLoad".
+ *
+ * Skipped unless the emulator is running and the test is started with:
+ *   firebase emulators:start --only database
+ *   ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.firebaseEmulator=true
+ */
+@RunWith(AndroidJUnit4.class)
+public class GroupChatLoadScenarioTest {
+
+    private static final String TAG = "GroupChatLoad";
+
+    // The emulator as seen from an Android emulator, in its own namespace so real data is never touched
+    private static final String EMULATOR_URL = "http://10.0.2.2:9000?ns=devnextdoor-loadtest";
+
+    private static final int[] GROUP_SIZES = { 5, 50, 500 };
+    private static final int MESSAGES_PER_GROUP = 60;
+
+    private DatabaseReference root;
+
+    @Before
+    public void setUp() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        assumeTrue("Firebase emulator scenario not requested",
+                "true".equals(arguments.getString("firebaseEmulator")));
+        root = FirebaseDatabase.getInstance(EMULATOR_URL).getReference();
+    }
+
+    @Test
+    public void sendAndReadCostStaysFlatAsGroupsGrow() throws Exception {
+        int firstSendPaths = -1;
+        for (int size : GROUP_SIZES) {
+            String groupId = "load-" + size + "-" + System.currentTimeMillis();
+            List<String> members = new ArrayList<>();
+            for (int i = 1; i < size; i++) {
+                members.add("member" + i);
+            }
+            await(root.updateChildren(GroupChatPaths.createGroup(groupId, "Load " + size, "member0",
+                    members, System.currentTimeMillis())));
+
+            // Send: every message is one multi-path write of the same size
+            long sendStart = System.nanoTime();
+            for (int i = 0; i < MESSAGES_PER_GROUP; i++) {
+                String sender = "member" + (i % size);
+                String messageId = root.child(GroupChatPaths.messagesPath(groupId)).push().getKey();
+                Message message = new Message(messageId, groupId, sender, null, "message " + i,
+                        System.currentTimeMillis(), false);
+                Map<String, Object> updates = GroupChatPaths.sendMessage(groupId, message);
+                if (firstSendPaths < 0) {
+                    firstSendPaths = updates.size();
+                }
+                assertEquals("paths written per message, " + size + " members", firstSendPaths, updates.size());
+                await(root.updateChildren(updates));
+            }
+            long sendMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sendStart);
+
+            // Read: a member loads their group list, the newest page and one older page
+            long readStart = System.nanoTime();
+            DataSnapshot userGroups = await(root.child("userGroups/member1").get());
+            assertEquals(1, userGroups.getChildrenCount());
+
+            DataSnapshot newest = await(root.child(GroupChatPaths.messagesPath(groupId)).orderByKey()
+                    .limitToLast(GroupChatPaths.PAGE_SIZE + 1).get());
+            assertEquals(GroupChatPaths.PAGE_SIZE + 1, newest.getChildrenCount());
+            String oldestKey = newest.getChildren().iterator().next().getKey();
+            DataSnapshot older = await(root.child(GroupChatPaths.messagesPath(groupId)).orderByKey()
+                    .endBefore(oldestKey).limitToLast(GroupChatPaths.PAGE_SIZE + 1).get());
+            assertEquals(MESSAGES_PER_GROUP - GroupChatPaths.PAGE_SIZE - 1, older.getChildrenCount());
+
+            String lastId = null;
+            for (DataSnapshot message : newest.getChildren()) {
+                lastId = message.getKey();
+            }
+            await(root.updateChildren(GroupChatPaths.markRead(groupId, "member1", lastId)));
+            long readMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - readStart);
+
+            Log.i(TAG, size + " members: " + MESSAGES_PER_GROUP + " sends in " + sendMillis + " ms ("
+                    + firstSendPaths + " paths each), group list + 2 pages + read cursor in " + readMillis + " ms");
+
+            await(root.updateChildren(cleanup(groupId, size)));
+        }
+    }
+
+    private static Map<String, Object> cleanup(String groupId, int size) {
+        Map<String, Object> updates = GroupChatPaths.leaveGroup(groupId, "member0");
+        for (int i = 1; i < size; i++) {
+            updates.putAll(GroupChatPaths.leaveGroup(groupId, "member" + i));
+        }
+        updates.put(GroupChatPaths.groupPath(groupId), null);
+        updates.put(GroupChatPaths.messagesPath(groupId), null);
+        return updates;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, 30, TimeUnit.SECONDS);
+    }
+}
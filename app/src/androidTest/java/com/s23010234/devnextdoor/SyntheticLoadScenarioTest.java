@@ -0,0 +1,201 @@
+package com.s23010234.devnextdoor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Synthetic load scenario, run against the local Firebase emulator.
+ *
+ * Fills the emulator with a SyntheticDataset, then replays LoadScenario
+ * sessions (open homepage, search, open chat, send burst) through real
+ * Firebase queries. The timings table is written to logcat under
+ * "SyntheticLoad".
+ *
+ * Skipped unless the emulator is running and the test is started with:
+ *   firebase emulators:start --only database
+ *   ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.firebaseEmulator=true
+ *
+ * Optional arguments (the same way): loadUsers (default 500), loadSessions
+ * (default 20) and loadSendBurst (default 10).
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyntheticLoadScenarioTest {
+
+    private static final String TAG = "SyntheticLoad";
+
+    // The emulator as seen from an Android emulator, in its own namespace so real data is never touched
+    private static final String EMULATOR_URL = "http://10.0.2.2:9000?ns=devnextdoor-synthetic";
+
+    private DatabaseReference root;
+    private Bundle arguments;
+
+    @Before
+    public void setUp() {
+        arguments = InstrumentationRegistry.getArguments();
+        assumeTrue("Firebase emulator scenario not requested",
+                "true".equals(arguments.getString("firebaseEmulator")));
+        root = FirebaseDatabase.getInstance(EMULATOR_URL).getReference();
+    }
+
+    @Test
+    public void seedAndReplaySessions() throws Exception {
+        int users = intArgument("loadUsers", 500);
+        int sessions = intArgument("loadSessions", 20);
+        int sendBurst = intArgument("loadSendBurst", 10);
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        SyntheticDataset dataset = new SyntheticDataset(SyntheticDataset.Scale.SMALL.withUsers(users),
+                CityGazetteer.getInstance(context), 42, System.currentTimeMillis());
+        LoadScenario.Backend backend = new EmulatorBackend(root);
+
+        // Start from nothing, so earlier runs don't change the numbers
+        await(root.setValue(null));
+        long seedStart = System.nanoTime();
+        long paths = dataset.writeTo(backend);
+        Log.i(TAG, "Seeded " + paths + " paths (" + users + " users, " + dataset.getChatCount() + " chats) in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart) + " ms");
+
+        LoadScenario scenario = new LoadScenario(backend, dataset, 7);
+        scenario.run(sessions, sendBurst);
+        for (String line : scenario.report().split("\n")) {
+            Log.i(TAG, line);
+        }
+
+        assertEquals(sessions, scenario.getCount(LoadScenario.STEP_OPEN_HOMEPAGE));
+        assertEquals(sessions * sendBurst, scenario.getCount(LoadScenario.STEP_SEND));
+    }
+
+    /**
+     * Runs the scenario's reads and writes as real Firebase queries, waiting for each answer
+     */
+    private static class EmulatorBackend implements LoadScenario.Backend {
+        private final DatabaseReference root;
+
+        EmulatorBackend(DatabaseReference root) {
+            this.root = root;
+        }
+
+        @Override
+        public Object read(String path, InMemoryDatabase.QuerySpec spec) throws Exception {
+            return await(toQuery(root.child(path), spec).get()).getValue();
+        }
+
+        @Override
+        public void write(Map<String, Object> updates) throws Exception {
+            await(root.updateChildren(updates));
+        }
+
+        @Override
+        public void adjust(String path, long delta) throws Exception {
+            TaskCompletionSource<Void> done = new TaskCompletionSource<>();
+            root.child(path).runTransaction(new Transaction.Handler() {
+                @NonNull
+                @Override
+                public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                    currentData.setValue(UnreadCounters.adjusted(currentData.getValue(Long.class), delta));
+                    return Transaction.success(currentData);
+                }
+
+                @Override
+                public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                    if (error != null) {
+                        done.setException(error.toException());
+                    } else {
+                        done.setResult(null);
+                    }
+                }
+            });
+            await(done.getTask());
+        }
+
+        /**
+         * The Firebase query with the same settings as a QuerySpec
+         */
+        private static Query toQuery(DatabaseReference ref, InMemoryDatabase.QuerySpec spec) {
+            if (spec.isUnfiltered() && spec.orderBy == InMemoryDatabase.QuerySpec.ORDER_BY_KEY) {
+                return ref;
+            }
+            Query query;
+            switch (spec.orderBy) {
+                case InMemoryDatabase.QuerySpec.ORDER_BY_VALUE:
+                    query = ref.orderByValue();
+                    break;
+                case InMemoryDatabase.QuerySpec.ORDER_BY_CHILD:
+                    query = ref.orderByChild(spec.orderChild);
+                    break;
+                default:
+                    query = ref.orderByKey();
+                    break;
+            }
+            if (spec.hasStart) {
+                query = startAt(query, spec.startValue, keyOrNull(spec.startKey));
+            }
+            if (spec.hasEnd) {
+                query = endAt(query, spec.endValue, keyOrNull(spec.endKey));
+            }
+            if (spec.limit > 0) {
+                query = spec.fromLast ? query.limitToLast(spec.limit) : query.limitToFirst(spec.limit);
+            }
+            return query;
+        }
+
+        private static Query startAt(Query query, Object value, String key) {
+            if (value instanceof Number) {
+                return query.startAt(((Number) value).doubleValue(), key);
+            }
+            if (value instanceof Boolean) {
+                return query.startAt((Boolean) value, key);
+            }
+            return query.startAt((String) value, key);
+        }
+
+        private static Query endAt(Query query, Object value, String key) {
+            if (value instanceof Number) {
+                return query.endAt(((Number) value).doubleValue(), key);
+            }
+            if (value instanceof Boolean) {
+                return query.endAt((Boolean) value, key);
+            }
+            return query.endAt((String) value, key);
+        }
+
+        private static String keyOrNull(String key) {
+            return InMemoryDatabase.MIN_KEY.equals(key) || InMemoryDatabase.MAX_KEY.equals(key) ? null : key;
+        }
+    }
+
+    private int intArgument(String name, int fallback) {
+        String value = arguments.getString(name);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, 60, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,211 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class loads the big full-screen background pictures without freezing the screen.
+ * The background PNGs (welcome, get started, login/signup and the main background)
+ * are large, so decoding them while a screen is opening delays its first frame.
+ *
+ * How it works:
+ * - The view gets a plain color straight away, so the screen can draw immediately
+ * - The picture is decoded on a background thread, shrunk to about the screen size
+ * - When it is ready the picture replaces the plain color
+ * - Each decoded picture is kept once per theme (light/dark) and shared by every screen
+ *
+ * All methods must be called from the main (UI) thread.
+ */
+public class BackgroundLoader {
+
+    // One background thread is enough - pictures are decoded one after another
+    private static final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+
+    // Used to hand finished pictures back to the main thread
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Decoded pictures, one per drawable and theme (only touched on the main thread)
+    private static final Map<String, Bitmap> bitmapCache = new HashMap<>();
+
+    // Views waiting for a picture that is still being decoded, grouped by cache key
+    private static final Map<String, List<WeakReference<View>>> pendingViews = new HashMap<>();
+
+    // The picture each view asked for last, so an old request never overwrites a newer one
+    private static final WeakHashMap<View, String> requestedKeys = new WeakHashMap<>();
+
+    /**
+     * Sets a full-screen background picture on a view without decoding it on the main thread.
+     * If the picture was decoded before (for the current theme) it is shown right away,
+     * otherwise the placeholder color is shown until the picture is ready.
+     *
+     * @param view The view whose background should be set
+     * @param drawableRes The background picture (for example R.drawable.welcome_bg)
+     * @param placeholderColorRes The plain color to show while the picture is loading
+     */
+    public static void load(View view, int drawableRes, int placeholderColorRes) {
+        Resources resources = view.getResources();
+        String key = cacheKey(resources, drawableRes);
+        requestedKeys.put(view, key);
+
+        // Already decoded for this theme - no need to wait
+        Bitmap cached = bitmapCache.get(key);
+        if (cached != null) {
+            view.setBackground(new BitmapDrawable(resources, cached));
+            return;
+        }
+
+        // Show the plain color now so the screen can draw its first frame
+        view.setBackground(new ColorDrawable(ContextCompat.getColor(view.getContext(), placeholderColorRes)));
+
+        List<WeakReference<View>> waiting = pendingViews.get(key);
+        if (waiting != null) {
+            // Someone already asked for this picture - just wait for the same decode
+            waiting.add(new WeakReference<>(view));
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(new WeakReference<>(view));
+        pendingViews.put(key, waiting);
+
+        decode(resources, drawableRes, key);
+    }
+
+    /**
+     * Sets the app's main background picture (main_bg) on some of a screen's views.
+     * The layouts give these views the main_bg_placeholder color instead of the picture,
+     * so building the screen never decodes it. Every screen shares the same decoded picture.
+     *
+     * @param activity The screen, after setContentView
+     * @param viewIds The views that show the main background
+     */
+    public static void loadMainBackground(Activity activity, int... viewIds) {
+        for (int viewId : viewIds) {
+            View view = activity.findViewById(viewId);
+            if (view != null) {
+                load(view, R.drawable.main_bg, R.color.main_bg_placeholder);
+            }
+        }
+    }
+
+    /**
+     * Starts decoding a background picture before any screen needs it.
+     * For example the welcome screen warms up the next screens' pictures,
+     * so they appear instantly when the user taps continue.
+     *
+     * @param context The screen that is currently showing (its theme decides which picture is used)
+     * @param drawableRes The background picture to decode
+     */
+    public static void preload(Context context, int drawableRes) {
+        Resources resources = context.getResources();
+        String key = cacheKey(resources, drawableRes);
+        if (bitmapCache.containsKey(key) || pendingViews.containsKey(key)) {
+            return;
+        }
+        pendingViews.put(key, new ArrayList<>());
+        decode(resources, drawableRes, key);
+    }
+
+    /**
+     * Decodes the picture on the background thread and delivers it on the main thread.
+     */
+    private static void decode(Resources resources, int drawableRes, String key) {
+        final DisplayMetrics metrics = resources.getDisplayMetrics();
+
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = null;
+            try {
+                bitmap = decodeSampled(resources, drawableRes, metrics.widthPixels, metrics.heightPixels);
+            } catch (OutOfMemoryError | RuntimeException e) {
+                e.printStackTrace();
+            }
+            final Bitmap result = bitmap;
+            mainHandler.post(() -> deliver(key, result));
+        });
+    }
+
+    /**
+     * Gives a finished picture to every view that is still waiting for it.
+     */
+    private static void deliver(String key, Bitmap bitmap) {
+        List<WeakReference<View>> waiting = pendingViews.remove(key);
+        if (bitmap == null) {
+            // Decoding failed - the placeholder color simply stays
+            return;
+        }
+        bitmapCache.put(key, bitmap);
+
+        if (waiting == null) {
+            return;
+        }
+        for (WeakReference<View> reference : waiting) {
+            View view = reference.get();
+            // Skip views that are gone or have asked for a different picture since
+            if (view != null && key.equals(requestedKeys.get(view))) {
+                view.setBackground(new BitmapDrawable(view.getResources(), bitmap));
+            }
+        }
+    }
+
+    /**
+     * Reads the picture's size first, then decodes it at the smallest size
+     * that still covers the screen. The picture is decoded at its own pixel size
+     * (no automatic density scaling), because the view stretches it anyway.
+     */
+    private static Bitmap decodeSampled(Resources resources, int drawableRes, int targetWidth, int targetHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, drawableRes, options);
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        // Backgrounds are opaque, so the smaller 16-bit format looks the same and uses half the memory
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeResource(resources, drawableRes, options);
+    }
+
+    /**
+     * Works out how much the picture can be shrunk (by powers of two)
+     * while still being at least as big as the screen.
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+        while ((width / (inSampleSize * 2)) >= targetWidth && (height / (inSampleSize * 2)) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Builds the cache key: the same drawable can have a different picture in dark mode
+     * (drawable-night), so the current theme is part of the key.
+     */
+    private static String cacheKey(Resources resources, int drawableRes) {
+        int nightMode = resources.getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        return drawableRes + (nightMode == Configuration.UI_MODE_NIGHT_YES ? ":night" : ":day");
+    }
+}
@@ -1,5 +1,9 @@
 package com.s23010234.devnextdoor;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class represents a chat conversation between two users.
  * It keeps track of who is chatting, what the latest message was,
@@ -25,6 +29,9 @@ public class Chat {
     // Who sent the most recent message (their username)
     private String lastMessageSender;
 
+    // How many messages each person hasn't read yet (username -> count)
+    private Map<String, Long> unread;
+
     /**
      * Empty constructor that Firebase needs to create Chat objects.
      * Firebase uses this when loading chat data from the database.
@@ -146,6 +153,33 @@ public class Chat {
         this.lastMessageSender = lastMessageSender;
     }
 
+    /**
+     * Get the unread message counts of both people in this chat.
+     * Firebase uses this (and setUnread) to load and save the counts.
+     */
+    public Map<String, Long> getUnread() {
+        return unread;
+    }
+
+    /**
+     * Set the unread message counts of both people in this chat.
+     */
+    public void setUnread(Map<String, Long> unread) {
+        this.unread = unread;
+    }
+
+    /**
+     * Find out how many messages in this chat a person hasn't read yet.
+     * Returns 0 if nothing is unread.
+     */
+    public int getUnreadCount(String username) {
+        if (unread == null) {
+            return 0;
+        }
+        Long count = unread.get(username);
+        return count != null ? (int) Math.max(0, count) : 0;
+    }
+
     /**
      * Find out who the other person in this chat is.
      * If you give it your username, it returns the other person's username.
@@ -178,4 +212,12 @@ public class Chat {
             return user2 + "_" + user1;
         }
     }
+
+    /**
+     * Sort a list of chats so the one with the newest message comes first.
+     * This is the order the chat list is shown in.
+     */
+    public static void sortNewestFirst(List<Chat> chats) {
+        Collections.sort(chats, (c1, c2) -> Long.compare(c2.getLastMessageTimestamp(), c1.getLastMessageTimestamp()));
+    }
 }
@@ -3,7 +3,10 @@ package com.s23010234.devnextdoor;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.text.format.DateUtils;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -12,6 +15,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -20,7 +24,9 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This is the Chat screen where two users can send messages to each other.
@@ -47,6 +53,23 @@ public class ChatActivity extends AppCompatActivity {
     
     // List that holds all the messages in this conversation
     private List<Message> messageList;
+
+    // The month folder followed live (see MessageBuckets), and the months before it read so far
+    private String liveBucket;
+    private List<Message> liveMessages = new ArrayList<>();
+    private final List<Message> olderMessages = new ArrayList<>();
+    private MessageBucketReader historyReader;
+    private boolean loadingOlder = false;
+
+    // Older months are read until at least this many messages are on screen
+    private static final int MIN_INITIAL_MESSAGES = 20;
+
+    // A message to scroll to once it is loaded (set when opened from a message search)
+    private String scrollToMessageId;
+    private long scrollToTimestamp;
+
+    // Keeps a copy of every message shown, so it can be found by a message search later
+    private MessageSearchIndex searchIndex;
     
     // Flag to prevent sending the same message multiple times by accident
     private boolean isSendingMessage = false;
@@ -57,8 +80,21 @@ public class ChatActivity extends AppCompatActivity {
     // Remember when the last message was sent
     private long lastSentTime = 0;
 
+    // Messages already sent off to be marked as read, so they aren't sent twice
+    private final Set<String> markedRead = new HashSet<>();
+
+    // Tells the other person when we are typing (with as few writes as possible)
+    private PresenceManager.TypingReporter typingReporter;
+
+    // Follows the other person's online and typing status while this screen is visible
+    private PresenceManager.PeerWatch peerWatch;
+    private boolean peerOnline = false;
+    private long peerLastSeen = 0;
+    private boolean peerTyping = false;
+
     // Visual elements on the screen
     private TextView titleText;              // Shows the other person's name at the top
+    private TextView statusText;             // Shows "online", "typing..." or "last seen ..."
     private ImageView backArrow;             // Button to go back to chat list
     private RecyclerView messagesRecyclerView; // Scrollable list of messages
     private EditText messageInput;           // Text field where user types messages
@@ -80,8 +116,8 @@ public class ChatActivity extends AppCompatActivity {
         // Load and display the chat screen layout from the XML file
         setContentView(R.layout.activity_chat);
 
-        // Apply the user's preferred theme (dark or light mode)
-        ThemeManager.applyTheme(this);
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
 
         // Handle system bars (like status bar and navigation bar) properly
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -93,6 +129,8 @@ public class ChatActivity extends AppCompatActivity {
         // Get information passed from the previous screen about which chat to open
         chatId = getIntent().getStringExtra("chatId");
         otherUser = getIntent().getStringExtra("otherUser");
+        scrollToMessageId = getIntent().getStringExtra("scrollToMessageId");
+        scrollToTimestamp = getIntent().getLongExtra("scrollToTimestamp", 0);
 
         // Get the username of the currently logged-in user from device storage
         SharedPreferences sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
@@ -104,17 +142,13 @@ public class ChatActivity extends AppCompatActivity {
         setupClickListeners();       // Set up button click actions
         loadMessages();              // Load and display existing messages
     }
-
-    /**
-     * This method runs when the user returns to this chat screen.
-     * It makes sure all messages are up to date.
-     */
+    
     @Override
-    protected void onResume() {
-        super.onResume();
-        ThemeManager.applyTheme(this);
+    protected void onStart() {
+        super.onStart();
+        startWatchingPeer();
     }
-    
+
     @Override
     protected void onPause() {
         super.onPause();
@@ -124,11 +158,25 @@ public class ChatActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // We can't be typing on a screen nobody sees, and nobody needs the other person's status
+        if (typingReporter != null) {
+            typingReporter.stop();
+        }
+        if (peerWatch != null) {
+            peerWatch.stop();
+            peerWatch = null;
+        }
+    }
+
     /**
      * Initialize view components
      */
     private void initializeViews() {
         titleText = findViewById(R.id.titleText);
+        statusText = findViewById(R.id.statusText);
         backArrow = findViewById(R.id.backArrow);
         messagesRecyclerView = findViewById(R.id.messagesRecyclerView);
         messageInput = findViewById(R.id.messageInput);
@@ -138,6 +186,14 @@ public class ChatActivity extends AppCompatActivity {
         chatManager = new ChatManager();
         messageList = new ArrayList<>();
 
+        PresenceManager presenceManager = PresenceManager.getInstance();
+        if (presenceManager != null && chatId != null && !currentUsername.isEmpty()) {
+            typingReporter = presenceManager.typingReporter(chatId, currentUsername);
+        }
+        if (!currentUsername.isEmpty()) {
+            searchIndex = MessageSearchIndex.getInstance(this, currentUsername);
+        }
+
         // Set title
         if (otherUser != null) {
             titleText.setText("@" + otherUser);
@@ -154,6 +210,24 @@ public class ChatActivity extends AppCompatActivity {
         
         messagesAdapter = new MessagesAdapter(this, messageList, currentUsername);
         messagesRecyclerView.setAdapter(messagesAdapter);
+
+        // When the user stops scrolling, the messages now on screen count as read
+        messagesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    markSeenMessagesRead();
+                }
+            }
+
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Scrolled back to the first message: read the month before it
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() == 0) {
+                    loadOlderMessages();
+                }
+            }
+        });
     }
 
     /**
@@ -173,6 +247,24 @@ public class ChatActivity extends AppCompatActivity {
             }
         });
 
+        // Let the other person know we are typing
+        messageInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (typingReporter != null) {
+                    typingReporter.onTextChanged(s.toString().trim().isEmpty());
+                }
+            }
+        });
+
         // Also allow sending with enter key (with same duplicate prevention)
         messageInput.setOnEditorActionListener((v, actionId, event) -> {
             if (!isSendingMessage) { // Only send if not already sending
@@ -182,28 +274,110 @@ public class ChatActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Starts following only the person this chat is with, so the header
+     * can show whether they are online or typing
+     */
+    private void startWatchingPeer() {
+        PresenceManager presenceManager = PresenceManager.getInstance();
+        if (presenceManager == null || chatId == null || otherUser == null || peerWatch != null) {
+            return;
+        }
+        peerWatch = presenceManager.watchPeer(chatId, otherUser, new PresenceManager.PeerListener() {
+            @Override
+            public void onPresenceChanged(boolean online, long lastSeen) {
+                peerOnline = online;
+                peerLastSeen = lastSeen;
+                showPeerStatus();
+            }
+
+            @Override
+            public void onTypingChanged(boolean typing) {
+                peerTyping = typing;
+                showPeerStatus();
+            }
+        });
+    }
+
+    /**
+     * Shows the other person's status under their name
+     */
+    private void showPeerStatus() {
+        String status;
+        if (peerTyping) {
+            status = "typing...";
+        } else if (peerOnline) {
+            status = "online";
+        } else if (peerLastSeen > 0) {
+            status = "last seen " + DateUtils.getRelativeTimeSpanString(peerLastSeen,
+                    System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS);
+        } else {
+            status = null;
+        }
+        statusText.setText(status);
+        statusText.setVisibility(status != null ? View.VISIBLE : View.GONE);
+    }
+
     /**
      * Load messages for this chat
+     *
+     * Any messages still kept the old way (not in a month folder) are filed
+     * away first, then this month's messages are followed live. If this month
+     * is quiet, earlier months are read until the screen has enough to show.
      */
     private void loadMessages() {
         if (chatId == null) return;
 
         showLoading();
 
-        chatManager.getMessagesForChat(chatId, new ChatManager.MessagesCallback() {
+        new MessageArchiver().archiveChat(chatId, new MessageArchiver.DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                followLiveMessages();
+            }
+
+            @Override
+            public void onError(String error) {
+                // Old messages are filed away another time; this month still works
+                followLiveMessages();
+            }
+        });
+    }
+
+    private void followLiveMessages() {
+        liveBucket = MessageBuckets.bucketFor(System.currentTimeMillis());
+        historyReader = new MessageBucketReader(chatId, liveBucket);
+        olderMessages.clear();
+        boolean[] firstLoad = { true };
+
+        chatManager.getMessagesForChat(chatId, liveBucket, new ChatManager.MessagesCallback() {
             @Override
             public void onSuccess(List<Message> messages) {
                 runOnUiThread(() -> {
-                    messageList.clear();
-                    messageList.addAll(messages);
-                    messagesAdapter.updateMessages(messageList);
+                    // Only jump to the bottom when opening the chat or when a new message
+                    // arrives - not when a message was just marked as read
+                    boolean newMessage = messages.size() > liveMessages.size();
+                    liveMessages = messages;
+                    showMessages();
+                    indexForSearch(messages);
                     
                     // Scroll to bottom
-                    if (!messages.isEmpty()) {
-                        messagesRecyclerView.scrollToPosition(messages.size() - 1);
+                    if ((firstLoad[0] || newMessage) && scrollToMessageId == null && !messageList.isEmpty()) {
+                        messagesRecyclerView.scrollToPosition(messageList.size() - 1);
                     }
                     
                     hideLoading();
+
+                    if (firstLoad[0]) {
+                        firstLoad[0] = false;
+                        if (!scrollToFoundMessage()
+                                && (messageList.size() < MIN_INITIAL_MESSAGES || scrollToMessageId != null)) {
+                            loadOlderMessages();
+                        }
+                    }
+
+                    // Wait for the list to be laid out, then mark what is on screen as read
+                    messagesRecyclerView.post(() -> markSeenMessagesRead());
                 });
             }
 
@@ -217,6 +391,159 @@ public class ChatActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Reads the month before the oldest one on screen and adds it above,
+     * keeping the messages the user is looking at in place
+     */
+    private void loadOlderMessages() {
+        if (loadingOlder || historyReader == null || !historyReader.hasMore()) {
+            return;
+        }
+        loadingOlder = true;
+        historyReader.loadNext(new MessageBucketReader.BucketCallback() {
+            @Override
+            public void onSuccess(List<Message> messages, boolean hasMore) {
+                runOnUiThread(() -> {
+                    loadingOlder = false;
+                    if (messages.isEmpty()) {
+                        scrollToMessageId = null; // It is not in this chat any more
+                        return;
+                    }
+                    LinearLayoutManager layoutManager = (LinearLayoutManager) messagesRecyclerView.getLayoutManager();
+                    int firstVisible = layoutManager != null ? layoutManager.findFirstVisibleItemPosition() : 0;
+                    boolean wasEmpty = messageList.isEmpty();
+
+                    olderMessages.addAll(0, messages);
+                    showMessages();
+                    indexForSearch(messages);
+
+                    if (scrollToFoundMessage()) {
+                        return;
+                    }
+                    if (wasEmpty) {
+                        messagesRecyclerView.scrollToPosition(messageList.size() - 1);
+                    } else if (layoutManager != null) {
+                        layoutManager.scrollToPosition(Math.max(0, firstVisible) + messages.size());
+                    }
+
+                    // Keep going while a quiet stretch of months leaves the screen short,
+                    // or until the message we were asked to show has been reached
+                    if ((messageList.size() < MIN_INITIAL_MESSAGES || scrollToMessageId != null) && hasMore) {
+                        loadOlderMessages();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                runOnUiThread(() -> {
+                    loadingOlder = false;
+                    Toast.makeText(ChatActivity.this, "Error loading older messages: " + error, Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    /**
+     * If this screen was opened to show one message (from a message search)
+     * and that message is now loaded, scrolls to it
+     *
+     * @return True if the list was scrolled to the message
+     */
+    private boolean scrollToFoundMessage() {
+        if (scrollToMessageId == null) {
+            return false;
+        }
+        for (int position = 0; position < messageList.size(); position++) {
+            if (scrollToMessageId.equals(messageList.get(position).getMessageId())) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) messagesRecyclerView.getLayoutManager();
+                if (layoutManager != null) {
+                    layoutManager.scrollToPositionWithOffset(position, messagesRecyclerView.getHeight() / 3);
+                }
+                scrollToMessageId = null;
+                return true;
+            }
+        }
+        // Not loaded yet: if it is older than everything on screen, older months have to be read
+        if (historyReader == null || !historyReader.hasMore()
+                || (!messageList.isEmpty() && scrollToTimestamp >= messageList.get(0).getTimestamp())) {
+            scrollToMessageId = null; // It can't be found - just show the chat
+        }
+        return false;
+    }
+
+    /**
+     * Adds messages this screen has loaded to the message search index
+     */
+    private void indexForSearch(List<Message> messages) {
+        if (searchIndex == null) {
+            return;
+        }
+        for (Message message : messages) {
+            message.setChatId(chatId);
+        }
+        searchIndex.addMessages(messages);
+    }
+
+    /**
+     * Shows the older months followed by this month's live messages
+     */
+    private void showMessages() {
+        messageList.clear();
+        messageList.addAll(olderMessages);
+        messageList.addAll(liveMessages);
+        messagesAdapter.updateMessages(messageList);
+    }
+
+    /**
+     * Marks every message sent to us, up to the last one on screen, as read.
+     * All of them are marked in one write (see ChatManager.markMessagesRead),
+     * using the messages this screen has already loaded - nothing is searched for.
+     */
+    private void markSeenMessagesRead() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) messagesRecyclerView.getLayoutManager();
+        if (layoutManager == null || chatId == null) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        List<Message> seen = new ArrayList<>();
+        for (int position = 0; position < messageList.size(); position++) {
+            Message message = messageList.get(position);
+            if (message.isRead() || !currentUsername.equals(message.getReceiverId())
+                    || markedRead.contains(message.getMessageId())) {
+                continue;
+            }
+            if (position <= lastVisible) {
+                seen.add(message);
+            }
+        }
+        if (seen.isEmpty()) {
+            return;
+        }
+
+        List<String> seenIds = new ArrayList<>();
+        for (Message message : seen) {
+            seenIds.add(message.getMessageId());
+        }
+        markedRead.addAll(seenIds);
+        chatManager.markMessagesRead(chatId, currentUsername, seen, new ChatManager.DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                // The messages listener brings the updated messages back
+            }
+
+            @Override
+            public void onError(String error) {
+                // Let them be tried again the next time the list stops scrolling
+                markedRead.removeAll(seenIds);
+            }
+        });
+    }
+
     /**
      * Send a message with duplicate prevention
      */
@@ -256,7 +583,7 @@ public class ChatActivity extends AppCompatActivity {
             @Override
             public void onSuccess(boolean result) {
                 runOnUiThread(() -> {
-                    // Clear input and reset sending state
+                    // Clear input and reset sending state (clearing it also ends "typing")
                     messageInput.setText("");
                     resetSendButton();
                 });
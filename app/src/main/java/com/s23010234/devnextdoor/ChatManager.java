@@ -3,13 +3,11 @@ package com.s23010234.devnextdoor;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,19 +23,33 @@ import java.util.Map;
  * - Send new messages
  * - Create new chat conversations
  * - Update chat information when new messages arrive
+ * - Keep count of each person's unread messages in every chat,
+ *   and mark messages as read in one go when they are seen
  * 
  * It connects to two main areas in Firebase:
  * - "chats" section: stores conversation information
- * - "messages" section: stores individual messages
+ * - "messages" section: stores individual messages, one folder per month
+ *   (see MessageBuckets)
  * 
  * This separation keeps the app fast because we can load chat summaries
  * without loading every single message until the user opens a specific chat.
+ * Inside a chat, sending and following new messages only touch this month's
+ * folder; older months are read on request with MessageBucketReader.
  */
 public class ChatManager {
     // Database connections for different types of chat data
     private DatabaseReference chatsReference;      // Connection to chat conversation data
     private DatabaseReference messagesReference;   // Connection to individual message data
     private ValueEventListener messagesListener;   // Listens for new messages in real-time
+    private Query messagesQuery;                   // The month of messages messagesListener follows
+    private ValueEventListener chatsListener;      // Listens for changes to the user's chat list
+    private Query chatsQuery;                      // The chats chatsListener follows
+    private UnreadCounters unreadCounters;         // Keeps the receiver's unread message counter up to date
+
+    // Shown on the Performance screen (see Metrics)
+    private static final Metrics.Histogram SEND_TIME = Metrics.histogram("chat.send");
+    private static final Metrics.Counter MESSAGES_SENT = Metrics.counter("chat.messages.sent");
+    private static final Metrics.Counter DUPLICATES_BLOCKED = Metrics.counter("chat.messages.duplicates");
 
     /**
      * Constructor - Sets up connections to Firebase chat data
@@ -46,9 +58,10 @@ public class ChatManager {
      * the Firebase database sections that store chat information.
      */
     public ChatManager() {
-        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        DatabaseGateway database = Database.get();
         chatsReference = database.getReference("chats");
         messagesReference = database.getReference("messages");
+        unreadCounters = new UnreadCounters();
     }
 
     /**
@@ -86,40 +99,58 @@ public class ChatManager {
     }
 
     /**
-     * Get all chats for a specific user
+     * The query the Chats screen follows: every chat, oldest last message first.
+     * StartupPipeline starts the same query early so the screen finds it already downloaded.
+     */
+    static Query chatIndexQuery() {
+        return Database.get().getReference("chats").orderByChild("lastMessageTimestamp");
+    }
+
+    /**
+     * Get all chats for a specific user, and keep them up to date until
+     * stopListeningForChats is called. Calling it again replaces the old
+     * listener instead of adding a second one.
      */
     public void getChatsForUser(String username, ChatsCallback callback) {
-        chatsReference.orderByChild("lastMessageTimestamp")
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(DataSnapshot dataSnapshot) {
-                        List<Chat> userChats = new ArrayList<>();
-                        
-                        for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
-                            Chat chat = chatSnapshot.getValue(Chat.class);
-                            if (chat != null && (username.equals(chat.getParticipant1()) || 
-                                               username.equals(chat.getParticipant2()))) {
-                                chat.setChatId(chatSnapshot.getKey());
-                                userChats.add(chat);
-                            }
-                        }
-                        
-                        // Sort by timestamp (newest first)
-                        Collections.sort(userChats, new Comparator<Chat>() {
-                            @Override
-                            public int compare(Chat c1, Chat c2) {
-                                return Long.compare(c2.getLastMessageTimestamp(), c1.getLastMessageTimestamp());
-                            }
-                        });
-                        
-                        callback.onSuccess(userChats);
+        stopListeningForChats();
+        chatsQuery = chatIndexQuery();
+        chatsListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                List<Chat> userChats = new ArrayList<>();
+                
+                for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
+                    Chat chat = chatSnapshot.getValue(Chat.class);
+                    if (chat != null && (username.equals(chat.getParticipant1()) || 
+                                       username.equals(chat.getParticipant2()))) {
+                        chat.setChatId(chatSnapshot.getKey());
+                        userChats.add(chat);
                     }
+                }
+                
+                // Sort by timestamp (newest first)
+                Chat.sortNewestFirst(userChats);
+                
+                callback.onSuccess(userChats);
+            }
 
-                    @Override
-                    public void onCancelled(DatabaseError databaseError) {
-                        callback.onError(databaseError.getMessage());
-                    }
-                });
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage());
+            }
+        };
+        Database.get().listen(chatsQuery, chatsListener);
+    }
+
+    /**
+     * Stop listening for chat list updates
+     */
+    public void stopListeningForChats() {
+        if (chatsListener != null) {
+            Database.get().stopListening(chatsQuery, chatsListener);
+            chatsListener = null;
+            chatsQuery = null;
+        }
     }
 
     /**
@@ -129,14 +160,14 @@ public class ChatManager {
         String chatId = Chat.generateChatId(user1, user2);
         
         // Check if chat already exists
-        chatsReference.child(chatId).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(chatsReference.child(chatId), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (!dataSnapshot.exists()) {
                     // Create new chat
                     Chat newChat = new Chat(chatId, user1, user2, "", System.currentTimeMillis(), "");
                     
-                    chatsReference.child(chatId).setValue(newChat)
+                    Database.get().setValue(chatsReference.child(chatId), newChat)
                             .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                             .addOnFailureListener(e -> callback.onError(e.getMessage()));
                 } else {
@@ -157,7 +188,7 @@ public class ChatManager {
     public void checkChatExists(String user1, String user2, ChatExistsCallback callback) {
         String chatId = Chat.generateChatId(user1, user2);
         
-        chatsReference.child(chatId).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(chatsReference.child(chatId), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 callback.onResult(dataSnapshot.exists(), chatId);
@@ -172,8 +203,14 @@ public class ChatManager {
 
     /**
      * Send a message in a chat with duplicate prevention
+     *
+     * The duplicate check and the message itself only touch the folder for
+     * the month the message is sent in, however long the chat's history is.
      */
     public void sendMessage(String chatId, String senderId, String receiverId, String content, DatabaseCallback callback) {
+        // Time from pressing send until the message is saved
+        long sendStart = Metrics.now();
+
         // Generate unique message ID with timestamp to ensure uniqueness
         long timestamp = System.currentTimeMillis();
         String messageId = messagesReference.child(chatId).push().getKey();
@@ -184,12 +221,15 @@ public class ChatManager {
             
             Message message = new Message(uniqueMessageId, chatId, senderId, receiverId, content, timestamp, false);
             
-            // Check if this exact message was already sent recently (within 3 seconds)
-            Query recentMessagesQuery = messagesReference.child(chatId)
+            // Check if this exact message was already sent recently (within 3 seconds).
+            // Only this month's folder is searched; a duplicate sent in the last
+            // 3 seconds of the previous month is not worth reading a second folder for.
+            String bucket = MessageBuckets.bucketFor(timestamp);
+            Query recentMessagesQuery = messagesReference.child(chatId).child(bucket)
                 .orderByChild("timestamp")
                 .startAt(timestamp - 3000); // Check last 3 seconds
             
-            recentMessagesQuery.addListenerForSingleValueEvent(new ValueEventListener() {
+            Database.get().readOnce(recentMessagesQuery, new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
                     boolean isDuplicate = false;
@@ -207,15 +247,25 @@ public class ChatManager {
                     }
                     
                     if (isDuplicate) {
+                        DUPLICATES_BLOCKED.increment();
                         callback.onError("Duplicate message detected");
                         return;
                     }
                     
-                    // Save message if not duplicate
-                    messagesReference.child(chatId).child(uniqueMessageId).setValue(message)
+                    // Save message if not duplicate, counting it in its month's folder in the same write
+                    Map<String, Object> messageUpdates = new HashMap<>();
+                    messageUpdates.put(MessageBuckets.messagePath(chatId, uniqueMessageId, timestamp), message);
+                    messageUpdates.put(MessageBuckets.countPath(chatId, bucket), ServerValue.increment(1));
+                    Database.get().updateChildren(Database.get().getReference(), messageUpdates)
                             .addOnSuccessListener(aVoid -> {
+                                SEND_TIME.recordSince(sendStart);
+                                MESSAGES_SENT.increment();
+
+                                // One more unread message for the receiver's Chats badge
+                                unreadCounters.adjust(receiverId, UnreadCounters.UNREAD_CHATS, 1);
+
                                 // Update chat with last message info
-                                updateChatLastMessage(chatId, content, timestamp, senderId, callback);
+                                updateChatLastMessage(chatId, content, timestamp, senderId, receiverId, callback);
                             })
                             .addOnFailureListener(e -> callback.onError(e.getMessage()));
                 }
@@ -233,26 +283,67 @@ public class ChatManager {
     /**
      * Update chat with last message information
      */
-    private void updateChatLastMessage(String chatId, String lastMessage, long timestamp, String senderId, DatabaseCallback callback) {
+    private void updateChatLastMessage(String chatId, String lastMessage, long timestamp, String senderId,
+                                       String receiverId, DatabaseCallback callback) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("lastMessage", lastMessage);
         updates.put("lastMessageTimestamp", timestamp);
         updates.put("lastMessageSender", senderId);
         
-        // Mark as unread for the receiver
-        chatsReference.child(chatId).updateChildren(updates)
+        // Mark as unread for the receiver: one more on their count for this chat
+        updates.put("unread/" + receiverId, ServerValue.increment(1));
+        Database.get().updateChildren(chatsReference.child(chatId), updates)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
 
     /**
-     * Get messages for a specific chat with real-time updates
+     * Mark messages as read - the "read receipts" for a chat
+     *
+     * Every message's read flag is sent as one multi-path write, so seeing
+     * 50 new messages costs one write, and no messages have to be searched
+     * for, because the screen already knows which messages it has shown.
+     * Once that is saved, the reader's unread count for this chat and their
+     * total (counters/{user}/unreadChats) are lowered with transactions,
+     * which stop at 0 even if a count has drifted.
+     *
+     * @param chatId The chat the messages belong to
+     * @param username The person who has read them
+     * @param messages The messages they have just seen (all unread until now)
+     * @param callback What to do when this succeeds or fails
      */
-    public void getMessagesForChat(String chatId, MessagesCallback callback) {
-        // Remove any existing listener first
-        if (messagesListener != null) {
-            messagesReference.removeEventListener(messagesListener);
+    public void markMessagesRead(String chatId, String username, List<Message> messages, DatabaseCallback callback) {
+        if (messages.isEmpty()) {
+            callback.onSuccess(true);
+            return;
         }
+
+        Map<String, Object> updates = new HashMap<>();
+        for (Message message : messages) {
+            updates.put(MessageBuckets.messagePath(chatId, message.getMessageId(), message.getTimestamp()) + "/read", true);
+        }
+
+        Database.get().updateChildren(Database.get().getReference(), updates)
+                .addOnSuccessListener(aVoid -> {
+                    unreadCounters.adjustChat(chatId, username, -messages.size());
+                    unreadCounters.adjust(username, UnreadCounters.UNREAD_CHATS, -messages.size());
+                    callback.onSuccess(true);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Get one month of messages for a specific chat with real-time updates.
+     * The chat screen follows the current month this way, and reads older
+     * months with a MessageBucketReader.
+     *
+     * @param chatId The chat to follow
+     * @param bucket The month folder to follow (see MessageBuckets.bucketFor)
+     * @param callback Given the month's messages, oldest first, after every change
+     */
+    public void getMessagesForChat(String chatId, String bucket, MessagesCallback callback) {
+        // Remove any existing listener first
+        stopListeningForMessages();
         
         messagesListener = new ValueEventListener() {
             @Override
@@ -276,17 +367,37 @@ public class ChatManager {
             }
         };
         
-        messagesReference.child(chatId).orderByChild("timestamp")
-                .addValueEventListener(messagesListener);
+        messagesQuery = messagesReference.child(chatId).child(bucket).orderByChild("timestamp");
+        Database.get().listen(messagesQuery, messagesListener);
     }
     
+    /**
+     * Lists every message inside a snapshot of messages/{chatId}, whether it
+     * is filed in a month folder or still kept the old way (loose in the chat).
+     * Each message's parent key is its month folder, or the chat id if it is loose.
+     */
+    public static List<DataSnapshot> getMessageSnapshots(DataSnapshot chatMessagesSnapshot) {
+        List<DataSnapshot> messageSnapshots = new ArrayList<>();
+        for (DataSnapshot child : chatMessagesSnapshot.getChildren()) {
+            if (MessageBuckets.isBucketKey(child.getKey())) {
+                for (DataSnapshot messageSnapshot : child.getChildren()) {
+                    messageSnapshots.add(messageSnapshot);
+                }
+            } else {
+                messageSnapshots.add(child);
+            }
+        }
+        return messageSnapshots;
+    }
+
     /**
      * Stop listening for message updates
      */
     public void stopListeningForMessages() {
         if (messagesListener != null) {
-            messagesReference.removeEventListener(messagesListener);
+            Database.get().stopListening(messagesQuery, messagesListener);
             messagesListener = null;
+            messagesQuery = null;
         }
     }
 }
@@ -3,8 +3,12 @@ package com.s23010234.devnextdoor;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
@@ -30,6 +34,8 @@ import java.util.List;
  * - View the last message from each conversation
  * - See when the last message was sent
  * - Tap on any conversation to open it and continue chatting
+ * - Search the text of all their past messages (see MessageSearchIndex),
+ *   and tap a result to open the chat at that message
  * - Navigate to other parts of the app using the bottom navigation
  * 
  * The screen extends ShakeBaseActivity, so users can shake their phone
@@ -43,11 +49,17 @@ public class ChatsActivity extends ShakeBaseActivity {
     private ChatsAdapter chatsAdapter;         // Manages displaying each conversation in the list
     private LinearLayout loadingLayout;        // Shown while loading conversations from Firebase
     private LinearLayout emptyStateLayout;     // Shown when user has no chat conversations yet
+    private EditText messageSearchInput;       // Where the user types words to find in their messages
+    private RecyclerView searchResultsRecyclerView; // The messages found, shown instead of the chats
+    private TextView searchEmptyText;          // Shown when a search finds nothing
+    private MessageSearchAdapter searchAdapter;
     
     // Data management objects
     private ChatManager chatManager;           // Helper for loading chat data from Firebase
     private String currentUsername;            // Username of the person using the app
     private List<Chat> chatList;              // List of all chat conversations for this user
+    private MessageSearchIndex searchIndex;    // The user's messages kept on this phone for searching
+    private String currentQuery = "";         // What is being searched for ("" when not searching)
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,8 +67,8 @@ public class ChatsActivity extends ShakeBaseActivity {
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_chats);
 
-        // Apply current theme
-        ThemeManager.applyTheme(this);
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
 
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -74,20 +86,24 @@ public class ChatsActivity extends ShakeBaseActivity {
         // Initialize views and managers
         initializeViews();
         setupRecyclerView();
+        setupMessageSearch();
         setupNavigationClicks();
-        loadChats();
     }
     
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply theme when returning to this activity (e.g., from Settings)
-        ThemeManager.applyTheme(this);
-        // Reload chats to get latest updates
-        android.util.Log.d("ChatsActivity", "onResume - reloading chats");
+    protected void onStart() {
+        super.onStart();
+        // Follow the chat list while the screen is visible. The listener
+        // keeps it up to date, so nothing needs reloading in onResume.
         loadChats();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        chatManager.stopListeningForChats();
+    }
+
     /**
      * Initialize view components
      */
@@ -95,6 +111,9 @@ public class ChatsActivity extends ShakeBaseActivity {
         chatsRecyclerView = findViewById(R.id.chatsRecyclerView);
         loadingLayout = findViewById(R.id.loadingLayout);
         emptyStateLayout = findViewById(R.id.emptyStateLayout);
+        messageSearchInput = findViewById(R.id.messageSearchInput);
+        searchResultsRecyclerView = findViewById(R.id.searchResultsRecyclerView);
+        searchEmptyText = findViewById(R.id.searchEmptyText);
         
         chatManager = new ChatManager();
         chatList = new ArrayList<>();
@@ -111,6 +130,66 @@ public class ChatsActivity extends ShakeBaseActivity {
         chatsRecyclerView.setAdapter(chatsAdapter);
     }
 
+    /**
+     * Sets up the message search: results update as the user types
+     */
+    private void setupMessageSearch() {
+        searchResultsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        searchAdapter = new MessageSearchAdapter(this, currentUsername);
+        searchResultsRecyclerView.setAdapter(searchAdapter);
+
+        if (!currentUsername.isEmpty()) {
+            searchIndex = MessageSearchIndex.getInstance(this, currentUsername);
+        }
+
+        messageSearchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchMessages(s.toString().trim());
+            }
+        });
+    }
+
+    /**
+     * Searches the messages kept on this phone, or goes back to the chat list
+     * when the search box is emptied
+     */
+    private void searchMessages(String query) {
+        currentQuery = query;
+        if (query.isEmpty() || searchIndex == null) {
+            searchResultsRecyclerView.setVisibility(View.GONE);
+            searchEmptyText.setVisibility(View.GONE);
+            searchAdapter.updateResults(new ArrayList<>());
+            if (chatList.isEmpty()) {
+                showEmptyState();
+            } else {
+                showChatList();
+            }
+            return;
+        }
+
+        searchIndex.search(query, (searchedQuery, results) -> {
+            // The user may have typed more since this search started
+            if (!searchedQuery.equals(currentQuery)) {
+                return;
+            }
+            loadingLayout.setVisibility(View.GONE);
+            chatsRecyclerView.setVisibility(View.GONE);
+            emptyStateLayout.setVisibility(View.GONE);
+            searchAdapter.updateResults(results);
+            searchResultsRecyclerView.setVisibility(results.isEmpty() ? View.GONE : View.VISIBLE);
+            searchEmptyText.setVisibility(results.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+    }
+
     /**
      * Load chats for current user from Firebase
      */
@@ -120,7 +199,9 @@ public class ChatsActivity extends ShakeBaseActivity {
             return;
         }
 
-        showLoading();
+        if (currentQuery.isEmpty()) {
+            showLoading();
+        }
 
         chatManager.getChatsForUser(currentUsername, new ChatManager.ChatsCallback() {
             @Override
@@ -129,6 +210,17 @@ public class ChatsActivity extends ShakeBaseActivity {
                 
                 chatList.clear();
                 chatList.addAll(chats);
+
+                // Copy any new messages into the search index (chats with nothing new cost nothing)
+                if (searchIndex != null) {
+                    searchIndex.syncChats(chats);
+                }
+
+                // While searching, the results stay on screen
+                if (!currentQuery.isEmpty()) {
+                    chatsAdapter.updateChatList(chatList);
+                    return;
+                }
                 
                 if (chats.isEmpty()) {
                     showEmptyState();
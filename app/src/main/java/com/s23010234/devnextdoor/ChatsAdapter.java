@@ -12,7 +12,6 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 import java.util.HashMap;
 import java.util.List;
@@ -28,12 +27,16 @@ import java.util.Map;
  * - Their username
  * - The last message that was sent
  * - When that message was sent
+ * - How many messages in it haven't been read yet
  * 
  * This adapter is smart and caches (remembers) profile information so it
  * doesn't have to ask Firebase for the same data over and over again.
  */
 public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHolder> {
 
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.chats");
+
     // The list of all chat conversations that will be shown to the user
     private List<Chat> chatList;
     
@@ -124,11 +127,13 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
      */
     @Override
     public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
+        long start = Metrics.now();
         // Get the chat data for this specific position in our list
         Chat chat = chatList.get(position);
         
         // Tell the view holder to fill the visual elements with this chat's information
         holder.bind(chat);
+        BIND_TIME.recordSince(start);
     }
 
     /**
@@ -184,32 +189,7 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
      * @return A human-readable string showing when the message was sent
      */
     private String formatTimestamp(long timestamp) {
-        // If there's no valid timestamp, return empty string
-        if (timestamp <= 0) return "";
-        
-        // Get the current time and calculate how much time has passed
-        long currentTime = System.currentTimeMillis();
-        long timeDiff = currentTime - timestamp;
-        
-        // Convert the time difference to minutes, hours, and days
-        long minutes = timeDiff / (1000 * 60);
-        long hours = timeDiff / (1000 * 60 * 60);
-        long days = timeDiff / (1000 * 60 * 60 * 24);
-        
-        // Return different formats based on how long ago the message was sent
-        if (minutes < 1) {
-            return "Just now";
-        } else if (minutes < 60) {
-            return minutes + " min ago";
-        } else if (hours < 24) {
-            return hours + " hour" + (hours > 1 ? "s" : "") + " ago";
-        } else if (days < 7) {
-            return days + " day" + (days > 1 ? "s" : "") + " ago";
-        } else {
-            // For older messages, show a simple date format (like "Jan 15")
-            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMM dd", java.util.Locale.getDefault());
-            return sdf.format(new java.util.Date(timestamp));
-        }
+        return TimeFormat.timeAgo(timestamp, System.currentTimeMillis());
     }
 
     /**
@@ -226,6 +206,7 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
         private TextView username;         // The other user's username
         private TextView lastMessage;      // The last message that was sent
         private TextView timestamp;        // When the last message was sent
+        private TextView unreadCount;      // How many messages we haven't read yet
 
         /**
          * Constructor - Sets up the view holder for one chat item
@@ -242,6 +223,7 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
             username = itemView.findViewById(R.id.usernameText);
             lastMessage = itemView.findViewById(R.id.lastMessageText);
             timestamp = itemView.findViewById(R.id.timestampText);
+            unreadCount = itemView.findViewById(R.id.unreadCountText);
         }
 
         /**
@@ -302,9 +284,20 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
             // Set the timestamp color to black for consistency
             timestamp.setTextColor(android.graphics.Color.BLACK);
 
+            // Show how many messages we haven't read yet (kept on the chat itself,
+            // so no messages have to be loaded to know)
+            int unread = chat.getUnreadCount(currentUsername);
+            if (unread > 0) {
+                unreadCount.setText(unread > 99 ? "99+" : String.valueOf(unread));
+                unreadCount.setVisibility(View.VISIBLE);
+            } else {
+                unreadCount.setVisibility(View.GONE);
+            }
+
             // Set up text styles for visual hierarchy
             username.setTypeface(null, android.graphics.Typeface.BOLD);     // Username is bold
-            lastMessage.setTypeface(null, android.graphics.Typeface.NORMAL); // Message is normal
+            // The message is bold while there are unread messages, normal otherwise
+            lastMessage.setTypeface(null, unread > 0 ? android.graphics.Typeface.BOLD : android.graphics.Typeface.NORMAL);
             
             // Set all text colors to black for consistency
             username.setTextColor(android.graphics.Color.BLACK);
@@ -343,8 +336,8 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
             }
 
             // We don't have it cached, so we need to get it from Firebase
-            DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(username);
-            userRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            DatabaseReference userRef = Database.get().getReference("users").child(username);
+            Database.get().readOnce(userRef, new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
                     if (dataSnapshot.exists()) {
@@ -0,0 +1,248 @@
+package com.s23010234.devnextdoor;
+
+import android.content.Context;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * City Gazetteer - The list of cities users can live in, with their locations
+ *
+ * A gazetteer is a geographical dictionary: you look up a place name and
+ * get its position. The cities come from the assets/cities.csv file shipped
+ * with the app, so adding a city means adding one line there instead of
+ * changing code in several screens.
+ *
+ * Everything is worked out once when the file is loaded:
+ * - City names are "normalized" (lower case, single spaces, no dots or dashes)
+ *   so "Nuwara Eliya", "nuwara-eliya" and " NUWARA  ELIYA " all find the same city
+ * - A table (HashMap) gives the city's number straight from its name
+ * - The distance between every pair of cities is stored in a grid,
+ *   so showing a distance is a simple look-up instead of a calculation
+ *
+ * Unknown city names are reported as unknown (-1 or null) instead of being
+ * quietly placed in the middle of the island.
+ *
+ * A city can be kept in the file but left out of the dropdown ("no" in the
+ * listed column), so older profiles that have it are still found.
+ */
+public class CityGazetteer {
+
+    // The file inside the app's assets folder that lists the cities
+    private static final String ASSET_FILE = "cities.csv";
+
+    // Returned by indexOf for names that aren't in the list
+    public static final int UNKNOWN = -1;
+
+    // The one shared gazetteer, loaded the first time it's needed
+    private static CityGazetteer instance;
+
+    // City details, all in the same order as the file
+    private final String[] names;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Whether each city is offered in the dropdown
+    private final boolean[] listed;
+
+    // Normalized name (or other spelling) -> position in the arrays above
+    private final Map<String, Integer> indexByName;
+
+    // Distance in km between city i and city j, stored at [i * size + j]
+    private final float[] distancesKm;
+
+    private CityGazetteer(List<String> names, List<double[]> coordinates, List<Boolean> listed,
+                          Map<String, Integer> indexByName) {
+        int size = names.size();
+        this.names = names.toArray(new String[0]);
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        this.listed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = coordinates.get(i)[0];
+            longitudes[i] = coordinates.get(i)[1];
+            this.listed[i] = listed.get(i);
+        }
+        this.indexByName = indexByName;
+
+        // Work out every distance once (the grid is the same both ways, so only half is calculated)
+        this.distancesKm = new float[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                float distance = (float) DeveloperSpatialIndex.distanceKm(
+                        latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+                distancesKm[i * size + j] = distance;
+                distancesKm[j * size + i] = distance;
+            }
+        }
+    }
+
+    /**
+     * Gets the shared gazetteer, loading it from the app's assets the first time.
+     *
+     * @param context Any context (only used to open the assets)
+     * @return The gazetteer
+     * @throws IllegalStateException if the bundled city file can't be read
+     */
+    public static synchronized CityGazetteer getInstance(Context context) {
+        if (instance == null) {
+            try (Reader reader = new InputStreamReader(
+                    context.getApplicationContext().getAssets().open(ASSET_FILE), StandardCharsets.UTF_8)) {
+                instance = parse(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read " + ASSET_FILE, e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a city list in the cities.csv format.
+     * Blank lines, lines starting with # and the header line are skipped.
+     *
+     * @param reader Where to read the list from
+     * @return A gazetteer holding those cities
+     * @throws IOException if reading fails or a line is not in the right format
+     */
+    static CityGazetteer parse(Reader reader) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<double[]> coordinates = new ArrayList<>();
+        List<Boolean> listed = new ArrayList<>();
+        Map<String, Integer> indexByName = new HashMap<>();
+
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("name,")) {
+                continue;
+            }
+
+            String[] columns = line.split(",", -1);
+            if (columns.length < 3) {
+                throw new IOException("Line " + lineNumber + " of " + ASSET_FILE + " needs name,latitude,longitude");
+            }
+            String name = columns[0].trim();
+            double latitude;
+            double longitude;
+            try {
+                latitude = Double.parseDouble(columns[1].trim());
+                longitude = Double.parseDouble(columns[2].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + " of " + ASSET_FILE + " has a bad coordinate", e);
+            }
+
+            int index = names.size();
+            names.add(name);
+            coordinates.add(new double[] { latitude, longitude });
+            listed.add(columns.length < 5 || !"no".equalsIgnoreCase(columns[4].trim()));
+            indexByName.put(normalize(name), index);
+
+            // Other spellings point to the same city
+            if (columns.length > 3 && !columns[3].trim().isEmpty()) {
+                for (String alias : columns[3].split("\\|")) {
+                    indexByName.put(normalize(alias), index);
+                }
+            }
+        }
+        return new CityGazetteer(names, coordinates, listed, indexByName);
+    }
+
+    /**
+     * Turns a city name into the form used for look-ups:
+     * lower case, dots/dashes/underscores turned into spaces, and single spaces only.
+     */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(name.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '-' || c == '_' || c == '.' || Character.isWhitespace(c)) {
+                // Remember the gap, but only write one space and only between words
+                pendingSpace = result.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+            result.append(Character.toLowerCase(c));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Finds a city's number from its name (any capitalization or known spelling)
+     *
+     * @return The city's number, or UNKNOWN if the name isn't in the list
+     */
+    public int indexOf(String name) {
+        Integer index = indexByName.get(normalize(name));
+        return index != null ? index : UNKNOWN;
+    }
+
+    /**
+     * The city's name as it should be shown, for example "Nuwara Eliya" for "nuwara-eliya"
+     *
+     * @return The shown name, or null if the name isn't in the list
+     */
+    public String canonicalName(String name) {
+        int index = indexOf(name);
+        return index != UNKNOWN ? names[index] : null;
+    }
+
+    /**
+     * Number of cities in the list
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    /**
+     * The names of the cities offered in the dropdown, in the order of the file
+     */
+    public List<String> getCityNames() {
+        List<String> list = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            if (listed[i]) {
+                list.add(names[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Distance between two cities' centres, from the precomputed grid
+     *
+     * @param from Number of the first city
+     * @param to Number of the second city
+     * @return Distance in kilometers
+     */
+    public float distanceKm(int from, int to) {
+        return distancesKm[from * names.length + to];
+    }
+}
@@ -6,8 +6,6 @@ import android.widget.LinearLayout;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
-import androidx.activity.result.ActivityResultLauncher;
-import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -24,18 +22,16 @@ import androidx.core.view.WindowInsetsCompat;
  * - Access settings (themes, preferences)
  * - View their favorites list
  * - Meet new friends
+ * - See how fast the app is running (Performance)
  * - Navigate to other parts of the app
  * 
  * The dashboard extends ShakeBaseActivity, which means it can detect
  * when the user shakes their phone to quickly access certain features.
- * It also handles theme changes properly when users return from Settings.
+ * Theme changes made in Settings need no code here: Android rebuilds the
+ * open screens by itself when the theme really changes (see ThemeManager).
  */
 public class DashboardActivity extends ShakeBaseActivity {
 
-    // Variables to handle theme changes when returning from Settings
-    private boolean themeChangedInSettings = false;           // Tracks if theme was changed
-    private ActivityResultLauncher<Intent> settingsLauncher;  // Handles returning from Settings
-
     /**
      * onCreate - Sets up the Dashboard screen when it's first created
      * 
@@ -57,19 +53,8 @@ public class DashboardActivity extends ShakeBaseActivity {
         // Load and display the dashboard screen layout from the XML file
         setContentView(R.layout.activity_dashboard);
 
-        // Apply the user's chosen theme (Dark mode, Light mode, etc.)
-        ThemeManager.applyTheme(this);
-
-        // Set up a special launcher for the Settings screen
-        // This is needed because when users change themes in Settings,
-        // we need to recreate this screen to apply the new theme
-        settingsLauncher = registerForActivityResult(
-            new ActivityResultContracts.StartActivityForResult(),
-            result -> {
-                // When returning from Settings, recreate the activity to apply any theme changes
-                recreate();
-            }
-        );
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot);
 
         // Handle system bars (status bar, navigation bar) properly
         // This ensures our content doesn't get hidden behind system elements
@@ -148,10 +133,9 @@ public class DashboardActivity extends ShakeBaseActivity {
         });
 
         // Settings box - opens app settings (themes, preferences, etc.)
-        // Uses special launcher to handle theme changes properly
         findViewById(R.id.boxSettings).setOnClickListener(v -> {
             Intent intent = new Intent(DashboardActivity.this, SettingsActivity.class);
-            settingsLauncher.launch(intent);
+            startActivity(intent);
         });
 
         // Favorites box - shows users the people they've favorited
@@ -179,6 +163,12 @@ public class DashboardActivity extends ShakeBaseActivity {
             intent.putExtra("isEditing", true);                  // Flag indicating this is editing mode
             startActivity(intent);
         });
+
+        // Performance box - shows how long database calls and list drawing take
+        findViewById(R.id.boxPerformance).setOnClickListener(v -> {
+            Intent intent = new Intent(DashboardActivity.this, MetricsActivity.class);
+            startActivity(intent);
+        });
     }
 
 }
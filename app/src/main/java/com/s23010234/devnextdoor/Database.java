@@ -0,0 +1,35 @@
+package com.s23010234.devnextdoor;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Database - Hands out the app's database gateway
+ *
+ * Call Database.get() wherever the database is needed. The first call
+ * connects to Firebase (see FirebaseGateway), wrapped in a MeteredGateway so
+ * every call shows up on the Performance screen; tests call setGateway first
+ * to put a fake in its place.
+ */
+public final class Database {
+
+    private static DatabaseGateway gateway;
+
+    private Database() {
+        // Only static helpers
+    }
+
+    public static synchronized DatabaseGateway get() {
+        if (gateway == null) {
+            gateway = new MeteredGateway(new FirebaseGateway());
+        }
+        return gateway;
+    }
+
+    /**
+     * Replaces the gateway everything uses (null goes back to Firebase)
+     */
+    @VisibleForTesting
+    public static synchronized void setGateway(DatabaseGateway newGateway) {
+        gateway = newGateway;
+    }
+}
@@ -0,0 +1,73 @@
+package com.s23010234.devnextdoor;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.OnDisconnect;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Map;
+
+/**
+ * Database Gateway - The one door into the database
+ *
+ * Every screen and manager in the app reads and writes the database
+ * through this interface (get it with Database.get()) instead of calling
+ * Firebase directly. The app uses FirebaseGateway, which just passes each
+ * call on to Firebase. Tests can swap in their own gateway that counts
+ * every read, listener and write, so a screen that quietly starts reading
+ * more than it should makes a test fail.
+ *
+ * References and queries are still built the normal Firebase way
+ * (getReference("users").child(name).orderByChild(...)). Building them
+ * doesn't touch the network - only the methods below do.
+ */
+public interface DatabaseGateway {
+
+    /**
+     * The top of the database
+     */
+    DatabaseReference getReference();
+
+    /**
+     * A place in the database, like "users" or "chats/alice_bob"
+     */
+    DatabaseReference getReference(String path);
+
+    /**
+     * Reads a query once (Firebase addListenerForSingleValueEvent)
+     */
+    void readOnce(Query query, ValueEventListener listener);
+
+    /**
+     * Follows a query until stopListening is called (Firebase addValueEventListener)
+     */
+    void listen(Query query, ValueEventListener listener);
+
+    /**
+     * Follows each child of a query until stopListening is called (Firebase addChildEventListener)
+     */
+    void listen(Query query, ChildEventListener listener);
+
+    void stopListening(Query query, ValueEventListener listener);
+
+    void stopListening(Query query, ChildEventListener listener);
+
+    Task<Void> setValue(DatabaseReference ref, Object value);
+
+    /**
+     * Writes several places at once (keys are paths below ref; null values delete)
+     */
+    Task<Void> updateChildren(DatabaseReference ref, Map<String, Object> values);
+
+    Task<Void> removeValue(DatabaseReference ref);
+
+    void runTransaction(DatabaseReference ref, Transaction.Handler handler);
+
+    /**
+     * Writes the server should make when this device disconnects
+     */
+    OnDisconnect onDisconnect(DatabaseReference ref);
+}
@@ -0,0 +1,46 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Application;
+
+/**
+ * This class represents the whole app while it is running.
+ * Android creates it once, before any screen is opened,
+ * so it is the right place for setup that every screen depends on.
+ */
+public class DevNextDoorApplication extends Application {
+
+    /**
+     * This method runs once when the app process starts.
+     * It switches the app to the user's saved light or dark mode,
+     * so the very first screen is already built with the right colors.
+     * It also starts the shared shake sensor service and the live
+     * notification stream that keeps the unread badge up to date,
+     * and keeps the user's online status in step with the app being open.
+     * Performance metrics are switched on or off as saved on the Performance screen.
+     * The startup pipeline then connects to Firebase in the background and
+     * starts downloading a returning user's first screens while the
+     * welcome screens are showing.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Use the dark or light resources the user picked last time
+        ThemeManager.applySavedNightMode(this);
+
+        // Record performance metrics if they are switched on (before anything touches the database)
+        MetricsActivity.applySavedSetting(this);
+
+        // Session, Firebase, warm-up and Maps, mostly off the main thread (times itself from here)
+        StartupPipeline.install(this);
+
+        // One shared shake sensor that follows whichever screen is in the foreground
+        ShakeService.install(this);
+
+        // One shared notification listener for the unread badge on every screen
+        NotificationStream.install(this);
+
+        // One shared presence tracker that marks the user online while the app is open
+        PresenceManager.install(this);
+    }
+}
@@ -0,0 +1,488 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Developer Spatial Index - Finds the developers closest to a point on the map
+ *
+ * Without an index, finding the 20 closest developers means measuring the
+ * distance to every single user and sorting them all. This class keeps the
+ * users in a KD-tree instead. Think of it like a phone book that is split in
+ * half again and again (north/south, east/west, ...) so a search only opens
+ * the few pages that can contain nearby people.
+ *
+ * How positions are stored:
+ * - Each latitude/longitude is turned into a point on a ball of radius 1
+ *   (x, y, z). The straight-line distance between two such points grows
+ *   together with the real distance over the Earth's surface, so the tree
+ *   can compare plain numbers and still give exactly the right order.
+ *
+ * Developers at the same spot:
+ * - Many users share exactly the same position (everyone in a city is placed
+ *   at the city centre), so each tree node is one position holding the list
+ *   of usernames there. A whole city is one node instead of a long chain.
+ *
+ * Keeping it up to date:
+ * - put() and remove() change one user at a time, so the index can follow
+ *   profile changes from Firebase without being rebuilt from scratch
+ * - A position nobody is left at stays in the tree as an empty node; once
+ *   enough changes pile up the tree is rebuilt in one go so searches stay fast
+ *
+ * This class is plain Java (no Android code), so it can be tested on a computer.
+ * It is not thread-safe - use it from one thread (the main thread in the app).
+ */
+public class DeveloperSpatialIndex {
+
+    // Mean radius of the Earth in kilometers
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    // Don't bother rebuilding very small trees
+    private static final int MIN_REBUILD_CHANGES = 32;
+
+    /**
+     * One developer found by a search, with their distance from the search point
+     */
+    public static class Result {
+        private final String username;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceKm;
+
+        Result(String username, double latitude, double longitude, double distanceKm) {
+            this.username = username;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceKm = distanceKm;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+    }
+
+    /**
+     * One branch point of the tree. Each node is one position, holds the
+     * developers at that position, and splits the space into two halves
+     * along one axis (x, y or z).
+     *
+     * Positions are put in order by the node's axis first, then by the other
+     * two axes, then by latitude and longitude. So two different positions
+     * never count as equal, even if they share the value on the split axis.
+     */
+    private static class Node {
+        final double latitude;
+        final double longitude;
+        final double[] point;   // Position on the unit ball: {x, y, z}
+        final Set<String> usernames = new HashSet<>();  // Empty once everyone has left, until the next rebuild
+        int axis;               // Which of x, y, z this node splits on
+        Node left;              // Positions that come before this one on that axis
+        Node right;             // Positions that come after this one on that axis
+
+        Node(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.point = toUnitVector(latitude, longitude);
+        }
+    }
+
+    // The top of the tree
+    private Node root;
+
+    // The node each developer in the index is at, by username
+    private final Map<String, Node> nodesByUsername = new HashMap<>();
+
+    // Number of puts and removes since the tree was last rebuilt
+    private int changesSinceRebuild;
+
+    // Number of developers the tree held when it was last rebuilt
+    private int sizeAtRebuild;
+
+    /**
+     * Adds a developer, or moves them if they are already in the index.
+     *
+     * @param username The developer's username
+     * @param latitude Where they are (north/south)
+     * @param longitude Where they are (east/west)
+     */
+    public void put(String username, double latitude, double longitude) {
+        Node existing = nodesByUsername.get(username);
+        if (existing != null) {
+            if (existing.latitude == latitude && existing.longitude == longitude) {
+                return; // Nothing moved
+            }
+            existing.usernames.remove(username);
+        }
+
+        Node node = insert(new Node(latitude, longitude));
+        node.usernames.add(username);
+        nodesByUsername.put(username, node);
+        afterChange();
+    }
+
+    /**
+     * Removes a developer from the index.
+     *
+     * @param username The developer's username
+     * @return True if the developer was in the index
+     */
+    public boolean remove(String username) {
+        Node node = nodesByUsername.remove(username);
+        if (node == null) {
+            return false;
+        }
+        node.usernames.remove(username);
+        afterChange();
+        return true;
+    }
+
+    /**
+     * Checks whether a developer is in the index
+     */
+    public boolean contains(String username) {
+        return nodesByUsername.containsKey(username);
+    }
+
+    /**
+     * Number of developers in the index
+     */
+    public int size() {
+        return nodesByUsername.size();
+    }
+
+    /**
+     * Removes every developer from the index
+     */
+    public void clear() {
+        root = null;
+        nodesByUsername.clear();
+        changesSinceRebuild = 0;
+        sizeAtRebuild = 0;
+    }
+
+    /**
+     * Replaces everything in the index with a new list of developers at once.
+     * This is faster than calling put() for each one, because the tree is
+     * built balanced straight away.
+     *
+     * @param usernames The developers' usernames
+     * @param latitudes Their latitudes (same order as usernames)
+     * @param longitudes Their longitudes (same order as usernames)
+     */
+    public void replaceAll(List<String> usernames, double[] latitudes, double[] longitudes) {
+        nodesByUsername.clear();
+        for (int i = 0; i < usernames.size(); i++) {
+            Node node = new Node(latitudes[i], longitudes[i]);
+            node.usernames.add(usernames.get(i));
+            nodesByUsername.put(usernames.get(i), node);
+        }
+        rebuild();
+    }
+
+    /**
+     * Finds the developers closest to a point.
+     *
+     * @param latitude Search point latitude
+     * @param longitude Search point longitude
+     * @param count How many developers to return at most
+     * @return The closest developers, nearest first
+     */
+    public List<Result> nearest(double latitude, double longitude, int count) {
+        if (count <= 0 || root == null) {
+            return new ArrayList<>();
+        }
+        double[] target = toUnitVector(latitude, longitude);
+
+        // Keeps the best candidates so far, with the furthest one on top
+        PriorityQueue<Candidate> best = new PriorityQueue<>(count + 1,
+                (a, b) -> Double.compare(b.chordSquared, a.chordSquared));
+        searchNearest(root, target, count, best);
+
+        List<Result> results = new ArrayList<>(best.size());
+        for (Candidate candidate : best) {
+            results.add(toResult(candidate));
+        }
+        Collections.sort(results, RESULT_BY_DISTANCE);
+        return results;
+    }
+
+    /**
+     * Finds every developer within a distance of a point.
+     *
+     * @param latitude Search point latitude
+     * @param longitude Search point longitude
+     * @param radiusKm The largest distance to include, in kilometers
+     * @return The developers inside the circle, nearest first
+     */
+    public List<Result> withinRadius(double latitude, double longitude, double radiusKm) {
+        List<Result> results = new ArrayList<>();
+        if (radiusKm < 0 || root == null) {
+            return results;
+        }
+        double[] target = toUnitVector(latitude, longitude);
+        double chord = radiusToChord(radiusKm);
+        searchRadius(root, target, chord * chord, results);
+        Collections.sort(results, RESULT_BY_DISTANCE);
+        return results;
+    }
+
+    /**
+     * Distance over the Earth's surface between two points, in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double chordSquared = squaredDistance(toUnitVector(latitude1, longitude1), toUnitVector(latitude2, longitude2));
+        return chordToKm(chordSquared);
+    }
+
+    // ---- Searching ----
+
+    /**
+     * A possible search result, kept while the search is still running
+     */
+    private static class Candidate {
+        final Node node;
+        final String username;
+        final double chordSquared;
+
+        Candidate(Node node, String username, double chordSquared) {
+            this.node = node;
+            this.username = username;
+            this.chordSquared = chordSquared;
+        }
+    }
+
+    private static final Comparator<Result> RESULT_BY_DISTANCE =
+            (a, b) -> Double.compare(a.distanceKm, b.distanceKm);
+
+    private static void searchNearest(Node node, double[] target, int count, PriorityQueue<Candidate> best) {
+        if (node == null) {
+            return;
+        }
+        if (!node.usernames.isEmpty()) {
+            double chordSquared = squaredDistance(node.point, target);
+            // Everyone here is equally far away, so stop as soon as one of them doesn't fit
+            for (String username : node.usernames) {
+                if (best.size() < count) {
+                    best.add(new Candidate(node, username, chordSquared));
+                } else if (chordSquared < best.peek().chordSquared) {
+                    best.poll();
+                    best.add(new Candidate(node, username, chordSquared));
+                } else {
+                    break;
+                }
+            }
+        }
+
+        // Search the half the target is in first, it is the most likely to hold close developers
+        double difference = target[node.axis] - node.point[node.axis];
+        Node nearSide = difference < 0 ? node.left : node.right;
+        Node farSide = difference < 0 ? node.right : node.left;
+        searchNearest(nearSide, target, count, best);
+
+        // Only look at the other half if something there could still be closer
+        if (best.size() < count || difference * difference < best.peek().chordSquared) {
+            searchNearest(farSide, target, count, best);
+        }
+    }
+
+    private static void searchRadius(Node node, double[] target, double chordSquaredLimit, List<Result> results) {
+        if (node == null) {
+            return;
+        }
+        if (!node.usernames.isEmpty()) {
+            double chordSquared = squaredDistance(node.point, target);
+            if (chordSquared <= chordSquaredLimit) {
+                double distanceKm = chordToKm(chordSquared);
+                for (String username : node.usernames) {
+                    results.add(new Result(username, node.latitude, node.longitude, distanceKm));
+                }
+            }
+        }
+
+        double difference = target[node.axis] - node.point[node.axis];
+        Node nearSide = difference < 0 ? node.left : node.right;
+        Node farSide = difference < 0 ? node.right : node.left;
+        searchRadius(nearSide, target, chordSquaredLimit, results);
+        if (difference * difference <= chordSquaredLimit) {
+            searchRadius(farSide, target, chordSquaredLimit, results);
+        }
+    }
+
+    private static Result toResult(Candidate candidate) {
+        Node node = candidate.node;
+        return new Result(candidate.username, node.latitude, node.longitude, chordToKm(candidate.chordSquared));
+    }
+
+    // ---- Building the tree ----
+
+    /**
+     * Adds a node at the bottom of the tree, following the splits from the top.
+     * If the tree already has a node at the same position, that one is used instead.
+     *
+     * @return The node now holding the position
+     */
+    private Node insert(Node node) {
+        if (root == null) {
+            node.axis = 0;
+            root = node;
+            return node;
+        }
+        Node parent = root;
+        while (true) {
+            int order = compare(node, parent, parent.axis);
+            if (order == 0) {
+                return parent;
+            }
+            boolean goLeft = order < 0;
+            Node child = goLeft ? parent.left : parent.right;
+            if (child == null) {
+                node.axis = (parent.axis + 1) % 3;
+                if (goLeft) {
+                    parent.left = node;
+                } else {
+                    parent.right = node;
+                }
+                return node;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Puts two positions in order along an axis. Ties on that axis are broken
+     * by the other axes and then by latitude/longitude, so only the very same
+     * position gives 0.
+     */
+    private static int compare(Node a, Node b, int axis) {
+        for (int i = 0; i < 3; i++) {
+            int k = (axis + i) % 3;
+            int order = Double.compare(a.point[k], b.point[k]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        int order = Double.compare(a.latitude, b.latitude);
+        return order != 0 ? order : Double.compare(a.longitude, b.longitude);
+    }
+
+    /**
+     * Rebuilds the tree once many changes have been made since the last rebuild.
+     * Removed nodes stay in the tree until then, and new nodes are added at the
+     * bottom, so the tree slowly gets lopsided. Rebuilding after roughly as many
+     * changes as there are developers keeps the average cost per change small.
+     */
+    private void afterChange() {
+        changesSinceRebuild++;
+        if (changesSinceRebuild > Math.max(MIN_REBUILD_CHANGES, sizeAtRebuild)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Builds the tree again from the developers in nodesByUsername.
+     * Empty nodes are dropped, and developers at the same position end up in one node.
+     */
+    private void rebuild() {
+        Node[] nodes = nodesByUsername.values().toArray(new Node[0]);
+        Arrays.sort(nodes, (a, b) -> compare(a, b, 0));
+
+        // Join the runs of nodes at the same position into the first one of each run
+        int distinct = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = nodes[i];
+            if (distinct > 0 && compare(nodes[distinct - 1], node, 0) == 0) {
+                Node kept = nodes[distinct - 1];
+                if (kept != node) {
+                    for (String username : node.usernames) {
+                        kept.usernames.add(username);
+                        nodesByUsername.put(username, kept);
+                    }
+                }
+                continue;
+            }
+            node.left = null;
+            node.right = null;
+            nodes[distinct++] = node;
+        }
+
+        root = build(nodes, 0, distinct, 0);
+        changesSinceRebuild = 0;
+        sizeAtRebuild = nodesByUsername.size();
+    }
+
+    /**
+     * Builds a balanced tree by picking the middle developer along each axis in turn
+     */
+    private static Node build(Node[] nodes, int from, int to, int axis) {
+        if (from >= to) {
+            return null;
+        }
+        Arrays.sort(nodes, from, to, (a, b) -> compare(a, b, axis));
+        // Every position is different, so the middle one always splits the rest in half
+        int middle = (from + to) >>> 1;
+        Node node = nodes[middle];
+        node.axis = axis;
+        int nextAxis = (axis + 1) % 3;
+        node.left = build(nodes, from, middle, nextAxis);
+        node.right = build(nodes, middle + 1, to, nextAxis);
+        return node;
+    }
+
+    // ---- Geometry ----
+
+    /**
+     * Turns a latitude/longitude into a point on a ball of radius 1
+     */
+    static double[] toUnitVector(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        return new double[] { cosLat * Math.cos(lng), cosLat * Math.sin(lng), Math.sin(lat) };
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Turns a surface distance into the straight-line distance through the unit ball
+     */
+    static double radiusToChord(double radiusKm) {
+        double angle = radiusKm / EARTH_RADIUS_KM;
+        if (angle >= Math.PI) {
+            return 2.0; // Covers the whole planet
+        }
+        return 2.0 * Math.sin(angle / 2.0);
+    }
+
+    /**
+     * Turns a squared straight-line distance through the unit ball back into kilometers
+     */
+    private static double chordToKm(double chordSquared) {
+        double halfChord = Math.min(1.0, Math.sqrt(chordSquared) / 2.0);
+        return 2.0 * EARTH_RADIUS_KM * Math.asin(halfChord);
+    }
+}
@@ -28,7 +28,6 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
@@ -95,9 +94,9 @@ public class EditProfileActivity extends AppCompatActivity {
         
         // Load and display the edit profile screen layout from the XML file
         setContentView(R.layout.activity_edit_profile);
-        
-        // Apply the user's preferred theme (dark or light mode)
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
         
         // Handle system bars (like status bar and navigation bar) properly
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -107,7 +106,7 @@ public class EditProfileActivity extends AppCompatActivity {
         });
 
         // Set up connection to Firebase database where profiles are stored
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         
         // Get information passed from the previous screen
         username = getIntent().getStringExtra("username");
@@ -125,13 +124,6 @@ public class EditProfileActivity extends AppCompatActivity {
         }
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply theme when returning to this activity (e.g., from Settings)
-        ThemeManager.applyTheme(this);
-    }
-
     private void initializeViews() {
         usernameDisplay = findViewById(R.id.usernameDisplay);
         genderRadioGroup = findViewById(R.id.genderRadioGroup);
@@ -192,14 +184,10 @@ public class EditProfileActivity extends AppCompatActivity {
         levelSpinner.setClickable(true);
 
         // City Spinner Setup with standard Android layouts
-        List<String> cityOptions = Arrays.asList(
-                "Select City",
-                "Ampara", "Anuradhapura", "Badulla", "Batticaloa", "Colombo", "Galle",
-                "Gampaha", "Hambantota", "Jaffna", "Kalutara", "Kandy", "Kegalle",
-                "Kilinochchi", "Kurunegala", "Mannar", "Matale", "Matara", "Monaragala",
-                "Mullaitivu", "Nuwara Eliya", "Polonnaruwa", "Puttalam", "Ratnapura",
-                "Trincomalee", "Vavuniya"
-        );
+        // The cities come from the gazetteer (assets/cities.csv)
+        List<String> cityOptions = new ArrayList<>();
+        cityOptions.add("Select City");
+        cityOptions.addAll(CityGazetteer.getInstance(this).getCityNames());
         ArrayAdapter<String> cityAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, cityOptions);
         cityAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         citySpinner.setAdapter(cityAdapter);
@@ -346,7 +334,7 @@ public class EditProfileActivity extends AppCompatActivity {
     }
 
     private void loadExistingUserData() {
-        databaseReference.child(username).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (dataSnapshot.exists()) {
@@ -382,7 +370,9 @@ public class EditProfileActivity extends AppCompatActivity {
                         // Load city
                         String city = dataSnapshot.child("city").getValue(String.class);
                         if (city != null) {
-                            setSpinnerSelection(citySpinner, city);
+                            // Match older profiles that saved the name in a different form
+                            String knownCity = CityGazetteer.getInstance(EditProfileActivity.this).canonicalName(city);
+                            setSpinnerSelection(citySpinner, knownCity != null ? knownCity : city);
                         }
 
                         // Load availability
@@ -568,7 +558,7 @@ public class EditProfileActivity extends AppCompatActivity {
         }
 
         // Validate tech stack format (comma separation for multiple items)
-        if (!isValidCommaSeparatedFormat(techStack)) {
+        if (!ProfileTextFormat.isValidCommaSeparatedFormat(techStack)) {
             techStackInputText.setError("Please separate multiple technologies with commas (e.g., Java, Python, React)");
             toast("Use commas to separate multiple technologies in tech stack");
             techStackInputText.requestFocus();
@@ -583,7 +573,7 @@ public class EditProfileActivity extends AppCompatActivity {
         }
 
         // Validate want to learn format (comma separation for multiple items)
-        if (!isValidCommaSeparatedFormat(wantToLearn)) {
+        if (!ProfileTextFormat.isValidCommaSeparatedFormat(wantToLearn)) {
             wantToLearnInputText.setError("Please separate multiple technologies with commas (e.g., Spring Boot, React Native)");
             toast("Use commas to separate multiple technologies in want to learn");
             wantToLearnInputText.requestFocus();
@@ -625,7 +615,7 @@ public class EditProfileActivity extends AppCompatActivity {
         profileData.put("profileCompleted", true);
 
         // Set timestamp only if it doesn't already exist (first time profile creation)
-        databaseReference.child(username).child("timestamp").addListenerForSingleValueEvent(new com.google.firebase.database.ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username).child("timestamp"), new com.google.firebase.database.ValueEventListener() {
             @Override
             public void onDataChange(com.google.firebase.database.DataSnapshot dataSnapshot) {
                 boolean isFirstTimeProfileCreation = !dataSnapshot.exists() && !isEditing;
@@ -634,10 +624,14 @@ public class EditProfileActivity extends AppCompatActivity {
                 }
 
                 // Proceed with update after deciding timestamp
-                databaseReference.child(username).updateChildren(profileData)
+                Database.get().updateChildren(databaseReference.child(username), profileData)
                         .addOnSuccessListener(aVoid -> {
                             toast("Profile updated successfully!");
 
+                            // Keep the location index in step with the (possibly new) city
+                            new GeoIndexManager().updateCity(username, city,
+                                    CityGazetteer.getInstance(EditProfileActivity.this), null);
+
                             // Add profile completion notification for first-time users
                             if (isFirstTimeProfileCreation) {
                                 addProfileCompletionNotification(username);
@@ -702,68 +696,6 @@ public class EditProfileActivity extends AppCompatActivity {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
 
-    /**
-     * Validates if the input text follows proper comma-separated format
-     * Checks for multiple words without commas and suggests comma separation
-     * @param text Input text to validate
-     * @return true if format is valid, false if needs comma separation
-     */
-    private boolean isValidCommaSeparatedFormat(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return true; // Empty text is handled by other validation
-        }
-        
-        String trimmedText = text.trim();
-        
-        // If text contains commas, it's likely properly formatted
-        if (trimmedText.contains(",")) {
-            return true;
-        }
-        
-        // Split by whitespace to count words
-        String[] words = trimmedText.split("\\s+");
-        
-        // If more than 2 words without commas, suggest comma separation
-        // Allow single words or two-word phrases (like "React Native")
-        if (words.length > 2) {
-            // Check if it might be a valid multi-word technology name
-            // Allow common patterns like "Spring Boot", "React Native", "Node.js", etc.
-            if (words.length <= 3 && containsCommonTechPatterns(trimmedText)) {
-                return true;
-            }
-            return false;
-        }
-        
-        return true;
-    }
-    
-    /**
-     * Checks if the text contains common technology naming patterns
-     * that might be valid as single entries
-     */
-    private boolean containsCommonTechPatterns(String text) {
-        String lowerText = text.toLowerCase();
-        
-        // Common technology patterns that are typically single entries
-        String[] commonPatterns = {
-            "spring boot", "react native", "node.js", "vue.js", "next.js",
-            "react js", "angular js", "express.js", "nest.js", "socket.io",
-            "material ui", "tailwind css", "styled components", "sass css",
-            "visual studio", "android studio", "intellij idea", "vs code",
-            "machine learning", "artificial intelligence", "data science",
-            "web development", "mobile development", "full stack",
-            "front end", "back end", "database management"
-        };
-        
-        for (String pattern : commonPatterns) {
-            if (lowerText.contains(pattern)) {
-                return true;
-            }
-        }
-        
-        return false;
-    }
-
     // Custom data class for profile picture items
     private static class ProfilePictureItem {
         private String name;
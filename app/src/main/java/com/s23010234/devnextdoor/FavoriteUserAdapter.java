@@ -30,6 +30,9 @@ import java.util.List;
  */
 public class FavoriteUserAdapter extends RecyclerView.Adapter<FavoriteUserAdapter.FavoriteUserViewHolder> {
 
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.favorites");
+
     // Data and context needed for displaying favorite users
     private List<User> favoriteUsers;                          // List of users marked as favorites
     private Context context;                                   // App context for accessing resources
@@ -57,8 +60,10 @@ public class FavoriteUserAdapter extends RecyclerView.Adapter<FavoriteUserAdapte
 
     @Override
     public void onBindViewHolder(@NonNull FavoriteUserViewHolder holder, int position) {
+        long start = Metrics.now();
         User user = favoriteUsers.get(position);
         holder.bind(user);
+        BIND_TIME.recordSince(start);
     }
 
     @Override
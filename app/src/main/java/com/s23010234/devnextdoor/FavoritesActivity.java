@@ -23,7 +23,6 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
@@ -70,9 +69,10 @@ public class FavoritesActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_favorites);
-        
-        // Apply current theme
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot, R.id.loadingLayout,
+                R.id.favoritesRecyclerView, R.id.emptyStateLayout);
         
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.loadingLayout), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -87,7 +87,7 @@ public class FavoritesActivity extends AppCompatActivity {
         );
         
         // Initialize Firebase
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         firebaseHelper = new FirebaseHelper();
         
         // Get current username
@@ -103,8 +103,6 @@ public class FavoritesActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Only reload if not currently loading and apply theme
-        ThemeManager.applyTheme(this);
         // Don't reload favorites on resume to prevent duplicates
         // Favorites are loaded in onCreate and will be refreshed when needed
     }
@@ -175,7 +173,7 @@ public class FavoritesActivity extends AppCompatActivity {
         final int[] loadedCount = {0};
         
         for (String username : favoriteUsernames) {
-            databaseReference.child(username).addListenerForSingleValueEvent(new ValueEventListener() {
+            Database.get().readOnce(databaseReference.child(username), new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot dataSnapshot) {
                     if (dataSnapshot.exists()) {
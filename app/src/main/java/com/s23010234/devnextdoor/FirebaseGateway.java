@@ -0,0 +1,91 @@
+package com.s23010234.devnextdoor;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.OnDisconnect;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Map;
+
+/**
+ * Firebase Gateway - The database gateway the app really uses
+ *
+ * Each method passes straight through to the Firebase Realtime Database.
+ * This is the only class in the app that calls FirebaseDatabase.getInstance().
+ */
+public class FirebaseGateway implements DatabaseGateway {
+
+    private final FirebaseDatabase database;
+
+    public FirebaseGateway() {
+        this(FirebaseDatabase.getInstance());
+    }
+
+    public FirebaseGateway(FirebaseDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public DatabaseReference getReference() {
+        return database.getReference();
+    }
+
+    @Override
+    public DatabaseReference getReference(String path) {
+        return database.getReference(path);
+    }
+
+    @Override
+    public void readOnce(Query query, ValueEventListener listener) {
+        query.addListenerForSingleValueEvent(listener);
+    }
+
+    @Override
+    public void listen(Query query, ValueEventListener listener) {
+        query.addValueEventListener(listener);
+    }
+
+    @Override
+    public void listen(Query query, ChildEventListener listener) {
+        query.addChildEventListener(listener);
+    }
+
+    @Override
+    public void stopListening(Query query, ValueEventListener listener) {
+        query.removeEventListener(listener);
+    }
+
+    @Override
+    public void stopListening(Query query, ChildEventListener listener) {
+        query.removeEventListener(listener);
+    }
+
+    @Override
+    public Task<Void> setValue(DatabaseReference ref, Object value) {
+        return ref.setValue(value);
+    }
+
+    @Override
+    public Task<Void> updateChildren(DatabaseReference ref, Map<String, Object> values) {
+        return ref.updateChildren(values);
+    }
+
+    @Override
+    public Task<Void> removeValue(DatabaseReference ref) {
+        return ref.removeValue();
+    }
+
+    @Override
+    public void runTransaction(DatabaseReference ref, Transaction.Handler handler) {
+        ref.runTransaction(handler);
+    }
+
+    @Override
+    public OnDisconnect onDisconnect(DatabaseReference ref) {
+        return ref.onDisconnect();
+    }
+}
@@ -1,7 +1,6 @@
 package com.s23010234.devnextdoor;
 
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.ValueEventListener;
@@ -21,13 +20,16 @@ public class FirebaseHelper {
     // Connection to the Firebase database where user information is stored
     private DatabaseReference databaseReference;
 
+    // How long a username change takes from start to finish (see Metrics)
+    private static final Metrics.Histogram RENAME_TIME = Metrics.histogram("profile.rename");
+
     /**
      * Creates a new FirebaseHelper and sets up the connection to the database.
      * This sets up the link to the "users" section of our Firebase database.
      */
     public FirebaseHelper() {
         // Connect to the Firebase database and point to the "users" section
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
     }
 
     /**
@@ -69,7 +71,7 @@ public class FirebaseHelper {
         user.put("isDarkMode", false); // Start new users with light mode
 
         // Save this information to Firebase under the user's username
-        databaseReference.child(username).setValue(user)
+        Database.get().setValue(databaseReference.child(username), user)
             .addOnSuccessListener(aVoid -> callback.onSuccess(true))
             .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -80,7 +82,7 @@ public class FirebaseHelper {
      */
     public void isUsernameExists(String username, UserExistsCallback callback) {
         // Look up this username in the database
-        databaseReference.child(username).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username), new ValueEventListener() {
             /**
              * This method runs when we get an answer from the database.
              * It tells us whether the username exists or not.
@@ -107,7 +109,7 @@ public class FirebaseHelper {
      */
     public void validateUser(String username, String password, DatabaseCallback callback) {
         // Look up this username in the database
-        databaseReference.child(username).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username), new ValueEventListener() {
             /**
              * This method runs when we get the user's data from the database.
              * It checks if the provided password matches the stored password.
@@ -143,8 +145,28 @@ public class FirebaseHelper {
      * This is used when someone wants to delete their account permanently.
      */
     public void deleteUser(String username, DatabaseCallback callback) {
-        // Remove all data for this username from the database
-        databaseReference.child(username).removeValue()
+        // Take the user out of the location index first - the profile says where their entry is
+        new GeoIndexManager().removeUser(username, new GeoIndexManager.DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                removeUserData(username, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                // A stale index entry is harmless, so still delete the account
+                removeUserData(username, callback);
+            }
+        });
+    }
+
+    /**
+     * Removes all data for this username from the "users" section,
+     * and the user's unread counters
+     */
+    private void removeUserData(String username, DatabaseCallback callback) {
+        new UnreadCounters().removeUser(username);
+        Database.get().removeValue(databaseReference.child(username))
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -155,6 +177,8 @@ public class FirebaseHelper {
      * It also updates all references to the old username throughout the database.
      */
     public void updateUsername(String oldUsername, String newUsername, DatabaseCallback callback) {
+        long renameStart = Metrics.now();
+
         // First check if the new username is already taken
         isUsernameExists(newUsername, new UserExistsCallback() {
             /**
@@ -168,7 +192,7 @@ public class FirebaseHelper {
                 }
                 
                 // Get current user data
-                databaseReference.child(oldUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+                Database.get().readOnce(databaseReference.child(oldUsername), new ValueEventListener() {
                     @Override
                     public void onDataChange(DataSnapshot dataSnapshot) {
                         if (dataSnapshot.exists()) {
@@ -179,15 +203,37 @@ public class FirebaseHelper {
                                 userData.put("username", newUsername);
                                 
                                 // Create new user entry with new username
-                                databaseReference.child(newUsername).setValue(userData)
+                                Database.get().setValue(databaseReference.child(newUsername), userData)
                                     .addOnSuccessListener(aVoid -> {
                                         // Update all chats and notifications, then delete old username entry
                                         updateChatsAndNotifications(oldUsername, newUsername, new DatabaseCallback() {
                                             @Override
                                             public void onSuccess(boolean result) {
+                                                // Move the location index entry to the new username
+                                                Object geohash = userData.get("geohash");
+                                                new GeoIndexManager().renameUser(
+                                                        geohash instanceof String ? (String) geohash : null,
+                                                        oldUsername, newUsername, null);
+
+                                                // Count the moved notifications and messages under the new username
+                                                new UnreadCounters().renameUser(oldUsername, newUsername, new UnreadCounters.DatabaseCallback() {
+                                                    @Override
+                                                    public void onSuccess(boolean result) {
+                                                        // Counters moved
+                                                    }
+
+                                                    @Override
+                                                    public void onError(String error) {
+                                                        // Repaired by the daily reconcile instead
+                                                    }
+                                                });
+
                                                 // Delete old username entry
-                                                databaseReference.child(oldUsername).removeValue()
-                                                    .addOnSuccessListener(aVoid2 -> callback.onSuccess(true))
+                                                Database.get().removeValue(databaseReference.child(oldUsername))
+                                                    .addOnSuccessListener(aVoid2 -> {
+                                                        RENAME_TIME.recordSince(renameStart);
+                                                        callback.onSuccess(true);
+                                                    })
                                                     .addOnFailureListener(e -> callback.onError("Failed to delete old username: " + e.getMessage()));
                                             }
                                             
@@ -225,19 +271,19 @@ public class FirebaseHelper {
      */
     private void updateChatsAndNotifications(String oldUsername, String newUsername, DatabaseCallback callback) {
         // Get references to chats and notifications
-        DatabaseReference chatsRef = FirebaseDatabase.getInstance().getReference("chats");
-        DatabaseReference notificationsRef = FirebaseDatabase.getInstance().getReference("notifications");
+        DatabaseReference chatsRef = Database.get().getReference("chats");
+        DatabaseReference notificationsRef = Database.get().getReference("notifications");
         
         // First, move notifications
-        notificationsRef.child(oldUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(notificationsRef.child(oldUsername), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot notificationsSnapshot) {
                 if (notificationsSnapshot.exists()) {
                     // Move all notifications to new username
-                    notificationsRef.child(newUsername).setValue(notificationsSnapshot.getValue())
+                    Database.get().setValue(notificationsRef.child(newUsername), notificationsSnapshot.getValue())
                         .addOnSuccessListener(aVoid -> {
                             // Delete old notifications
-                            notificationsRef.child(oldUsername).removeValue()
+                            Database.get().removeValue(notificationsRef.child(oldUsername))
                                 .addOnSuccessListener(aVoid2 -> {
                                     // Now update chats
                                     updateChatsReferences(chatsRef, oldUsername, newUsername, callback);
@@ -262,7 +308,7 @@ public class FirebaseHelper {
      * Update chat participant references
      */
     private void updateChatsReferences(DatabaseReference chatsRef, String oldUsername, String newUsername, DatabaseCallback callback) {
-        chatsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(chatsRef, new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot chatsSnapshot) {
                 Map<String, Object> chatUpdates = new HashMap<>();
@@ -294,7 +340,7 @@ public class FirebaseHelper {
                 
                 if (hasUpdates) {
                     // Update all chats at once
-                    chatsRef.updateChildren(chatUpdates)
+                    Database.get().updateChildren(chatsRef, chatUpdates)
                         .addOnSuccessListener(aVoid -> {
                             // Now update message references
                             updateMessageReferences(oldUsername, newUsername, callback);
@@ -317,9 +363,9 @@ public class FirebaseHelper {
      * Update message sender/receiver references
      */
     private void updateMessageReferences(String oldUsername, String newUsername, DatabaseCallback callback) {
-        DatabaseReference messagesRef = FirebaseDatabase.getInstance().getReference("messages");
+        DatabaseReference messagesRef = Database.get().getReference("messages");
         
-        messagesRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(messagesRef, new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot messagesSnapshot) {
                 Map<String, Object> messageUpdates = new HashMap<>();
@@ -328,20 +374,24 @@ public class FirebaseHelper {
                 for (DataSnapshot chatSnapshot : messagesSnapshot.getChildren()) {
                     String chatId = chatSnapshot.getKey();
                     
-                    for (DataSnapshot messageSnapshot : chatSnapshot.getChildren()) {
-                        String messageId = messageSnapshot.getKey();
+                    for (DataSnapshot messageSnapshot : ChatManager.getMessageSnapshots(chatSnapshot)) {
+                        // Messages in a month folder are one level deeper than old loose ones
+                        String folder = messageSnapshot.getRef().getParent().getKey();
+                        String messagePath = folder.equals(chatId)
+                                ? chatId + "/" + messageSnapshot.getKey()
+                                : chatId + "/" + folder + "/" + messageSnapshot.getKey();
                         String senderId = messageSnapshot.child("senderId").getValue(String.class);
                         String receiverId = messageSnapshot.child("receiverId").getValue(String.class);
                         
                         // Check if this user is the sender
                         if (oldUsername.equals(senderId)) {
-                            messageUpdates.put(chatId + "/" + messageId + "/senderId", newUsername);
+                            messageUpdates.put(messagePath + "/senderId", newUsername);
                             hasUpdates = true;
                         }
                         
                         // Check if this user is the receiver
                         if (oldUsername.equals(receiverId)) {
-                            messageUpdates.put(chatId + "/" + messageId + "/receiverId", newUsername);
+                            messageUpdates.put(messagePath + "/receiverId", newUsername);
                             hasUpdates = true;
                         }
                     }
@@ -349,7 +399,7 @@ public class FirebaseHelper {
                 
                 if (hasUpdates) {
                     // Update all messages at once
-                    messagesRef.updateChildren(messageUpdates)
+                    Database.get().updateChildren(messagesRef, messageUpdates)
                         .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                         .addOnFailureListener(e -> callback.onError("Failed to update message references: " + e.getMessage()));
                 } else {
@@ -370,7 +420,7 @@ public class FirebaseHelper {
         Map<String, Object> updates = new HashMap<>();
         updates.put("password", newPassword);
         
-        databaseReference.child(username).updateChildren(updates)
+        Database.get().updateChildren(databaseReference.child(username), updates)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -385,7 +435,7 @@ public class FirebaseHelper {
         Map<String, Object> updates = new HashMap<>();
         updates.put("isDarkMode", isDarkMode);
         
-        databaseReference.child(username).updateChildren(updates)
+        Database.get().updateChildren(databaseReference.child(username), updates)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -396,7 +446,7 @@ public class FirebaseHelper {
      * @param callback DarkModeCallback - Callback to handle the result
      */
     public void getDarkModePreference(String username, DarkModeCallback callback) {
-        databaseReference.child(username).child("isDarkMode").addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username).child("isDarkMode"), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (dataSnapshot.exists()) {
@@ -434,7 +484,7 @@ public class FirebaseHelper {
      * @param callback DatabaseCallback - Callback to handle success/error
      */
     public void addToFavorites(String currentUsername, String favoriteUsername, DatabaseCallback callback) {
-        databaseReference.child(currentUsername).child("favorites").child(favoriteUsername).setValue(true)
+        Database.get().setValue(databaseReference.child(currentUsername).child("favorites").child(favoriteUsername), true)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -446,7 +496,7 @@ public class FirebaseHelper {
      * @param callback DatabaseCallback - Callback to handle success/error
      */
     public void removeFromFavorites(String currentUsername, String favoriteUsername, DatabaseCallback callback) {
-        databaseReference.child(currentUsername).child("favorites").child(favoriteUsername).removeValue()
+        Database.get().removeValue(databaseReference.child(currentUsername).child("favorites").child(favoriteUsername))
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -458,8 +508,8 @@ public class FirebaseHelper {
      * @param callback FavoritesCallback - Callback to handle the result
      */
     public void isFavorite(String currentUsername, String favoriteUsername, FavoritesCallback callback) {
-        databaseReference.child(currentUsername).child("favorites").child(favoriteUsername)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(currentUsername).child("favorites").child(favoriteUsername),
+                new ValueEventListener() {
                     @Override
                     public void onDataChange(DataSnapshot dataSnapshot) {
                         callback.onSuccess(dataSnapshot.exists());
@@ -478,8 +528,8 @@ public class FirebaseHelper {
      * @param callback FavoriteListCallback - Callback to handle the result
      */
     public void getFavoritesList(String currentUsername, FavoriteListCallback callback) {
-        databaseReference.child(currentUsername).child("favorites")
-                .addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(currentUsername).child("favorites"),
+                new ValueEventListener() {
                     @Override
                     public void onDataChange(DataSnapshot dataSnapshot) {
                         List<String> favoritesList = new ArrayList<>();
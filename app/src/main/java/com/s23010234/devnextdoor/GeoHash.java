@@ -0,0 +1,193 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * GeoHash - Turns a map position into a short text code
+ *
+ * A geohash splits the world in half again and again (east/west, then
+ * north/south, ...) and writes down which half the position is in, five
+ * choices per letter. The result is a code like "tc1hx2" where:
+ * - Nearby positions usually share the same first letters
+ * - A shorter code means a bigger box on the map
+ *
+ * Because Firebase sorts keys alphabetically, every position inside one box
+ * sits next to each other in the database. GeoIndexManager uses this to ask
+ * Firebase for one small range of keys per box instead of all users.
+ *
+ * This class is plain Java (no Android code), so it can be tested on a computer.
+ */
+public class GeoHash {
+
+    // The 32 characters a geohash is written with (no a, i, l or o to avoid mix-ups)
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    // Longest code we ever create (about 1 meter on each side)
+    static final int MAX_PRECISION = 12;
+
+    private GeoHash() {
+        // Only static helpers
+    }
+
+    /**
+     * Creates the geohash of a position.
+     *
+     * @param latitude North/south position (-90 to 90)
+     * @param longitude East/west position (-180 to 180)
+     * @param precision Number of characters (more characters = smaller box)
+     * @return The geohash code
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        precision = Math.max(1, Math.min(MAX_PRECISION, precision));
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+
+        StringBuilder hash = new StringBuilder(precision);
+        boolean isLongitudeBit = true;  // Bits alternate, starting with longitude
+        int bitCount = 0;
+        int value = 0;
+
+        while (hash.length() < precision) {
+            if (isLongitudeBit) {
+                double middle = (minLng + maxLng) / 2;
+                if (longitude >= middle) {
+                    value = (value << 1) | 1;
+                    minLng = middle;
+                } else {
+                    value = value << 1;
+                    maxLng = middle;
+                }
+            } else {
+                double middle = (minLat + maxLat) / 2;
+                if (latitude >= middle) {
+                    value = (value << 1) | 1;
+                    minLat = middle;
+                } else {
+                    value = value << 1;
+                    maxLat = middle;
+                }
+            }
+            isLongitudeBit = !isLongitudeBit;
+
+            // Every five bits make one character
+            if (++bitCount == 5) {
+                hash.append(BASE32.charAt(value));
+                bitCount = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Finds the middle of the box a geohash stands for.
+     *
+     * @param hash The geohash code
+     * @return {latitude, longitude} of the box's centre
+     * @throws IllegalArgumentException if the code contains a character a geohash can't have
+     */
+    public static double[] decodeCenter(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        boolean isLongitudeBit = true;
+
+        for (int i = 0; i < hash.length(); i++) {
+            int value = BASE32.indexOf(hash.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Not a geohash: " + hash);
+            }
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean isSet = ((value >> bit) & 1) == 1;
+                if (isLongitudeBit) {
+                    double middle = (minLng + maxLng) / 2;
+                    if (isSet) minLng = middle; else maxLng = middle;
+                } else {
+                    double middle = (minLat + maxLat) / 2;
+                    if (isSet) minLat = middle; else maxLat = middle;
+                }
+                isLongitudeBit = !isLongitudeBit;
+            }
+        }
+        return new double[] { (minLat + maxLat) / 2, (minLng + maxLng) / 2 };
+    }
+
+    /**
+     * Height of one geohash box in degrees of latitude
+     */
+    static double cellHeightDegrees(int precision) {
+        int latitudeBits = (precision * 5) / 2;
+        return 180.0 / (1L << latitudeBits);
+    }
+
+    /**
+     * Width of one geohash box in degrees of longitude
+     */
+    static double cellWidthDegrees(int precision) {
+        int longitudeBits = (precision * 5 + 1) / 2;
+        return 360.0 / (1L << longitudeBits);
+    }
+
+    /**
+     * Works out which geohash boxes together cover a circle on the map.
+     *
+     * Smaller boxes waste less (fewer users outside the circle are downloaded),
+     * but a small circle may still need many of them. This picks the smallest
+     * box size that covers the circle with at most maxBoxes boxes.
+     *
+     * @param latitude Circle centre latitude
+     * @param longitude Circle centre longitude
+     * @param radiusKm Circle radius in kilometers
+     * @param maxBoxes Most boxes (and so Firebase reads) allowed
+     * @return The geohash prefixes to read, each one a box on the map
+     */
+    public static List<String> coveringPrefixes(double latitude, double longitude, double radiusKm, int maxBoxes) {
+        // The circle's bounding box in degrees
+        double latitudeDelta = Math.toDegrees(radiusKm / DeveloperSpatialIndex.EARTH_RADIUS_KM);
+        double minLat = Math.max(-90, latitude - latitudeDelta);
+        double maxLat = Math.min(90, latitude + latitudeDelta);
+
+        // Longitude lines get closer together away from the equator, so the box gets wider there
+        double widestLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        double cosLat = Math.cos(Math.toRadians(widestLat));
+        double longitudeDelta = cosLat < 1e-9 ? 180 : Math.min(180, latitudeDelta / cosLat);
+        boolean coversAllLongitudes = longitudeDelta >= 180;
+        double minLng = longitude - longitudeDelta;
+        double maxLng = longitude + longitudeDelta;
+
+        for (int precision = MAX_PRECISION; precision >= 1; precision--) {
+            double height = cellHeightDegrees(precision);
+            double width = cellWidthDegrees(precision);
+            long rowCount = Math.round(180.0 / height);
+            long columnCount = Math.round(360.0 / width);
+
+            long firstRow = clamp((long) Math.floor((minLat + 90) / height), rowCount);
+            long lastRow = clamp((long) Math.floor((maxLat + 90) / height), rowCount);
+            long firstColumn = (long) Math.floor((minLng + 180) / width);
+            long lastColumn = (long) Math.floor((maxLng + 180) / width);
+            long columns = coversAllLongitudes ? columnCount : Math.min(columnCount, lastColumn - firstColumn + 1);
+            long boxes = (lastRow - firstRow + 1) * columns;
+
+            if (boxes <= maxBoxes || precision == 1) {
+                Set<String> prefixes = new LinkedHashSet<>();
+                for (long row = firstRow; row <= lastRow; row++) {
+                    double rowCentre = -90 + (row + 0.5) * height;
+                    for (long i = 0; i < columns; i++) {
+                        // Wrap around at the 180th meridian
+                        long column = Math.floorMod(firstColumn + i, columnCount);
+                        double columnCentre = -180 + (column + 0.5) * width;
+                        prefixes.add(encode(rowCentre, columnCentre, precision));
+                    }
+                }
+                return new ArrayList<>(prefixes);
+            }
+        }
+        return new ArrayList<>(); // Not reached - precision 1 always returns
+    }
+
+    private static long clamp(long index, long count) {
+        return Math.max(0, Math.min(count - 1, index));
+    }
+}
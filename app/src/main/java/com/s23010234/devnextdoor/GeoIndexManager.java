@@ -0,0 +1,393 @@
+package com.s23010234.devnextdoor;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Geo Index Manager - Finds nearby developers without downloading every user
+ *
+ * Reading the whole "users" section just to find the people close by costs
+ * more data the bigger the app gets. This class keeps a small extra index
+ * in Firebase that is sorted by location:
+ *
+ *   geo/{geohash}/{username} = true
+ *
+ * The geohash (see GeoHash) is a short code for where the user is, and
+ * Firebase keeps keys in alphabetical order, so everyone in the same area is
+ * stored side by side. A radius search then only asks Firebase for a few
+ * small key ranges (one per map box around the search point), so the data
+ * downloaded depends on how many people live nearby, not on the whole country.
+ *
+ * The user's current geohash is also saved on their profile (users/{username}/geohash),
+ * so the old index entry can be removed when they move.
+ *
+ * An area that has been searched can also be watched (watchArea): the same
+ * few key ranges are followed, and only the developers who arrive, move or
+ * leave inside them are reported afterwards.
+ */
+public class GeoIndexManager {
+
+    // Length of the geohash stored for each user (10 characters = about 1 meter)
+    static final int STORED_PRECISION = 10;
+
+    // Most range reads a single radius search may send to Firebase
+    static final int MAX_RANGE_READS = 9;
+
+    // Connections to the database
+    private final DatabaseReference rootReference;   // The top of the database, for multi-path updates
+    private final DatabaseReference geoReference;    // The "geo" index section
+    private final DatabaseReference usersReference;  // The "users" section
+
+    /**
+     * Sets up the connections to Firebase
+     */
+    public GeoIndexManager() {
+        DatabaseGateway database = Database.get();
+        rootReference = database.getReference();
+        geoReference = database.getReference("geo");
+        usersReference = database.getReference("users");
+    }
+
+    /**
+     * Callback for writes to the index
+     */
+    public interface DatabaseCallback {
+        void onSuccess(boolean result);
+        void onError(String error);
+    }
+
+    /**
+     * Callback for radius searches
+     */
+    public interface NearbyCallback {
+        void onSuccess(List<DeveloperSpatialIndex.Result> developers);  // Nearest first
+        void onError(String error);
+    }
+
+    /**
+     * Told about developers arriving in, moving inside or leaving a watched area
+     */
+    public interface AreaListener {
+        // A developer is in the area, at this position (new, or moved)
+        void onDeveloperMoved(String username, double latitude, double longitude);
+        // A developer is no longer in the area (moved away, or deleted)
+        void onDeveloperLeft(String username);
+    }
+
+    /**
+     * A watched area, handed back by watchArea so it can be stopped again
+     */
+    public static class AreaWatch {
+        private final List<Query> queries = new ArrayList<>();
+        private final List<ChildEventListener> listeners = new ArrayList<>();
+    }
+
+    /**
+     * Saves a user's location in the index.
+     * If the user already had a different location, the old entry is removed
+     * in the same write, so the user is never listed twice. If nothing moved,
+     * nothing is written.
+     *
+     * @param username The user who moved
+     * @param latitude Their new latitude
+     * @param longitude Their new longitude
+     * @param callback Told when the index is up to date (may be null)
+     */
+    public void updateLocation(String username, double latitude, double longitude, DatabaseCallback callback) {
+        String newHash = GeoHash.encode(latitude, longitude, STORED_PRECISION);
+
+        Database.get().readOnce(usersReference.child(username).child("geohash"), new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                String oldHash = dataSnapshot.getValue(String.class);
+                if (newHash.equals(oldHash)) {
+                    notifySuccess(callback); // Same place as before
+                    return;
+                }
+
+                // Remove the old entry, add the new one and remember it, all in one write
+                Map<String, Object> updates = new HashMap<>();
+                if (oldHash != null) {
+                    updates.put("geo/" + oldHash + "/" + username, null);
+                }
+                updates.put("geo/" + newHash + "/" + username, true);
+                updates.put("users/" + username + "/geohash", newHash);
+
+                Database.get().updateChildren(rootReference, updates)
+                        .addOnSuccessListener(aVoid -> notifySuccess(callback))
+                        .addOnFailureListener(e -> notifyError(callback, e.getMessage()));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                notifyError(callback, databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Saves a user's location in the index as the centre of their city.
+     * The city is the only location a profile lets people set, so every
+     * screen indexes a user this way and the entry doesn't change depending
+     * on which screen saved it last. Nothing happens for an unknown city.
+     *
+     * @param username The user to index
+     * @param city The city on their profile
+     * @param gazetteer Where city centres are looked up
+     * @param callback Told when the index is up to date (may be null)
+     */
+    public void updateCity(String username, String city, CityGazetteer gazetteer, DatabaseCallback callback) {
+        int cityIndex = gazetteer.indexOf(city);
+        if (cityIndex == CityGazetteer.UNKNOWN) {
+            notifySuccess(callback);
+            return;
+        }
+        updateLocation(username, gazetteer.getLatitude(cityIndex), gazetteer.getLongitude(cityIndex), callback);
+    }
+
+    /**
+     * Removes a user from the index (for example when their account is deleted).
+     * This must run before the user's profile is removed, because the profile
+     * remembers where the index entry is.
+     *
+     * @param username The user to remove
+     * @param callback Told when the entry is gone (may be null)
+     */
+    public void removeUser(String username, DatabaseCallback callback) {
+        Database.get().readOnce(usersReference.child(username).child("geohash"), new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                String hash = dataSnapshot.getValue(String.class);
+                if (hash == null) {
+                    notifySuccess(callback); // The user was never in the index
+                    return;
+                }
+                Database.get().removeValue(geoReference.child(hash).child(username))
+                        .addOnSuccessListener(aVoid -> notifySuccess(callback))
+                        .addOnFailureListener(e -> notifyError(callback, e.getMessage()));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                notifyError(callback, databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Moves a user's index entry to a new username, keeping the same location.
+     *
+     * @param geohash The geohash saved on the user's profile (nothing happens if null)
+     * @param oldUsername The username before the change
+     * @param newUsername The username after the change
+     * @param callback Told when the entry has moved (may be null)
+     */
+    public void renameUser(String geohash, String oldUsername, String newUsername, DatabaseCallback callback) {
+        if (geohash == null) {
+            notifySuccess(callback);
+            return;
+        }
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(oldUsername, null);
+        updates.put(newUsername, true);
+        Database.get().updateChildren(geoReference.child(geohash), updates)
+                .addOnSuccessListener(aVoid -> notifySuccess(callback))
+                .addOnFailureListener(e -> notifyError(callback, e.getMessage()));
+    }
+
+    /**
+     * Finds every user within a distance of a point.
+     *
+     * The circle is covered by a few geohash boxes (see GeoHash.coveringPrefixes)
+     * and each box is fetched with one startAt/endAt range read. Users in the
+     * corners of the boxes but outside the circle are filtered out here.
+     *
+     * @param latitude Search point latitude
+     * @param longitude Search point longitude
+     * @param radiusKm Search radius in kilometers
+     * @param callback Receives the users found, nearest first
+     */
+    public void queryRadius(double latitude, double longitude, double radiusKm, NearbyCallback callback) {
+        List<String> prefixes = GeoHash.coveringPrefixes(latitude, longitude, radiusKm, MAX_RANGE_READS);
+        if (prefixes.isEmpty()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+
+        List<DeveloperSpatialIndex.Result> found = new ArrayList<>();
+        int[] readsLeft = { prefixes.size() };
+        boolean[] failed = { false };
+
+        for (String prefix : prefixes) {
+            // Every key that starts with the prefix sorts between prefix and prefix + "~"
+            Database.get().readOnce(geoReference.orderByKey().startAt(prefix).endAt(prefix + "~"),
+                    new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+                            for (DataSnapshot cellSnapshot : dataSnapshot.getChildren()) {
+                                double[] centre = GeoHash.decodeCenter(cellSnapshot.getKey());
+                                double distanceKm = DeveloperSpatialIndex.distanceKm(
+                                        latitude, longitude, centre[0], centre[1]);
+                                if (distanceKm > radiusKm) {
+                                    continue; // In the box, but outside the circle
+                                }
+                                for (DataSnapshot userSnapshot : cellSnapshot.getChildren()) {
+                                    found.add(new DeveloperSpatialIndex.Result(
+                                            userSnapshot.getKey(), centre[0], centre[1], distanceKm));
+                                }
+                            }
+                            finishRead();
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            if (!failed[0]) {
+                                failed[0] = true;
+                                callback.onError(databaseError.getMessage());
+                            }
+                        }
+
+                        // Hands back the results once every range read has answered
+                        private void finishRead() {
+                            readsLeft[0]--;
+                            if (readsLeft[0] == 0 && !failed[0]) {
+                                Collections.sort(found, (a, b) -> Double.compare(a.getDistanceKm(), b.getDistanceKm()));
+                                callback.onSuccess(found);
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Follows the developers within a distance of a point, for as long as the
+     * area is watched. Firebase first reports everyone already there, then
+     * only the index boxes that change, so a developer who moves costs one
+     * small update instead of another search.
+     *
+     * @param latitude Area centre latitude
+     * @param longitude Area centre longitude
+     * @param radiusKm Area radius in kilometers
+     * @param listener Told about every developer who arrives, moves or leaves
+     * @return The watch, to pass to stopWatching when the area is no longer needed
+     */
+    public AreaWatch watchArea(double latitude, double longitude, double radiusKm, AreaListener listener) {
+        AreaWatch watch = new AreaWatch();
+
+        // Which box each developer was last seen in, and who is in each box
+        Map<String, String> cellByUser = new HashMap<>();
+        Map<String, Set<String>> usersByCell = new HashMap<>();
+
+        for (String prefix : GeoHash.coveringPrefixes(latitude, longitude, radiusKm, MAX_RANGE_READS)) {
+            Query query = geoReference.orderByKey().startAt(prefix).endAt(prefix + "~");
+            ChildEventListener cellListener = new ChildEventListener() {
+                @Override
+                public void onChildAdded(DataSnapshot cellSnapshot, String previousChildName) {
+                    updateCell(cellSnapshot);
+                }
+
+                @Override
+                public void onChildChanged(DataSnapshot cellSnapshot, String previousChildName) {
+                    updateCell(cellSnapshot);
+                }
+
+                @Override
+                public void onChildRemoved(DataSnapshot cellSnapshot) {
+                    leaveCell(cellSnapshot.getKey(), new HashSet<>());
+                }
+
+                @Override
+                public void onChildMoved(DataSnapshot cellSnapshot, String previousChildName) {
+                    // Order doesn't matter here
+                }
+
+                @Override
+                public void onCancelled(DatabaseError databaseError) {
+                    // Keep what was found; the next search reads the area again
+                }
+
+                /**
+                 * Reports everyone in a box inside the circle, and anyone who has left it
+                 */
+                private void updateCell(DataSnapshot cellSnapshot) {
+                    String cell = cellSnapshot.getKey();
+                    double[] centre = GeoHash.decodeCenter(cell);
+                    boolean inCircle = DeveloperSpatialIndex.distanceKm(latitude, longitude, centre[0], centre[1]) <= radiusKm;
+
+                    Set<String> present = new HashSet<>();
+                    if (inCircle) {
+                        for (DataSnapshot userSnapshot : cellSnapshot.getChildren()) {
+                            String username = userSnapshot.getKey();
+                            present.add(username);
+                            cellByUser.put(username, cell);
+                            listener.onDeveloperMoved(username, centre[0], centre[1]);
+                        }
+                    }
+                    leaveCell(cell, present);
+                    usersByCell.put(cell, present);
+                }
+
+                /**
+                 * Reports the developers who were in a box and aren't any more.
+                 * Someone who moved to another watched box has already been
+                 * reported there (a move is one write, but its two halves can
+                 * arrive in either order), so they are left alone.
+                 */
+                private void leaveCell(String cell, Set<String> stillThere) {
+                    Set<String> before = usersByCell.remove(cell);
+                    if (before == null) {
+                        return;
+                    }
+                    for (String username : before) {
+                        if (!stillThere.contains(username) && cell.equals(cellByUser.get(username))) {
+                            cellByUser.remove(username);
+                            listener.onDeveloperLeft(username);
+                        }
+                    }
+                }
+            };
+            watch.queries.add(query);
+            watch.listeners.add(cellListener);
+            Database.get().listen(query, cellListener);
+        }
+        return watch;
+    }
+
+    /**
+     * Stops following an area (does nothing if watch is null)
+     */
+    public void stopWatching(AreaWatch watch) {
+        if (watch == null) {
+            return;
+        }
+        for (int i = 0; i < watch.queries.size(); i++) {
+            Database.get().stopListening(watch.queries.get(i), watch.listeners.get(i));
+        }
+        watch.queries.clear();
+        watch.listeners.clear();
+    }
+
+    private static void notifySuccess(DatabaseCallback callback) {
+        if (callback != null) {
+            callback.onSuccess(true);
+        }
+    }
+
+    private static void notifyError(DatabaseCallback callback, String error) {
+        if (callback != null) {
+            callback.onError(error);
+        }
+    }
+}
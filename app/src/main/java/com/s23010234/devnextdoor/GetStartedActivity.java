@@ -38,6 +38,9 @@ public class GetStartedActivity extends AppCompatActivity {
         
         // Load and display the get started screen layout from the XML file
         setContentView(R.layout.activity_get_started);
+
+        // Load the big background picture in the background instead of while the screen opens
+        BackgroundLoader.load(findViewById(R.id.main), R.drawable.get_started_bg, R.color.get_started_bg_placeholder);
         
         // Handle system bars (like status bar and navigation bar) properly
         // This makes sure the app content doesn't get hidden behind system elements
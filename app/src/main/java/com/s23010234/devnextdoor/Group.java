@@ -0,0 +1,137 @@
+package com.s23010234.devnextdoor;
+
+/**
+ * This class represents a group conversation between any number of users.
+ * It is the group's "header": its name, how many members it has, and what
+ * the latest message was. The messages themselves are kept in one shared
+ * list for the whole group (see GroupChatManager).
+ */
+public class Group {
+
+    // A unique ID that identifies this group
+    private String groupId;
+
+    // The name everyone sees for the group
+    private String name;
+
+    // The username of the person who made the group
+    private String createdBy;
+
+    // When the group was made
+    private long createdAt;
+
+    // How many people are in the group
+    private long memberCount;
+
+    // The id, text, time and sender of the most recent message
+    private String lastMessageId;
+    private String lastMessage;
+    private long lastMessageTimestamp;
+    private String lastMessageSender;
+
+    // This user's last-read message id (kept in their own group list, not in the group)
+    private String lastReadId;
+
+    /**
+     * Empty constructor that Firebase needs to create Group objects.
+     */
+    public Group() {
+    }
+
+    public Group(String groupId, String name, String createdBy, long createdAt, long memberCount) {
+        this.groupId = groupId;
+        this.name = name;
+        this.createdBy = createdBy;
+        this.createdAt = createdAt;
+        this.memberCount = memberCount;
+        this.lastMessage = "";
+        this.lastMessageTimestamp = createdAt;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getMemberCount() {
+        return memberCount;
+    }
+
+    public String getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public long getLastMessageTimestamp() {
+        return lastMessageTimestamp;
+    }
+
+    public String getLastMessageSender() {
+        return lastMessageSender;
+    }
+
+    /**
+     * Whether there is a message newer than the last one this user has read
+     */
+    public boolean hasUnread() {
+        return GroupChatPaths.isAfter(lastMessageId, lastReadId);
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public void setMemberCount(long memberCount) {
+        this.memberCount = memberCount;
+    }
+
+    public void setLastMessageId(String lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public void setLastMessageTimestamp(long lastMessageTimestamp) {
+        this.lastMessageTimestamp = lastMessageTimestamp;
+    }
+
+    public void setLastMessageSender(String lastMessageSender) {
+        this.lastMessageSender = lastMessageSender;
+    }
+
+    /**
+     * Set from the user's group list when the group is loaded. There is no
+     * getter, so Firebase never saves it into the shared group.
+     */
+    public void setLastReadId(String lastReadId) {
+        this.lastReadId = lastReadId;
+    }
+}
@@ -0,0 +1,387 @@
+package com.s23010234.devnextdoor;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.text.InputType;
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is the Group Chat screen, where everyone in a group talks together.
+ * It works like ChatActivity, but every message shows who sent it.
+ *
+ * The group's messages are read a page at a time: the newest page first,
+ * then older pages as the user scrolls up. New messages are followed from
+ * the newest one on screen, so nothing is downloaded twice. When the newest
+ * message has been seen, the user's read position is moved to it (one
+ * small write, however many messages were read).
+ */
+public class GroupChatActivity extends AppCompatActivity {
+
+    // The group shown on this screen
+    private String groupId;
+    private String groupName;
+
+    // Username of the current logged-in user
+    private String currentUsername;
+
+    // Helper object that handles group messages
+    private GroupChatManager groupChatManager;
+
+    // Adapter that displays the messages, and the messages it shows (oldest first)
+    private MessagesAdapter messagesAdapter;
+    private final List<Message> messageList = new ArrayList<>();
+
+    // Paging state: whether older pages are left, and whether one is being read
+    private boolean hasOlderMessages = false;
+    private boolean loadingOlder = false;
+
+    // The newest message this user is known to have read here
+    private String lastReadId;
+
+    // Flag to prevent sending the same message twice by accident
+    private boolean isSendingMessage = false;
+
+    // Visual elements on the screen
+    private TextView titleText;              // Shows the group's name at the top
+    private TextView memberCountText;        // Shows how many people are in the group
+    private ImageView backArrow;             // Button to go back to the group list
+    private ImageView addMemberButton;       // Button to add someone to the group
+    private RecyclerView messagesRecyclerView; // Scrollable list of messages
+    private EditText messageInput;           // Text field where user types messages
+    private ImageView sendButton;            // Button to send the typed message
+    private LinearLayout loadingLayout;      // Shown while messages are loading
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        EdgeToEdge.enable(this);
+        setContentView(R.layout.activity_group_chat);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
+
+        // Handle system bars (like status bar and navigation bar) properly
+        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+
+        // Get the group passed from the previous screen
+        groupId = getIntent().getStringExtra("groupId");
+        groupName = getIntent().getStringExtra("groupName");
+
+        SharedPreferences sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
+        currentUsername = sharedPreferences.getString("username", "");
+
+        initializeViews();
+        setupRecyclerView();
+        setupClickListeners();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        loadGroupInfo();
+        loadLatestMessages();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Stop following new messages while the screen can't be seen
+        groupChatManager.stopListeningForMessages();
+    }
+
+    private void initializeViews() {
+        titleText = findViewById(R.id.titleText);
+        memberCountText = findViewById(R.id.memberCountText);
+        backArrow = findViewById(R.id.backArrow);
+        addMemberButton = findViewById(R.id.addMemberButton);
+        messagesRecyclerView = findViewById(R.id.messagesRecyclerView);
+        messageInput = findViewById(R.id.messageInput);
+        sendButton = findViewById(R.id.sendButton);
+        loadingLayout = findViewById(R.id.loadingLayout);
+
+        groupChatManager = new GroupChatManager();
+
+        if (groupName != null) {
+            titleText.setText(groupName);
+        }
+    }
+
+    private void setupRecyclerView() {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        layoutManager.setStackFromEnd(true); // Start from bottom
+        messagesRecyclerView.setLayoutManager(layoutManager);
+
+        messagesAdapter = new MessagesAdapter(this, messageList, currentUsername);
+        messagesAdapter.setShowSenderNames(true);
+        messagesRecyclerView.setAdapter(messagesAdapter);
+
+        messagesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    markSeenMessagesRead();
+                }
+            }
+
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Scrolled back to the first message: read the page before it
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() == 0) {
+                    loadOlderMessages();
+                }
+            }
+        });
+    }
+
+    private void setupClickListeners() {
+        backArrow.setOnClickListener(v -> finish());
+        sendButton.setOnClickListener(v -> sendMessage());
+        addMemberButton.setOnClickListener(v -> showAddMemberDialog());
+    }
+
+    /**
+     * Reads the group's header for its name and member count
+     */
+    private void loadGroupInfo() {
+        if (groupId == null) {
+            return;
+        }
+        groupChatManager.getGroup(groupId, new GroupChatManager.GroupCallback() {
+            @Override
+            public void onSuccess(Group group) {
+                if (group == null) {
+                    Toast.makeText(GroupChatActivity.this, "This group no longer exists", Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                titleText.setText(group.getName());
+                long members = group.getMemberCount();
+                memberCountText.setText(members + (members == 1 ? " member" : " members"));
+                memberCountText.setVisibility(View.VISIBLE);
+            }
+
+            @Override
+            public void onError(String error) {
+                // The name from the group list is still shown
+            }
+        });
+    }
+
+    /**
+     * Reads the newest page of messages, then follows anything sent after it
+     */
+    private void loadLatestMessages() {
+        if (groupId == null) {
+            Toast.makeText(this, "Error: Group not properly initialized", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (messageList.isEmpty()) {
+            showLoading();
+        }
+        groupChatManager.getMessagesPage(groupId, null, new GroupChatManager.MessagesPageCallback() {
+            @Override
+            public void onSuccess(List<Message> messages, boolean hasMore) {
+                hideLoading();
+                messageList.clear();
+                messageList.addAll(messages);
+                hasOlderMessages = hasMore;
+                messagesAdapter.updateMessages(messageList);
+                scrollToBottom();
+
+                String newestId = messages.isEmpty() ? null : messages.get(messages.size() - 1).getMessageId();
+                groupChatManager.listenForNewMessages(groupId, newestId, message -> {
+                    messageList.add(message);
+                    messagesAdapter.updateMessages(messageList);
+                    scrollToBottom();
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                hideLoading();
+                Toast.makeText(GroupChatActivity.this, "Error loading messages: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Reads the page of messages before the oldest one on screen
+     */
+    private void loadOlderMessages() {
+        if (loadingOlder || !hasOlderMessages || messageList.isEmpty()) {
+            return;
+        }
+        loadingOlder = true;
+        String oldestId = messageList.get(0).getMessageId();
+        groupChatManager.getMessagesPage(groupId, oldestId, new GroupChatManager.MessagesPageCallback() {
+            @Override
+            public void onSuccess(List<Message> messages, boolean hasMore) {
+                loadingOlder = false;
+                hasOlderMessages = hasMore;
+                messageList.addAll(0, messages);
+                messagesAdapter.updateMessages(messageList);
+
+                // Keep the message the user was looking at in the same place
+                LinearLayoutManager layoutManager = (LinearLayoutManager) messagesRecyclerView.getLayoutManager();
+                if (layoutManager != null) {
+                    layoutManager.scrollToPositionWithOffset(messages.size(), 0);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                loadingOlder = false;
+            }
+        });
+    }
+
+    private void scrollToBottom() {
+        if (!messageList.isEmpty()) {
+            messagesRecyclerView.scrollToPosition(messageList.size() - 1);
+            messagesRecyclerView.post(this::markSeenMessagesRead);
+        }
+    }
+
+    /**
+     * Moves the user's read position to the newest message on screen.
+     * Because message ids sort in order, this one id stands for every
+     * message before it, so the write is the same size however many
+     * messages were read.
+     */
+    private void markSeenMessagesRead() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) messagesRecyclerView.getLayoutManager();
+        if (layoutManager == null || groupId == null || currentUsername.isEmpty()) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible == RecyclerView.NO_POSITION || lastVisible >= messageList.size()) {
+            return;
+        }
+        String seenId = messageList.get(lastVisible).getMessageId();
+        if (GroupChatPaths.isAfter(seenId, lastReadId)) {
+            lastReadId = seenId;
+            groupChatManager.markRead(groupId, currentUsername, seenId);
+        }
+    }
+
+    /**
+     * Send a message to everyone in the group
+     */
+    private void sendMessage() {
+        String content = messageInput.getText().toString().trim();
+        if (TextUtils.isEmpty(content) || isSendingMessage || groupId == null) {
+            return;
+        }
+
+        isSendingMessage = true;
+        sendButton.setEnabled(false);
+        sendButton.setAlpha(0.5f);
+
+        groupChatManager.sendMessage(groupId, currentUsername, content, new GroupChatManager.DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                messageInput.setText("");
+                resetSendButton();
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(GroupChatActivity.this, "Failed to send message: " + error, Toast.LENGTH_SHORT).show();
+                resetSendButton();
+            }
+        });
+    }
+
+    /**
+     * Asks for the username of someone to add to the group
+     */
+    private void showAddMemberDialog() {
+        EditText usernameInput = new EditText(this);
+        usernameInput.setHint("Username");
+        usernameInput.setInputType(InputType.TYPE_CLASS_TEXT);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Add Member")
+                .setView(usernameInput)
+                .setPositiveButton("Add", (dialog, which) -> addMember(usernameInput.getText().toString()))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void addMember(String input) {
+        String username = input.trim();
+        if (username.startsWith("@")) {
+            username = username.substring(1);
+        }
+        if (username.isEmpty() || !username.matches("[^.#$\\[\\]/]+")) {
+            Toast.makeText(this, "User not found: " + username, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String newMember = username;
+        new FirebaseHelper().isUsernameExists(newMember, new FirebaseHelper.UserExistsCallback() {
+            @Override
+            public void onResult(boolean exists) {
+                if (!exists) {
+                    Toast.makeText(GroupChatActivity.this, "User not found: " + newMember, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                groupChatManager.addMember(groupId, newMember, new GroupChatManager.DatabaseCallback() {
+                    @Override
+                    public void onSuccess(boolean result) {
+                        Toast.makeText(GroupChatActivity.this, "@" + newMember + " added", Toast.LENGTH_SHORT).show();
+                        loadGroupInfo();
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Toast.makeText(GroupChatActivity.this, "Failed to add member: " + error, Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(GroupChatActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void resetSendButton() {
+        isSendingMessage = false;
+        sendButton.setEnabled(true);
+        sendButton.setAlpha(1.0f);
+    }
+
+    private void showLoading() {
+        loadingLayout.setVisibility(View.VISIBLE);
+        messagesRecyclerView.setVisibility(View.GONE);
+    }
+
+    private void hideLoading() {
+        loadingLayout.setVisibility(View.GONE);
+        messagesRecyclerView.setVisibility(View.VISIBLE);
+    }
+}
@@ -0,0 +1,390 @@
+package com.s23010234.devnextdoor;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Group Chat Manager - Handles group conversations with Firebase
+ *
+ * This is the group version of ChatManager. Where ChatManager looks after
+ * conversations between two people, this class looks after groups of any
+ * size. It can:
+ * - Make a group, add people to it, and let people leave
+ * - Load the groups a user is in, with their latest message
+ * - Send a message to a group
+ * - Read a group's messages a page at a time, and follow new ones
+ * - Remember the last message each member has read
+ *
+ * Every group message is kept once, in a list shared by all members (see
+ * GroupChatPaths for the layout). Sending is one write whatever the size
+ * of the group, and each member reads only the pages they look at.
+ */
+public class GroupChatManager {
+
+    private final DatabaseReference rootRef;
+    private final DatabaseReference groupsRef;
+    private final DatabaseReference groupMessagesRef;
+    private final DatabaseReference userGroupsRef;
+
+    // Live listeners, so they can be removed when the screen closes
+    private DatabaseReference userGroupsListenerRef;
+    private ValueEventListener userGroupsListener;
+    private final Map<String, ValueEventListener> groupListeners = new HashMap<>();
+    private Query newMessagesQuery;
+    private ChildEventListener newMessagesListener;
+
+    public GroupChatManager() {
+        DatabaseGateway database = Database.get();
+        rootRef = database.getReference();
+        groupsRef = database.getReference("groups");
+        groupMessagesRef = database.getReference("groupMessages");
+        userGroupsRef = database.getReference("userGroups");
+    }
+
+    public interface DatabaseCallback {
+        void onSuccess(boolean result);
+        void onError(String error);
+    }
+
+    public interface CreateGroupCallback {
+        void onSuccess(String groupId);
+        void onError(String error);
+    }
+
+    public interface GroupsCallback {
+        void onSuccess(List<Group> groups);  // Newest activity first
+        void onError(String error);
+    }
+
+    public interface GroupCallback {
+        void onSuccess(Group group);  // null if the group no longer exists
+        void onError(String error);
+    }
+
+    public interface MessagesPageCallback {
+        // messages are oldest first; hasMore is true if there are older messages still to read
+        void onSuccess(List<Message> messages, boolean hasMore);
+        void onError(String error);
+    }
+
+    public interface NewMessageListener {
+        void onNewMessage(Message message);
+    }
+
+    /**
+     * Makes a new group
+     *
+     * @param name The group's name
+     * @param creator The person making it (they are added as a member)
+     * @param members The other people to add
+     * @param callback Given the new group's id
+     */
+    public void createGroup(String name, String creator, List<String> members, CreateGroupCallback callback) {
+        if (name == null || name.trim().isEmpty()) {
+            callback.onError("Group name cannot be empty");
+            return;
+        }
+        String groupId = groupsRef.push().getKey();
+        if (groupId == null) {
+            callback.onError("Failed to generate group ID");
+            return;
+        }
+        Database.get().updateChildren(rootRef, GroupChatPaths.createGroup(groupId, name.trim(), creator, members,
+                        System.currentTimeMillis()))
+                .addOnSuccessListener(aVoid -> callback.onSuccess(groupId))
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Adds a person to a group (nothing changes if they are already in it,
+     * so the member count is never counted twice)
+     */
+    public void addMember(String groupId, String username, DatabaseCallback callback) {
+        Database.get().readOnce(rootRef.child(GroupChatPaths.memberPath(groupId, username)),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        if (dataSnapshot.exists()) {
+                            callback.onError("Already in this group");
+                            return;
+                        }
+                        Map<String, Object> updates = GroupChatPaths.joinGroup(groupId, username, System.currentTimeMillis());
+                        updates.put(GroupChatPaths.memberCountPath(groupId), ServerValue.increment(1));
+                        Database.get().updateChildren(rootRef, updates)
+                                .addOnSuccessListener(aVoid -> callback.onSuccess(true))
+                                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Takes a person out of a group. Like addMember, the membership is checked
+     * first, so leaving twice (or leaving a group you're not in) doesn't take
+     * the member count down again.
+     */
+    public void leaveGroup(String groupId, String username, DatabaseCallback callback) {
+        Database.get().readOnce(rootRef.child(GroupChatPaths.memberPath(groupId, username)),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        if (!dataSnapshot.exists()) {
+                            callback.onError("Not in this group");
+                            return;
+                        }
+                        Map<String, Object> updates = GroupChatPaths.leaveGroup(groupId, username);
+                        updates.put(GroupChatPaths.memberCountPath(groupId), ServerValue.increment(-1));
+                        Database.get().updateChildren(rootRef, updates)
+                                .addOnSuccessListener(aVoid -> callback.onSuccess(true))
+                                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Reads one group's header (name, member count, latest message)
+     */
+    public void getGroup(String groupId, GroupCallback callback) {
+        Database.get().readOnce(groupsRef.child(groupId), new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                Group group = dataSnapshot.getValue(Group.class);
+                if (group != null) {
+                    group.setGroupId(groupId);
+                }
+                callback.onSuccess(group);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Follows the groups a user is in. The user's own group list says which
+     * groups to follow, and each group's small header is followed on its own,
+     * so nothing about other groups or other members is downloaded.
+     */
+    public void getGroupsForUser(String username, GroupsCallback callback) {
+        stopListeningForGroups();
+
+        Map<String, Group> groups = new HashMap<>();
+        Map<String, String> lastReadIds = new HashMap<>();
+        userGroupsListenerRef = userGroupsRef.child(username);
+        userGroupsListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                lastReadIds.clear();
+                for (DataSnapshot membershipSnapshot : dataSnapshot.getChildren()) {
+                    lastReadIds.put(membershipSnapshot.getKey(),
+                            membershipSnapshot.child("lastReadId").getValue(String.class));
+                }
+
+                // Stop following groups the user has left
+                for (String groupId : new ArrayList<>(groupListeners.keySet())) {
+                    if (!lastReadIds.containsKey(groupId)) {
+                        Database.get().stopListening(groupsRef.child(groupId), groupListeners.remove(groupId));
+                        groups.remove(groupId);
+                    }
+                }
+
+                // Start following groups the user has joined
+                for (String groupId : lastReadIds.keySet()) {
+                    if (groupListeners.containsKey(groupId)) {
+                        continue;
+                    }
+                    ValueEventListener groupListener = new ValueEventListener() {
+                        @Override
+                        public void onDataChange(@NonNull DataSnapshot groupSnapshot) {
+                            Group group = groupSnapshot.getValue(Group.class);
+                            if (group == null) {
+                                groups.remove(groupId);
+                            } else {
+                                group.setGroupId(groupId);
+                                groups.put(groupId, group);
+                            }
+                            deliver();
+                        }
+
+                        @Override
+                        public void onCancelled(@NonNull DatabaseError databaseError) {
+                            callback.onError(databaseError.getMessage());
+                        }
+                    };
+                    groupListeners.put(groupId, groupListener);
+                    Database.get().listen(groupsRef.child(groupId), groupListener);
+                }
+                deliver();
+            }
+
+            private void deliver() {
+                List<Group> list = new ArrayList<>();
+                for (Map.Entry<String, Group> entry : groups.entrySet()) {
+                    entry.getValue().setLastReadId(lastReadIds.get(entry.getKey()));
+                    list.add(entry.getValue());
+                }
+                Collections.sort(list, (a, b) -> Long.compare(b.getLastMessageTimestamp(), a.getLastMessageTimestamp()));
+                callback.onSuccess(list);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage());
+            }
+        };
+        Database.get().listen(userGroupsListenerRef, userGroupsListener);
+    }
+
+    /**
+     * Stops following the user's groups
+     */
+    public void stopListeningForGroups() {
+        if (userGroupsListener != null) {
+            Database.get().stopListening(userGroupsListenerRef, userGroupsListener);
+            userGroupsListener = null;
+        }
+        for (Map.Entry<String, ValueEventListener> entry : groupListeners.entrySet()) {
+            Database.get().stopListening(groupsRef.child(entry.getKey()), entry.getValue());
+        }
+        groupListeners.clear();
+    }
+
+    /**
+     * Sends a message to a group in one write (see GroupChatPaths.sendMessage)
+     */
+    public void sendMessage(String groupId, String senderId, String content, DatabaseCallback callback) {
+        String messageId = groupMessagesRef.child(groupId).push().getKey();
+        if (messageId == null) {
+            callback.onError("Failed to generate message ID");
+            return;
+        }
+        Message message = new Message(messageId, groupId, senderId, null, content, System.currentTimeMillis(), false);
+        Database.get().updateChildren(rootRef, GroupChatPaths.sendMessage(groupId, message))
+                .addOnSuccessListener(aVoid -> callback.onSuccess(true))
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Reads a page of a group's messages
+     *
+     * @param groupId The group to read
+     * @param beforeKey Read the messages just before this message id, or null for the newest page
+     * @param callback Given the page, oldest first
+     */
+    public void getMessagesPage(String groupId, String beforeKey, MessagesPageCallback callback) {
+        Query query = groupMessagesRef.child(groupId).orderByKey();
+        if (beforeKey != null) {
+            query = query.endBefore(beforeKey);
+        }
+        // One extra message tells us whether there are more pages
+        Database.get().readOnce(query.limitToLast(GroupChatPaths.PAGE_SIZE + 1), new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                List<Message> messages = new ArrayList<>();
+                for (DataSnapshot messageSnapshot : dataSnapshot.getChildren()) {
+                    Message message = messageSnapshot.getValue(Message.class);
+                    if (message != null) {
+                        message.setMessageId(messageSnapshot.getKey());
+                        messages.add(message);
+                    }
+                }
+                boolean hasMore = messages.size() > GroupChatPaths.PAGE_SIZE;
+                if (hasMore) {
+                    messages.remove(0);
+                }
+                callback.onSuccess(messages, hasMore);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Follows the messages sent to a group after the given message
+     *
+     * @param afterKey The newest message already on screen, or null if there are none
+     */
+    public void listenForNewMessages(String groupId, String afterKey, NewMessageListener listener) {
+        stopListeningForMessages();
+        newMessagesQuery = groupMessagesRef.child(groupId).orderByKey();
+        if (afterKey != null) {
+            newMessagesQuery = newMessagesQuery.startAfter(afterKey);
+        }
+        newMessagesListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                Message message = snapshot.getValue(Message.class);
+                if (message != null) {
+                    message.setMessageId(snapshot.getKey());
+                    listener.onNewMessage(message);
+                }
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Group messages aren't changed after sending
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                // Group messages aren't deleted
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Push ids never move
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // The screen keeps what it already has
+            }
+        };
+        Database.get().listen(newMessagesQuery, newMessagesListener);
+    }
+
+    /**
+     * Stops following new group messages
+     */
+    public void stopListeningForMessages() {
+        if (newMessagesListener != null) {
+            Database.get().stopListening(newMessagesQuery, newMessagesListener);
+            newMessagesListener = null;
+            newMessagesQuery = null;
+        }
+    }
+
+    /**
+     * Remembers that a member has read a group up to the given message (one small write)
+     */
+    public void markRead(String groupId, String username, String messageId) {
+        Database.get().updateChildren(rootRef, GroupChatPaths.markRead(groupId, username, messageId));
+    }
+}
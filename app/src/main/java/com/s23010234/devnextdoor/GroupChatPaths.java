@@ -0,0 +1,153 @@
+package com.s23010234.devnextdoor;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Group Chat Paths - Where group chat data is kept, and what each action writes
+ *
+ * Group messages are kept once, in one shared list per group, instead of
+ * one copy per member ("fan-out on read"). Sending a message to a group of
+ * 500 costs the same single write as sending it to a group of 5; each
+ * member reads the shared list themselves, a page at a time.
+ *
+ *   groups/{groupId}                    - name, member count, latest message
+ *   groupMessages/{groupId}/{messageId} - the shared message list
+ *   groupMembers/{groupId}/{user}       - who is in a group (when they joined)
+ *   userGroups/{user}/{groupId}         - which groups a user is in, and the
+ *                                         last message they have read there
+ *
+ * Message ids are Firebase push ids, which sort in the order they were
+ * made, so "the last message read" is simply an id: everything with a
+ * larger id is unread, and pages can be read from any id onwards.
+ *
+ * Every method here only builds the map of changes for one multi-path
+ * write, so this class is plain Java: the app sends these maps with
+ * GroupChatManager, and the group load scenario test sends the same maps
+ * to the Firebase emulator.
+ */
+public class GroupChatPaths {
+
+    // How many messages are read at a time
+    public static final int PAGE_SIZE = 30;
+
+    private GroupChatPaths() {
+        // Only static helpers
+    }
+
+    public static String groupPath(String groupId) {
+        return "groups/" + groupId;
+    }
+
+    public static String messagesPath(String groupId) {
+        return "groupMessages/" + groupId;
+    }
+
+    public static String memberPath(String groupId, String username) {
+        return "groupMembers/" + groupId + "/" + username;
+    }
+
+    public static String userGroupPath(String username, String groupId) {
+        return "userGroups/" + username + "/" + groupId;
+    }
+
+    public static String memberCountPath(String groupId) {
+        return groupPath(groupId) + "/memberCount";
+    }
+
+    /**
+     * Whether message id a is newer than message id b (a null or empty b
+     * means nothing has been read yet)
+     */
+    public static boolean isAfter(String a, String b) {
+        if (a == null || a.isEmpty()) {
+            return false;
+        }
+        return b == null || b.isEmpty() || a.compareTo(b) > 0;
+    }
+
+    /**
+     * Makes a group with its first members. This is the only write that
+     * touches every member, and it happens once.
+     *
+     * @param members The other people to add (the creator is always added)
+     */
+    public static Map<String, Object> createGroup(String groupId, String name, String creator,
+                                                  List<String> members, long now) {
+        Set<String> everyone = new LinkedHashSet<>();
+        everyone.add(creator);
+        for (String member : members) {
+            if (member != null && !member.isEmpty()) {
+                everyone.add(member);
+            }
+        }
+
+        Map<String, Object> header = new HashMap<>();
+        header.put("name", name);
+        header.put("createdBy", creator);
+        header.put("createdAt", now);
+        header.put("memberCount", everyone.size());
+        header.put("lastMessage", "");
+        header.put("lastMessageTimestamp", now);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(groupPath(groupId), header);
+        for (String member : everyone) {
+            updates.putAll(joinGroup(groupId, member, now));
+        }
+        return updates;
+    }
+
+    /**
+     * Adds one person to a group. The member count is changed separately
+     * (with a server-side increment, see GroupChatManager).
+     */
+    public static Map<String, Object> joinGroup(String groupId, String username, long now) {
+        Map<String, Object> membership = new HashMap<>();
+        membership.put("joinedAt", now);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(memberPath(groupId, username), now);
+        updates.put(userGroupPath(username, groupId), membership);
+        return updates;
+    }
+
+    /**
+     * Takes one person out of a group (their old messages stay)
+     */
+    public static Map<String, Object> leaveGroup(String groupId, String username) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(memberPath(groupId, username), null);
+        updates.put(userGroupPath(username, groupId), null);
+        return updates;
+    }
+
+    /**
+     * Sends a message: the message goes into the shared list, the group's
+     * latest message is updated, and the sender has read their own message.
+     * Nothing is written per member, however big the group is.
+     */
+    public static Map<String, Object> sendMessage(String groupId, Message message) {
+        String group = groupPath(groupId);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(messagesPath(groupId) + "/" + message.getMessageId(), message);
+        updates.put(group + "/lastMessageId", message.getMessageId());
+        updates.put(group + "/lastMessage", message.getContent());
+        updates.put(group + "/lastMessageTimestamp", message.getTimestamp());
+        updates.put(group + "/lastMessageSender", message.getSenderId());
+        updates.putAll(markRead(groupId, message.getSenderId(), message.getMessageId()));
+        return updates;
+    }
+
+    /**
+     * Moves a member's read position forward to the given message
+     */
+    public static Map<String, Object> markRead(String groupId, String username, String messageId) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(userGroupPath(username, groupId) + "/lastReadId", messageId);
+        return updates;
+    }
+}
@@ -1,31 +1,56 @@
 package com.s23010234.devnextdoor;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.text.InputType;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Groups Activity - The Groups screen of the app
  * 
  * This activity represents the Groups section of the DevNextDoor app.
- * It would be where users can discover, join, and participate in
- * developer groups and communities. Think of it like the "Groups"
- * section in Facebook where people with similar interests gather.
+ * It is where users chat with several developers at once. Think of it
+ * like the group chats in WhatsApp.
+ * 
+ * Users can:
+ * - See the groups they are in, newest activity first, with a "New"
+ *   badge on groups that have messages they haven't read
+ * - Make a new group and pick who is in it
+ * - Tap a group to open its chat (GroupChatActivity)
+ * - Press and hold a group to leave it
  * 
- * Currently this screen shows the basic layout and navigation,
- * but the actual group features are still being developed.
  * The navigation bar at the bottom allows users to move between
  * different sections of the app.
  */
 public class GroupsActivity extends AppCompatActivity {
 
+    // Visual elements for the list of groups
+    private RecyclerView groupsRecyclerView;   // The scrollable list of groups
+    private GroupsAdapter groupsAdapter;       // Shows each group in the list
+    private LinearLayout loadingLayout;        // Shown while the groups are loading
+    private LinearLayout emptyStateLayout;     // Shown when the user is in no groups
+
+    // Data management objects
+    private GroupChatManager groupChatManager; // Helper for group data in Firebase
+    private String currentUsername;            // Username of the person using the app
+
     /**
      * onCreate - Sets up the Groups screen when it's first created
      * 
@@ -46,9 +71,8 @@ public class GroupsActivity extends AppCompatActivity {
         // Load and display the groups screen layout from the XML file
         setContentView(R.layout.activity_groups);
 
-        // Apply the user's chosen theme (Dark mode, Light mode, etc.)
-        // This ensures the screen matches the user's preferred appearance
-        ThemeManager.applyTheme(this);
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.groupsMain);
 
         // Handle system bars (status bar, navigation bar) properly
         // This ensures our content doesn't get hidden behind system elements
@@ -58,27 +82,187 @@ public class GroupsActivity extends AppCompatActivity {
             return insets;
         });
 
+        // Get current username
+        SharedPreferences sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
+        currentUsername = sharedPreferences.getString("username", "");
+
+        // Set up the group list and the New Group button
+        groupChatManager = new GroupChatManager();
+        groupsRecyclerView = findViewById(R.id.groupsRecyclerView);
+        loadingLayout = findViewById(R.id.loadingLayout);
+        emptyStateLayout = findViewById(R.id.emptyStateLayout);
+        groupsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        groupsAdapter = new GroupsAdapter(this, this::confirmLeaveGroup);
+        groupsRecyclerView.setAdapter(groupsAdapter);
+
+        Button createGroupButton = findViewById(R.id.createGroupButton);
+        createGroupButton.setOnClickListener(v -> showCreateGroupDialog());
+
         // Set up all the navigation buttons at the bottom of the screen
         setupNavigationClicks();
     }
-    
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        loadGroups();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Stop following the groups while the screen can't be seen
+        groupChatManager.stopListeningForGroups();
+    }
+
     /**
-     * onResume - Runs when the user returns to this screen
-     * 
-     * This method is called whenever the user comes back to the Groups screen
-     * after being on a different screen. For example, if they go to Settings
-     * and change their theme, this ensures the new theme is applied when
-     * they return to Groups.
+     * Follows the groups the user is in
      */
-    @Override
-    protected void onResume() {
-        // Call the parent class method
-        super.onResume();
-        
-        // Reapply the current theme in case the user changed it in Settings
-        ThemeManager.applyTheme(this);
+    private void loadGroups() {
+        if (currentUsername.isEmpty()) {
+            showEmptyState();
+            return;
+        }
+        groupChatManager.getGroupsForUser(currentUsername, new GroupChatManager.GroupsCallback() {
+            @Override
+            public void onSuccess(List<Group> groups) {
+                groupsAdapter.updateGroups(groups);
+                if (groups.isEmpty()) {
+                    showEmptyState();
+                } else {
+                    loadingLayout.setVisibility(View.GONE);
+                    emptyStateLayout.setVisibility(View.GONE);
+                    groupsRecyclerView.setVisibility(View.VISIBLE);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(GroupsActivity.this, "Error loading groups: " + error, Toast.LENGTH_SHORT).show();
+                showEmptyState();
+            }
+        });
+    }
+
+    private void showEmptyState() {
+        loadingLayout.setVisibility(View.GONE);
+        groupsRecyclerView.setVisibility(View.GONE);
+        emptyStateLayout.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * Asks for a group name and the usernames of the people to add
+     */
+    private void showCreateGroupDialog() {
+        LinearLayout form = new LinearLayout(this);
+        form.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (20 * getResources().getDisplayMetrics().density);
+        form.setPadding(padding, padding / 2, padding, 0);
+
+        EditText nameInput = new EditText(this);
+        nameInput.setHint("Group name");
+        nameInput.setInputType(InputType.TYPE_CLASS_TEXT);
+        form.addView(nameInput);
+
+        EditText membersInput = new EditText(this);
+        membersInput.setHint("Usernames, separated by commas");
+        membersInput.setInputType(InputType.TYPE_CLASS_TEXT);
+        form.addView(membersInput);
+
+        new AlertDialog.Builder(this)
+                .setTitle("New Group")
+                .setView(form)
+                .setPositiveButton("Create", (dialog, which) ->
+                        createGroup(nameInput.getText().toString(), membersInput.getText().toString()))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Checks that every username belongs to a real user, then makes the group
+     */
+    private void createGroup(String name, String membersText) {
+        if (name.trim().isEmpty()) {
+            Toast.makeText(this, "Please enter a group name", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<String> members = new ArrayList<>();
+        for (String member : membersText.split(",")) {
+            String username = member.trim();
+            if (username.startsWith("@")) {
+                username = username.substring(1);
+            }
+            if (!username.isEmpty() && !members.contains(username) && !username.equals(currentUsername)) {
+                members.add(username);
+            }
+        }
+        checkMembersExist(members, 0, () ->
+                groupChatManager.createGroup(name, currentUsername, members, new GroupChatManager.CreateGroupCallback() {
+                    @Override
+                    public void onSuccess(String groupId) {
+                        Intent intent = new Intent(GroupsActivity.this, GroupChatActivity.class);
+                        intent.putExtra("groupId", groupId);
+                        intent.putExtra("groupName", name.trim());
+                        startActivity(intent);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Toast.makeText(GroupsActivity.this, "Failed to create group: " + error, Toast.LENGTH_SHORT).show();
+                    }
+                }));
+    }
+
+    private void checkMembersExist(List<String> members, int index, Runnable whenAllExist) {
+        if (index >= members.size()) {
+            whenAllExist.run();
+            return;
+        }
+        String username = members.get(index);
+        if (!username.matches("[^.#$\\[\\]/]+")) {
+            Toast.makeText(this, "User not found: " + username, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        new FirebaseHelper().isUsernameExists(username, new FirebaseHelper.UserExistsCallback() {
+            @Override
+            public void onResult(boolean exists) {
+                if (exists) {
+                    checkMembersExist(members, index + 1, whenAllExist);
+                } else {
+                    Toast.makeText(GroupsActivity.this, "User not found: " + username, Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(GroupsActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Asks before taking the user out of a group
+     */
+    private void confirmLeaveGroup(Group group) {
+        new AlertDialog.Builder(this)
+                .setTitle("Leave Group")
+                .setMessage("Leave \"" + group.getName() + "\"? You can be added again by a member.")
+                .setPositiveButton("Leave", (dialog, which) ->
+                        groupChatManager.leaveGroup(group.getGroupId(), currentUsername, new GroupChatManager.DatabaseCallback() {
+                            @Override
+                            public void onSuccess(boolean result) {
+                                // The list updates through the groups listener
+                            }
+
+                            @Override
+                            public void onError(String error) {
+                                Toast.makeText(GroupsActivity.this, "Failed to leave group: " + error, Toast.LENGTH_SHORT).show();
+                            }
+                        }))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+    
     /**
      * Setup Navigation Clicks - Configures all the bottom navigation buttons
      * 
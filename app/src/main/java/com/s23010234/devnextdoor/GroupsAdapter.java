@@ -0,0 +1,121 @@
+package com.s23010234.devnextdoor;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Groups Adapter - Shows the list of groups a user is in
+ *
+ * Each row shows the group's name, its latest message, how many members
+ * it has, and a "New" badge when there are messages the user hasn't read.
+ * Tapping a row opens the group; pressing and holding offers to leave it.
+ */
+public class GroupsAdapter extends RecyclerView.Adapter<GroupsAdapter.GroupViewHolder> {
+
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.groups");
+
+    /**
+     * Told when the user asks to leave a group
+     */
+    public interface LeaveGroupListener {
+        void onLeaveGroup(Group group);
+    }
+
+    private final Context context;
+    private final LeaveGroupListener leaveGroupListener;
+    private List<Group> groups = new ArrayList<>();
+
+    public GroupsAdapter(Context context, LeaveGroupListener leaveGroupListener) {
+        this.context = context;
+        this.leaveGroupListener = leaveGroupListener;
+    }
+
+    /**
+     * Replaces the groups on screen
+     */
+    public void updateGroups(List<Group> newGroups) {
+        this.groups = newGroups;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public GroupViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_group, parent, false);
+        return new GroupViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull GroupViewHolder holder, int position) {
+        long start = Metrics.now();
+        holder.bind(groups.get(position));
+        BIND_TIME.recordSince(start);
+    }
+
+    @Override
+    public int getItemCount() {
+        return groups.size();
+    }
+
+    class GroupViewHolder extends RecyclerView.ViewHolder {
+        private final TextView groupNameText;
+        private final TextView newBadgeText;
+        private final TextView lastMessageText;
+        private final TextView groupInfoText;
+
+        GroupViewHolder(@NonNull View itemView) {
+            super(itemView);
+            groupNameText = itemView.findViewById(R.id.groupNameText);
+            newBadgeText = itemView.findViewById(R.id.newBadgeText);
+            lastMessageText = itemView.findViewById(R.id.lastMessageText);
+            groupInfoText = itemView.findViewById(R.id.groupInfoText);
+        }
+
+        void bind(Group group) {
+            groupNameText.setText(group.getName());
+
+            String lastMessage = group.getLastMessage();
+            if (lastMessage == null || lastMessage.isEmpty()) {
+                lastMessageText.setText("No messages yet");
+            } else {
+                lastMessageText.setText("@" + group.getLastMessageSender() + ": " + lastMessage);
+            }
+
+            long members = group.getMemberCount();
+            String time = new SimpleDateFormat("MMM dd", Locale.getDefault())
+                    .format(new Date(group.getLastMessageTimestamp()));
+            groupInfoText.setText(members + (members == 1 ? " member · " : " members · ") + time);
+
+            // Unread messages: show the badge and make the last message bold
+            boolean unread = group.hasUnread();
+            newBadgeText.setVisibility(unread ? View.VISIBLE : View.GONE);
+            lastMessageText.setTypeface(null, unread ? Typeface.BOLD : Typeface.NORMAL);
+
+            itemView.setOnClickListener(v -> {
+                Intent intent = new Intent(context, GroupChatActivity.class);
+                intent.putExtra("groupId", group.getGroupId());
+                intent.putExtra("groupName", group.getName());
+                context.startActivity(intent);
+            });
+            itemView.setOnLongClickListener(v -> {
+                leaveGroupListener.onLeaveGroup(group);
+                return true;
+            });
+        }
+    }
+}
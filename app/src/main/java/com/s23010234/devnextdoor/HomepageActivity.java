@@ -18,7 +18,6 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
@@ -71,8 +70,8 @@ public class HomepageActivity extends ShakeBaseActivity {
         // Load and display the homepage layout from the XML file
         setContentView(R.layout.activity_homepage);
 
-        // Apply the user's preferred theme (dark or light mode)
-        ThemeManager.applyTheme(this);
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
 
         // Handle system bars (like status bar and navigation bar) properly
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -82,7 +81,7 @@ public class HomepageActivity extends ShakeBaseActivity {
         });
 
         // Set up connection to Firebase database where user profiles are stored
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         
         // Get the username of the currently logged-in user from device storage
         SharedPreferences sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
@@ -117,14 +116,14 @@ public class HomepageActivity extends ShakeBaseActivity {
     }
     
     /**
-     * This method runs every time the user returns to the Homepage screen.
-     * It refreshes the user profiles to show any new users who might have joined.
+     * This method runs every time the user comes back to the Homepage screen
+     * from another screen. It refreshes the user profiles to show any new
+     * users who might have joined. (It doesn't run when the screen is first
+     * opened - onCreate has just loaded them.)
      */
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply theme when returning to this activity (e.g., from Settings)
-        ThemeManager.applyTheme(this);
+    protected void onRestart() {
+        super.onRestart();
         // Reload user profiles to get latest data
         loadUserProfiles();
     }
@@ -156,7 +155,7 @@ public class HomepageActivity extends ShakeBaseActivity {
     private void loadUserProfiles() {
         showLoading();
         
-        databaseReference.addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference, new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 userList.clear();
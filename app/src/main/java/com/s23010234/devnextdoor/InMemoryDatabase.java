@@ -0,0 +1,1162 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+/**
+ * In-Memory Database - A stand-in for the Firebase Realtime Database that lives in memory
+ *
+ * It stores the same JSON tree and answers the same kinds of questions:
+ * - Reads and writes by path ("users/alice/bio"), including multi-path updates
+ *   and the server values ServerValue.TIMESTAMP and ServerValue.increment
+ * - Queries ordered by key, by value or by a child ("timestamp", "a/b"), with
+ *   startAt, endAt, equalTo, limitToFirst and limitToLast, in Firebase's order
+ *   (missing < false < true < numbers < strings < objects, then by key)
+ * - Listeners for a whole query (value) or for each child (added, changed,
+ *   removed), told about every later write that changes what they see
+ * - Transactions
+ *
+ * It is meant for load tests on an ordinary computer, with hundreds of
+ * thousands of users and millions of messages, so it is built to stay fast:
+ * - Each folder keeps its children sorted by key (a TreeMap), so key queries
+ *   and limits only touch the children they return
+ * - An orderByChild query builds a sorted index of that folder the first time
+ *   it is asked; after that each write moves just the one child it touched,
+ *   instead of sorting the folder again
+ * - A write only re-checks the listeners above or below its path, and a
+ *   listener without a limit only looks at the children that were written
+ *
+ * Values are plain Java: Map (with String keys), String, Long, Double and
+ * Boolean. Model objects must be turned into maps first (InMemoryGateway
+ * does this the same way Firebase does). Everything handed out is a copy.
+ * Priorities and onChildMoved are not supported (the app uses neither).
+ *
+ * Listener calls are handed to the Executor given to the constructor (the
+ * main thread in the app's tests, or Runnable::run to call them straight away),
+ * always after the write has finished. All methods can be called from any thread.
+ */
+public class InMemoryDatabase {
+
+    /**
+     * Key used in startAt/endAt to mean "before every key" or "after every key".
+     * (The same names Firebase uses; real keys can't contain square brackets.)
+     */
+    public static final String MIN_KEY = "[MIN_NAME]";
+    public static final String MAX_KEY = "[MAX_NAME]";
+
+    /**
+     * Returned by a TransactionFunction to leave the value as it is
+     */
+    public static final Object ABORT = new Object();
+
+    public interface ValueListener {
+        /**
+         * The whole result: null if empty, a Map in query order, or a single value
+         */
+        void onValue(Object value);
+    }
+
+    public interface ChildListener {
+        void onChildAdded(String key, Object value, String previousKey);
+
+        void onChildChanged(String key, Object value, String previousKey);
+
+        void onChildRemoved(String key, Object value);
+    }
+
+    public interface TransactionFunction {
+        /**
+         * Works out the new value from the current one (null if there is none)
+         *
+         * @return The value to save, or ABORT to change nothing
+         */
+        Object apply(Object current);
+    }
+
+    /**
+     * Where the time for ServerValue.TIMESTAMP comes from
+     */
+    public interface Clock {
+        long now();
+    }
+
+    /**
+     * What to read: a query on the folder at some path, built like a Firebase query
+     * (QuerySpec.ALL.orderByChild("timestamp").startAt(since).limitToLast(50)).
+     * Each method returns a new QuerySpec; the original is never changed.
+     */
+    public static final class QuerySpec {
+        static final int ORDER_BY_KEY = 0;
+        static final int ORDER_BY_VALUE = 1;
+        static final int ORDER_BY_CHILD = 2;
+
+        /**
+         * Every child, in key order
+         */
+        public static final QuerySpec ALL = new QuerySpec(ORDER_BY_KEY, null,
+                false, null, null, false, null, null, 0, false);
+
+        final int orderBy;
+        final String orderChild;
+        final boolean hasStart;
+        final Object startValue;
+        final String startKey;
+        final boolean hasEnd;
+        final Object endValue;
+        final String endKey;
+        final int limit;              // 0 means no limit
+        final boolean fromLast;
+
+        private QuerySpec(int orderBy, String orderChild, boolean hasStart, Object startValue, String startKey,
+                          boolean hasEnd, Object endValue, String endKey, int limit, boolean fromLast) {
+            this.orderBy = orderBy;
+            this.orderChild = orderChild;
+            this.hasStart = hasStart;
+            this.startValue = startValue;
+            this.startKey = startKey;
+            this.hasEnd = hasEnd;
+            this.endValue = endValue;
+            this.endKey = endKey;
+            this.limit = limit;
+            this.fromLast = fromLast;
+        }
+
+        public QuerySpec orderByKey() {
+            return new QuerySpec(ORDER_BY_KEY, null, hasStart, startValue, startKey,
+                    hasEnd, endValue, endKey, limit, fromLast);
+        }
+
+        public QuerySpec orderByValue() {
+            return new QuerySpec(ORDER_BY_VALUE, null, hasStart, startValue, startKey,
+                    hasEnd, endValue, endKey, limit, fromLast);
+        }
+
+        public QuerySpec orderByChild(String childPath) {
+            return new QuerySpec(ORDER_BY_CHILD, trimSlashes(childPath), hasStart, startValue, startKey,
+                    hasEnd, endValue, endKey, limit, fromLast);
+        }
+
+        /**
+         * Children from this value on (for orderByKey, from this key on)
+         */
+        public QuerySpec startAt(Object value) {
+            return startAt(value, MIN_KEY);
+        }
+
+        /**
+         * Children from this value on, and among those with exactly this value, from this key on
+         */
+        public QuerySpec startAt(Object value, String key) {
+            return new QuerySpec(orderBy, orderChild, true, normalizeLeaf(value), key == null ? MIN_KEY : key,
+                    hasEnd, endValue, endKey, limit, fromLast);
+        }
+
+        public QuerySpec endAt(Object value) {
+            return endAt(value, MAX_KEY);
+        }
+
+        public QuerySpec endAt(Object value, String key) {
+            return new QuerySpec(orderBy, orderChild, hasStart, startValue, startKey,
+                    true, normalizeLeaf(value), key == null ? MAX_KEY : key, limit, fromLast);
+        }
+
+        public QuerySpec equalTo(Object value) {
+            return startAt(value).endAt(value);
+        }
+
+        public QuerySpec limitToFirst(int count) {
+            return new QuerySpec(orderBy, orderChild, hasStart, startValue, startKey,
+                    hasEnd, endValue, endKey, count, false);
+        }
+
+        public QuerySpec limitToLast(int count) {
+            return new QuerySpec(orderBy, orderChild, hasStart, startValue, startKey,
+                    hasEnd, endValue, endKey, count, true);
+        }
+
+        boolean isUnfiltered() {
+            return !hasStart && !hasEnd && limit == 0;
+        }
+    }
+
+    private final TreeMap<String, Object> root = newFolder();
+    private final Executor eventExecutor;
+    private final Clock clock;
+
+    // Sorted indexes for orderByValue/orderByChild queries: folder path -> child path -> index
+    private final Map<String, Map<String, ChildIndex>> indexes = new HashMap<>();
+
+    // Listeners, by the path they listen to
+    private final Map<String, List<Registration>> registrations = new HashMap<>();
+    private final Map<Object, Registration> registrationsByListener = new HashMap<>();
+
+    public InMemoryDatabase(Executor eventExecutor) {
+        this(eventExecutor, new Clock() {
+            @Override
+            public long now() {
+                return System.currentTimeMillis();
+            }
+        });
+    }
+
+    public InMemoryDatabase(Executor eventExecutor, Clock clock) {
+        this.eventExecutor = eventExecutor;
+        this.clock = clock;
+    }
+
+    // ---- Reading ----
+
+    /**
+     * A copy of the value at a path (null if there is nothing there)
+     */
+    public synchronized Object get(String path) {
+        return copy(valueAt(keysOf(path)));
+    }
+
+    /**
+     * A copy of what a query on the folder at path returns (see ValueListener.onValue)
+     */
+    public synchronized Object query(String path, QuerySpec spec) {
+        return evaluate(keysOf(path), spec);
+    }
+
+    /**
+     * How many children the folder at a path has
+     */
+    public synchronized int childCount(String path) {
+        Object value = valueAt(keysOf(path));
+        return value instanceof TreeMap ? ((TreeMap<?, ?>) value).size() : 0;
+    }
+
+    // ---- Writing ----
+
+    public void set(String path, Object value) {
+        Map<String, Object> writes = new LinkedHashMap<>();
+        writes.put(trimSlashes(path), value);
+        dispatch(write(writes));
+    }
+
+    /**
+     * Writes several paths (relative to path) in one go, like Firebase updateChildren.
+     * Listeners hear about all of them together.
+     */
+    public void update(String path, Map<String, Object> values) {
+        Map<String, Object> writes = new LinkedHashMap<>();
+        String base = trimSlashes(path);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writes.put(join(base, trimSlashes(entry.getKey())), entry.getValue());
+        }
+        dispatch(write(writes));
+    }
+
+    public void remove(String path) {
+        set(path, null);
+    }
+
+    /**
+     * Reads, changes and saves a value with no other write in between
+     *
+     * @return True if the function returned a value to save, false if it returned ABORT
+     */
+    public boolean runTransaction(String path, TransactionFunction function) {
+        List<Runnable> events;
+        synchronized (this) {
+            Object result = function.apply(copy(valueAt(keysOf(path))));
+            if (result == ABORT) {
+                return false;
+            }
+            Map<String, Object> writes = new LinkedHashMap<>();
+            writes.put(trimSlashes(path), result);
+            events = write(writes);
+        }
+        dispatch(events);
+        return true;
+    }
+
+    // ---- Listening ----
+
+    /**
+     * Calls the listener with the current result, then again every time it changes
+     */
+    public void addValueListener(String path, QuerySpec spec, ValueListener listener) {
+        dispatch(register(path, spec, listener, null));
+    }
+
+    /**
+     * Calls onChildAdded for each current child (in query order), then reports every change
+     */
+    public void addChildListener(String path, QuerySpec spec, ChildListener listener) {
+        dispatch(register(path, spec, null, listener));
+    }
+
+    /**
+     * Stops a listener. Calls already waiting on the executor are dropped too.
+     */
+    public synchronized void removeListener(Object listener) {
+        Registration registration = registrationsByListener.remove(listener);
+        if (registration == null) {
+            return;
+        }
+        registration.active = false;
+        List<Registration> atPath = registrations.get(registration.path);
+        atPath.remove(registration);
+        if (atPath.isEmpty()) {
+            registrations.remove(registration.path);
+        }
+    }
+
+    public synchronized int listenerCount() {
+        return registrationsByListener.size();
+    }
+
+    // ---- Listener bookkeeping ----
+
+    private static final class Registration {
+        final String path;
+        final String[] keys;
+        final QuerySpec spec;
+        final ValueListener valueListener;
+        final ChildListener childListener;
+        volatile boolean active = true;
+
+        // Keys currently in the result: in order when the query has a limit,
+        // otherwise just which ones (the order then comes from the folder or its index)
+        List<String> orderedKeys = new ArrayList<>();
+        Set<String> keySet = new HashSet<>();
+
+        Registration(String path, QuerySpec spec, ValueListener valueListener, ChildListener childListener) {
+            this.path = path;
+            this.keys = keysOf(path);
+            this.spec = spec;
+            this.valueListener = valueListener;
+            this.childListener = childListener;
+        }
+
+        Object listener() {
+            return valueListener != null ? valueListener : childListener;
+        }
+    }
+
+    private synchronized List<Runnable> register(String path, QuerySpec spec,
+                                                 ValueListener valueListener, ChildListener childListener) {
+        Registration registration = new Registration(trimSlashes(path), spec, valueListener, childListener);
+        Object old = registrationsByListener.get(registration.listener());
+        if (old != null) {
+            removeListener(registration.listener());
+        }
+        List<Registration> atPath = registrations.get(registration.path);
+        if (atPath == null) {
+            atPath = new ArrayList<>();
+            registrations.put(registration.path, atPath);
+        }
+        atPath.add(registration);
+        registrationsByListener.put(registration.listener(), registration);
+
+        List<Runnable> events = new ArrayList<>();
+        List<String> keys = queryKeys(registration.keys, spec);
+        remember(registration, keys);
+        if (valueListener != null) {
+            events.add(valueEvent(registration, evaluate(registration.keys, spec)));
+        } else {
+            String previous = null;
+            for (String key : keys) {
+                events.add(childEvent(registration, ADDED, key, childCopy(registration.keys, key), previous));
+                previous = key;
+            }
+        }
+        return events;
+    }
+
+    private void remember(Registration registration, List<String> keys) {
+        registration.keySet = new HashSet<>(keys);
+        registration.orderedKeys = registration.spec.limit > 0 ? keys : null;
+    }
+
+    // What happened to a listener's result because of one write
+    private static final class Pending {
+        final Registration registration;
+        boolean whole;                                      // Written at or above the listener's path
+        final Map<String, Object> before = new HashMap<>(); // Old copies of the written children
+        Object wholeBefore;                                 // Old result, when whole
+
+        Pending(Registration registration) {
+            this.registration = registration;
+        }
+    }
+
+    /**
+     * Applies the writes, keeps indexes up to date, and works out what each listener should be told
+     */
+    private synchronized List<Runnable> write(Map<String, Object> writes) {
+        // Resolve server values and check everything before changing anything
+        List<String[]> paths = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : writes.entrySet()) {
+            String[] keys = keysOf(entry.getKey());
+            paths.add(keys);
+            values.add(normalize(entry.getValue(), valueAt(keys)));
+        }
+
+        // Remember what the affected listeners saw before the write
+        Map<Registration, Pending> pending = new LinkedHashMap<>();
+        for (String[] keys : paths) {
+            for (Registration registration : overlapping(keys)) {
+                Pending change = pending.get(registration);
+                if (change == null) {
+                    change = new Pending(registration);
+                    pending.put(registration, change);
+                }
+                if (change.whole) {
+                    continue;
+                }
+                if (keys.length <= registration.keys.length) {
+                    change.whole = true;
+                    change.wholeBefore = evaluate(registration.keys, registration.spec);
+                } else {
+                    String child = keys[registration.keys.length];
+                    if (!change.before.containsKey(child)) {
+                        change.before.put(child, childCopy(registration.keys, child));
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            store(paths.get(i), values.get(i));
+            updateIndexes(paths.get(i));
+        }
+
+        List<Runnable> events = new ArrayList<>();
+        for (Pending change : pending.values()) {
+            if (change.whole) {
+                wholeChanged(change, events);
+            } else if (change.registration.spec.limit > 0) {
+                limitedChildrenChanged(change, events);
+            } else {
+                childrenChanged(change, events);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Listeners whose path is above, at or below a written path
+     */
+    private List<Registration> overlapping(String[] keys) {
+        List<Registration> found = new ArrayList<>();
+        if (registrations.isEmpty()) {
+            return found;
+        }
+        // Above or at the written path: look up each of its ancestors
+        StringBuilder path = new StringBuilder();
+        addAll(found, registrations.get(""));
+        for (String key : keys) {
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(key);
+            addAll(found, registrations.get(path.toString()));
+        }
+        // Below it
+        String written = path.toString();
+        for (Map.Entry<String, List<Registration>> entry : registrations.entrySet()) {
+            if (isStrictlyUnder(entry.getKey(), written)) {
+                found.addAll(entry.getValue());
+            }
+        }
+        return found;
+    }
+
+    private void wholeChanged(Pending change, List<Runnable> events) {
+        Registration registration = change.registration;
+        Object after = evaluate(registration.keys, registration.spec);
+        remember(registration, queryKeys(registration.keys, registration.spec));
+        if (registration.valueListener != null) {
+            if (!equal(change.wholeBefore, after)) {
+                events.add(valueEvent(registration, after));
+            }
+            return;
+        }
+        Map<String, Object> before = asMap(change.wholeBefore);
+        Map<String, Object> now = asMap(after);
+        for (Map.Entry<String, Object> old : before.entrySet()) {
+            if (!now.containsKey(old.getKey())) {
+                events.add(childEvent(registration, REMOVED, old.getKey(), old.getValue(), null));
+            }
+        }
+        String previous = null;
+        for (Map.Entry<String, Object> child : now.entrySet()) {
+            if (!before.containsKey(child.getKey())) {
+                events.add(childEvent(registration, ADDED, child.getKey(), child.getValue(), previous));
+            } else if (!equal(before.get(child.getKey()), child.getValue())) {
+                events.add(childEvent(registration, CHANGED, child.getKey(), child.getValue(), previous));
+            }
+            previous = child.getKey();
+        }
+    }
+
+    /**
+     * A query with a limit: run it again (cheap - it stops after the limit) and compare
+     */
+    private void limitedChildrenChanged(Pending change, List<Runnable> events) {
+        Registration registration = change.registration;
+        List<String> oldKeys = registration.orderedKeys;
+        List<String> newKeys = queryKeys(registration.keys, registration.spec);
+        Set<String> newSet = new HashSet<>(newKeys);
+
+        boolean changed = !newKeys.equals(oldKeys);
+        List<Runnable> childEvents = new ArrayList<>();
+        for (String key : oldKeys) {
+            if (!newSet.contains(key)) {
+                // Either written away, or pushed out of the window by a newer child
+                Object old = change.before.containsKey(key) ? change.before.get(key) : childCopy(registration.keys, key);
+                childEvents.add(childEvent(registration, REMOVED, key, old, null));
+            }
+        }
+        String previous = null;
+        for (String key : newKeys) {
+            if (!registration.keySet.contains(key)) {
+                childEvents.add(childEvent(registration, ADDED, key, childCopy(registration.keys, key), previous));
+            } else if (change.before.containsKey(key)) {
+                Object now = childCopy(registration.keys, key);
+                if (!equal(change.before.get(key), now)) {
+                    changed = true;
+                    childEvents.add(childEvent(registration, CHANGED, key, now, previous));
+                }
+            }
+            previous = key;
+        }
+        remember(registration, newKeys);
+
+        if (registration.valueListener != null) {
+            if (changed) {
+                events.add(valueEvent(registration, evaluate(registration.keys, registration.spec)));
+            }
+        } else {
+            events.addAll(childEvents);
+        }
+    }
+
+    /**
+     * A query without a limit: only the written children can have come, gone or changed
+     */
+    private void childrenChanged(Pending change, List<Runnable> events) {
+        Registration registration = change.registration;
+        boolean changed = false;
+        for (Map.Entry<String, Object> written : change.before.entrySet()) {
+            String key = written.getKey();
+            boolean wasIn = registration.keySet.contains(key);
+            boolean isIn = inQuery(registration.keys, registration.spec, key);
+            Object now = isIn ? childCopy(registration.keys, key) : null;
+
+            if (wasIn && !isIn) {
+                registration.keySet.remove(key);
+                changed = true;
+                if (registration.childListener != null) {
+                    events.add(childEvent(registration, REMOVED, key, written.getValue(), null));
+                }
+            } else if (!wasIn && isIn) {
+                registration.keySet.add(key);
+                changed = true;
+                if (registration.childListener != null) {
+                    events.add(childEvent(registration, ADDED, key, now,
+                            previousKey(registration.keys, registration.spec, key)));
+                }
+            } else if (isIn && !equal(written.getValue(), now)) {
+                changed = true;
+                if (registration.childListener != null) {
+                    events.add(childEvent(registration, CHANGED, key, now,
+                            previousKey(registration.keys, registration.spec, key)));
+                }
+            }
+        }
+        if (changed && registration.valueListener != null) {
+            events.add(valueEvent(registration, evaluate(registration.keys, registration.spec)));
+        }
+    }
+
+    private static final int ADDED = 0;
+    private static final int CHANGED = 1;
+    private static final int REMOVED = 2;
+
+    private static Runnable valueEvent(Registration registration, Object value) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (registration.active) {
+                    registration.valueListener.onValue(value);
+                }
+            }
+        };
+    }
+
+    private static Runnable childEvent(Registration registration, int kind, String key, Object value,
+                                       String previousKey) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (!registration.active) {
+                    return;
+                }
+                if (kind == ADDED) {
+                    registration.childListener.onChildAdded(key, value, previousKey);
+                } else if (kind == CHANGED) {
+                    registration.childListener.onChildChanged(key, value, previousKey);
+                } else {
+                    registration.childListener.onChildRemoved(key, value);
+                }
+            }
+        };
+    }
+
+    private void dispatch(List<Runnable> events) {
+        for (Runnable event : events) {
+            eventExecutor.execute(event);
+        }
+    }
+
+    // ---- Queries ----
+
+    /**
+     * The keys a query returns, in query order
+     */
+    private List<String> queryKeys(String[] folderKeys, QuerySpec spec) {
+        List<String> keys = new ArrayList<>();
+        Object value = valueAt(folderKeys);
+        if (!(value instanceof TreeMap)) {
+            return keys;
+        }
+        TreeMap<String, Object> folder = folder(value);
+        Iterator<String> iterator;
+
+        if (spec.orderBy == QuerySpec.ORDER_BY_KEY) {
+            NavigableMap<String, Object> range = folder;
+            String from = spec.hasStart ? String.valueOf(spec.startValue) : null;
+            String to = spec.hasEnd ? String.valueOf(spec.endValue) : null;
+            if (from != null && to != null && KEY_ORDER.compare(from, to) > 0) {
+                return keys;
+            }
+            if (from != null) {
+                range = range.tailMap(from, true);
+            }
+            if (to != null) {
+                range = range.headMap(to, true);
+            }
+            iterator = spec.limit > 0 && spec.fromLast
+                    ? range.descendingKeySet().iterator()
+                    : range.navigableKeySet().iterator();
+        } else {
+            NavigableSet<IndexEntry> range = rangeOf(indexFor(folderKeys, folder, spec), spec);
+            if (range == null) {
+                return keys;
+            }
+            final Iterator<IndexEntry> entries = spec.limit > 0 && spec.fromLast
+                    ? range.descendingIterator()
+                    : range.iterator();
+            iterator = new Iterator<String>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return entries.next().key;
+                }
+            };
+        }
+
+        int limit = spec.limit > 0 ? spec.limit : Integer.MAX_VALUE;
+        while (iterator.hasNext() && keys.size() < limit) {
+            keys.add(iterator.next());
+        }
+        if (spec.limit > 0 && spec.fromLast) {
+            Collections.reverse(keys);
+        }
+        return keys;
+    }
+
+    private static NavigableSet<IndexEntry> rangeOf(ChildIndex index, QuerySpec spec) {
+        NavigableSet<IndexEntry> range = index.entries;
+        IndexEntry from = spec.hasStart ? new IndexEntry(spec.startValue, spec.startKey) : null;
+        IndexEntry to = spec.hasEnd ? new IndexEntry(spec.endValue, spec.endKey) : null;
+        if (from != null && to != null && ENTRY_ORDER.compare(from, to) > 0) {
+            return null;
+        }
+        if (from != null) {
+            range = range.tailSet(from, true);
+        }
+        if (to != null) {
+            range = range.headSet(to, true);
+        }
+        return range;
+    }
+
+    /**
+     * Whether one child of the folder is inside a query's range (for queries without a limit)
+     */
+    private boolean inQuery(String[] folderKeys, QuerySpec spec, String key) {
+        Object value = valueAt(folderKeys);
+        if (!(value instanceof TreeMap) || !folder(value).containsKey(key)) {
+            return false;
+        }
+        if (spec.orderBy == QuerySpec.ORDER_BY_KEY) {
+            return (!spec.hasStart || KEY_ORDER.compare(key, String.valueOf(spec.startValue)) >= 0)
+                    && (!spec.hasEnd || KEY_ORDER.compare(key, String.valueOf(spec.endValue)) <= 0);
+        }
+        IndexEntry entry = indexFor(folderKeys, folder(value), spec).byKey.get(key);
+        return (!spec.hasStart || ENTRY_ORDER.compare(entry, new IndexEntry(spec.startValue, spec.startKey)) >= 0)
+                && (!spec.hasEnd || ENTRY_ORDER.compare(entry, new IndexEntry(spec.endValue, spec.endKey)) <= 0);
+    }
+
+    /**
+     * The key just before this one in a query without a limit (null if it is first)
+     */
+    private String previousKey(String[] folderKeys, QuerySpec spec, String key) {
+        TreeMap<String, Object> folder = folder(valueAt(folderKeys));
+        if (spec.orderBy == QuerySpec.ORDER_BY_KEY) {
+            String previous = folder.lowerKey(key);
+            boolean inRange = previous != null
+                    && (!spec.hasStart || KEY_ORDER.compare(previous, String.valueOf(spec.startValue)) >= 0);
+            return inRange ? previous : null;
+        }
+        ChildIndex index = indexFor(folderKeys, folder, spec);
+        IndexEntry previous = index.entries.lower(index.byKey.get(key));
+        boolean inRange = previous != null
+                && (!spec.hasStart || ENTRY_ORDER.compare(previous, new IndexEntry(spec.startValue, spec.startKey)) >= 0);
+        return inRange ? previous.key : null;
+    }
+
+    private Object evaluate(String[] folderKeys, QuerySpec spec) {
+        Object value = valueAt(folderKeys);
+        if (!(value instanceof TreeMap)) {
+            return spec.isUnfiltered() ? value : null;
+        }
+        List<String> keys = queryKeys(folderKeys, spec);
+        if (keys.isEmpty()) {
+            return null;
+        }
+        TreeMap<String, Object> folder = folder(value);
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            result.put(key, copy(folder.get(key)));
+        }
+        return result;
+    }
+
+    private Object childCopy(String[] folderKeys, String key) {
+        Object value = valueAt(folderKeys);
+        return value instanceof TreeMap ? copy(folder(value).get(key)) : null;
+    }
+
+    // ---- Indexes ----
+
+    // Stands in for "some object" in index order (all objects sort the same; ties go by key)
+    private static final Object OBJECT = new Object();
+
+    private static final class IndexEntry {
+        final Object value;   // null, Boolean, Long, Double, String or OBJECT
+        final String key;
+
+        IndexEntry(Object value, String key) {
+            this.value = value;
+            this.key = key;
+        }
+    }
+
+    private static final class ChildIndex {
+        final String[] childPath;
+        final TreeSet<IndexEntry> entries = new TreeSet<>(ENTRY_ORDER);
+        final Map<String, IndexEntry> byKey = new HashMap<>();
+
+        ChildIndex(String[] childPath) {
+            this.childPath = childPath;
+        }
+
+        void put(String key, Object child) {
+            remove(key);
+            Object value = child;
+            for (String part : childPath) {
+                value = value instanceof TreeMap ? ((TreeMap<?, ?>) value).get(part) : null;
+            }
+            IndexEntry entry = new IndexEntry(value instanceof Map ? OBJECT : value, key);
+            entries.add(entry);
+            byKey.put(key, entry);
+        }
+
+        void remove(String key) {
+            IndexEntry old = byKey.remove(key);
+            if (old != null) {
+                entries.remove(old);
+            }
+        }
+    }
+
+    private ChildIndex indexFor(String[] folderKeys, TreeMap<String, Object> folder, QuerySpec spec) {
+        String folderPath = joinKeys(folderKeys, folderKeys.length);
+        String childPath = spec.orderBy == QuerySpec.ORDER_BY_VALUE ? "" : spec.orderChild;
+        Map<String, ChildIndex> atFolder = indexes.get(folderPath);
+        if (atFolder == null) {
+            atFolder = new HashMap<>();
+            indexes.put(folderPath, atFolder);
+        }
+        ChildIndex index = atFolder.get(childPath);
+        if (index == null) {
+            index = new ChildIndex(keysOf(childPath));
+            for (Map.Entry<String, Object> child : folder.entrySet()) {
+                index.put(child.getKey(), child.getValue());
+            }
+            atFolder.put(childPath, index);
+        }
+        return index;
+    }
+
+    /**
+     * After a write: move the one child it touched in each index above it,
+     * and throw away indexes at or below it (they are rebuilt when next needed)
+     */
+    private void updateIndexes(String[] keys) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        for (int depth = 0; depth < keys.length; depth++) {
+            Map<String, ChildIndex> atFolder = indexes.get(joinKeys(keys, depth));
+            if (atFolder == null) {
+                continue;
+            }
+            String child = keys[depth];
+            Object folder = valueAt(Arrays.copyOf(keys, depth));
+            Object value = folder instanceof TreeMap ? folder(folder).get(child) : null;
+            for (ChildIndex index : atFolder.values()) {
+                if (value == null) {
+                    index.remove(child);
+                } else {
+                    index.put(child, value);
+                }
+            }
+        }
+        String written = joinKeys(keys, keys.length);
+        Iterator<String> paths = indexes.keySet().iterator();
+        while (paths.hasNext()) {
+            String path = paths.next();
+            if (path.equals(written) || isStrictlyUnder(path, written)) {
+                paths.remove();
+            }
+        }
+    }
+
+    // ---- The tree ----
+
+    private Object valueAt(String[] keys) {
+        Object at = root;
+        for (String key : keys) {
+            if (!(at instanceof TreeMap)) {
+                return null;
+            }
+            at = folder(at).get(key);
+        }
+        return at;
+    }
+
+    /**
+     * Puts an already normalized value at a path, removing folders left empty
+     */
+    private void store(String[] keys, Object value) {
+        if (keys.length == 0) {
+            root.clear();
+            if (value instanceof TreeMap) {
+                root.putAll(folder(value));
+            }
+            return;
+        }
+        if (value == null) {
+            List<TreeMap<String, Object>> chain = new ArrayList<>();
+            TreeMap<String, Object> at = root;
+            for (int i = 0; i < keys.length - 1; i++) {
+                chain.add(at);
+                Object next = at.get(keys[i]);
+                if (!(next instanceof TreeMap)) {
+                    return; // Nothing there to remove
+                }
+                at = folder(next);
+            }
+            at.remove(keys[keys.length - 1]);
+            for (int i = keys.length - 2; i >= 0 && at.isEmpty(); i--) {
+                at = chain.get(i);
+                at.remove(keys[i]);
+            }
+            return;
+        }
+        TreeMap<String, Object> at = root;
+        for (int i = 0; i < keys.length - 1; i++) {
+            Object next = at.get(keys[i]);
+            if (!(next instanceof TreeMap)) {
+                next = newFolder();
+                at.put(keys[i], next);
+            }
+            at = folder(next);
+        }
+        at.put(keys[keys.length - 1], value);
+    }
+
+    /**
+     * Turns a written value into what is stored: folders become sorted maps,
+     * whole numbers become Long, lists become folders keyed "0", "1", ...,
+     * empty folders become nothing and server values are worked out
+     */
+    @SuppressWarnings("unchecked")
+    private Object normalize(Object value, Object current) {
+        if (value instanceof List) {
+            Map<String, Object> asMap = new LinkedHashMap<>();
+            List<Object> list = (List<Object>) value;
+            for (int i = 0; i < list.size(); i++) {
+                asMap.put(String.valueOf(i), list.get(i));
+            }
+            value = asMap;
+        }
+        if (!(value instanceof Map)) {
+            return normalizeLeaf(value);
+        }
+        Map<String, Object> map = (Map<String, Object>) value;
+        Object serverValue = map.get(".sv");
+        if (serverValue != null) {
+            return resolveServerValue(serverValue, current);
+        }
+        TreeMap<String, Object> folder = newFolder();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object currentChild = current instanceof TreeMap ? folder(current).get(entry.getKey()) : null;
+            Object child = normalize(entry.getValue(), currentChild);
+            if (child != null) {
+                folder.put(entry.getKey(), child);
+            }
+        }
+        return folder.isEmpty() ? null : folder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object resolveServerValue(Object serverValue, Object current) {
+        if ("timestamp".equals(serverValue)) {
+            return clock.now();
+        }
+        if (serverValue instanceof Map && ((Map<String, Object>) serverValue).containsKey("increment")) {
+            Object delta = normalizeLeaf(((Map<String, Object>) serverValue).get("increment"));
+            Object base = current instanceof Long || current instanceof Double ? current : 0L;
+            if (base instanceof Long && delta instanceof Long) {
+                return (Long) base + (Long) delta;
+            }
+            return ((Number) base).doubleValue() + ((Number) delta).doubleValue();
+        }
+        throw new IllegalArgumentException("Unknown server value: " + serverValue);
+    }
+
+    private static Object normalizeLeaf(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Long || value instanceof Double) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        throw new IllegalArgumentException("Can't store " + value.getClass().getName()
+                + " - convert it to a Map first");
+    }
+
+    /**
+     * A copy that can be handed out (folders become LinkedHashMaps in key order)
+     */
+    private static Object copy(Object value) {
+        if (!(value instanceof TreeMap)) {
+            return value;
+        }
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : folder(value).entrySet()) {
+            copy.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TreeMap<String, Object> folder(Object value) {
+        return (TreeMap<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Collections.<String, Object>emptyMap();
+    }
+
+    private static TreeMap<String, Object> newFolder() {
+        return new TreeMap<>(KEY_ORDER);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // ---- Ordering (the same as Firebase) ----
+
+    /**
+     * Keys: MIN_KEY first, then keys that are whole numbers (by size), then the rest as text, then MAX_KEY
+     */
+    static final Comparator<String> KEY_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            if (a.equals(b)) {
+                return 0;
+            }
+            if (a.equals(MIN_KEY) || b.equals(MAX_KEY)) {
+                return -1;
+            }
+            if (b.equals(MIN_KEY) || a.equals(MAX_KEY)) {
+                return 1;
+            }
+            Integer aNumber = intKey(a);
+            Integer bNumber = intKey(b);
+            if (aNumber != null && bNumber != null) {
+                return aNumber.compareTo(bNumber);
+            }
+            if (aNumber != null) {
+                return -1;
+            }
+            if (bNumber != null) {
+                return 1;
+            }
+            return a.compareTo(b);
+        }
+    };
+
+    /**
+     * Index entries: by value (missing, false, true, numbers, text, objects), then by key
+     */
+    static final Comparator<IndexEntry> ENTRY_ORDER = new Comparator<IndexEntry>() {
+        @Override
+        public int compare(IndexEntry a, IndexEntry b) {
+            int byValue = compareValues(a.value, b.value);
+            return byValue != 0 ? byValue : KEY_ORDER.compare(a.key, b.key);
+        }
+    };
+
+    static int compareValues(Object a, Object b) {
+        int aRank = rank(a);
+        int bRank = rank(b);
+        if (aRank != bRank) {
+            return aRank < bRank ? -1 : 1;
+        }
+        if (a instanceof Boolean) {
+            return ((Boolean) a).compareTo((Boolean) b);
+        }
+        if (a instanceof Long && b instanceof Long) {
+            return ((Long) a).compareTo((Long) b);
+        }
+        if (a instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        return 0;
+    }
+
+    private static int rank(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof String) {
+            return 3;
+        }
+        return 4;
+    }
+
+    private static Integer intKey(String key) {
+        int length = key.length();
+        if (length == 0 || length > 11) {
+            return null;
+        }
+        int start = key.charAt(0) == '-' ? 1 : 0;
+        if (start == length || (key.charAt(start) == '0' && length > start + 1) || key.equals("-0")) {
+            return null;
+        }
+        for (int i = start; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        long number = Long.parseLong(key);
+        return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? (int) number : null;
+    }
+
+    // ---- Paths ----
+
+    static String[] keysOf(String path) {
+        String trimmed = trimSlashes(path);
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    private static String join(String base, String child) {
+        if (base.isEmpty()) {
+            return child;
+        }
+        return child.isEmpty() ? base : base + "/" + child;
+    }
+
+    private static String joinKeys(String[] keys, int count) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                path.append('/');
+            }
+            path.append(keys[i]);
+        }
+        return path.toString();
+    }
+
+    private static boolean isStrictlyUnder(String path, String ancestor) {
+        if (ancestor.isEmpty()) {
+            return !path.isEmpty();
+        }
+        return path.length() > ancestor.length() && path.startsWith(ancestor)
+                && path.charAt(ancestor.length()) == '/';
+    }
+
+    private static void addAll(List<Registration> into, List<Registration> from) {
+        if (from != null) {
+            into.addAll(from);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.s23010234.devnextdoor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Load Scenario - Replays scripted user sessions against a database and times each step
+ *
+ * Each session is one made-up person (from a SyntheticDataset) using the app:
+ * 1. Open homepage: their profile, their unread counters, and the list of
+ *    profiles, the same reads HomepageActivity makes
+ * 2. Search: every profile, matched against a technology the way
+ *    SearchActivity does it
+ * 3. Open chat: filing away any loose messages (MessageArchiver), the chat,
+ *    this month's messages (and the month before if this one is nearly
+ *    empty), then marking their unread messages as read
+ * 4. Send burst: several messages in a row, each with ChatManager's
+ *    duplicate check and writes
+ *
+ * The paths, the archiver's write and the counter rule come from the same
+ * helpers the app uses (MessageBuckets, MessageArchiver.moveUpdates,
+ * UnreadCounters), and counters are changed with transactions like the app
+ * does, so the load matches what the app sends.
+ *
+ * Each step's time covers its database calls and the work the screen does
+ * with the answer. Every timing is kept, so the percentiles in the report
+ * are exact (scenarios record thousands of steps, not millions).
+ *
+ * The database is reached through a small Backend with three blocking calls,
+ * so the same sessions run against the in-memory database (see inMemory)
+ * or the Firebase emulator (see SyntheticLoadScenarioTest in androidTest).
+ */
+public class LoadScenario {
+
+    /**
+     * The database the sessions run against. Every call waits for the answer.
+     */
+    public interface Backend extends SyntheticDataset.Sink {
+        /**
+         * Reads a path, with a query, as plain values
+         * (maps, String, Long, Double, Boolean, or null when there is nothing there)
+         */
+        Object read(String path, InMemoryDatabase.QuerySpec query) throws Exception;
+
+        /**
+         * Adds to the counter at a path in one transaction, using
+         * UnreadCounters.adjusted so it never goes below 0
+         */
+        void adjust(String path, long delta) throws Exception;
+    }
+
+    public static final String STEP_OPEN_HOMEPAGE = "open homepage";
+    public static final String STEP_SEARCH = "search";
+    public static final String STEP_OPEN_CHAT = "open chat";
+    public static final String STEP_SEND = "send";
+
+    // Below this many messages this month, the chat screen also shows last month
+    static final int MIN_MESSAGES_SHOWN = 20;
+
+    // ChatManager looks this far back for a duplicate of a new message
+    private static final long DUPLICATE_WINDOW_MILLIS = 3000;
+
+    private final Backend backend;
+    private final SyntheticDataset dataset;
+    private final Random random;
+
+    // Step name -> every time it took, in microseconds, in the order the steps run
+    private final Map<String, List<Long>> timings = new LinkedHashMap<>();
+
+    private int sentCount = 0;
+
+    /**
+     * @param backend The database, already filled with the dataset
+     * @param dataset Where the sessions pick their people, chats and searches from
+     * @param seed The same seed replays the same sessions
+     */
+    public LoadScenario(Backend backend, SyntheticDataset dataset, long seed) {
+        this.backend = backend;
+        this.dataset = dataset;
+        this.random = new Random(seed);
+        for (String step : new String[] { STEP_OPEN_HOMEPAGE, STEP_SEARCH, STEP_OPEN_CHAT, STEP_SEND }) {
+            timings.put(step, new ArrayList<>());
+        }
+    }
+
+    /**
+     * A backend over an in-memory database (its listener calls are not used)
+     */
+    public static Backend inMemory(InMemoryDatabase database) {
+        return new Backend() {
+            @Override
+            public Object read(String path, InMemoryDatabase.QuerySpec query) {
+                return database.query(path, query);
+            }
+
+            @Override
+            public void write(Map<String, Object> updates) {
+                database.update("", updates);
+            }
+
+            @Override
+            public void adjust(String path, long delta) {
+                database.runTransaction(path,
+                        current -> UnreadCounters.adjusted(current instanceof Long ? (Long) current : null, delta));
+            }
+        };
+    }
+
+    /**
+     * Runs the given number of sessions, one after another
+     *
+     * @param sessions How many people to replay
+     * @param sendBurst How many messages each of them sends
+     * @throws Exception whatever the backend throws (the run stops there)
+     */
+    public void run(int sessions, int sendBurst) throws Exception {
+        for (int s = 0; s < sessions; s++) {
+            if (dataset.getChatCount() == 0) {
+                String me = dataset.getUsername(random.nextInt(dataset.getUserCount()));
+                openHomepage(me);
+                search(me, dataset.pickTechnology(random));
+                continue;
+            }
+            int chat = random.nextInt(dataset.getChatCount());
+            String chatId = dataset.getChatId(chat);
+            String me = dataset.getChatStarter(chat);
+            String other = dataset.getChatPartner(chat);
+
+            openHomepage(me);
+            search(me, dataset.pickTechnology(random));
+            openChat(chatId, me);
+            for (int m = 0; m < sendBurst; m++) {
+                send(chatId, me, other, "Load test message " + (++sentCount));
+            }
+        }
+    }
+
+    // ---- Steps ----
+
+    private void openHomepage(String me) throws Exception {
+        long start = System.nanoTime();
+        backend.read("users/" + me, InMemoryDatabase.QuerySpec.ALL);
+        backend.read("counters/" + me, InMemoryDatabase.QuerySpec.ALL);
+        Collections.sort(profiles(backend.read("users", InMemoryDatabase.QuerySpec.ALL), me),
+                (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        record(STEP_OPEN_HOMEPAGE, start);
+    }
+
+    private void search(String me, String text) throws Exception {
+        long start = System.nanoTime();
+        List<User> users = profiles(backend.read("users", InMemoryDatabase.QuerySpec.ALL), me);
+        UserSearchMatcher.filter(users, text, UserSearchMatcher.Filter.ALL);
+        record(STEP_SEARCH, start);
+    }
+
+    private void openChat(String chatId, String me) throws Exception {
+        long start = System.nanoTime();
+        archiveLooseMessages(chatId);
+        backend.read("chats/" + chatId, InMemoryDatabase.QuerySpec.ALL);
+
+        String thisMonth = MessageBuckets.bucketFor(System.currentTimeMillis());
+        InMemoryDatabase.QuerySpec byTime = InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp");
+        Map<String, Object> shown = new HashMap<>();
+        addMessages(shown, backend.read("messages/" + chatId + "/" + thisMonth, byTime), chatId);
+
+        // Scrolling back: the list of months, then the newest one before this
+        if (shown.size() < MIN_MESSAGES_SHOWN) {
+            Object months = backend.read("messageBuckets/" + chatId, InMemoryDatabase.QuerySpec.ALL);
+            List<String> keys = new ArrayList<>();
+            if (months instanceof Map) {
+                for (Object key : ((Map<?, ?>) months).keySet()) {
+                    keys.add((String) key);
+                }
+            }
+            List<String> older = MessageBuckets.newestFirst(keys, thisMonth);
+            if (!older.isEmpty()) {
+                addMessages(shown, backend.read("messages/" + chatId + "/" + older.get(0), byTime), chatId);
+            }
+        }
+
+        // Mark what was shown as read like ChatManager.markMessagesRead: the read flags
+        // in one write, then both counts taken down in transactions
+        Map<String, Object> updates = new HashMap<>();
+        int unread = 0;
+        for (Map.Entry<String, Object> entry : shown.entrySet()) {
+            Map<?, ?> message = (Map<?, ?>) entry.getValue();
+            if (me.equals(message.get("receiverId")) && Boolean.FALSE.equals(message.get("read"))) {
+                updates.put(entry.getKey() + "/read", true);
+                unread++;
+            }
+        }
+        if (unread > 0) {
+            backend.write(updates);
+            backend.adjust(UnreadCounters.chatPath(chatId, me), -unread);
+            backend.adjust(UnreadCounters.path(me, UnreadCounters.UNREAD_CHATS), -unread);
+        }
+        record(STEP_OPEN_CHAT, start);
+    }
+
+    /**
+     * Files away the chat's loose messages, batch by batch, like MessageArchiver.archiveChat
+     * (one key-range read when there are none)
+     */
+    private void archiveLooseMessages(String chatId) throws Exception {
+        InMemoryDatabase.QuerySpec loose = InMemoryDatabase.QuerySpec.ALL.orderByKey()
+                .startAt(MessageArchiver.LOOSE_KEY_START).endAt(MessageArchiver.LOOSE_KEY_END)
+                .limitToFirst(MessageArchiver.BATCH_SIZE);
+        while (true) {
+            Object batch = backend.read("messages/" + chatId, loose);
+            if (!(batch instanceof Map) || ((Map<?, ?>) batch).isEmpty()) {
+                return;
+            }
+            Map<String, Object> looseMessages = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) batch).entrySet()) {
+                looseMessages.put((String) entry.getKey(), entry.getValue());
+            }
+            backend.write(MessageArchiver.moveUpdates(chatId, looseMessages));
+            if (looseMessages.size() < MessageArchiver.BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private void send(String chatId, String me, String other, String content) throws Exception {
+        long start = System.nanoTime();
+        long timestamp = System.currentTimeMillis();
+        String bucket = MessageBuckets.bucketFor(timestamp);
+
+        // The duplicate check
+        Object recent = backend.read("messages/" + chatId + "/" + bucket,
+                InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").startAt(timestamp - DUPLICATE_WINDOW_MILLIS));
+        if (recent instanceof Map) {
+            for (Object value : ((Map<?, ?>) recent).values()) {
+                Map<?, ?> message = (Map<?, ?>) value;
+                if (me.equals(message.get("senderId")) && content.equals(message.get("content"))) {
+                    record(STEP_SEND, start);
+                    return;
+                }
+            }
+        }
+
+        // The message and its month's count, then the receiver's Chats badge (a transaction),
+        // then the chat's last message and its unread count, in the order ChatManager sends them
+        String messageId = SyntheticDataset.pushId(timestamp, random) + "_" + timestamp;
+        Map<String, Object> message = new HashMap<>();
+        message.put("messageId", messageId);
+        message.put("chatId", chatId);
+        message.put("senderId", me);
+        message.put("receiverId", other);
+        message.put("content", content);
+        message.put("timestamp", timestamp);
+        message.put("read", false);
+        message.put("messageType", "text");
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(MessageBuckets.messagePath(chatId, messageId, timestamp), message);
+        updates.put(MessageBuckets.countPath(chatId, bucket), increment(1));
+        backend.write(updates);
+        backend.adjust(UnreadCounters.path(other, UnreadCounters.UNREAD_CHATS), 1);
+
+        Map<String, Object> chatUpdates = new HashMap<>();
+        chatUpdates.put("chats/" + chatId + "/lastMessage", content);
+        chatUpdates.put("chats/" + chatId + "/lastMessageTimestamp", timestamp);
+        chatUpdates.put("chats/" + chatId + "/lastMessageSender", me);
+        chatUpdates.put(UnreadCounters.chatPath(chatId, other), increment(1));
+        backend.write(chatUpdates);
+        record(STEP_SEND, start);
+    }
+
+    // ---- Results ----
+
+    /**
+     * How many times a step has run
+     */
+    public int getCount(String step) {
+        List<Long> times = timings.get(step);
+        return times == null ? 0 : times.size();
+    }
+
+    /**
+     * The time that the given percentage of a step's runs were at or under,
+     * in microseconds (0 if the step hasn't run)
+     *
+     * @param percentile From 0 to 100, e.g. 95 for "95% of runs were this fast or faster"
+     */
+    public long getPercentileMicros(String step, double percentile) {
+        List<Long> times = timings.get(step);
+        if (times == null || times.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(times);
+        Collections.sort(sorted);
+        // "Nearest rank": the smallest time with at least that share of runs at or under it
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    /**
+     * A table of every step's timings, in milliseconds
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        try {
+            writeReport(out);
+        } catch (IOException e) {
+            // StringBuilder never throws
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the same table as report() (to a file or a log, for example)
+     */
+    public void writeReport(Appendable out) throws IOException {
+        out.append(String.format(Locale.US, "%-16s %8s %8s %8s %8s %8s %8s%n",
+                "SCENARIO (ms)", "count", "mean", "p50", "p95", "p99", "max"));
+        for (Map.Entry<String, List<Long>> step : timings.entrySet()) {
+            List<Long> times = step.getValue();
+            if (times.isEmpty()) {
+                out.append(String.format(Locale.US, "%-16s %8d%n", step.getKey(), 0));
+                continue;
+            }
+            long total = 0;
+            for (long time : times) {
+                total += time;
+            }
+            out.append(String.format(Locale.US, "%-16s %8d %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                    step.getKey(), times.size(),
+                    total / (double) times.size() / 1000.0,
+                    getPercentileMicros(step.getKey(), 50) / 1000.0,
+                    getPercentileMicros(step.getKey(), 95) / 1000.0,
+                    getPercentileMicros(step.getKey(), 99) / 1000.0,
+                    getPercentileMicros(step.getKey(), 100) / 1000.0));
+        }
+    }
+
+    // ---- Helpers ----
+
+    private void record(String step, long startNanos) {
+        timings.get(step).add((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Everyone else with a completed profile, as the homepage and search screens build them
+     */
+    private static List<User> profiles(Object users, String me) {
+        List<User> profiles = new ArrayList<>();
+        if (!(users instanceof Map)) {
+            return profiles;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) users).entrySet()) {
+            Map<?, ?> user = (Map<?, ?>) entry.getValue();
+            if (entry.getKey().equals(me) || !Boolean.TRUE.equals(user.get("profileCompleted"))) {
+                continue;
+            }
+            Object timestamp = user.get("timestamp");
+            profiles.add(new User((String) entry.getKey(), (String) user.get("gender"), (String) user.get("bio"),
+                    (String) user.get("wantToLearn"), (String) user.get("profilePicture"),
+                    (String) user.get("level"), (String) user.get("city"), (String) user.get("techStack"),
+                    (String) user.get("goals"), (String) user.get("availability"), (String) user.get("timeOfDay"),
+                    true, timestamp instanceof Number ? ((Number) timestamp).longValue() : 0));
+        }
+        return profiles;
+    }
+
+    /**
+     * Adds a month of messages to what the screen shows, keyed by their path from the top
+     */
+    private static void addMessages(Map<String, Object> shown, Object month, String chatId) {
+        if (!(month instanceof Map)) {
+            return;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) month).entrySet()) {
+            Map<?, ?> message = (Map<?, ?>) entry.getValue();
+            Object timestamp = message.get("timestamp");
+            if (timestamp instanceof Number) {
+                shown.put(MessageBuckets.messagePath(chatId, (String) entry.getKey(),
+                        ((Number) timestamp).longValue()), message);
+            }
+        }
+    }
+
+    /**
+     * The same value as ServerValue.increment, written out as plain maps
+     */
+    private static Map<String, Object> increment(long by) {
+        Map<String, Object> operation = new HashMap<>();
+        operation.put("increment", by);
+        Map<String, Object> serverValue = new HashMap<>();
+        serverValue.put(".sv", operation);
+        return serverValue;
+    }
+}
@@ -12,7 +12,6 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.ValueEventListener;
@@ -51,6 +50,9 @@ public class LoginActivity extends AppCompatActivity {
         // Load and display the login screen layout from the XML file
         setContentView(R.layout.activity_login);
 
+        // Load the big background picture in the background instead of while the screen opens
+        BackgroundLoader.load(findViewById(R.id.main), R.drawable.login_signup_bg, R.color.login_signup_bg_placeholder);
+
         // Find and connect to all the input fields and buttons from the layout
         usernameInputText = findViewById(R.id.timesInputText);
         passwordInputText = findViewById(R.id.passwordInputText);
@@ -58,7 +60,7 @@ public class LoginActivity extends AppCompatActivity {
         signupButton = findViewById(R.id.signupButton);
 
         // Set up connection to Firebase database where user accounts are stored
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
 
         // Set up what happens when the login button is pressed
         loginButton.setOnClickListener(new View.OnClickListener() {
@@ -99,7 +101,7 @@ public class LoginActivity extends AppCompatActivity {
      */
     private void validateUserCredentials(String username, String password) {
         // Look up the user's information in the database using their username
-        databaseReference.child(username).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username), new ValueEventListener() {
             /**
              * This method runs when we get a response from the database.
              * It checks if the user exists and if their password is correct.
@@ -146,6 +148,9 @@ public class LoginActivity extends AppCompatActivity {
 
                                 // Close this login screen
                                 finish();
+
+                                // Switch to the user's mode - the homepage is built with the right colors
+                                ThemeManager.applyNightMode(isDarkMode);
                             }
 
                             /**
@@ -169,6 +174,9 @@ public class LoginActivity extends AppCompatActivity {
 
                                 // Close this login screen
                                 finish();
+
+                                // Switch to light mode to match the saved default
+                                ThemeManager.applyNightMode(false);
                             }
                         });
                     } else {
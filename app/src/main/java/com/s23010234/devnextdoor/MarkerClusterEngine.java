@@ -0,0 +1,314 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marker Cluster Engine - Groups nearby map pins into one pin per area
+ *
+ * When the map is zoomed out to show the whole country, hundreds of pins
+ * would sit on top of each other and make the map slow. This class groups
+ * pins that would overlap on screen into a single "cluster" pin that says
+ * how many developers it holds. Zooming in splits clusters up again.
+ *
+ * How it works:
+ * - All the clusters for every zoom level are worked out once, up front
+ *   (call build() on a background thread). Moving the map later is only a lookup.
+ * - The closest zoom level is built first: each developer is their own pin.
+ *   Each zoom level out is built from the one before it, by merging pins
+ *   that are closer together on screen than a set number of pixels.
+ * - A pin that doesn't merge with anything keeps the same id on the next
+ *   level, so the map only has to add and remove the pins that really changed
+ *   (see diff()).
+ *
+ * This class is plain Java (no Android code), so it can be tested and
+ * measured on a computer.
+ */
+public class MarkerClusterEngine {
+
+    // Size of one map tile in pixels (Google Maps uses 256 at zoom level 0)
+    private static final double TILE_SIZE = 256;
+
+    /**
+     * One developer to place on the map
+     */
+    public static class Point {
+        private final String id;
+        private final double latitude;
+        private final double longitude;
+
+        public Point(String id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    /**
+     * One pin on the map: either a single developer or a group of them
+     */
+    public static class Cluster {
+        private final String id;        // Stays the same across zoom levels while the group doesn't change
+        private final double x;         // Position on the flat world map, 0 to 1 (west to east)
+        private final double y;         // Position on the flat world map, 0 to 1 (north to south)
+        private final int size;         // How many developers the pin stands for
+        private final String pointId;   // The developer's id when size is 1, otherwise null
+        private final String seedId;    // The developer the group grew from (names the group)
+
+        Cluster(String id, double x, double y, int size, String pointId, String seedId) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.size = size;
+            this.pointId = pointId;
+            this.seedId = seedId;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public boolean isSingle() {
+            return size == 1;
+        }
+
+        /**
+         * The developer's id if this pin is a single developer, otherwise null
+         */
+        public String getPointId() {
+            return pointId;
+        }
+
+        public double getLatitude() {
+            return yToLatitude(y);
+        }
+
+        public double getLongitude() {
+            return xToLongitude(x);
+        }
+    }
+
+    /**
+     * The pins to add to and remove from the map when moving between two sets of clusters
+     */
+    public static class Diff {
+        private final List<Cluster> added;
+        private final List<String> removedIds;
+
+        Diff(List<Cluster> added, List<String> removedIds) {
+            this.added = added;
+            this.removedIds = removedIds;
+        }
+
+        public List<Cluster> getAdded() {
+            return added;
+        }
+
+        public List<String> getRemovedIds() {
+            return removedIds;
+        }
+    }
+
+    private final int minZoom;
+    private final int maxZoom;
+    private final double radiusPixels;
+
+    // The clusters for each zoom level, from minZoom (index 0) to maxZoom + 1
+    private final List<List<Cluster>> levels = new ArrayList<>();
+
+    /**
+     * @param minZoom The most zoomed-out level that needs clusters (0 = whole world)
+     * @param maxZoom The most zoomed-in level that still groups pins; beyond it every developer has their own pin
+     * @param radiusPixels Pins closer together than this on screen are grouped
+     */
+    public MarkerClusterEngine(int minZoom, int maxZoom, double radiusPixels) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.radiusPixels = radiusPixels;
+    }
+
+    /**
+     * Works out the clusters for every zoom level. This can take a while for
+     * many developers, so call it on a background thread.
+     *
+     * @param points The developers to place on the map
+     */
+    public void build(List<Point> points) {
+        levels.clear();
+
+        // The closest level: every developer is their own pin
+        List<Cluster> current = new ArrayList<>(points.size());
+        for (Point point : points) {
+            current.add(new Cluster("p:" + point.id, longitudeToX(point.longitude),
+                    latitudeToY(point.latitude), 1, point.id, point.id));
+        }
+
+        List<List<Cluster>> fromClosest = new ArrayList<>();
+        fromClosest.add(current);
+        for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+            current = clusterLevel(current, zoom);
+            fromClosest.add(current);
+        }
+
+        // Store them from the most zoomed-out level to the closest
+        Collections.reverse(fromClosest);
+        levels.addAll(fromClosest);
+    }
+
+    /**
+     * Gets the pins to show at a zoom level
+     *
+     * @param zoom The map's current zoom (rounded down)
+     * @return The clusters and single developers at that zoom
+     */
+    public List<Cluster> getClusters(int zoom) {
+        if (levels.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int index = Math.max(0, Math.min(levels.size() - 1, zoom - minZoom));
+        return levels.get(index);
+    }
+
+    /**
+     * Compares the pins on the map now with the pins that should be there,
+     * so only the differences have to be added or removed.
+     *
+     * @param shownIds Ids of the pins currently on the map
+     * @param wanted The clusters that should be shown
+     * @return The pins to add and the ids of the pins to remove
+     */
+    public static Diff diff(Set<String> shownIds, List<Cluster> wanted) {
+        List<Cluster> added = new ArrayList<>();
+        Set<String> wantedIds = new HashSet<>();
+        for (Cluster cluster : wanted) {
+            wantedIds.add(cluster.id);
+            if (!shownIds.contains(cluster.id)) {
+                added.add(cluster);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String id : shownIds) {
+            if (!wantedIds.contains(id)) {
+                removed.add(id);
+            }
+        }
+        return new Diff(added, removed);
+    }
+
+    /**
+     * Merges the pins of one level into the pins of the next level out.
+     * The pins are put in a grid of squares the size of the grouping radius,
+     * so each pin only has to be compared with pins in the squares around it.
+     */
+    private List<Cluster> clusterLevel(List<Cluster> input, int zoom) {
+        // The grouping radius on the flat world map (which is 0 to 1 wide) at this zoom
+        double radius = radiusPixels / (TILE_SIZE * Math.pow(2, zoom));
+        double radiusSquared = radius * radius;
+
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < input.size(); i++) {
+            Cluster cluster = input.get(i);
+            grid.computeIfAbsent(cellKey(cell(cluster.x, radius), cell(cluster.y, radius)), k -> new ArrayList<>()).add(i);
+        }
+
+        boolean[] used = new boolean[input.size()];
+        List<Cluster> output = new ArrayList<>();
+
+        for (int i = 0; i < input.size(); i++) {
+            if (used[i]) {
+                continue;
+            }
+            used[i] = true;
+            Cluster seed = input.get(i);
+
+            // Weighted centre of everything that joins this pin
+            double sumX = seed.x * seed.size;
+            double sumY = seed.y * seed.size;
+            int size = seed.size;
+
+            long seedCellX = cell(seed.x, radius);
+            long seedCellY = cell(seed.y, radius);
+            for (long cellX = seedCellX - 1; cellX <= seedCellX + 1; cellX++) {
+                for (long cellY = seedCellY - 1; cellY <= seedCellY + 1; cellY++) {
+                    List<Integer> members = grid.get(cellKey(cellX, cellY));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (int j : members) {
+                        if (used[j]) {
+                            continue;
+                        }
+                        Cluster other = input.get(j);
+                        double dx = other.x - seed.x;
+                        double dy = other.y - seed.y;
+                        if (dx * dx + dy * dy <= radiusSquared) {
+                            used[j] = true;
+                            sumX += other.x * other.size;
+                            sumY += other.y * other.size;
+                            size += other.size;
+                        }
+                    }
+                }
+            }
+
+            if (size == seed.size) {
+                output.add(seed); // Nothing joined - keep the same pin (and id)
+            } else {
+                // Named after the developer it grew from and its size: a group with the same
+                // name on two zoom levels has the same members, so its pin can stay
+                output.add(new Cluster("c:" + seed.seedId + "/" + size, sumX / size, sumY / size, size, null, seed.seedId));
+            }
+        }
+        return output;
+    }
+
+    private static long cell(double coordinate, double cellSize) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(long cellX, long cellY) {
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+
+    // ---- Flat world map (Web Mercator, the projection Google Maps uses) ----
+
+    static double longitudeToX(double longitude) {
+        return longitude / 360 + 0.5;
+    }
+
+    static double latitudeToY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    static double xToLongitude(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    static double yToLatitude(double y) {
+        double n = Math.PI - 2 * Math.PI * y;
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+}
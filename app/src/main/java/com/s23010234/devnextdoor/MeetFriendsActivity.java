@@ -2,8 +2,9 @@ package com.s23010234.devnextdoor;
 
 import android.content.SharedPreferences;
 import android.graphics.Color;
-import android.location.Location;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.view.View;
 import android.widget.Button;
@@ -25,15 +26,24 @@ import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.maps.model.PolylineOptions;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Meet Friends Activity - Location-based friend discovery screen
  * 
@@ -47,6 +57,8 @@ import com.google.firebase.database.ValueEventListener;
  * - Location markers showing where other developers are located
  * - User profiles accessible by tapping on map markers
  * - Distance calculations and route suggestions
+ * - A "nearby developers" mode that shows the closest developers on the map
+ * - Developers close together on screen are grouped into one numbered pin
  * - Filtering by availability and common interests
  * 
  * The map integrates with Firebase to load user location data and
@@ -59,6 +71,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
     // Visual elements for search and user interaction
     private TextInputEditText searchEditText;  // Text box for searching users
     private Button searchButton;
+    private Button nearbyButton;
     private TextView distanceText;
     
     // Map and Location
@@ -70,14 +83,53 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
     private DatabaseReference databaseReference;
     private String currentUsername;
 
+    // How many developers the nearby mode puts on the map
+    private static final int NEARBY_DEVELOPER_COUNT = 20;
+
+    // The nearby mode first looks this far around you, and widens the circle
+    // (doubling it) until enough developers are found or the limit is reached
+    private static final double NEARBY_START_RADIUS_KM = 25;
+    private static final double NEARBY_MAX_RADIUS_KM = 400;
+
+    // Reads nearby developers from the location index in Firebase
+    private GeoIndexManager geoIndexManager;
+
+    // City locations and the distances between them
+    private CityGazetteer cityGazetteer;
+
+    // Developers found by earlier nearby searches, so repeat searches only update what changed
+    private final DeveloperSpatialIndex developerIndex = new DeveloperSpatialIndex();
+
+    // The last searched area, followed so the index keeps up as developers move (null before a search)
+    private GeoIndexManager.AreaWatch nearbyWatch;
+
+    // Pins closer together than this on screen are grouped into one pin
+    private static final double CLUSTER_RADIUS_PIXELS = 60;
+
+    // Clusters are worked out on this background thread, then shown on the main thread
+    private final ExecutorService clusterExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // The clusters for the developers currently on the map (null while none are shown)
+    private MarkerClusterEngine clusterEngine;
+
+    // The pins currently on the map for the nearby developers, by cluster id
+    private final Map<String, Marker> clusterMarkers = new HashMap<>();
+
+    // How far away each nearby developer is, for the pin's snippet
+    private final Map<String, Double> nearbyDistances = new HashMap<>();
+
+    // Goes up each time the map is cleared, so an older cluster build is thrown away
+    private int clusterGeneration = 0;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_meet_friends);
-        
-        // Apply current theme
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot, R.id.main);
         
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -86,9 +138,11 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
         });
         
         // Initialize Firebase and get current user
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         SharedPreferences sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
         currentUsername = sharedPreferences.getString("username", "");
+        geoIndexManager = new GeoIndexManager();
+        cityGazetteer = CityGazetteer.getInstance(this);
         
         // Initialize views
         initializeViews();
@@ -105,6 +159,17 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
         // Load current user profile to get their location
         loadCurrentUserProfile();
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Stop any cluster work that is still running
+        clusterExecutor.shutdownNow();
+
+        // Stop following the nearby area
+        geoIndexManager.stopWatching(nearbyWatch);
+        nearbyWatch = null;
+    }
     
     /**
      * Initialize view components
@@ -113,6 +178,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
         searchEditText = findViewById(R.id.searchEditText);
         searchEditText.setTextColor(android.graphics.Color.BLACK);
         searchButton = findViewById(R.id.searchButton);
+        nearbyButton = findViewById(R.id.nearbyButton);
         distanceText = findViewById(R.id.distanceText);
     }
     
@@ -132,6 +198,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
      */
     private void setupClickListeners() {
         searchButton.setOnClickListener(v -> performUserSearch());
+        nearbyButton.setOnClickListener(v -> showNearbyDevelopers());
     }
     
     /**
@@ -143,7 +210,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
             return;
         }
         
-        databaseReference.child(currentUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(currentUsername), new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
                 if (dataSnapshot.exists()) {
@@ -159,6 +226,8 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
                     String goals = dataSnapshot.child("goals").getValue(String.class);
                     String availability = dataSnapshot.child("availability").getValue(String.class);
                     String timeOfDay = dataSnapshot.child("timeOfDay").getValue(String.class);
+                    Double latitude = dataSnapshot.child("latitude").getValue(Double.class);
+                    Double longitude = dataSnapshot.child("longitude").getValue(Double.class);
                     
                     Boolean profileCompleted = dataSnapshot.child("profileCompleted").getValue(Boolean.class);
                     if (profileCompleted == null || !profileCompleted) {
@@ -171,7 +240,12 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
                     // Create current User object
                     currentUser = new User(username, gender, bio, wantToLearn, profilePicture,
                                          level, city, techStack, goals, availability, timeOfDay,
-                                         true, System.currentTimeMillis());
+                                         true, System.currentTimeMillis(),
+                                         latitude != null ? latitude : 0.0,
+                                         longitude != null ? longitude : 0.0);
+
+                    // Make sure our own location is in the index so others can find us
+                    publishMyLocation();
                     
                     // Set default camera position to Sri Lanka
                     if (googleMap != null) {
@@ -216,7 +290,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
         searchButton.setEnabled(false);
         
         // Search for user in Firebase
-        databaseReference.child(searchUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(searchUsername), new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
                 searchButton.setText("Search User");
@@ -281,6 +355,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
     private void clearMapAndDistance() {
         if (googleMap != null) {
             googleMap.clear();
+            clearClusters();
             // Reset to default Sri Lanka view
             LatLng sriLanka = new LatLng(7.8731, 80.7718);
             googleMap.moveCamera(CameraUpdateFactory.newLatLngZoom(sriLanka, 8));
@@ -313,17 +388,22 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
         if (googleMap != null) {
             // Clear existing markers and polylines
             googleMap.clear();
+            clearClusters();
             
-            // Get coordinates for both cities (Sri Lankan cities)
-            LatLng currentCityLatLng = getCityCoordinates(currentUser.getCity());
-            LatLng searchedCityLatLng = getCityCoordinates(searchedUser.getCity());
+            // Look up both cities in the gazetteer
+            int currentCity = cityGazetteer.indexOf(currentUser.getCity());
+            int searchedCity = cityGazetteer.indexOf(searchedUser.getCity());
             
-            if (currentCityLatLng == null || searchedCityLatLng == null) {
+            if (currentCity == CityGazetteer.UNKNOWN || searchedCity == CityGazetteer.UNKNOWN) {
                 Toast.makeText(this, "Could not find coordinates for one or both cities.", 
                              Toast.LENGTH_SHORT).show();
                 distanceText.setText("Could not calculate distance");
                 return;
             }
+            LatLng currentCityLatLng = new LatLng(cityGazetteer.getLatitude(currentCity),
+                                                  cityGazetteer.getLongitude(currentCity));
+            LatLng searchedCityLatLng = new LatLng(cityGazetteer.getLatitude(searchedCity),
+                                                   cityGazetteer.getLongitude(searchedCity));
             
             // Add current user's city marker
             googleMap.addMarker(new MarkerOptions()
@@ -340,7 +420,7 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
                     .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE)));
             
             // Only draw a line between cities if they are different
-            if (!currentUser.getCity().equalsIgnoreCase(searchedUser.getCity())) {
+            if (currentCity != searchedCity) {
                 PolylineOptions polylineOptions = new PolylineOptions()
                         .add(currentCityLatLng)
                         .add(searchedCityLatLng)
@@ -360,20 +440,17 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
             com.google.android.gms.maps.model.LatLngBounds bounds = boundsBuilder.build();
             googleMap.moveCamera(CameraUpdateFactory.newLatLngBounds(bounds, 100));
             
-            // Calculate and display approximate distance between cities
-            float[] results = new float[1];
-            Location.distanceBetween(currentCityLatLng.latitude, currentCityLatLng.longitude,
-                                   searchedCityLatLng.latitude, searchedCityLatLng.longitude, results);
-            
-            float distanceInKm = results[0] / 1000;
+            // Approximate distance between the cities, from the gazetteer's precomputed table
+            float distanceInKm = cityGazetteer.distanceKm(currentCity, searchedCity);
             
             // Update distance text field
             String distanceMessage;
-            if (currentUser.getCity().equalsIgnoreCase(searchedUser.getCity())) {
+            if (currentCity == searchedCity) {
                 distanceMessage = "You're in the same city!";
             } else {
                 distanceMessage = String.format("%.1f km between %s and %s", 
-                                              distanceInKm, currentUser.getCity(), searchedUser.getCity());
+                                              distanceInKm, cityGazetteer.getName(currentCity),
+                                              cityGazetteer.getName(searchedCity));
             }
             distanceText.setText(distanceMessage);
             
@@ -384,39 +461,256 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
     }
     
     /**
-     * Get coordinates for Sri Lankan cities
+     * Adds the current user to the location index, or moves their entry if
+     * their city changed. Profiles saved before the index existed are
+     * added this way the first time their owner opens this screen.
+     * (Indexed by city, the same way Edit Profile does it.)
+     */
+    private void publishMyLocation() {
+        geoIndexManager.updateCity(currentUsername, currentUser.getCity(), cityGazetteer, null);
+    }
+
+    /**
+     * Works out where a user is: their exact coordinates if they have them,
+     * otherwise the centre of their city. Returns null if neither is known.
+     */
+    private LatLng getLocation(Double latitude, Double longitude, String city) {
+        if (latitude != null && longitude != null && (latitude != 0.0 || longitude != 0.0)) {
+            return new LatLng(latitude, longitude);
+        }
+        int cityIndex = cityGazetteer.indexOf(city);
+        if (cityIndex != CityGazetteer.UNKNOWN) {
+            return new LatLng(cityGazetteer.getLatitude(cityIndex), cityGazetteer.getLongitude(cityIndex));
+        }
+        return null;
+    }
+
+    /**
+     * Nearby mode - puts the developers closest to the current user on the map.
+     * Only the developers around the user are downloaded (see GeoIndexManager).
+     */
+    private void showNearbyDevelopers() {
+        if (currentUser == null) {
+            Toast.makeText(this, "Current user profile not loaded.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        LatLng myLocation = getLocation(currentUser.getLatitude(), currentUser.getLongitude(), currentUser.getCity());
+        if (myLocation == null) {
+            Toast.makeText(this, "Your location is not set. Add your city to your profile.",
+                         Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        nearbyButton.setText("Searching...");
+        nearbyButton.setEnabled(false);
+        searchNearby(myLocation, NEARBY_START_RADIUS_KM);
+    }
+
+    /**
+     * Reads the developers within a circle from the location index.
+     * If fewer than NEARBY_DEVELOPER_COUNT are found, the circle is doubled and read again.
      */
-    private LatLng getCityCoordinates(String city) {
-        switch (city.toLowerCase()) {
-            case "colombo": return new LatLng(6.9271, 79.8612);
-            case "kandy": return new LatLng(7.2906, 80.6337);
-            case "galle": return new LatLng(6.0329, 80.2168);
-            case "jaffna": return new LatLng(9.6615, 80.0255);
-            case "negombo": return new LatLng(7.2083, 79.8358);
-            case "kurunegala": return new LatLng(7.4818, 80.3609);
-            case "ratnapura": return new LatLng(6.6828, 80.4126);
-            case "matara": return new LatLng(5.9549, 80.5550);
-            case "anuradhapura": return new LatLng(8.3114, 80.4037);
-            case "polonnaruwa": return new LatLng(7.9403, 81.0188);
-            case "badulla": return new LatLng(6.9934, 81.0550);
-            case "batticaloa": return new LatLng(7.7102, 81.7088);
-            case "ampara": return new LatLng(7.2971, 81.6747);
-            case "gampaha": return new LatLng(7.0873, 79.9990);
-            case "hambantota": return new LatLng(6.1241, 81.1185);
-            case "kalutara": return new LatLng(6.5854, 79.9607);
-            case "kegalle": return new LatLng(7.2513, 80.3464);
-            case "kilinochchi": return new LatLng(9.3965, 80.4135);
-            case "mannar": return new LatLng(8.9810, 79.9043);
-            case "matale": return new LatLng(7.4675, 80.6234);
-            case "monaragala": return new LatLng(6.8728, 81.3510);
-            case "mullaitivu": return new LatLng(9.2654, 80.8142);
-            case "nuwara eliya": return new LatLng(6.9497, 80.7891);
-            case "puttalam": return new LatLng(8.0362, 79.8283);
-            case "trincomalee": return new LatLng(8.5874, 81.2152);
-            case "vavuniya": return new LatLng(8.7514, 80.4971);
-            default: return new LatLng(7.8731, 80.7718); // Default to center of Sri Lanka
+    private void searchNearby(LatLng myLocation, double radiusKm) {
+        geoIndexManager.queryRadius(myLocation.latitude, myLocation.longitude, radiusKm,
+                new GeoIndexManager.NearbyCallback() {
+            @Override
+            public void onSuccess(List<DeveloperSpatialIndex.Result> developers) {
+                updateIndexForArea(myLocation, radiusKm, developers);
+
+                int foundCount = developerIndex.withinRadius(myLocation.latitude, myLocation.longitude, radiusKm).size();
+                if (foundCount < NEARBY_DEVELOPER_COUNT && radiusKm < NEARBY_MAX_RADIUS_KM) {
+                    searchNearby(myLocation, radiusKm * 2);
+                    return;
+                }
+
+                nearbyButton.setText("Show Nearby Developers");
+                nearbyButton.setEnabled(true);
+                watchNearby(myLocation, radiusKm);
+                showNearbyOnMap(myLocation);
+            }
+
+            @Override
+            public void onError(String error) {
+                nearbyButton.setText("Show Nearby Developers");
+                nearbyButton.setEnabled(true);
+                Toast.makeText(MeetFriendsActivity.this, "Nearby search failed: " + error,
+                             Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Brings the local spatial index up to date for the area that was just read:
+     * new or moved developers are put in, and developers who left the area are taken out.
+     */
+    private void updateIndexForArea(LatLng centre, double radiusKm, List<DeveloperSpatialIndex.Result> developers) {
+        Set<String> seen = new HashSet<>();
+        for (DeveloperSpatialIndex.Result developer : developers) {
+            if (developer.getUsername().equals(currentUsername)) {
+                continue;
+            }
+            seen.add(developer.getUsername());
+            developerIndex.put(developer.getUsername(), developer.getLatitude(), developer.getLongitude());
+        }
+        for (DeveloperSpatialIndex.Result cached : developerIndex.withinRadius(centre.latitude, centre.longitude, radiusKm)) {
+            if (!seen.contains(cached.getUsername())) {
+                developerIndex.remove(cached.getUsername());
+            }
         }
     }
+
+    /**
+     * Keeps the spatial index up to date for the area that was just searched,
+     * one developer at a time, until another search or the screen closes
+     */
+    private void watchNearby(LatLng centre, double radiusKm) {
+        geoIndexManager.stopWatching(nearbyWatch);
+        nearbyWatch = geoIndexManager.watchArea(centre.latitude, centre.longitude, radiusKm,
+                new GeoIndexManager.AreaListener() {
+            @Override
+            public void onDeveloperMoved(String username, double latitude, double longitude) {
+                if (!username.equals(currentUsername)) {
+                    developerIndex.put(username, latitude, longitude);
+                }
+            }
+
+            @Override
+            public void onDeveloperLeft(String username) {
+                developerIndex.remove(username);
+            }
+        });
+    }
+
+    /**
+     * Draws the closest developers from the spatial index on the map
+     */
+    private void showNearbyOnMap(LatLng myLocation) {
+        List<DeveloperSpatialIndex.Result> nearby =
+                developerIndex.nearest(myLocation.latitude, myLocation.longitude, NEARBY_DEVELOPER_COUNT);
+        if (nearby.isEmpty()) {
+            Toast.makeText(this, "No other developers found yet.", Toast.LENGTH_SHORT).show();
+            distanceText.setText("No developers nearby");
+            return;
+        }
+
+        if (googleMap != null) {
+            googleMap.clear();
+            clearClusters();
+
+            // Your own location
+            googleMap.addMarker(new MarkerOptions()
+                    .position(myLocation)
+                    .title("You")
+                    .snippet("Your location")
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN)));
+
+            com.google.android.gms.maps.model.LatLngBounds.Builder boundsBuilder =
+                    new com.google.android.gms.maps.model.LatLngBounds.Builder();
+            boundsBuilder.include(myLocation);
+
+            // The developers' pins are added by renderClusters once the clusters are ready
+            List<MarkerClusterEngine.Point> points = new ArrayList<>();
+            for (DeveloperSpatialIndex.Result developer : nearby) {
+                points.add(new MarkerClusterEngine.Point(developer.getUsername(),
+                        developer.getLatitude(), developer.getLongitude()));
+                nearbyDistances.put(developer.getUsername(), developer.getDistanceKm());
+                boundsBuilder.include(new LatLng(developer.getLatitude(), developer.getLongitude()));
+            }
+            buildClusters(points);
+
+            googleMap.moveCamera(CameraUpdateFactory.newLatLngBounds(boundsBuilder.build(), 100));
+        }
+
+        // The results are sorted nearest first, so the last one is the furthest
+        double furthestKm = nearby.get(nearby.size() - 1).getDistanceKm();
+        distanceText.setText(String.format("%d developers within %.1f km", nearby.size(), furthestKm));
+    }
+    
+    /**
+     * Works out the clusters for every zoom level on the background thread,
+     * then shows the ones for the current zoom.
+     */
+    private void buildClusters(List<MarkerClusterEngine.Point> points) {
+        final int generation = clusterGeneration;
+        clusterExecutor.execute(() -> {
+            MarkerClusterEngine engine = new MarkerClusterEngine(0, 18, CLUSTER_RADIUS_PIXELS);
+            engine.build(points);
+            mainHandler.post(() -> {
+                // Skip the result if the map was cleared while we were working
+                if (generation != clusterGeneration || isDestroyed()) {
+                    return;
+                }
+                clusterEngine = engine;
+                renderClusters();
+            });
+        });
+    }
+
+    /**
+     * Brings the pins on the map in line with the clusters for the current zoom.
+     * Only pins that changed are removed or added; the rest stay where they are.
+     * Runs every time the map stops moving.
+     */
+    private void renderClusters() {
+        if (googleMap == null || clusterEngine == null) {
+            return;
+        }
+        int zoom = (int) Math.floor(googleMap.getCameraPosition().zoom);
+        List<MarkerClusterEngine.Cluster> wanted = clusterEngine.getClusters(zoom);
+        MarkerClusterEngine.Diff diff = MarkerClusterEngine.diff(clusterMarkers.keySet(), wanted);
+
+        for (String id : diff.getRemovedIds()) {
+            Marker marker = clusterMarkers.remove(id);
+            if (marker != null) {
+                marker.remove();
+            }
+        }
+
+        for (MarkerClusterEngine.Cluster cluster : diff.getAdded()) {
+            LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+            MarkerOptions options = new MarkerOptions().position(position);
+            if (cluster.isSingle()) {
+                Double distanceKm = nearbyDistances.get(cluster.getPointId());
+                options.title(cluster.getPointId())
+                       .snippet(distanceKm != null ? String.format("%.1f km away", distanceKm) : null)
+                       .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE));
+            } else {
+                options.title(cluster.getSize() + " developers")
+                       .snippet("Tap to zoom in")
+                       .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_ORANGE));
+            }
+            Marker marker = googleMap.addMarker(options);
+            if (marker != null) {
+                marker.setTag(cluster);
+                clusterMarkers.put(cluster.getId(), marker);
+            }
+        }
+    }
+
+    /**
+     * Forgets the nearby developers' pins. Call this right after googleMap.clear(),
+     * which has already taken the pins off the map.
+     */
+    private void clearClusters() {
+        clusterGeneration++;
+        clusterEngine = null;
+        clusterMarkers.clear();
+        nearbyDistances.clear();
+    }
+
+    /**
+     * Tapping a group pin zooms in so the group splits up
+     */
+    private boolean onMarkerClicked(Marker marker) {
+        Object tag = marker.getTag();
+        if (tag instanceof MarkerClusterEngine.Cluster && !((MarkerClusterEngine.Cluster) tag).isSingle()) {
+            float zoom = googleMap.getCameraPosition().zoom + 2;
+            googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(marker.getPosition(), zoom));
+            return true;
+        }
+        return false; // Show the normal info window
+    }
     
     @Override
     public void onMapReady(@NonNull GoogleMap googleMap) {
@@ -429,6 +723,10 @@ public class MeetFriendsActivity extends AppCompatActivity implements OnMapReady
         // Enable basic map controls
         googleMap.getUiSettings().setZoomControlsEnabled(true);
         googleMap.getUiSettings().setCompassEnabled(true);
+
+        // Regroup the nearby developers' pins whenever the zoom changes
+        googleMap.setOnCameraIdleListener(this::renderClusters);
+        googleMap.setOnMarkerClickListener(this::onMarkerClicked);
     }
     
     /**
@@ -0,0 +1,176 @@
+package com.s23010234.devnextdoor;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message Archiver - Files old messages away into their month drawers
+ *
+ * Messages sent before month drawers existed (see MessageBuckets) still sit
+ * loose in messages/{chatId}, as do messages sent by an older version of the
+ * app. This job moves them into the drawer for the month they were sent in
+ * and counts them in messageBuckets/{chatId}, so the chat screen and the
+ * reader can find them.
+ *
+ * Loose messages are moved in batches. Each batch is one multi-path write
+ * that copies the messages into their drawers, deletes the loose copies and
+ * updates the drawer counts together, so a message is never lost or counted
+ * twice even if the app is closed half way through.
+ *
+ * Loose messages are found with a key range rather than by reading the
+ * whole chat: their ids are Firebase push ids, which all start with "-",
+ * while drawer keys are numbers like 202410.
+ */
+public class MessageArchiver {
+
+    // How many loose messages are moved in one write
+    public static final int BATCH_SIZE = 200;
+
+    // The key range that holds the loose messages (push ids all start with "-")
+    public static final String LOOSE_KEY_START = "-";
+    public static final String LOOSE_KEY_END = "-\uf8ff";
+
+    private final DatabaseReference rootRef;
+    private final DatabaseReference messagesRef;
+    private final DatabaseReference chatsRef;
+
+    public interface DatabaseCallback {
+        void onSuccess(boolean result);
+        void onError(String error);
+    }
+
+    public MessageArchiver() {
+        DatabaseGateway database = Database.get();
+        rootRef = database.getReference();
+        messagesRef = database.getReference("messages");
+        chatsRef = database.getReference("chats");
+    }
+
+    /**
+     * Moves every loose message of one chat into its month drawer
+     *
+     * @param chatId The chat to tidy up
+     * @param callback What to do when this succeeds or fails
+     */
+    public void archiveChat(String chatId, DatabaseCallback callback) {
+        Database.get().readOnce(messagesRef.child(chatId).orderByKey()
+                        .startAt(LOOSE_KEY_START).endAt(LOOSE_KEY_END).limitToFirst(BATCH_SIZE),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        if (!dataSnapshot.hasChildren()) {
+                            callback.onSuccess(true);
+                            return;
+                        }
+
+                        Map<String, Object> looseMessages = new LinkedHashMap<>();
+                        for (DataSnapshot messageSnapshot : dataSnapshot.getChildren()) {
+                            looseMessages.put(messageSnapshot.getKey(), messageSnapshot.getValue());
+                        }
+                        Map<String, Object> updates = moveUpdates(chatId, looseMessages);
+
+                        boolean fullBatch = looseMessages.size() == BATCH_SIZE;
+                        Database.get().updateChildren(rootRef, updates)
+                                .addOnSuccessListener(aVoid -> {
+                                    if (fullBatch) {
+                                        archiveChat(chatId, callback); // There may be more
+                                    } else {
+                                        callback.onSuccess(true);
+                                    }
+                                })
+                                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * The single write that files a batch of loose messages away: each one
+     * copied into its month drawer, its loose copy deleted, and each drawer's
+     * count raised by the number of messages moved into it
+     *
+     * @param chatId The chat the messages are in
+     * @param looseMessages Message id -> the message as plain values (maps, with a "timestamp")
+     * @return The paths (from the top of the database) and values to write
+     */
+    public static Map<String, Object> moveUpdates(String chatId, Map<String, Object> looseMessages) {
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Integer> movedPerBucket = new HashMap<>();
+        for (Map.Entry<String, Object> entry : looseMessages.entrySet()) {
+            String messageId = entry.getKey();
+            Object timestamp = entry.getValue() instanceof Map ? ((Map<?, ?>) entry.getValue()).get("timestamp") : null;
+            String bucket = MessageBuckets.bucketFor(timestamp instanceof Number ? ((Number) timestamp).longValue() : 0);
+            updates.put("messages/" + chatId + "/" + bucket + "/" + messageId, entry.getValue());
+            updates.put("messages/" + chatId + "/" + messageId, null);
+            Integer moved = movedPerBucket.get(bucket);
+            movedPerBucket.put(bucket, moved != null ? moved + 1 : 1);
+        }
+        for (Map.Entry<String, Integer> entry : movedPerBucket.entrySet()) {
+            updates.put(MessageBuckets.countPath(chatId, entry.getKey()),
+                    ServerValue.increment(entry.getValue()));
+        }
+        return updates;
+    }
+
+    /**
+     * Moves the loose messages of all of a user's chats into their month
+     * drawers, one chat after another (the app runs this once a day)
+     *
+     * @param username Whose chats to tidy up
+     * @param callback What to do when this succeeds or fails
+     */
+    public void archiveUserChats(String username, DatabaseCallback callback) {
+        Database.get().readOnce(chatsRef, new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                List<String> chatIds = new ArrayList<>();
+                for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
+                    Chat chat = chatSnapshot.getValue(Chat.class);
+                    if (chat != null && (username.equals(chat.getParticipant1())
+                            || username.equals(chat.getParticipant2()))) {
+                        chatIds.add(chatSnapshot.getKey());
+                    }
+                }
+                archiveChats(chatIds, 0, callback);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage());
+            }
+        });
+    }
+
+    private void archiveChats(List<String> chatIds, int index, DatabaseCallback callback) {
+        if (index >= chatIds.size()) {
+            callback.onSuccess(true);
+            return;
+        }
+        archiveChat(chatIds.get(index), new DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                archiveChats(chatIds, index + 1, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package com.s23010234.devnextdoor;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message Bucket Reader - Reads a chat's older messages one month at a time
+ *
+ * The chat screen follows only this month's messages live. When the user
+ * scrolls back, this reader opens the month drawers before that one
+ * (see MessageBuckets), newest first, one drawer per loadNext() call.
+ *
+ * The first call reads the chat's small list of drawers
+ * (messageBuckets/{chatId}), so months with no messages are skipped
+ * without reading anything.
+ */
+public class MessageBucketReader {
+
+    /**
+     * Told about each month of messages that has been read
+     */
+    public interface BucketCallback {
+        // messages are oldest first; hasMore is false once the oldest month has been read
+        void onSuccess(List<Message> messages, boolean hasMore);
+        void onError(String error);
+    }
+
+    private final String chatId;
+    private final String olderThan;
+    private final DatabaseReference chatMessagesRef;
+    private final DatabaseReference bucketsRef;
+
+    // Drawers still to read, newest first (null until the drawer list has been read)
+    private List<String> remainingBuckets;
+    private boolean loading = false;
+
+    /**
+     * @param chatId The chat to read
+     * @param olderThan Only months before this drawer are read (the screen
+     *                  already follows this one live)
+     */
+    public MessageBucketReader(String chatId, String olderThan) {
+        this.chatId = chatId;
+        this.olderThan = olderThan;
+        DatabaseGateway database = Database.get();
+        chatMessagesRef = database.getReference("messages").child(chatId);
+        bucketsRef = database.getReference("messageBuckets").child(chatId);
+    }
+
+    /**
+     * Whether there may be older messages left to read
+     */
+    public boolean hasMore() {
+        return remainingBuckets == null || !remainingBuckets.isEmpty();
+    }
+
+    /**
+     * Reads the next older month of messages. Calls made while one is
+     * still loading are ignored.
+     */
+    public void loadNext(BucketCallback callback) {
+        if (loading) {
+            return;
+        }
+        if (remainingBuckets == null) {
+            loading = true;
+            Database.get().readOnce(bucketsRef, new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                    List<String> keys = new ArrayList<>();
+                    for (DataSnapshot bucketSnapshot : dataSnapshot.getChildren()) {
+                        keys.add(bucketSnapshot.getKey());
+                    }
+                    remainingBuckets = MessageBuckets.newestFirst(keys, olderThan);
+                    loading = false;
+                    loadNext(callback);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError databaseError) {
+                    loading = false;
+                    callback.onError(databaseError.getMessage());
+                }
+            });
+            return;
+        }
+        if (remainingBuckets.isEmpty()) {
+            callback.onSuccess(new ArrayList<>(), false);
+            return;
+        }
+
+        String bucket = remainingBuckets.get(0);
+        loading = true;
+        Database.get().readOnce(chatMessagesRef.child(bucket).orderByChild("timestamp"),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        List<Message> messages = new ArrayList<>();
+                        for (DataSnapshot messageSnapshot : dataSnapshot.getChildren()) {
+                            Message message = messageSnapshot.getValue(Message.class);
+                            if (message != null) {
+                                message.setMessageId(messageSnapshot.getKey());
+                                message.setChatId(chatId);
+                                messages.add(message);
+                            }
+                        }
+                        remainingBuckets.remove(0);
+                        loading = false;
+                        callback.onSuccess(messages, !remainingBuckets.isEmpty());
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        loading = false;
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+}
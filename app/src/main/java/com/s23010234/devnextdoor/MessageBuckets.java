@@ -0,0 +1,100 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Message Buckets - Splits each chat's messages into one folder per month
+ *
+ * A chat's messages used to be one long list in messages/{chatId}, so every
+ * search in it (like "messages from the last 3 seconds") went over the whole
+ * history. Messages are now kept like letters in a filing cabinet with one
+ * drawer per month:
+ *
+ *   messages/{chatId}/{yyyyMM}/{messageId}   - e.g. messages/alice_bob/202410/-Nx...
+ *   messageBuckets/{chatId}/{yyyyMM}         - how many messages each drawer holds
+ *
+ * The drawer for this month is the "hot" one: sending a message and
+ * following new messages only ever open it. Older drawers are the archive,
+ * and are only opened one at a time, newest first, when the user scrolls
+ * back (see MessageBucketReader). The small messageBuckets list says which
+ * drawers exist, so empty months are never read.
+ *
+ * Months are worked out in UTC, so every phone puts a message in the same
+ * drawer whatever its time zone. This class is plain Java so it can be tested.
+ */
+public class MessageBuckets {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private MessageBuckets() {
+        // Only static helpers
+    }
+
+    /**
+     * The month drawer a message sent at this time belongs in, e.g. "202410"
+     */
+    public static String bucketFor(long timestamp) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTimeInMillis(timestamp);
+        int year = calendar.get(Calendar.YEAR);
+        int month = calendar.get(Calendar.MONTH) + 1;
+        return String.format(Locale.US, "%04d%02d", year, month);
+    }
+
+    /**
+     * Whether a key inside messages/{chatId} is a month drawer (and not an
+     * old message from before drawers existed)
+     */
+    public static boolean isBucketKey(String key) {
+        if (key == null || key.length() != 6) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return false;
+            }
+        }
+        int month = Integer.parseInt(key.substring(4));
+        return month >= 1 && month <= 12;
+    }
+
+    /**
+     * Where a message is kept, from the top of the database
+     * (for multi-path updates), e.g. "messages/alice_bob/202410/-Nx..."
+     */
+    public static String messagePath(String chatId, String messageId, long timestamp) {
+        return "messages/" + chatId + "/" + bucketFor(timestamp) + "/" + messageId;
+    }
+
+    /**
+     * Where a drawer's message count is kept, from the top of the database
+     */
+    public static String countPath(String chatId, String bucket) {
+        return "messageBuckets/" + chatId + "/" + bucket;
+    }
+
+    /**
+     * Puts drawer keys in the order a reader opens them: newest first,
+     * leaving out anything that isn't a drawer and anything not older than
+     * the given drawer (which the caller is already showing).
+     *
+     * @param keys Drawer keys in any order
+     * @param olderThan Only drawers before this one are kept (null keeps all)
+     */
+    public static List<String> newestFirst(List<String> keys, String olderThan) {
+        List<String> buckets = new ArrayList<>();
+        for (String key : keys) {
+            if (isBucketKey(key) && (olderThan == null || key.compareTo(olderThan) < 0)) {
+                buckets.add(key);
+            }
+        }
+        // yyyyMM keys sort by date when sorted as text
+        Collections.sort(buckets, Collections.reverseOrder());
+        return buckets;
+    }
+}
@@ -0,0 +1,100 @@
+package com.s23010234.devnextdoor;
+
+import android.content.Context;
+import android.content.Intent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Message Search Adapter - Shows the messages found by a message search
+ *
+ * Each row shows who the chat is with, when the message was sent and the
+ * part of the message that matched. Tapping a row opens that chat, scrolled
+ * to the message.
+ */
+public class MessageSearchAdapter extends RecyclerView.Adapter<MessageSearchAdapter.ResultViewHolder> {
+
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.messageSearch");
+
+    private final Context context;
+    private final String currentUsername;
+    private List<MessageSearchIndex.Result> results = new ArrayList<>();
+
+    public MessageSearchAdapter(Context context, String currentUsername) {
+        this.context = context;
+        this.currentUsername = currentUsername;
+    }
+
+    /**
+     * Replaces the results on screen
+     */
+    public void updateResults(List<MessageSearchIndex.Result> newResults) {
+        this.results = newResults;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_message_search, parent, false);
+        return new ResultViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+        long start = Metrics.now();
+        holder.bind(results.get(position));
+        BIND_TIME.recordSince(start);
+    }
+
+    @Override
+    public int getItemCount() {
+        return results.size();
+    }
+
+    class ResultViewHolder extends RecyclerView.ViewHolder {
+        private final TextView chatWithText;
+        private final TextView timestampText;
+        private final TextView snippetText;
+
+        ResultViewHolder(@NonNull View itemView) {
+            super(itemView);
+            chatWithText = itemView.findViewById(R.id.chatWithText);
+            timestampText = itemView.findViewById(R.id.timestampText);
+            snippetText = itemView.findViewById(R.id.snippetText);
+        }
+
+        void bind(MessageSearchIndex.Result result) {
+            // The chat is with whoever isn't us
+            String otherUser = currentUsername.equals(result.getSenderId())
+                    ? result.getReceiverId() : result.getSenderId();
+            boolean sentByMe = currentUsername.equals(result.getSenderId());
+
+            chatWithText.setText("@" + otherUser);
+            snippetText.setText(sentByMe ? "You: " + result.getSnippet() : result.getSnippet());
+            SimpleDateFormat format = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+            timestampText.setText(format.format(new Date(result.getTimestamp())));
+
+            itemView.setOnClickListener(v -> {
+                Intent intent = new Intent(context, ChatActivity.class);
+                intent.putExtra("chatId", result.getChatId());
+                intent.putExtra("otherUser", otherUser);
+                intent.putExtra("scrollToMessageId", result.getMessageId());
+                intent.putExtra("scrollToTimestamp", result.getTimestamp());
+                context.startActivity(intent);
+            });
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.s23010234.devnextdoor;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Message Search Index - Lets the user search all their past messages, on the phone
+ *
+ * Searching the messages in Firebase would mean downloading every chat.
+ * Instead, the phone keeps its own copy of the user's messages in a small
+ * SQLite database with a full-text index (SQLite's FTS4). Like the index at
+ * the back of a book, it knows which messages contain each word, so a
+ * search over thousands of messages takes a few milliseconds.
+ *
+ * The copy is filled a little at a time:
+ * - Every message a chat screen shows is added (it was downloaded anyway)
+ * - When the chat list is loaded, each chat whose last message is newer than
+ *   what has been copied so far downloads only its newer messages, starting
+ *   from the month folder of the last copied message (see MessageBuckets).
+ *   Chats with nothing new download nothing.
+ *
+ * Each user has their own database file. All database work happens on one
+ * background thread, and results are handed back on the main thread.
+ */
+public class MessageSearchIndex extends SQLiteOpenHelper {
+
+    private static final int DATABASE_VERSION = 1;
+
+    // Search results shown at most, and matches looked at to pick them (newest first)
+    public static final int MAX_RESULTS = 50;
+    private static final int MAX_CANDIDATES = 1000;
+
+    /**
+     * One message found by a search
+     */
+    public static class Result {
+        private final String messageId;
+        private final String chatId;
+        private final String senderId;
+        private final String receiverId;
+        private final long timestamp;
+        private final String snippet;
+        private final double score;
+
+        Result(String messageId, String chatId, String senderId, String receiverId, long timestamp,
+               String snippet, double score) {
+            this.messageId = messageId;
+            this.chatId = chatId;
+            this.senderId = senderId;
+            this.receiverId = receiverId;
+            this.timestamp = timestamp;
+            this.snippet = snippet;
+            this.score = score;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public String getChatId() {
+            return chatId;
+        }
+
+        public String getSenderId() {
+            return senderId;
+        }
+
+        public String getReceiverId() {
+            return receiverId;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        // A short piece of the message around the words that were found
+        public String getSnippet() {
+            return snippet;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    public interface SearchCallback {
+        void onResults(String query, List<Result> results);
+    }
+
+    // The index of the user who is logged in (only touched on the main thread)
+    private static MessageSearchIndex instance;
+
+    // One background thread, so database work is done in the order it was asked for
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final String username;
+    private final DatabaseReference messagesRef;
+    private final DatabaseReference bucketsRef;
+
+    // Chats being downloaded right now, so a chat list that updates twice doesn't download them twice
+    private final Set<String> syncingChats = new HashSet<>();
+
+    private MessageSearchIndex(Context context, String username) {
+        super(context.getApplicationContext(), "message_search_" + username + ".db", null, DATABASE_VERSION);
+        this.username = username;
+        DatabaseGateway database = Database.get();
+        messagesRef = database.getReference("messages");
+        bucketsRef = database.getReference("messageBuckets");
+    }
+
+    /**
+     * Gets the search index of the given user, opening it if needed
+     */
+    public static MessageSearchIndex getInstance(Context context, String username) {
+        if (instance == null || !instance.username.equals(username)) {
+            if (instance != null) {
+                MessageSearchIndex previous = instance;
+                executor.execute(previous::close);
+            }
+            instance = new MessageSearchIndex(context, username);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // The messages themselves
+        db.execSQL("CREATE TABLE messages ("
+                + "id INTEGER PRIMARY KEY, "
+                + "message_id TEXT NOT NULL UNIQUE, "
+                + "chat_id TEXT NOT NULL, "
+                + "sender_id TEXT, "
+                + "receiver_id TEXT, "
+                + "timestamp INTEGER NOT NULL, "
+                + "content TEXT)");
+        // The word index over their text (it reads the text from the messages table).
+        // FTS4 with the standard tokenizer is available on every Android version the app supports.
+        db.execSQL("CREATE VIRTUAL TABLE message_text USING fts4("
+                + "content=\"messages\", content)");
+        // How far each chat has been copied
+        db.execSQL("CREATE TABLE chat_sync ("
+                + "chat_id TEXT PRIMARY KEY, "
+                + "indexed_up_to INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only one version so far
+    }
+
+    // ---- Filling the index ----
+
+    /**
+     * Adds messages to the index (messages already in it are skipped)
+     */
+    public void addMessages(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<Message> copy = new ArrayList<>(messages);
+        executor.execute(() -> insertMessages(copy, null, 0));
+    }
+
+    /**
+     * Copies the new messages of every chat that has any. Call it with the
+     * user's chat list; chats whose last message was already copied cost nothing.
+     */
+    public void syncChats(List<Chat> chats) {
+        List<Chat> copy = new ArrayList<>(chats);
+        executor.execute(() -> {
+            SQLiteDatabase db = getReadableDatabase();
+            for (Chat chat : copy) {
+                String chatId = chat.getChatId();
+                if (chatId == null || chat.getLastMessage() == null || chat.getLastMessage().isEmpty()) {
+                    continue; // No messages yet
+                }
+                long indexedUpTo = getIndexedUpTo(db, chatId);
+                if (chat.getLastMessageTimestamp() > indexedUpTo) {
+                    mainHandler.post(() -> syncChat(chatId, indexedUpTo));
+                }
+            }
+        });
+    }
+
+    private long getIndexedUpTo(SQLiteDatabase db, String chatId) {
+        try (Cursor cursor = db.rawQuery("SELECT indexed_up_to FROM chat_sync WHERE chat_id = ?",
+                new String[] { chatId })) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Downloads one chat's messages newer than indexedUpTo, month by month,
+     * starting with the month of the last copied message
+     */
+    private void syncChat(String chatId, long indexedUpTo) {
+        if (!syncingChats.add(chatId)) {
+            return;
+        }
+        String firstBucket = MessageBuckets.bucketFor(indexedUpTo);
+        Database.get().readOnce(bucketsRef.child(chatId), new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                List<String> buckets = new ArrayList<>();
+                for (DataSnapshot bucketSnapshot : dataSnapshot.getChildren()) {
+                    String bucket = bucketSnapshot.getKey();
+                    if (MessageBuckets.isBucketKey(bucket) && bucket.compareTo(firstBucket) >= 0) {
+                        buckets.add(bucket);
+                    }
+                }
+                Collections.sort(buckets);
+                syncBuckets(chatId, buckets, 0, indexedUpTo, new ArrayList<>());
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // Tried again the next time the chat list is loaded
+                syncingChats.remove(chatId);
+            }
+        });
+    }
+
+    private void syncBuckets(String chatId, List<String> buckets, int index, long indexedUpTo, List<Message> found) {
+        if (index >= buckets.size()) {
+            long newest = indexedUpTo;
+            for (Message message : found) {
+                newest = Math.max(newest, message.getTimestamp());
+            }
+            long upTo = newest;
+            executor.execute(() -> {
+                insertMessages(found, chatId, upTo);
+                mainHandler.post(() -> syncingChats.remove(chatId));
+            });
+            return;
+        }
+        Database.get().readOnce(messagesRef.child(chatId).child(buckets.get(index)).orderByChild("timestamp").startAfter(indexedUpTo),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        for (DataSnapshot messageSnapshot : dataSnapshot.getChildren()) {
+                            Message message = messageSnapshot.getValue(Message.class);
+                            if (message != null) {
+                                message.setMessageId(messageSnapshot.getKey());
+                                message.setChatId(chatId);
+                                found.add(message);
+                            }
+                        }
+                        syncBuckets(chatId, buckets, index + 1, indexedUpTo, found);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        // Keep what was downloaded; the rest is fetched next time
+                        syncBuckets(chatId, buckets, buckets.size(), indexedUpTo, found);
+                    }
+                });
+    }
+
+    /**
+     * Writes messages into the index in one transaction (background thread only)
+     *
+     * @param syncedChatId If not null, also records that this chat is copied up to syncedUpTo
+     */
+    private void insertMessages(List<Message> messages, String syncedChatId, long syncedUpTo) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement exists = db.compileStatement("SELECT COUNT(*) FROM messages WHERE message_id = ?");
+            SQLiteStatement insertText = db.compileStatement("INSERT INTO message_text(docid, content) VALUES (?, ?)");
+            for (Message message : messages) {
+                if (message.getMessageId() == null || message.getContent() == null) {
+                    continue;
+                }
+                exists.bindString(1, message.getMessageId());
+                if (exists.simpleQueryForLong() > 0) {
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                values.put("message_id", message.getMessageId());
+                values.put("chat_id", message.getChatId());
+                values.put("sender_id", message.getSenderId());
+                values.put("receiver_id", message.getReceiverId());
+                values.put("timestamp", message.getTimestamp());
+                values.put("content", message.getContent());
+                long rowId = db.insert("messages", null, values);
+                if (rowId != -1) {
+                    insertText.bindLong(1, rowId);
+                    insertText.bindString(2, message.getContent());
+                    insertText.executeInsert();
+                }
+            }
+            if (syncedChatId != null) {
+                ContentValues sync = new ContentValues();
+                sync.put("chat_id", syncedChatId);
+                sync.put("indexed_up_to", syncedUpTo);
+                db.insertWithOnConflict("chat_sync", null, sync, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // ---- Searching ----
+
+    /**
+     * Searches all copied messages. Results are best match first, and are
+     * given back on the main thread together with the query they belong to,
+     * so a screen can ignore results for text the user has already changed.
+     *
+     * @param query What the user typed
+     * @param callback Given up to MAX_RESULTS results
+     */
+    public void search(String query, SearchCallback callback) {
+        String expression = MessageSearchQuery.buildMatchExpression(query);
+        if (expression == null) {
+            callback.onResults(query, new ArrayList<>());
+            return;
+        }
+        executor.execute(() -> {
+            List<Result> results = runSearch(expression);
+            mainHandler.post(() -> callback.onResults(query, results));
+        });
+    }
+
+    private List<Result> runSearch(String expression) {
+        List<Result> results = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        String sql = "SELECT m.message_id, m.chat_id, m.sender_id, m.receiver_id, m.timestamp, "
+                + "snippet(message_text, '', '', '…', -1, 12), matchinfo(message_text, 'pcnalx') "
+                + "FROM message_text JOIN messages m ON m.id = message_text.docid "
+                + "WHERE message_text MATCH ? "
+                + "ORDER BY m.timestamp DESC LIMIT " + MAX_CANDIDATES;
+        try (Cursor cursor = db.rawQuery(sql, new String[] { expression })) {
+            while (cursor.moveToNext()) {
+                double score = MessageSearchQuery.bm25Score(toInts(cursor.getBlob(6)));
+                results.add(new Result(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getLong(4), cursor.getString(5), score));
+            }
+        }
+
+        // Best match first; equally good matches newest first
+        Collections.sort(results, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Long.compare(b.timestamp, a.timestamp);
+        });
+        return results.size() > MAX_RESULTS ? new ArrayList<>(results.subList(0, MAX_RESULTS)) : results;
+    }
+
+    // matchinfo is a list of 32-bit numbers in the phone's own byte order
+    private static int[] toInts(byte[] blob) {
+        IntBuffer buffer = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int[] ints = new int[buffer.remaining()];
+        buffer.get(ints);
+        return ints;
+    }
+}
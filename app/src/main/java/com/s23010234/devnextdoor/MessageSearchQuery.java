@@ -0,0 +1,138 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message Search Query - Turns what the user typed into a search, and scores the results
+ *
+ * The message search (MessageSearchIndex) uses SQLite's full-text search,
+ * which works like the index at the back of a book: it knows every word and
+ * which messages contain it, so it never has to read every message.
+ *
+ * This class does the two bits of that search that are plain Java:
+ * - buildMatchExpression() turns "meet tom" into the search "meet* tom*",
+ *   which finds messages containing a word starting with "meet" AND a word
+ *   starting with "tom". Anything that isn't a letter or digit is dropped,
+ *   so nothing the user types can be mistaken for a search command.
+ * - bm25Score() gives each found message a score, so the best matches come
+ *   first. It uses the well known BM25 formula: words that are rare in all
+ *   the messages count more, and a word found in a short message counts more
+ *   than the same word in a long one.
+ */
+public class MessageSearchQuery {
+
+    // At most this many words of what was typed are searched for
+    public static final int MAX_TERMS = 8;
+
+    // The usual BM25 settings
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private MessageSearchQuery() {
+        // Only static helpers
+    }
+
+    /**
+     * Splits what the user typed into lowercase words (letters and digits only)
+     */
+    public static List<String> terms(String input) {
+        List<String> terms = new ArrayList<>();
+        if (input == null) {
+            return terms;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (current.length() > 0) {
+                if (terms.size() < MAX_TERMS) {
+                    terms.add(asciiLowerCase(current.toString()));
+                }
+                current.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    // SQLite's standard word splitter only ignores the case of A-Z, so only those are lowered here
+    private static String asciiLowerCase(String term) {
+        StringBuilder lower = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            lower.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return lower.toString();
+    }
+
+    /**
+     * Builds the full-text search for what the user typed: every word must
+     * appear, and the last letters typed may be the start of a longer word
+     *
+     * @param input What the user typed
+     * @return The expression for SQLite's MATCH, or null if nothing can be searched for
+     */
+    public static String buildMatchExpression(String input) {
+        List<String> terms = terms(input);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        StringBuilder expression = new StringBuilder();
+        for (String term : terms) {
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            expression.append(term).append('*');
+        }
+        return expression.toString();
+    }
+
+    /**
+     * Scores one found message from SQLite's matchinfo(table, 'pcnalx') numbers.
+     * A higher score is a better match.
+     *
+     * The numbers are, in order: the number of words searched for (p), the
+     * number of columns (c), the number of messages (n), the average length of
+     * each column (a, c numbers), this message's length in each column (l, c
+     * numbers), then for each word and column: how often the word is in this
+     * message, in all messages, and how many messages have it (x, 3 * p * c numbers).
+     */
+    public static double bm25Score(int[] matchinfo) {
+        int phrases = matchinfo[0];
+        int columns = matchinfo[1];
+        long rows = unsigned(matchinfo[2]);
+        int averageStart = 3;
+        int lengthStart = averageStart + columns;
+        int hitsStart = lengthStart + columns;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int hits = hitsStart + 3 * (phrase * columns + column);
+                long hitsHere = unsigned(matchinfo[hits]);
+                long rowsWithHit = unsigned(matchinfo[hits + 2]);
+                if (hitsHere == 0) {
+                    continue;
+                }
+
+                // Rare words count for more (never less than a tiny amount)
+                double idf = Math.log((rows - rowsWithHit + 0.5) / (rowsWithHit + 0.5));
+                if (idf <= 0) {
+                    idf = 1e-6;
+                }
+
+                // A word found in a shorter message than usual counts for more
+                double averageLength = Math.max(1, unsigned(matchinfo[averageStart + column]));
+                double length = unsigned(matchinfo[lengthStart + column]);
+                double norm = K1 * (1 - B + B * length / averageLength);
+                score += idf * (hitsHere * (K1 + 1)) / (hitsHere + norm);
+            }
+        }
+        return score;
+    }
+
+    private static long unsigned(int value) {
+        return value & 0xffffffffL;
+    }
+}
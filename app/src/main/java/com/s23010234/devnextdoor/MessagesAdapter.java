@@ -9,10 +9,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * This class manages how messages are displayed in a chat conversation.
@@ -22,6 +19,9 @@ import java.util.Locale;
  */
 public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.messages");
+
     // Constants to identify different types of message layouts
     private static final int VIEW_TYPE_SENT = 1;      // Messages sent by current user
     private static final int VIEW_TYPE_RECEIVED = 2;  // Messages received from other user
@@ -35,6 +35,9 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
     // Username of the current user (to determine which messages they sent)
     private String currentUsername;
 
+    // Whether received messages show who sent them (in group chats there is more than one sender)
+    private boolean showSenderNames = false;
+
     /**
      * Creates a new adapter that will manage the display of chat messages.
      * This sets up everything needed to show messages in the chat.
@@ -86,6 +89,7 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
      */
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        long start = Metrics.now();
         // Get the message data for this position
         Message message = messageList.get(position);
         
@@ -97,6 +101,7 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
             // This is a message received from the other user
             ((ReceivedMessageViewHolder) holder).bind(message);
         }
+        BIND_TIME.recordSince(start);
     }
 
     /**
@@ -108,6 +113,14 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
         return messageList.size();
     }
 
+    /**
+     * Shows the sender's name on received messages (for group chats)
+     */
+    public void setShowSenderNames(boolean showSenderNames) {
+        this.showSenderNames = showSenderNames;
+        notifyDataSetChanged();
+    }
+
     /**
      * Updates the list of messages and refreshes the display.
      * This is used when new messages arrive or when loading chat history.
@@ -123,22 +136,7 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
      * Format timestamp to display date and time for all messages
      */
     private String formatTimestamp(long timestamp) {
-        Date messageDate = new Date(timestamp);
-        Date today = new Date();
-        
-        // Check if message is from today
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        boolean isToday = dateFormat.format(messageDate).equals(dateFormat.format(today));
-        
-        if (isToday) {
-            // Show "Today" with time for today's messages
-            SimpleDateFormat timeFormat = new SimpleDateFormat("h:mm a", Locale.getDefault());
-            return "Today, " + timeFormat.format(messageDate);
-        } else {
-            // Show date and time for older messages
-            SimpleDateFormat fullFormat = new SimpleDateFormat("MMM dd, h:mm a", Locale.getDefault());
-            return fullFormat.format(messageDate);
-        }
+        return TimeFormat.messageTime(timestamp, System.currentTimeMillis());
     }
 
     /**
@@ -164,16 +162,24 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
      * ViewHolder for received messages
      */
     class ReceivedMessageViewHolder extends RecyclerView.ViewHolder {
+        TextView senderNameText;
         TextView messageText;
         TextView timestampText;
 
         public ReceivedMessageViewHolder(@NonNull View itemView) {
             super(itemView);
+            senderNameText = itemView.findViewById(R.id.senderNameText);
             messageText = itemView.findViewById(R.id.messageText);
             timestampText = itemView.findViewById(R.id.timestampText);
         }
 
         public void bind(Message message) {
+            if (showSenderNames) {
+                senderNameText.setText("@" + message.getSenderId());
+                senderNameText.setVisibility(View.VISIBLE);
+            } else {
+                senderNameText.setVisibility(View.GONE);
+            }
             messageText.setText(message.getContent());
             timestampText.setText(formatTimestamp(message.getTimestamp()));
         }
@@ -0,0 +1,182 @@
+package com.s23010234.devnextdoor;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.OnDisconnect;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Map;
+
+/**
+ * Metered Gateway - Times every database call on its way through
+ *
+ * Wraps the real gateway (see Database.get()) and feeds Metrics:
+ * - db.reads / db.writes / db.errors: how many calls were made
+ * - db.listeners.active: listeners attached right now (goes down on stopListening)
+ * - db.read.<top path> / db.write.<top path>: how long until the answer came
+ *   back, for example db.read.users or db.write.chats
+ *
+ * Since ChatManager, NotificationManager, FirebaseHelper and every screen go
+ * through the gateway, all of them are measured without timing code of their own.
+ * When metrics are off each call goes straight to the real gateway; only the
+ * db.listeners.active gauge is still kept, so it is right when recording starts.
+ */
+public class MeteredGateway implements DatabaseGateway {
+
+    private static final Metrics.Counter READS = Metrics.counter("db.reads");
+    private static final Metrics.Counter WRITES = Metrics.counter("db.writes");
+    private static final Metrics.Counter ERRORS = Metrics.counter("db.errors");
+    private static final Metrics.Counter LISTENS = Metrics.counter("db.listens");
+    private static final Metrics.Gauge ACTIVE_LISTENERS = Metrics.gauge("db.listeners.active");
+
+    private final DatabaseGateway gateway;
+
+    public MeteredGateway(DatabaseGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    @Override
+    public DatabaseReference getReference() {
+        return gateway.getReference();
+    }
+
+    @Override
+    public DatabaseReference getReference(String path) {
+        return gateway.getReference(path);
+    }
+
+    @Override
+    public void readOnce(Query query, ValueEventListener listener) {
+        if (!Metrics.isEnabled()) {
+            gateway.readOnce(query, listener);
+            return;
+        }
+        READS.increment();
+        final Metrics.Histogram timing = Metrics.histogram("db.read." + topOf(query.getRef()));
+        final long start = Metrics.now();
+        gateway.readOnce(query, new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                timing.recordSince(start);
+                listener.onDataChange(snapshot);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                ERRORS.increment();
+                listener.onCancelled(error);
+            }
+        });
+    }
+
+    @Override
+    public void listen(Query query, ValueEventListener listener) {
+        countListen();
+        gateway.listen(query, listener);
+    }
+
+    @Override
+    public void listen(Query query, ChildEventListener listener) {
+        countListen();
+        gateway.listen(query, listener);
+    }
+
+    @Override
+    public void stopListening(Query query, ValueEventListener listener) {
+        ACTIVE_LISTENERS.decrement();
+        gateway.stopListening(query, listener);
+    }
+
+    @Override
+    public void stopListening(Query query, ChildEventListener listener) {
+        ACTIVE_LISTENERS.decrement();
+        gateway.stopListening(query, listener);
+    }
+
+    @Override
+    public Task<Void> setValue(DatabaseReference ref, Object value) {
+        return timeWrite(ref, gateway.setValue(ref, value));
+    }
+
+    @Override
+    public Task<Void> updateChildren(DatabaseReference ref, Map<String, Object> values) {
+        return timeWrite(ref, gateway.updateChildren(ref, values));
+    }
+
+    @Override
+    public Task<Void> removeValue(DatabaseReference ref) {
+        return timeWrite(ref, gateway.removeValue(ref));
+    }
+
+    @Override
+    public void runTransaction(DatabaseReference ref, Transaction.Handler handler) {
+        if (!Metrics.isEnabled()) {
+            gateway.runTransaction(ref, handler);
+            return;
+        }
+        WRITES.increment();
+        final Metrics.Histogram timing = Metrics.histogram("db.transaction." + topOf(ref));
+        final long start = Metrics.now();
+        gateway.runTransaction(ref, new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                return handler.doTransaction(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                timing.recordSince(start);
+                if (error != null) {
+                    ERRORS.increment();
+                }
+                handler.onComplete(error, committed, snapshot);
+            }
+        });
+    }
+
+    @Override
+    public OnDisconnect onDisconnect(DatabaseReference ref) {
+        return gateway.onDisconnect(ref);
+    }
+
+    private void countListen() {
+        LISTENS.increment();
+        ACTIVE_LISTENERS.increment();
+    }
+
+    private Task<Void> timeWrite(DatabaseReference ref, Task<Void> task) {
+        if (!Metrics.isEnabled()) {
+            return task;
+        }
+        WRITES.increment();
+        final Metrics.Histogram timing = Metrics.histogram("db.write." + topOf(ref));
+        final long start = Metrics.now();
+        task.addOnCompleteListener(done -> {
+            timing.recordSince(start);
+            if (!done.isSuccessful()) {
+                ERRORS.increment();
+            }
+        });
+        return task;
+    }
+
+    /**
+     * The first part of a reference's path ("users" for users/alice/bio), or "root"
+     */
+    private static String topOf(DatabaseReference ref) {
+        String top = null;
+        for (DatabaseReference at = ref; at != null && at.getKey() != null; at = at.getParent()) {
+            top = at.getKey();
+        }
+        return top == null ? "root" : top;
+    }
+}
@@ -0,0 +1,371 @@
+package com.s23010234.devnextdoor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics - Counts and timings collected while the app runs
+ *
+ * Three kinds of metric:
+ * - Counter: a number that goes up (reads made) while recording is on
+ * - Gauge: how many of something exist right now (listeners attached). It is
+ *   always kept up to date, even while recording is off, and Reset leaves it
+ *   alone, because a gauge that missed an "up" would go below 0 on the "down"
+ * - Histogram: how long something took, sorted into fixed time buckets
+ *   (under 0.1 ms, under 0.25 ms, ... under 10 s) so percentiles can be
+ *   worked out later without keeping every single timing
+ *
+ * Everything is updated with atomic operations, so any thread can record
+ * without locks and without slowing the others down.
+ *
+ * Typical use, with the metric kept in a static field so recording never
+ * looks anything up:
+ *
+ *   private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.chats");
+ *   ...
+ *   long start = Metrics.now();
+ *   holder.bind(chat);
+ *   BIND_TIME.recordSince(start);
+ *
+ * When metrics are turned off, now() returns 0 without reading the clock and
+ * every record/increment returns straight away, so the cost is one check of
+ * a boolean. MetricsActivity shows the current numbers and saves them to a file.
+ */
+public final class Metrics {
+
+    // Upper edge of each histogram bucket, in microseconds (anything slower goes in the last bucket)
+    static final long[] BUCKET_LIMITS_MICROS = {
+            100, 250, 500,
+            1_000, 2_500, 5_000,
+            10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            10_000_000
+    };
+
+    private static volatile boolean enabled = false;
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        // Only static helpers
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Numbers already collected are kept.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * The counter with this name (made the first time it is asked for)
+     */
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter(name);
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * The gauge with this name (made the first time it is asked for)
+     */
+    public static Gauge gauge(String name) {
+        Gauge gauge = gauges.get(name);
+        if (gauge == null) {
+            Gauge created = new Gauge(name);
+            gauge = gauges.putIfAbsent(name, created);
+            if (gauge == null) {
+                gauge = created;
+            }
+        }
+        return gauge;
+    }
+
+    /**
+     * The histogram with this name (made the first time it is asked for)
+     */
+    public static Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(name);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Start time for Histogram.recordSince, or 0 when metrics are off
+     */
+    public static long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Sets every counter and histogram back to zero. Gauges are left as they are,
+     * since they describe what exists right now rather than what happened.
+     */
+    public static void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * All metrics as a plain text table, sorted by name
+     */
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        try {
+            writeReport(out);
+        } catch (IOException e) {
+            // StringBuilder never throws
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the same table as report() (to a file, for example)
+     */
+    public static void writeReport(Appendable out) throws IOException {
+        out.append("Recording: ").append(enabled ? "on" : "off").append('\n');
+
+        List<String> counterNames = new ArrayList<>(counters.keySet());
+        Collections.sort(counterNames);
+        out.append("\nCOUNTERS\n");
+        for (String name : counterNames) {
+            out.append(String.format(Locale.US, "%-32s %10d%n", name, counters.get(name).get()));
+        }
+
+        List<String> gaugeNames = new ArrayList<>(gauges.keySet());
+        Collections.sort(gaugeNames);
+        out.append("\nRIGHT NOW\n");
+        for (String name : gaugeNames) {
+            out.append(String.format(Locale.US, "%-32s %10d%n", name, gauges.get(name).get()));
+        }
+
+        List<String> histogramNames = new ArrayList<>(histograms.keySet());
+        Collections.sort(histogramNames);
+        out.append("\nTIMINGS (ms)\n");
+        out.append(String.format(Locale.US, "%-32s %8s %8s %8s %8s %8s%n",
+                "", "count", "mean", "p50", "p95", "max"));
+        for (String name : histogramNames) {
+            Histogram histogram = histograms.get(name);
+            long count = histogram.getCount();
+            if (count == 0) {
+                out.append(String.format(Locale.US, "%-32s %8d%n", name, 0));
+                continue;
+            }
+            out.append(String.format(Locale.US, "%-32s %8d %8.2f %8.2f %8.2f %8.2f%n", name, count,
+                    histogram.getMeanMicros() / 1000.0,
+                    histogram.getPercentileMicros(50) / 1000.0,
+                    histogram.getPercentileMicros(95) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0));
+        }
+        if (out instanceof Writer) {
+            ((Writer) out).flush();
+        }
+    }
+
+    /**
+     * A number that can be added to from any thread
+     */
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.incrementAndGet();
+            }
+        }
+
+        public void decrement() {
+            if (enabled) {
+                value.decrementAndGet();
+            }
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                value.addAndGet(amount);
+            }
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        void reset() {
+            value.set(0);
+        }
+    }
+
+    /**
+     * A number that goes up and down with how many of something exist right now.
+     * Unlike a Counter it is updated even while recording is off, so every
+     * "down" has the "up" that came before it.
+     */
+    public static final class Gauge {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Gauge(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void decrement() {
+            value.decrementAndGet();
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * Timings sorted into the fixed buckets in BUCKET_LIMITS_MICROS
+     */
+    public static final class Histogram {
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LIMITS_MICROS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Records the time since start, where start came from Metrics.now().
+         * Does nothing if start is 0 (metrics were off when the timing began).
+         */
+        public void recordSince(long start) {
+            if (start != 0 && enabled) {
+                record((System.nanoTime() - start) / 1000);
+            }
+        }
+
+        public void record(long micros) {
+            if (!enabled) {
+                return;
+            }
+            if (micros < 0) {
+                micros = 0;
+            }
+            buckets.incrementAndGet(bucketFor(micros));
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMaxMicros() {
+            return maxMicros.get();
+        }
+
+        public double getMeanMicros() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) totalMicros.get() / n;
+        }
+
+        /**
+         * An estimate of the given percentile (0-100): the upper edge of the
+         * bucket it falls in, but never more than the slowest timing seen
+         */
+        public long getPercentileMicros(double percentile) {
+            long n = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                n += snapshot[i];
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * n);
+            if (rank < 1) {
+                rank = 1;
+            }
+            long seen = 0;
+            long max = maxMicros.get();
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return i < BUCKET_LIMITS_MICROS.length ? Math.min(BUCKET_LIMITS_MICROS[i], max) : max;
+                }
+            }
+            return max;
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalMicros.set(0);
+            maxMicros.set(0);
+        }
+
+        static int bucketFor(long micros) {
+            for (int i = 0; i < BUCKET_LIMITS_MICROS.length; i++) {
+                if (micros < BUCKET_LIMITS_MICROS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_LIMITS_MICROS.length;
+        }
+    }
+}
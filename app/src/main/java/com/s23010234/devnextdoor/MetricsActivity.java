@@ -0,0 +1,115 @@
+package com.s23010234.devnextdoor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.widget.Switch;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Metrics Activity - The Performance screen
+ *
+ * Shows everything Metrics has collected since the app started (or since
+ * Reset was pressed): how many database reads and writes were made, how
+ * many listeners are attached right now, and how long database calls,
+ * sending messages and drawing list rows took (count, mean, median, 95th
+ * percentile and slowest, in milliseconds).
+ *
+ * Recording can be switched on and off here; the choice is remembered.
+ * It is on by default in debug builds and off in release builds.
+ * Save writes the same table to a text file in the app's files folder,
+ * so it can be pulled off the phone and compared between versions.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String PREFS_NAME = "DevNextDoorPrefs";
+    private static final String KEY_METRICS_ENABLED = "metricsEnabled";
+
+    private TextView metricsText;
+
+    /**
+     * Turns recording on or off the way the user left it.
+     * Called once when the app starts (see DevNextDoorApplication).
+     */
+    public static void applySavedSetting(Context context) {
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Metrics.setEnabled(prefs.getBoolean(KEY_METRICS_ENABLED, debuggable));
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
+
+        metricsText = findViewById(R.id.metricsText);
+        findViewById(R.id.backArrow).setOnClickListener(v -> finish());
+
+        // Recording on/off, remembered for next time
+        Switch metricsSwitch = findViewById(R.id.metricsSwitch);
+        metricsSwitch.setChecked(Metrics.isEnabled());
+        metricsSwitch.setOnCheckedChangeListener((button, isChecked) -> {
+            Metrics.setEnabled(isChecked);
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
+                    .putBoolean(KEY_METRICS_ENABLED, isChecked).apply();
+            showReport();
+        });
+
+        findViewById(R.id.refreshButton).setOnClickListener(v -> showReport());
+        findViewById(R.id.resetButton).setOnClickListener(v -> {
+            Metrics.reset();
+            showReport();
+        });
+        findViewById(R.id.saveButton).setOnClickListener(v -> saveReport());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void showReport() {
+        metricsText.setText(Metrics.report());
+    }
+
+    /**
+     * Writes the table to files/metrics/metrics-<date>.txt
+     * (on external storage if there is any, so it can be copied off with a cable)
+     */
+    private void saveReport() {
+        File folder = getExternalFilesDir("metrics");
+        if (folder == null) {
+            folder = new File(getFilesDir(), "metrics");
+        }
+        if (!folder.exists() && !folder.mkdirs()) {
+            Toast.makeText(this, "Could not create " + folder, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(folder, "metrics-" + time + ".txt");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("DevNextDoor metrics, saved " + time + "\n\n");
+            Metrics.writeReport(writer);
+            Toast.makeText(this, "Saved to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Toast.makeText(this, "Could not save: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+}
@@ -38,11 +38,11 @@ public class Notification {
 
     /**
      * Constructor to create a new notification with title, message, and type.
-     * This automatically sets the ID, timestamp, and marks it as unread.
+     * This automatically sets the timestamp and marks it as unread.
+     * The ID is given by NotificationManager when the notification is sent,
+     * because every person who receives it needs their own unique ID.
      */
     public Notification(String title, String message, String type) {
-        // Create a unique ID using the current time
-        this.id = String.valueOf(System.currentTimeMillis());
         this.title = title;
         this.message = message;
         this.type = type;
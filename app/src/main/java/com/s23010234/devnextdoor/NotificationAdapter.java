@@ -32,6 +32,9 @@ import java.util.List;
  * all the visual presentation and user interactions.
  */
 public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.NotificationViewHolder> {
+
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.notifications");
     
     // Data and context needed for displaying notifications
     private Context context;                    // App context for accessing resources
@@ -78,6 +81,7 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
 
     @Override
     public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
+        long start = Metrics.now();
         Notification notification = notifications.get(position);
         
         holder.titleTextView.setText(notification.getTitle());
@@ -112,6 +116,7 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
                 listener.onNotificationDelete(notification);
             }
         });
+        BIND_TIME.recordSince(start);
     }
     
     private void applyNotificationStyling(NotificationViewHolder holder) {
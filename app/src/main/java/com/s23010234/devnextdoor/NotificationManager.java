@@ -1,16 +1,20 @@
 package com.s23010234.devnextdoor;
 
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.database.MutableData;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Notification Manager - This class manages all notifications in the app
@@ -18,20 +22,49 @@ import java.util.List;
  * Think of this like a notification center that handles all the messages
  * and alerts users receive in the app. Just like your phone's notification
  * center can show you new messages, this class can:
- * - Create new notifications for users
- * - Show all notifications to a user
- * - Mark notifications as read (like when you've seen them)
- * - Delete notifications users don't want anymore
+ * - Create new notifications for users (one person, or thousands at once)
+ * - Show a user's notifications one page at a time, newest first
+ * - Mark notifications as read (like when you've seen them), one or all at once
+ * - Delete notifications users don't want anymore, one or many at once
  * - Count how many unread notifications someone has
  * 
+ * - Tidy up old read notifications (it is the Firebase "Store" for NotificationRetention)
+ *
  * All notifications are stored in Firebase (cloud database) so users
  * can see them on any device they log in from.
+ *
+ * Notifications are sorted by their timestamp in the database, so the
+ * database itself can hand out the newest few ("the last N by time") or the
+ * few just before a given one. That is how pages are loaded without
+ * downloading the whole folder. (Sorting by key doesn't work here: older
+ * notifications are stored under millisecond numbers and newer ones under
+ * push IDs, and every push ID sorts before every number.)
+ * The database rules need ".indexOn": "timestamp" on notifications/$user
+ * for this, or the server sends the whole folder for the phone to sort.
  */
-public class NotificationManager {
+public class NotificationManager implements NotificationRetention.Store {
+
+    // How many notifications make up one page
+    public static final int PAGE_SIZE = 20;
+
+    // How many people one fan-out write covers at most. Bigger lists are
+    // split into several writes so no single write gets too large.
+    public static final int FAN_OUT_CHUNK_SIZE = 500;
+
     // This is our connection to the notifications section of the Firebase database
     // Think of it like having a direct phone line to the notification storage room
     private DatabaseReference notificationsRef;
 
+    // The top of the database, for writes that also touch counters/{user}
+    private DatabaseReference rootRef;
+
+    // Shown on the Performance screen (see Metrics)
+    private static final Metrics.Counter NOTIFICATIONS_SENT = Metrics.counter("notifications.sent");
+    private static final Metrics.Histogram FAN_OUT_TIME = Metrics.histogram("notifications.fanout");
+
+    // Keeps counters/{user}/unreadNotifications in step with the notifications
+    private UnreadCounters unreadCounters;
+
     /**
      * Constructor - Sets up the notification manager when it's created
      * 
@@ -41,7 +74,9 @@ public class NotificationManager {
     public NotificationManager() {
         // Connect to the "notifications" section of our Firebase database
         // This is like opening the door to the notification storage room
-        notificationsRef = FirebaseDatabase.getInstance().getReference("notifications");
+        notificationsRef = Database.get().getReference("notifications");
+        rootRef = Database.get().getReference();
+        unreadCounters = new UnreadCounters();
     }
 
     /**
@@ -71,6 +106,29 @@ public class NotificationManager {
         void onError(String error);
     }
 
+    /**
+     * Callback Interface for Getting One Page of Notifications
+     */
+    public interface NotificationsPageCallback {
+        // Called with the page (newest first) and whether there are older notifications after it
+        void onSuccess(List<Notification> page, boolean hasMore);
+        // Called when something goes wrong while getting the page
+        void onError(String error);
+    }
+
+    /**
+     * Callback Interface for Sending to Many People (fan-out)
+     *
+     * The people are sent to in chunks, and each chunk is one write that
+     * either works for everyone in it or fails for everyone in it.
+     */
+    public interface FanOutCallback {
+        // Called once for every chunk; error is null if the chunk was written
+        void onChunkComplete(int chunkIndex, List<String> recipients, String error);
+        // Called after the last chunk, with the people whose chunk failed (empty if none)
+        void onComplete(int deliveredCount, List<String> failedRecipients);
+    }
+
     /**
      * Add a New Notification for a User
      * 
@@ -96,75 +154,182 @@ public class NotificationManager {
             return;
         }
 
+        // Give it a new push ID. Push IDs are made on the phone from the time plus
+        // random characters, so two notifications made in the same millisecond
+        // still get different IDs (and the IDs still sort in time order).
+        DatabaseReference newNotificationRef = notificationsRef.child(username).push();
+        notification.setId(newNotificationRef.getKey());
+
         // Save the notification to Firebase under the user's folder
         // This is like putting the notification in the user's personal mailbox
-        notificationsRef.child(username)
-                .child(notification.getId())
-                .setValue(notification)
-                .addOnSuccessListener(aVoid -> callback.onSuccess(true))
+        Database.get().setValue(newNotificationRef, notification)
+                .addOnSuccessListener(aVoid -> {
+                    // One more unread notification for the badge
+                    NOTIFICATIONS_SENT.increment();
+                    if (!notification.isRead()) {
+                        unreadCounters.adjust(username, UnreadCounters.UNREAD_NOTIFICATIONS, 1);
+                    }
+                    callback.onSuccess(true);
+                })
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
 
     /**
-     * Get All Notifications for a User
-     * 
-     * This method gets all notifications that belong to a specific user.
-     * It's like opening someone's notification inbox and reading all their messages.
-     * The notifications are automatically sorted with newest ones first.
-     * 
+     * Send the Same Notification to Many People (fan-out)
+     *
+     * Instead of one write per person, everyone's copy is written together:
+     * one multi-path update covers up to FAN_OUT_CHUNK_SIZE people, each
+     * getting their own push ID under notifications/{person}. A list of
+     * thousands of people therefore costs only a handful of writes.
+     * Chunks are independent, so if one fails the others still arrive,
+     * and the callback says exactly who missed out.
+     *
+     * @param recipients The people who should receive the notification (duplicates are sent once)
+     * @param notification The notification to send (its ID is ignored; each copy gets its own)
+     * @param callback Told about each chunk and when everything is done
+     */
+    public void addNotificationToMany(List<String> recipients, Notification notification, FanOutCallback callback) {
+        if (notification == null) {
+            callback.onComplete(0, new ArrayList<>());
+            return;
+        }
+
+        // Skip empty names and send to each person only once
+        List<String> people = new ArrayList<>(new LinkedHashSet<>(recipients));
+        people.removeIf(username -> username == null || username.isEmpty());
+        if (people.isEmpty()) {
+            callback.onComplete(0, new ArrayList<>());
+            return;
+        }
+
+        long fanOutStart = Metrics.now();
+        int chunkCount = (people.size() + FAN_OUT_CHUNK_SIZE - 1) / FAN_OUT_CHUNK_SIZE;
+        int[] finishedChunks = { 0 };
+        int[] delivered = { 0 };
+        List<String> failed = new ArrayList<>();
+
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            List<String> chunkPeople = people.subList(chunk * FAN_OUT_CHUNK_SIZE,
+                    Math.min(people.size(), (chunk + 1) * FAN_OUT_CHUNK_SIZE));
+
+            // Two paths per person: notifications/{person}/{their new push ID} -> the notification,
+            // and their unread counter moved up by one in the same write
+            Map<String, Object> updates = new HashMap<>();
+            for (String username : chunkPeople) {
+                String id = notificationsRef.child(username).push().getKey();
+                updates.put("notifications/" + username + "/" + id, toValue(notification, id));
+                if (!notification.isRead()) {
+                    updates.put(UnreadCounters.path(username, UnreadCounters.UNREAD_NOTIFICATIONS), ServerValue.increment(1));
+                }
+            }
+
+            int chunkIndex = chunk;
+            Database.get().updateChildren(rootRef, updates).addOnCompleteListener(task -> {
+                String error = null;
+                if (task.isSuccessful()) {
+                    delivered[0] += chunkPeople.size();
+                    NOTIFICATIONS_SENT.add(chunkPeople.size());
+                } else {
+                    error = task.getException() != null ? task.getException().getMessage() : "Write failed";
+                    failed.addAll(chunkPeople);
+                }
+                callback.onChunkComplete(chunkIndex, chunkPeople, error);
+
+                finishedChunks[0]++;
+                if (finishedChunks[0] == chunkCount) {
+                    FAN_OUT_TIME.recordSince(fanOutStart);
+                    callback.onComplete(delivered[0], failed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Turns a notification into the values stored in the database, with the given ID.
+     * (The same fields Firebase writes when given a Notification object.)
+     */
+    private static Map<String, Object> toValue(Notification notification, String id) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("id", id);
+        value.put("title", notification.getTitle());
+        value.put("message", notification.getMessage());
+        value.put("type", notification.getType());
+        value.put("timestamp", notification.getTimestamp());
+        value.put("read", notification.isRead());
+        return value;
+    }
+
+    /**
+     * Get One Page of a User's Notifications
+     *
+     * This gets at most pageSize notifications, newest first. For the first
+     * page pass null as the cursor. For the next page pass the timestamp and
+     * key of the oldest notification you already have, and you get the ones
+     * just before it (the key only matters when two share a timestamp).
+     * It's like reading an inbox one screen at a time instead of printing it all.
+     *
      * @param username The person whose notifications we want to get
-     * @param callback What to do with the notifications when we get them (or if we fail)
+     * @param beforeTimestamp Timestamp of the oldest notification already loaded (ignored for the newest page)
+     * @param beforeKey Key of the oldest notification already loaded (null for the newest page)
+     * @param pageSize How many notifications to get at most
+     * @param callback What to do with the page when we get it (or if we fail)
      */
-    public void getUserNotifications(String username, NotificationsListCallback callback) {
+    public void getNotificationsPage(String username, long beforeTimestamp, String beforeKey, int pageSize,
+                                     NotificationsPageCallback callback) {
         // Check if the username is valid (not empty or null)
-        // This is like making sure we know whose mailbox to check
         if (username == null || username.isEmpty()) {
             callback.onError("Username cannot be empty");
             return;
         }
 
-        // Go to Firebase and get all notifications for this user
-        // This is like going to the user's personal notification folder
-        notificationsRef.child(username)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
+        // Sorted by time, so the newest are the last ones.
+        // One extra is asked for, only to find out if there are more after this page.
+        Query query = byTimeQuery(username);
+        if (beforeKey != null) {
+            query = query.endBefore(beforeTimestamp, beforeKey);
+        }
+        Database.get().readOnce(query.limitToLast(pageSize + 1),
+                new ValueEventListener() {
                     @Override
                     public void onDataChange(DataSnapshot dataSnapshot) {
-                        // Create a list to store all the notifications we find
-                        List<Notification> notifications = new ArrayList<>();
-                        
-                        // Go through each notification in the database
-                        // This is like reading each message in the mailbox one by one
+                        // Firebase gives the children oldest first
+                        List<Notification> page = new ArrayList<>();
                         for (DataSnapshot notificationSnapshot : dataSnapshot.getChildren()) {
-                            // Convert the database data back into a Notification object
                             Notification notification = notificationSnapshot.getValue(Notification.class);
                             if (notification != null) {
-                                // Add this notification to our list
-                                notifications.add(notification);
+                                notification.setId(notificationSnapshot.getKey());
+                                page.add(notification);
                             }
                         }
-                        
-                        // Sort notifications by timestamp (newest first)
-                        // This is like arranging the messages with the most recent ones on top
-                        Collections.sort(notifications, new Comparator<Notification>() {
-                            @Override
-                            public int compare(Notification n1, Notification n2) {
-                                // Compare timestamps - newer notifications come first
-                                return Long.compare(n2.getTimestamp(), n1.getTimestamp());
-                            }
-                        });
-                        
-                        // Send the sorted list back to whoever requested it
-                        callback.onSuccess(notifications);
+
+                        // The extra (oldest) one only tells us there is another page
+                        boolean hasMore = dataSnapshot.getChildrenCount() > pageSize;
+                        if (hasMore && !page.isEmpty()) {
+                            page.remove(0);
+                        }
+
+                        // Newest first, the way the screen shows them
+                        Collections.reverse(page);
+                        callback.onSuccess(page, hasMore);
                     }
 
                     @Override
                     public void onCancelled(DatabaseError databaseError) {
-                        // If something went wrong while getting the notifications
+                        // If something went wrong while getting the page
                         callback.onError(databaseError.getMessage());
                     }
                 });
     }
 
+    /**
+     * A user's notifications sorted by time, oldest first (the newest are the last ones).
+     * The stream's live listener uses the same order, so its page and the
+     * pages loaded after it line up.
+     */
+    public static Query byTimeQuery(String username) {
+        return Database.get().getReference("notifications").child(username).orderByChild("timestamp");
+    }
+
     /**
      * Mark a Notification as Read
      * 
@@ -190,13 +355,40 @@ public class NotificationManager {
         }
 
         // Find the specific notification in Firebase and mark it as read
-        // This is like finding a specific message and putting a "read" stamp on it
-        notificationsRef.child(username)
-                .child(notificationId)
-                .child("read")
-                .setValue(true)
-                .addOnSuccessListener(aVoid -> callback.onSuccess(true))
-                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+        // This is like finding a specific message and putting a "read" stamp on it.
+        // A transaction is used so we know whether it really was unread before,
+        // and only then take one off the unread counter.
+        Database.get().runTransaction(notificationsRef.child(username).child(notificationId).child("read"),
+                new Transaction.Handler() {
+                    private boolean wasUnread;
+
+                    @Override
+                    public Transaction.Result doTransaction(MutableData currentData) {
+                        Boolean read = currentData.getValue(Boolean.class);
+                        wasUnread = read != null && !read;
+                        if (read == null) {
+                            // Either the phone doesn't have this notification yet (older
+                            // pages aren't kept locally) or it no longer exists. Leave it
+                            // empty: if the server has it, the server sends it back and this
+                            // runs again with the real value; if not, nothing is recreated.
+                            return Transaction.success(currentData);
+                        }
+                        currentData.setValue(true);
+                        return Transaction.success(currentData);
+                    }
+
+                    @Override
+                    public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                        if (error != null) {
+                            callback.onError(error.getMessage());
+                            return;
+                        }
+                        if (committed && wasUnread) {
+                            unreadCounters.adjust(username, UnreadCounters.UNREAD_NOTIFICATIONS, -1);
+                        }
+                        callback.onSuccess(true);
+                    }
+                });
     }
 
     /**
@@ -224,10 +416,158 @@ public class NotificationManager {
         }
 
         // Find the specific notification in Firebase and completely remove it
-        // This is like finding a specific message and throwing it in the trash
-        notificationsRef.child(username)
-                .child(notificationId)
-                .removeValue()
+        // This is like finding a specific message and throwing it in the trash.
+        // A transaction is used so we know whether it was still unread,
+        // and only then take one off the unread counter.
+        Database.get().runTransaction(notificationsRef.child(username).child(notificationId),
+                new Transaction.Handler() {
+                    private boolean wasUnread;
+
+                    @Override
+                    public Transaction.Result doTransaction(MutableData currentData) {
+                        Boolean read = currentData.child("read").getValue(Boolean.class);
+                        wasUnread = read != null && !read;
+                        currentData.setValue(null);
+                        return Transaction.success(currentData);
+                    }
+
+                    @Override
+                    public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                        if (error != null) {
+                            callback.onError(error.getMessage());
+                            return;
+                        }
+                        if (committed && wasUnread) {
+                            unreadCounters.adjust(username, UnreadCounters.UNREAD_NOTIFICATIONS, -1);
+                        }
+                        callback.onSuccess(true);
+                    }
+                });
+    }
+
+    /**
+     * Mark Many Notifications as Read in One Go
+     *
+     * Every notification's "read" stamp is set in a single multi-path
+     * update, so marking 200 notifications costs one round trip, not 200.
+     *
+     * @param username The person whose notifications we're marking as read
+     * @param notificationIds The notifications to mark as read (all of them currently unread)
+     * @param callback What to do when this succeeds or fails
+     */
+    public void markAllRead(String username, List<String> notificationIds, NotificationCallback callback) {
+        if (username == null || username.isEmpty()) {
+            callback.onError("Username cannot be empty");
+            return;
+        }
+        if (notificationIds.isEmpty()) {
+            callback.onSuccess(true);
+            return;
+        }
+
+        // One path per notification: notifications/{user}/{id}/read -> true
+        Map<String, Object> updates = new HashMap<>();
+        for (String id : notificationIds) {
+            updates.put("notifications/" + username + "/" + id + "/read", true);
+        }
+        Database.get().updateChildren(rootRef, updates)
+                .addOnSuccessListener(aVoid -> {
+                    // Then the unread counter moves down by the same amount (never below 0)
+                    unreadCounters.adjust(username, UnreadCounters.UNREAD_NOTIFICATIONS, -notificationIds.size());
+                    callback.onSuccess(true);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Mark Every Unread Notification as Read, Loaded on Screen or Not
+     *
+     * One query finds the unread ones (orderByChild("read").equalTo(false),
+     * which needs ".indexOn": "read" on notifications/{user} in the database
+     * rules), so read notifications aren't downloaded. They are then all
+     * marked in one write, the same way as markAllRead above.
+     *
+     * @param username The person whose notifications we're marking as read
+     * @param callback What to do when this succeeds or fails
+     */
+    public void markAllRead(String username, NotificationCallback callback) {
+        if (username == null || username.isEmpty()) {
+            callback.onError("Username cannot be empty");
+            return;
+        }
+
+        Database.get().readOnce(notificationsRef.child(username).orderByChild("read").equalTo(false),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        List<String> ids = new ArrayList<>();
+                        for (DataSnapshot notificationSnapshot : dataSnapshot.getChildren()) {
+                            ids.add(notificationSnapshot.getKey());
+                        }
+                        markAllRead(username, ids, callback);
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Delete Many Notifications in One Go
+     *
+     * All the deletions are sent as a single multi-path update (a path set
+     * to null is deleted), so they happen together in one round trip.
+     *
+     * @param username The person whose notifications we're deleting
+     * @param notificationIds The notifications to delete
+     * @param unreadCount How many of them are still unread (taken off the unread counter)
+     * @param callback What to do when this succeeds or fails
+     */
+    public void deleteMany(String username, List<String> notificationIds, int unreadCount, NotificationCallback callback) {
+        if (username == null || username.isEmpty()) {
+            callback.onError("Username cannot be empty");
+            return;
+        }
+        if (notificationIds.isEmpty()) {
+            callback.onSuccess(true);
+            return;
+        }
+
+        Map<String, Object> updates = new HashMap<>();
+        for (String id : notificationIds) {
+            updates.put("notifications/" + username + "/" + id, null);
+        }
+        Database.get().updateChildren(rootRef, updates)
+                .addOnSuccessListener(aVoid -> {
+                    // Then the unread ones come off the unread counter (never below 0)
+                    unreadCounters.adjust(username, UnreadCounters.UNREAD_NOTIFICATIONS, -unreadCount);
+                    callback.onSuccess(true);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Delete Every Notification, Loaded on Screen or Not
+     *
+     * One multi-path update removes the whole notifications/{user} folder
+     * and sets the unread counter to 0 at the same moment, so nothing has
+     * to be downloaded first and the counter can't drift from the folder.
+     *
+     * @param username The person whose notifications we're deleting
+     * @param callback What to do when this succeeds or fails
+     */
+    public void deleteAll(String username, NotificationCallback callback) {
+        if (username == null || username.isEmpty()) {
+            callback.onError("Username cannot be empty");
+            return;
+        }
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("notifications/" + username, null);
+        updates.put(UnreadCounters.path(username, UnreadCounters.UNREAD_NOTIFICATIONS), 0L);
+        Database.get().updateChildren(rootRef, updates)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(true))
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
@@ -235,9 +575,11 @@ public class NotificationManager {
     /**
      * Get Count of Unread Notifications
      * 
-     * This method counts how many notifications a user has that they
-     * haven't read yet. It's like counting how many unopened emails
-     * someone has in their inbox.
+     * This method gets how many notifications a user has that they
+     * haven't read yet. It's like looking at the number on an inbox
+     * instead of counting the unopened emails one by one: the number is
+     * kept up to date in counters/{user}/unreadNotifications, so this is
+     * one tiny read.
      * 
      * @param username The person whose unread notifications we want to count
      * @param callback What to do with the count when we get it (or if we fail)
@@ -249,24 +591,19 @@ public class NotificationManager {
             return;
         }
 
-        // Create a query to find only notifications that are marked as unread (read = false)
-        // This is like asking "show me only the unopened mail"
-        Query unreadQuery = notificationsRef.child(username).orderByChild("read").equalTo(false);
-        unreadQuery.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                // Count how many unread notifications we found
-                // This is like counting the unopened messages
-                int count = (int) dataSnapshot.getChildrenCount();
-                callback.onSuccess(count);
-            }
+        Database.get().readOnce(unreadCounters.getCountersRef(username).child(UnreadCounters.UNREAD_NOTIFICATIONS),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        Long count = dataSnapshot.getValue(Long.class);
+                        callback.onSuccess(count != null ? count.intValue() : 0);
+                    }
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                // If something went wrong while counting
-                callback.onError(databaseError.getMessage());
-            }
-        });
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
     }
 
     /**
@@ -282,6 +619,63 @@ public class NotificationManager {
         void onError(String error);
     }
 
+    /**
+     * Get the Details the Tidy-Up Rule Needs (NotificationRetention.Store)
+     *
+     * The rule only ever deletes read notifications, so only those are
+     * downloaded: one orderByChild("read").equalTo(true) query (see the
+     * ".indexOn": "read" note on markAllRead). Unread notifications, which
+     * can pile up without limit, are never part of the download.
+     */
+    @Override
+    public void loadEntries(String username, NotificationRetention.EntriesCallback callback) {
+        if (username == null || username.isEmpty()) {
+            callback.onError("Username cannot be empty");
+            return;
+        }
+
+        Database.get().readOnce(notificationsRef.child(username).orderByChild("read").equalTo(true),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        List<NotificationRetention.Entry> entries = new ArrayList<>();
+                        for (DataSnapshot notificationSnapshot : dataSnapshot.getChildren()) {
+                            Long timestamp = notificationSnapshot.child("timestamp").getValue(Long.class);
+                            Boolean read = notificationSnapshot.child("read").getValue(Boolean.class);
+                            entries.add(new NotificationRetention.Entry(notificationSnapshot.getKey(),
+                                    timestamp != null ? timestamp : 0, read != null && read));
+                        }
+                        callback.onSuccess(entries);
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Delete Several Notifications at Once (NotificationRetention.Store)
+     *
+     * All the deletions are sent as one write (see deleteMany).
+     * The tidy-up only deletes read notifications, so no counter changes.
+     */
+    @Override
+    public void deleteEntries(String username, List<String> ids, NotificationRetention.DeleteCallback callback) {
+        deleteMany(username, ids, 0, new NotificationCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
     /**
      * Helper Methods for Creating Specific Notification Types
      * 
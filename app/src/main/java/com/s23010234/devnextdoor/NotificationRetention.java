@@ -0,0 +1,170 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Notification Retention - Clears out old notifications the user has already read
+ *
+ * Without this, a user's notifications folder would only ever grow. This
+ * class is like a tidy-up rule for an inbox: it throws away read
+ * notifications once they are too old, or once there are more than a set
+ * number of them. Unread notifications are never thrown away, because the
+ * user hasn't seen them yet.
+ *
+ * The rule itself (which notifications to delete) is plain Java, so it can
+ * be tested on a computer. Where the notifications are kept is hidden
+ * behind the Store interface: in the app that is Firebase (NotificationManager),
+ * and in tests it can be a simple list in memory.
+ */
+public class NotificationRetention {
+
+    // Default rule: read notifications are kept for 30 days...
+    public static final long DEFAULT_MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    // ...and only the newest 100 of them are kept
+    public static final int DEFAULT_MAX_READ_COUNT = 100;
+
+    /**
+     * The few details of a notification the tidy-up rule needs
+     */
+    public static class Entry {
+        private final String id;
+        private final long timestamp;
+        private final boolean read;
+
+        public Entry(String id, long timestamp, boolean read) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.read = read;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isRead() {
+            return read;
+        }
+    }
+
+    /**
+     * Where a user's notifications are kept
+     */
+    public interface Store {
+        // Gets the user's notifications (only the details in Entry are needed). Only read
+        // ones can be deleted, so a store may leave the unread ones out.
+        void loadEntries(String username, EntriesCallback callback);
+        // Deletes the given notifications, all in one go
+        void deleteEntries(String username, List<String> ids, DeleteCallback callback);
+    }
+
+    public interface EntriesCallback {
+        void onSuccess(List<Entry> entries);
+        void onError(String error);
+    }
+
+    public interface DeleteCallback {
+        void onSuccess();
+        void onError(String error);
+    }
+
+    /**
+     * Told how a tidy-up went
+     */
+    public interface RunCallback {
+        // Called with the number of notifications that were deleted
+        void onSuccess(int deletedCount);
+        void onError(String error);
+    }
+
+    private final long maxAgeMillis;
+    private final int maxReadCount;
+
+    /**
+     * Uses the default rule (30 days, 100 read notifications)
+     */
+    public NotificationRetention() {
+        this(DEFAULT_MAX_AGE_MILLIS, DEFAULT_MAX_READ_COUNT);
+    }
+
+    /**
+     * @param maxAgeMillis Read notifications older than this are deleted
+     * @param maxReadCount Only this many of the newest read notifications are kept
+     */
+    public NotificationRetention(long maxAgeMillis, int maxReadCount) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxReadCount = maxReadCount;
+    }
+
+    /**
+     * Works out which notifications the rule deletes
+     *
+     * @param entries All of a user's notifications, in any order
+     * @param now The current time in milliseconds
+     * @return Ids of the notifications to delete, oldest first
+     */
+    public List<String> selectForDeletion(List<Entry> entries, long now) {
+        // Only read notifications can be deleted; look at them newest first
+        List<Entry> read = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.read) {
+                read.add(entry);
+            }
+        }
+        Collections.sort(read, (a, b) -> Long.compare(b.timestamp, a.timestamp));
+
+        long oldestAllowed = now - maxAgeMillis;
+        List<String> ids = new ArrayList<>();
+        for (int i = read.size() - 1; i >= 0; i--) {
+            Entry entry = read.get(i);
+            if (i >= maxReadCount || entry.timestamp < oldestAllowed) {
+                ids.add(entry.id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Tidies up one user's notifications: reads them from the store,
+     * applies the rule and deletes what it picked in a single write.
+     *
+     * @param store Where the notifications are kept
+     * @param username Whose notifications to tidy up
+     * @param now The current time in milliseconds
+     * @param callback Told how many notifications were deleted
+     */
+    public void run(Store store, String username, long now, RunCallback callback) {
+        store.loadEntries(username, new EntriesCallback() {
+            @Override
+            public void onSuccess(List<Entry> entries) {
+                List<String> ids = selectForDeletion(entries, now);
+                if (ids.isEmpty()) {
+                    callback.onSuccess(0);
+                    return;
+                }
+                store.deleteEntries(username, ids, new DeleteCallback() {
+                    @Override
+                    public void onSuccess() {
+                        callback.onSuccess(ids.size());
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+}
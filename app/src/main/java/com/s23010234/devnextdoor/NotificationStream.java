@@ -0,0 +1,751 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Notification Stream - A live, always up-to-date copy of the user's notifications
+ *
+ * Before this class, the notifications screen downloaded the whole
+ * notifications/{user} folder again on every refresh, and counting the
+ * unread ones needed another download of every unread notification.
+ *
+ * Now the app listens to the newest page of the folder while it is on
+ * screen. Firebase sends that page once at the start, and afterwards only
+ * tells us about single notifications that are added, changed or removed.
+ * Older pages are loaded only when the user scrolls down to them
+ * (loadOlder). Each of those small events is applied to a list of
+ * notifications, kept sorted newest first.
+ *
+ * Marking as read and deleting go through this class (markAsRead, delete)
+ * so the list is updated straight away, even for notifications on older
+ * pages that the listener doesn't cover.
+ *
+ * Once a day the stream also runs the NotificationRetention tidy-up, so the
+ * folder doesn't keep growing however long someone uses the app.
+ *
+ * The unread numbers come from the user's counters (see UnreadCounters):
+ * one small listener on counters/{user} instead of counting unread items.
+ * Every screen with a bottom navigation bar shows them on its Notifications
+ * and Chats buttons (the views with ids navNotificationsBadge and
+ * navChatsBadge). The badges are updated by this class as screens come and
+ * go, so the screens don't need any code for them and no extra queries are made.
+ *
+ * The listeners run while at least one screen of the app is visible and is
+ * switched off when the app goes to the background.
+ * All methods must be called from the main (UI) thread.
+ */
+public class NotificationStream implements Application.ActivityLifecycleCallbacks {
+
+    /**
+     * Told about every change to the list, so a RecyclerView can animate
+     * just the affected row instead of redrawing everything.
+     */
+    public interface Listener {
+        void onNotificationInserted(int position);
+        void onNotificationChanged(int position);
+        void onNotificationRemoved(int position);
+        void onNotificationMoved(int fromPosition, int toPosition);
+        // Many rows changed at once (mark all read, clear all) - redraw the list once
+        void onNotificationsReplaced();
+    }
+
+    /**
+     * Told whenever the number of unread notifications changes
+     */
+    public interface UnreadCountListener {
+        void onUnreadCountChanged(int unreadCount);
+    }
+
+    // How often old read notifications are tidied up
+    private static final long COMPACTION_INTERVAL_MILLIS = 24L * 60 * 60 * 1000;
+
+    // The single shared instance, created when the app starts
+    private static NotificationStream instance;
+
+    private final Context appContext;
+
+    // Made the first time they're needed, so creating the stream doesn't start Firebase
+    private NotificationManager notificationManager;
+    private UnreadCounters unreadCounters;
+
+    // Whose notifications are being followed ("" when nobody is logged in)
+    private String username = "";
+    private Query liveQuery;
+    private ChildEventListener childListener;
+
+    // The user's notifications, newest first, and where each one is by id
+    private final List<Notification> notifications = new ArrayList<>();
+    private final Map<String, Notification> notificationsById = new HashMap<>();
+
+    // Paging: the oldest notification loaded so far (its time, then its key), and whether older pages exist
+    private long oldestTimestamp;
+    private String oldestKey;
+    private boolean hasMore = true;
+    private boolean loadingOlder = false;
+
+    // Notifications this device is deleting, so their "removed" events aren't mistaken
+    // for notifications that merely dropped out of the newest page
+    private final Set<String> pendingDeletes = new HashSet<>();
+
+    // Keys currently inside the live newest page, to tell a deleted notification
+    // from one that a newer notification pushed out of the page
+    private final Set<String> liveKeys = new HashSet<>();
+
+    // Read from counters/{user}, kept up to date by a listener
+    private ValueEventListener countersListener;
+    private int unreadCount = 0;
+    private int unreadChatCount = 0;
+
+    // Number of screens of this app that are currently visible
+    private int startedActivities = 0;
+
+    private final List<Listener> listeners = new ArrayList<>();
+    private final List<UnreadCountListener> unreadCountListeners = new ArrayList<>();
+
+    // The visible screens, whose bottom navigation badges are kept up to date
+    private final List<Activity> visibleActivities = new ArrayList<>();
+
+    private NotificationStream(Application application) {
+        appContext = application;
+    }
+
+    /**
+     * Sets up the shared stream and starts following the app's screens.
+     * This is called once from the Application class when the app starts.
+     */
+    public static void install(Application application) {
+        if (instance != null) {
+            return;
+        }
+        instance = new NotificationStream(application);
+        application.registerActivityLifecycleCallbacks(instance);
+    }
+
+    /**
+     * Stops following the app's screens and forgets the shared stream,
+     * so a test can install a fresh one
+     */
+    @VisibleForTesting
+    static void uninstall() {
+        if (instance != null) {
+            ((Application) instance.appContext).unregisterActivityLifecycleCallbacks(instance);
+            instance = null;
+        }
+    }
+
+    /**
+     * Gets the shared stream (null before install is called)
+     */
+    public static NotificationStream getInstance() {
+        return instance;
+    }
+
+    /**
+     * The user's notifications, newest first. The list changes as events
+     * arrive, so keep the reference instead of copying it and use a Listener
+     * to hear about changes.
+     */
+    public List<Notification> getNotifications() {
+        return Collections.unmodifiableList(notifications);
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public int getUnreadChatCount() {
+        return unreadChatCount;
+    }
+
+    /**
+     * Whether there may be older notifications that haven't been loaded yet
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Loads the next page of older notifications (one read of PAGE_SIZE items).
+     * Does nothing if a page is already loading or there are no more.
+     *
+     * @param callback Told when the page has been added to the list (may be null)
+     */
+    public void loadOlder(NotificationManager.NotificationCallback callback) {
+        if (loadingOlder || !hasMore || oldestKey == null) {
+            return;
+        }
+        loadingOlder = true;
+        String user = username;
+        notificationManager().getNotificationsPage(user, oldestTimestamp, oldestKey, NotificationManager.PAGE_SIZE,
+                new NotificationManager.NotificationsPageCallback() {
+                    @Override
+                    public void onSuccess(List<Notification> page, boolean more) {
+                        loadingOlder = false;
+                        if (!user.equals(username)) {
+                            return; // The user changed while the page was loading
+                        }
+                        for (Notification notification : page) {
+                            applyAdded(notification);
+                        }
+                        hasMore = more;
+                        if (callback != null) {
+                            callback.onSuccess(true);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        loadingOlder = false;
+                        if (callback != null) {
+                            callback.onError(error);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Marks a notification as read, in the list straight away and in the database
+     */
+    public void markAsRead(Notification notification, NotificationManager.NotificationCallback callback) {
+        if (notification.isRead()) {
+            return;
+        }
+        Notification read = copyOf(notification);
+        read.setRead(true);
+        applyChanged(read);
+        notificationManager().markNotificationAsRead(username, notification.getId(), callback);
+    }
+
+    /**
+     * Marks every notification as read, including ones on pages that haven't
+     * been loaded: the loaded ones change on screen straight away, then one
+     * query finds the unread ones and one write marks them all.
+     */
+    public void markAllRead(NotificationManager.NotificationCallback callback) {
+        boolean changed = false;
+        for (int position = 0; position < notifications.size(); position++) {
+            Notification notification = notifications.get(position);
+            if (!notification.isRead()) {
+                Notification read = copyOf(notification);
+                read.setRead(true);
+                notifications.set(position, read);
+                notificationsById.put(read.getId(), read);
+                changed = true;
+            }
+        }
+        if (!changed && unreadCount == 0) {
+            callback.onSuccess(true);
+            return;
+        }
+        if (changed) {
+            notifyReplaced();
+        }
+        notificationManager().markAllRead(username, callback);
+    }
+
+    /**
+     * Deletes every notification, including ones on pages that haven't been
+     * loaded: one database write and one redraw of the list.
+     */
+    public void deleteAll(NotificationManager.NotificationCallback callback) {
+        List<String> ids = new ArrayList<>(notificationsById.keySet());
+        if (ids.isEmpty() && !hasMore) {
+            callback.onSuccess(true);
+            return;
+        }
+        // The live page's "removed" events are for these, so no need to check them
+        pendingDeletes.addAll(ids);
+        notifications.clear();
+        notificationsById.clear();
+        oldestTimestamp = 0;
+        oldestKey = null;
+        hasMore = false;
+        notifyReplaced();
+
+        notificationManager().deleteAll(username, new NotificationManager.NotificationCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                pendingDeletes.removeAll(ids);
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(String error) {
+                pendingDeletes.removeAll(ids);
+                callback.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Deletes a notification, from the list straight away and from the database
+     */
+    public void delete(Notification notification, NotificationManager.NotificationCallback callback) {
+        pendingDeletes.add(notification.getId());
+        applyRemoved(notification.getId());
+        notificationManager().deleteNotification(username, notification.getId(), new NotificationManager.NotificationCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                pendingDeletes.remove(notification.getId());
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(String error) {
+                pendingDeletes.remove(notification.getId());
+                callback.onError(error);
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registers for unread count changes. The current count is delivered straight away.
+     */
+    public void addUnreadCountListener(UnreadCountListener listener) {
+        unreadCountListeners.add(listener);
+        listener.onUnreadCountChanged(unreadCount);
+    }
+
+    public void removeUnreadCountListener(UnreadCountListener listener) {
+        unreadCountListeners.remove(listener);
+    }
+
+    // ---- Following the database ----
+
+    /**
+     * Makes sure we are listening to the right user's folder.
+     * The logged in user can change (log in, log out, username change),
+     * so this is checked every time a screen becomes visible.
+     */
+    private void followSavedUser() {
+        SharedPreferences prefs = appContext.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE);
+        String savedUsername = prefs.getString("username", "");
+        if (savedUsername.equals(username) && (childListener != null || savedUsername.isEmpty())) {
+            return;
+        }
+        stopListening();
+        username = savedUsername;
+        if (!username.isEmpty()) {
+            startListening();
+            compactIfDue();
+        }
+    }
+
+    /**
+     * Runs the tidy-up of old read notifications, then the repair of the
+     * unread counters and the filing away of old chat messages into month
+     * folders (see MessageArchiver), at most once a day per user
+     */
+    private void compactIfDue() {
+        SharedPreferences prefs = appContext.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE);
+        String key = "notificationsCompactedAt_" + username;
+        long now = System.currentTimeMillis();
+        if (now - prefs.getLong(key, 0) < COMPACTION_INTERVAL_MILLIS) {
+            return;
+        }
+        new NotificationRetention().run(notificationManager(), username, now, new NotificationRetention.RunCallback() {
+            @Override
+            public void onSuccess(int deletedCount) {
+                prefs.edit().putLong(key, now).apply();
+                unreadCounters().reconcile(username, new UnreadCounters.DatabaseCallback() {
+                    @Override
+                    public void onSuccess(boolean result) {
+                        // Counters repaired; the badges update through the counters listener
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        // The counters are only repaired again tomorrow
+                    }
+                });
+                new MessageArchiver().archiveUserChats(username, new MessageArchiver.DatabaseCallback() {
+                    @Override
+                    public void onSuccess(boolean result) {
+                        // Nothing to show - chats read their month folders as usual
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        // Whatever is left is filed away tomorrow, or when the chat is opened
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                // Try again the next time the app is opened
+            }
+        });
+    }
+
+    private void startListening() {
+        // Only the newest page is followed live; older pages are loaded on request
+        liveQuery = NotificationManager.byTimeQuery(username).limitToLast(NotificationManager.PAGE_SIZE);
+        childListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                liveKeys.add(snapshot.getKey());
+                Notification notification = readNotification(snapshot);
+                if (notification != null) {
+                    applyAdded(notification);
+                }
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                Notification notification = readNotification(snapshot);
+                if (notification != null) {
+                    applyChanged(notification);
+                }
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                String key = snapshot.getKey();
+                // A newer notification pushing the oldest one out of a full page also arrives
+                // here. Anything else was deleted (here, on another device, or by the daily tidy-up).
+                boolean maybePushedOut = liveKeys.size() >= NotificationManager.PAGE_SIZE
+                        && key.equals(oldestLiveKey());
+                liveKeys.remove(key);
+                if (pendingDeletes.contains(key) || !maybePushedOut) {
+                    applyRemoved(key);
+                } else {
+                    removeIfDeleted(key);
+                }
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // The list is sorted by time, not by database order
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // Leave the last known notifications on screen
+            }
+        };
+        Database.get().listen(liveQuery, childListener);
+
+        // Both unread numbers, from one small folder
+        countersListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Long notificationsCount = snapshot.child(UnreadCounters.UNREAD_NOTIFICATIONS).getValue(Long.class);
+                Long chatsCount = snapshot.child(UnreadCounters.UNREAD_CHATS).getValue(Long.class);
+                setUnreadCounts(notificationsCount != null ? notificationsCount.intValue() : 0,
+                        chatsCount != null ? chatsCount.intValue() : 0);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // Keep showing the last known numbers
+            }
+        };
+        Database.get().listen(unreadCounters().getCountersRef(username), countersListener);
+    }
+
+    private void stopListening() {
+        if (childListener != null) {
+            Database.get().stopListening(liveQuery, childListener);
+            childListener = null;
+            liveQuery = null;
+        }
+        if (countersListener != null) {
+            Database.get().stopListening(unreadCounters().getCountersRef(username), countersListener);
+            countersListener = null;
+        }
+
+        // Forget the old user's notifications
+        if (!notifications.isEmpty()) {
+            notifications.clear();
+            notifyReplaced();
+        }
+        notificationsById.clear();
+        pendingDeletes.clear();
+        liveKeys.clear();
+        oldestTimestamp = 0;
+        oldestKey = null;
+        hasMore = true;
+        setUnreadCounts(0, 0);
+    }
+
+    /**
+     * Turns a database entry into a Notification, using the entry's key as its id
+     */
+    private static Notification readNotification(DataSnapshot snapshot) {
+        Notification notification = snapshot.getValue(Notification.class);
+        if (notification != null) {
+            notification.setId(snapshot.getKey());
+        }
+        return notification;
+    }
+
+    private static boolean sameContent(Notification a, Notification b) {
+        return a.isRead() == b.isRead()
+                && a.getTimestamp() == b.getTimestamp()
+                && Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getMessage(), b.getMessage())
+                && Objects.equals(a.getType(), b.getType());
+    }
+
+    private static Notification copyOf(Notification notification) {
+        Notification copy = new Notification();
+        copy.setId(notification.getId());
+        copy.setTitle(notification.getTitle());
+        copy.setMessage(notification.getMessage());
+        copy.setType(notification.getType());
+        copy.setTimestamp(notification.getTimestamp());
+        copy.setRead(notification.isRead());
+        return copy;
+    }
+
+    // ---- Applying single events ----
+
+    private void applyAdded(Notification notification) {
+        if (notificationsById.containsKey(notification.getId())) {
+            applyChanged(notification);
+            return;
+        }
+        int position = insertionPoint(notification);
+        notifications.add(position, notification);
+        notificationsById.put(notification.getId(), notification);
+        if (oldestKey == null || notification.getTimestamp() < oldestTimestamp
+                || (notification.getTimestamp() == oldestTimestamp && notification.getId().compareTo(oldestKey) < 0)) {
+            oldestTimestamp = notification.getTimestamp();
+            oldestKey = notification.getId();
+        }
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onNotificationInserted(position);
+        }
+    }
+
+    private void applyChanged(Notification notification) {
+        Notification old = notificationsById.get(notification.getId());
+        if (old == null) {
+            applyAdded(notification);
+            return;
+        }
+        if (sameContent(old, notification)) {
+            return; // Already showing this (for example our own change coming back)
+        }
+        int oldPosition = notifications.indexOf(old);
+        notifications.remove(oldPosition);
+        int newPosition = insertionPoint(notification);
+        notifications.add(newPosition, notification);
+        notificationsById.put(notification.getId(), notification);
+
+        for (Listener listener : new ArrayList<>(listeners)) {
+            if (oldPosition != newPosition) {
+                listener.onNotificationMoved(oldPosition, newPosition);
+            }
+            listener.onNotificationChanged(newPosition);
+        }
+    }
+
+    /**
+     * The oldest notification in the live newest page (by time, then key)
+     */
+    private String oldestLiveKey() {
+        Notification oldest = null;
+        for (String key : liveKeys) {
+            Notification notification = notificationsById.get(key);
+            if (notification != null && (oldest == null
+                    || notification.getTimestamp() < oldest.getTimestamp()
+                    || (notification.getTimestamp() == oldest.getTimestamp()
+                            && notification.getId().compareTo(oldest.getId()) < 0))) {
+                oldest = notification;
+            }
+        }
+        return oldest != null ? oldest.getId() : null;
+    }
+
+    /**
+     * Takes a notification that left the newest page off the list if it no longer
+     * exists (one small read). If it's still there it was only pushed out of the
+     * page by a newer one, so it stays where it is with the older notifications.
+     */
+    private void removeIfDeleted(String id) {
+        String user = username;
+        Database.get().readOnce(Database.get().getReference("notifications").child(user).child(id),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        if (!snapshot.exists() && user.equals(username)) {
+                            applyRemoved(id);
+                        }
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        // Keep the row; it goes away the next time the list is loaded
+                    }
+                });
+    }
+
+    private void applyRemoved(String id) {
+        Notification old = notificationsById.remove(id);
+        if (old == null) {
+            return;
+        }
+        int position = notifications.indexOf(old);
+        notifications.remove(position);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onNotificationRemoved(position);
+        }
+    }
+
+    /**
+     * Finds where a notification belongs in the newest-first list (binary search)
+     */
+    private int insertionPoint(Notification notification) {
+        int low = 0;
+        int high = notifications.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (notifications.get(middle).getTimestamp() >= notification.getTimestamp()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void notifyReplaced() {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onNotificationsReplaced();
+        }
+    }
+
+    private void setUnreadCounts(int notificationsCount, int chatsCount) {
+        boolean notificationsChanged = notificationsCount != unreadCount;
+        if (!notificationsChanged && chatsCount == unreadChatCount) {
+            return;
+        }
+        unreadCount = notificationsCount;
+        unreadChatCount = chatsCount;
+        if (notificationsChanged) {
+            for (UnreadCountListener listener : new ArrayList<>(unreadCountListeners)) {
+                listener.onUnreadCountChanged(unreadCount);
+            }
+        }
+        for (Activity activity : visibleActivities) {
+            showCounts(activity);
+        }
+    }
+
+    private NotificationManager notificationManager() {
+        if (notificationManager == null) {
+            notificationManager = new NotificationManager();
+        }
+        return notificationManager;
+    }
+
+    private UnreadCounters unreadCounters() {
+        if (unreadCounters == null) {
+            unreadCounters = new UnreadCounters();
+        }
+        return unreadCounters;
+    }
+
+    // ---- Bottom navigation badges ----
+
+    /**
+     * Shows the numbers on a screen's Notifications and Chats buttons, if it has them
+     */
+    private void showCounts(Activity activity) {
+        showCount(activity.findViewById(R.id.navNotificationsBadge), unreadCount);
+        showCount(activity.findViewById(R.id.navChatsBadge), unreadChatCount);
+    }
+
+    private static void showCount(TextView badge, int count) {
+        if (badge == null) {
+            return;
+        }
+        if (count > 0) {
+            badge.setText(count > 99 ? "99+" : String.valueOf(count));
+            badge.setVisibility(View.VISIBLE);
+        } else {
+            badge.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        startedActivities++;
+        followSavedUser();
+
+        // Show the counts on this screen's bottom navigation, if it has one
+        visibleActivities.add(activity);
+        showCounts(activity);
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+        visibleActivities.remove(activity);
+
+        // Nothing of the app is visible any more - stop downloading updates
+        startedActivities--;
+        if (startedActivities == 0) {
+            stopListening();
+            username = "";
+        }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        // Nothing to do - screens are followed once they become visible
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        // Nothing to save
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        // Nothing to do - screens are let go of in onActivityStopped
+    }
+}
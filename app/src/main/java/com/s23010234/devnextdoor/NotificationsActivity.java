@@ -4,11 +4,13 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -17,7 +19,6 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,16 +31,22 @@ import java.util.List;
  * Users can:
  * - View all their notifications in chronological order
  * - See which notifications are new (unread) vs already seen (read)
- * - Tap on notifications to mark them as read
- * - Delete notifications they don't want anymore
- * - Pull down to refresh and check for new notifications
+ * - Tap on notifications to mark them as read, or mark them all read at once
+ * - Delete notifications they don't want anymore, one at a time or all at once
+ * - See new notifications appear by themselves as soon as they arrive
  * - Navigate to other parts of the app using bottom navigation
  * 
  * The activity extends ShakeBaseActivity so users can shake their phone
  * for quick actions. It also implements the notification click listener
  * to handle user interactions with individual notifications.
+ *
+ * The list itself comes from the shared NotificationStream, which is
+ * already listening to the database. This screen only listens to the stream
+ * and updates the single row that changed, so opening the screen or coming
+ * back to it doesn't download anything again.
  */
-public class NotificationsActivity extends ShakeBaseActivity implements NotificationAdapter.OnNotificationClickListener {
+public class NotificationsActivity extends ShakeBaseActivity
+        implements NotificationAdapter.OnNotificationClickListener, NotificationStream.Listener {
 
     // Visual elements for displaying notifications
     private RecyclerView notificationsRecyclerView;    // Scrollable list of notifications
@@ -48,9 +55,9 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
     private TextView emptyStateTextView;               // Shown when there are no notifications
     
     // Data management objects
-    private NotificationManager notificationManager;   // Handles loading/managing notifications from Firebase
+    private NotificationStream notificationStream;     // Live list of this user's notifications (also marks read and deletes)
     private String currentUsername;                    // Username of the person using the app
-    private List<Notification> notifications;          // List of all notifications for this user
+    private List<Notification> notifications;          // List of all notifications for this user (owned by the stream)
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,8 +65,8 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_notifications);
 
-        // Apply current theme
-        ThemeManager.applyTheme(this);
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
 
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -72,16 +79,16 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
 
         initializeComponents();
         setupNavigationClicks();
-        loadNotifications();
+
+        if (currentUsername.isEmpty()) {
+            Toast.makeText(this, "User not logged in", Toast.LENGTH_SHORT).show();
+        }
     }
-    
+
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply theme when returning to this activity (e.g., from Settings)
-        ThemeManager.applyTheme(this);
-        // Refresh notifications when returning to this activity
-        loadNotifications();
+    protected void onDestroy() {
+        super.onDestroy();
+        notificationStream.removeListener(this);
     }
 
     private void initializeComponents() {
@@ -90,8 +97,8 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
         currentUsername = sharedPreferences.getString("username", "");
 
         // Initialize notification manager
-        notificationManager = new NotificationManager();
-        notifications = new ArrayList<>();
+        notificationStream = NotificationStream.getInstance();
+        notifications = notificationStream.getNotifications();
 
         // Initialize views
         notificationsRecyclerView = findViewById(R.id.notifications_recycler_view);
@@ -104,44 +111,109 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
         notificationsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         notificationsRecyclerView.setAdapter(notificationAdapter);
 
-        // Setup swipe to refresh
-        swipeRefreshLayout.setOnRefreshListener(this::loadNotifications);
+        // Only the newest page is loaded at first; the next page is loaded
+        // when the user scrolls close to the bottom of the list
+        notificationsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (dy > 0 && layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= notifications.size() - 5) {
+                    notificationStream.loadOlder(null);
+                }
+            }
+        });
+
+        // The list is always live, so there is nothing to pull down to refresh
+        swipeRefreshLayout.setEnabled(false);
         swipeRefreshLayout.setColorSchemeResources(R.color.primary_blue);
+
+        notificationStream.addListener(this);
+        updateEmptyState();
+
+        // Bulk actions - each is a single database write and a single list redraw
+        Button markAllReadButton = findViewById(R.id.markAllReadButton);
+        Button clearAllButton = findViewById(R.id.clearAllButton);
+        markAllReadButton.setOnClickListener(v -> markAllRead());
+        clearAllButton.setOnClickListener(v -> confirmClearAll());
     }
 
-    private void loadNotifications() {
-        if (currentUsername.isEmpty()) {
-            Toast.makeText(this, "User not logged in", Toast.LENGTH_SHORT).show();
-            swipeRefreshLayout.setRefreshing(false);
+    private void markAllRead() {
+        notificationStream.markAllRead(new NotificationManager.NotificationCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+                // The list has already been redrawn
+            }
+
+            @Override
+            public void onError(String error) {
+                runOnUiThread(() -> {
+                    Toast.makeText(NotificationsActivity.this, "Error marking notifications as read", Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    private void confirmClearAll() {
+        if (notifications.isEmpty()) {
             return;
         }
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Clear All")
+                .setMessage("Delete all your notifications, including older ones?")
+                .setPositiveButton("Delete", (dialog, which) -> clearAll())
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
 
-        swipeRefreshLayout.setRefreshing(true);
-
-        notificationManager.getUserNotifications(currentUsername, new NotificationManager.NotificationsListCallback() {
+    private void clearAll() {
+        notificationStream.deleteAll(new NotificationManager.NotificationCallback() {
             @Override
-            public void onSuccess(List<Notification> loadedNotifications) {
-                notifications.clear();
-                notifications.addAll(loadedNotifications);
-                
+            public void onSuccess(boolean result) {
                 runOnUiThread(() -> {
-                    notificationAdapter.updateNotifications(notifications);
-                    updateEmptyState();
-                    swipeRefreshLayout.setRefreshing(false);
+                    Toast.makeText(NotificationsActivity.this, "Notifications deleted", Toast.LENGTH_SHORT).show();
                 });
             }
 
             @Override
             public void onError(String error) {
                 runOnUiThread(() -> {
-                    Toast.makeText(NotificationsActivity.this, "Error loading notifications: " + error, Toast.LENGTH_SHORT).show();
-                    swipeRefreshLayout.setRefreshing(false);
-                    updateEmptyState();
+                    Toast.makeText(NotificationsActivity.this, "Error deleting notifications", Toast.LENGTH_SHORT).show();
                 });
             }
         });
     }
 
+    // ---- Changes from the live notification stream ----
+
+    @Override
+    public void onNotificationInserted(int position) {
+        notificationAdapter.notifyItemInserted(position);
+        updateEmptyState();
+    }
+
+    @Override
+    public void onNotificationChanged(int position) {
+        notificationAdapter.notifyItemChanged(position);
+    }
+
+    @Override
+    public void onNotificationRemoved(int position) {
+        notificationAdapter.notifyItemRemoved(position);
+        updateEmptyState();
+    }
+
+    @Override
+    public void onNotificationMoved(int fromPosition, int toPosition) {
+        notificationAdapter.notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onNotificationsReplaced() {
+        notificationAdapter.notifyDataSetChanged();
+        updateEmptyState();
+    }
+
     private void updateEmptyState() {
         if (notifications.isEmpty()) {
             notificationsRecyclerView.setVisibility(View.GONE);
@@ -157,14 +229,10 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
     public void onNotificationClick(Notification notification) {
         // Mark notification as read if it's unread
         if (!notification.isRead()) {
-            notificationManager.markNotificationAsRead(currentUsername, notification.getId(), new NotificationManager.NotificationCallback() {
+            notificationStream.markAsRead(notification, new NotificationManager.NotificationCallback() {
                 @Override
                 public void onSuccess(boolean result) {
-                    if (result) {
-                        // Update local notification
-                        notification.setRead(true);
-                        runOnUiThread(() -> notificationAdapter.notifyDataSetChanged());
-                    }
+                    // The stream has already redrawn just this row
                 }
 
                 @Override
@@ -180,18 +248,13 @@ public class NotificationsActivity extends ShakeBaseActivity implements Notifica
 
     @Override
     public void onNotificationDelete(Notification notification) {
-        notificationManager.deleteNotification(currentUsername, notification.getId(), new NotificationManager.NotificationCallback() {
+        notificationStream.delete(notification, new NotificationManager.NotificationCallback() {
             @Override
             public void onSuccess(boolean result) {
                 if (result) {
+                    // The stream has already taken the row off the list
                     runOnUiThread(() -> {
-                        int position = notifications.indexOf(notification);
-                        if (position != -1 && position < notifications.size()) {
-                            notifications.remove(position);
-                            notificationAdapter.removeNotification(position);
-                            updateEmptyState();
-                            Toast.makeText(NotificationsActivity.this, "Notification deleted", Toast.LENGTH_SHORT).show();
-                        }
+                        Toast.makeText(NotificationsActivity.this, "Notification deleted", Toast.LENGTH_SHORT).show();
                     });
                 }
             }
@@ -0,0 +1,324 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Presence Manager - Who is online, and who is typing
+ *
+ * Online status is kept in presence/{user} as { online, lastSeen }:
+ * - While any screen of the app is visible, the user is marked online.
+ *   Firebase's special ".info/connected" location tells us when the phone
+ *   is really connected, and each time it connects we mark the user online again.
+ * - Before marking them online we also leave an "onDisconnect" instruction
+ *   with the server: if the phone loses its connection (or the app is killed),
+ *   the server itself marks the user offline. No phone has to do it.
+ * - When the app goes to the background, the user is marked offline.
+ *
+ * Typing status is kept in typing/{chatId}/{user}, and only while the user
+ * is typing (the entry is removed when they stop). TypingReporter decides
+ * when to write using TypingCoalescer, so typing a long message costs about
+ * two writes instead of one per key press.
+ *
+ * A chat screen only follows the one person it is showing (watchPeer),
+ * so nobody downloads the status of people who aren't on their screen.
+ */
+public class PresenceManager implements Application.ActivityLifecycleCallbacks {
+
+    /**
+     * Told when the person on screen comes online, goes offline, or starts or stops typing
+     */
+    public interface PeerListener {
+        void onPresenceChanged(boolean online, long lastSeen);
+        void onTypingChanged(boolean typing);
+    }
+
+    // The single shared instance, created when the app starts
+    private static PresenceManager instance;
+
+    private final Context appContext;
+
+    // Whose presence we keep up to date ("" when nobody is logged in)
+    private String username = "";
+    private ValueEventListener connectedListener;
+
+    // Number of screens of this app that are currently visible
+    private int startedActivities = 0;
+
+    private PresenceManager(Application application) {
+        appContext = application;
+    }
+
+    /**
+     * Sets up presence and starts following the app's screens.
+     * This is called once from the Application class when the app starts.
+     */
+    public static void install(Application application) {
+        if (instance != null) {
+            return;
+        }
+        instance = new PresenceManager(application);
+        application.registerActivityLifecycleCallbacks(instance);
+    }
+
+    /**
+     * Gets the shared presence manager (null before install is called)
+     */
+    public static PresenceManager getInstance() {
+        return instance;
+    }
+
+    // ---- Where presence is kept ----
+
+    // Looked up when needed rather than when the app starts, so starting up doesn't wait for Firebase
+    private static DatabaseReference presenceRef() {
+        return Database.get().getReference("presence");
+    }
+
+    private static DatabaseReference typingRef() {
+        return Database.get().getReference("typing");
+    }
+
+    private static DatabaseReference connectedRef() {
+        return Database.get().getReference(".info/connected");
+    }
+
+    // ---- Our own online status ----
+
+    private void goOnline(String user) {
+        username = user;
+        DatabaseReference myPresence = presenceRef().child(username);
+        connectedListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Boolean connected = snapshot.getValue(Boolean.class);
+                if (connected == null || !connected) {
+                    return; // The server will mark us offline by itself
+                }
+                // First tell the server what to do if we disappear, then say we're here
+                Database.get().onDisconnect(myPresence).setValue(presenceValue(false));
+                Database.get().setValue(myPresence, presenceValue(true));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // Presence is only a hint - nothing to do
+            }
+        };
+        Database.get().listen(connectedRef(), connectedListener);
+    }
+
+    private void goOffline() {
+        if (connectedListener == null) {
+            return;
+        }
+        Database.get().stopListening(connectedRef(), connectedListener);
+        connectedListener = null;
+        DatabaseReference myPresence = presenceRef().child(username);
+        Database.get().setValue(myPresence, presenceValue(false));
+        Database.get().onDisconnect(myPresence).cancel();
+        username = "";
+    }
+
+    private static Map<String, Object> presenceValue(boolean online) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("online", online);
+        value.put("lastSeen", ServerValue.TIMESTAMP);
+        return value;
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        startedActivities++;
+
+        // Follow whoever is logged in now (they may have logged in, out, or changed username)
+        SharedPreferences prefs = appContext.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE);
+        String savedUsername = prefs.getString("username", "");
+        if (!savedUsername.equals(username)) {
+            goOffline();
+            if (!savedUsername.isEmpty()) {
+                goOnline(savedUsername);
+            }
+        }
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+        startedActivities--;
+        if (startedActivities == 0) {
+            goOffline();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        // Nothing to do - presence follows visible screens
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        // Nothing to save
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    // ---- Following the person on screen ----
+
+    /**
+     * Starts following one person's online and typing status in one chat.
+     * Call stop() on the result when the chat screen goes away.
+     *
+     * @param chatId The chat on screen
+     * @param peer The other person in that chat
+     * @param listener Told about every change (on the main thread)
+     * @return A handle to stop following
+     */
+    public PeerWatch watchPeer(String chatId, String peer, PeerListener listener) {
+        return new PeerWatch(presenceRef().child(peer), typingRef().child(chatId).child(peer), listener);
+    }
+
+    /**
+     * The two small listeners that follow one person on screen
+     */
+    public static class PeerWatch {
+        private final DatabaseReference peerPresence;
+        private final DatabaseReference peerTyping;
+        private final ValueEventListener presenceListener;
+        private final ValueEventListener typingListener;
+
+        PeerWatch(DatabaseReference peerPresence, DatabaseReference peerTyping, PeerListener listener) {
+            this.peerPresence = peerPresence;
+            this.peerTyping = peerTyping;
+
+            presenceListener = new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    Boolean online = snapshot.child("online").getValue(Boolean.class);
+                    Long lastSeen = snapshot.child("lastSeen").getValue(Long.class);
+                    listener.onPresenceChanged(online != null && online, lastSeen != null ? lastSeen : 0);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError databaseError) {
+                    // Presence is only a hint - nothing to do
+                }
+            };
+            typingListener = new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    Boolean typing = snapshot.getValue(Boolean.class);
+                    listener.onTypingChanged(typing != null && typing);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError databaseError) {
+                    // Typing is only a hint - nothing to do
+                }
+            };
+            Database.get().listen(peerPresence, presenceListener);
+            Database.get().listen(peerTyping, typingListener);
+        }
+
+        public void stop() {
+            Database.get().stopListening(peerPresence, presenceListener);
+            Database.get().stopListening(peerTyping, typingListener);
+        }
+    }
+
+    // ---- Saying that we are typing ----
+
+    /**
+     * Creates the typing reporter for one chat screen
+     *
+     * @param chatId The chat being typed in
+     * @param user The person typing (the logged in user)
+     */
+    public TypingReporter typingReporter(String chatId, String user) {
+        return new TypingReporter(typingRef().child(chatId).child(user));
+    }
+
+    /**
+     * Turns key presses in one chat into as few typing writes as possible.
+     * All methods must be called on the main thread.
+     */
+    public static class TypingReporter {
+        private final DatabaseReference myTyping;
+        private final TypingCoalescer coalescer = new TypingCoalescer();
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final Runnable check = this::check;
+
+        TypingReporter(DatabaseReference myTyping) {
+            this.myTyping = myTyping;
+        }
+
+        /**
+         * Call whenever the text in the message box changes
+         */
+        public void onTextChanged(boolean empty) {
+            long now = SystemClock.uptimeMillis();
+            apply(empty ? coalescer.onStop(now) : coalescer.onKeystroke(now));
+        }
+
+        /**
+         * Call when the message has been sent or the screen is left
+         */
+        public void stop() {
+            apply(coalescer.onStop(SystemClock.uptimeMillis()));
+        }
+
+        private void check() {
+            apply(coalescer.poll(SystemClock.uptimeMillis()));
+        }
+
+        private void apply(Boolean write) {
+            if (write != null) {
+                if (write) {
+                    // If we vanish while typing, the server removes the entry for us
+                    Database.get().onDisconnect(myTyping).removeValue();
+                    Database.get().setValue(myTyping, true);
+                } else {
+                    Database.get().removeValue(myTyping);
+                    Database.get().onDisconnect(myTyping).cancel();
+                }
+            }
+
+            // Come back when the coalescer next has something to decide
+            handler.removeCallbacks(check);
+            long now = SystemClock.uptimeMillis();
+            long next = coalescer.getNextCheckTime(now);
+            if (next != TypingCoalescer.NO_CHECK) {
+                handler.postAtTime(check, next);
+            }
+        }
+    }
+}
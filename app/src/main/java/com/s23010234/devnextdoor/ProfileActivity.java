@@ -22,7 +22,6 @@ import androidx.core.view.WindowInsetsCompat;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 /**
@@ -84,9 +83,9 @@ public class ProfileActivity extends AppCompatActivity {
         
         // Load and display the profile screen layout from the XML file
         setContentView(R.layout.activity_profile);
-        
-        // Apply the user's preferred theme (dark or light mode)
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot);
         
         // Handle system bars (like status bar and navigation bar) properly
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -97,7 +96,7 @@ public class ProfileActivity extends AppCompatActivity {
 
         // Initialize database connections and helper objects
         // These objects help us communicate with Firebase and handle chat functionality
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         firebaseHelper = new FirebaseHelper();
         chatManager = new ChatManager();
         
@@ -126,20 +125,6 @@ public class ProfileActivity extends AppCompatActivity {
         }
     }
     
-    /**
-     * onResume - Runs when the user returns to this screen
-     * 
-     * This method is called whenever the user comes back to the Profile screen
-     * after being on a different screen. It reapplies the theme in case the
-     * user changed it while they were away.
-     */
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply the current theme in case the user changed it in Settings
-        ThemeManager.applyTheme(this);
-    }
-
     /**
      * Initialize Views - Find and set up all the visual elements
      * 
@@ -210,7 +195,7 @@ public class ProfileActivity extends AppCompatActivity {
         usernameText.setText("@" + currentUsername);
 
         // Connect to Firebase and get this user's profile data
-        databaseReference.child(currentUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(currentUsername), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (dataSnapshot.exists()) {
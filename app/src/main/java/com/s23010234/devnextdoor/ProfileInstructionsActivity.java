@@ -15,11 +15,11 @@ public class ProfileInstructionsActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
-        // Apply the current theme before setting content view
-        ThemeManager.applyTheme(this);
-        
         setContentView(R.layout.activity_profile_instructions);
 
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.main);
+
         // Get username from intent
         username = getIntent().getStringExtra("username");
 
@@ -0,0 +1,78 @@
+package com.s23010234.devnextdoor;
+
+/**
+ * Profile Text Format - Checks how tech stack and "want to learn" lists are typed
+ *
+ * Profiles keep these lists as one piece of text with commas between the
+ * items ("Java, Kotlin, Spring Boot"). EditProfileActivity uses this class
+ * to catch lists typed without commas ("Java Kotlin Python"). It is plain
+ * Java (no Android), so it can be unit tested and benchmarked on a computer.
+ */
+public class ProfileTextFormat {
+
+    private ProfileTextFormat() {
+        // Only static helpers
+    }
+
+    /**
+     * Validates if the input text follows proper comma-separated format
+     * Checks for multiple words without commas and suggests comma separation
+     * @param text Input text to validate
+     * @return true if format is valid, false if needs comma separation
+     */
+    public static boolean isValidCommaSeparatedFormat(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return true; // Empty text is handled by other validation
+        }
+        
+        String trimmedText = text.trim();
+        
+        // If text contains commas, it's likely properly formatted
+        if (trimmedText.contains(",")) {
+            return true;
+        }
+        
+        // Split by whitespace to count words
+        String[] words = trimmedText.split("\\s+");
+        
+        // If more than 2 words without commas, suggest comma separation
+        // Allow single words or two-word phrases (like "React Native")
+        if (words.length > 2) {
+            // Check if it might be a valid multi-word technology name
+            // Allow common patterns like "Spring Boot", "React Native", "Node.js", etc.
+            if (words.length <= 3 && containsCommonTechPatterns(trimmedText)) {
+                return true;
+            }
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Checks if the text contains common technology naming patterns
+     * that might be valid as single entries
+     */
+    private static boolean containsCommonTechPatterns(String text) {
+        String lowerText = text.toLowerCase();
+        
+        // Common technology patterns that are typically single entries
+        String[] commonPatterns = {
+            "spring boot", "react native", "node.js", "vue.js", "next.js",
+            "react js", "angular js", "express.js", "nest.js", "socket.io",
+            "material ui", "tailwind css", "styled components", "sass css",
+            "visual studio", "android studio", "intellij idea", "vs code",
+            "machine learning", "artificial intelligence", "data science",
+            "web development", "mobile development", "full stack",
+            "front end", "back end", "database management"
+        };
+        
+        for (String pattern : commonPatterns) {
+            if (lowerText.contains(pattern)) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+}
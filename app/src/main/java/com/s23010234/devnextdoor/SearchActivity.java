@@ -25,7 +25,6 @@ import com.google.android.material.chip.ChipGroup;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
@@ -64,19 +63,7 @@ public class SearchActivity extends ShakeBaseActivity {
     private List<User> filteredUsers;            // Users that match current search/filter
     private UserProfileCardAdapter adapter;      // Manages displaying user cards in the grid
 
-    /**
-     * Search Filter Types - Different ways to search for users
-     * 
-     * These represent the different filter options available to users.
-     * Each filter searches through different parts of user profiles.
-     */
-    private enum SearchFilter {
-        ALL,            // Search through all profile information
-        USERNAME,       // Search only usernames
-        TECH_STACK,     // Search only programming languages/skills
-        WANT_TO_LEARN   // Search only what users want to learn
-    }
-    private SearchFilter currentFilter = SearchFilter.ALL;  // Currently selected filter
+    private UserSearchMatcher.Filter currentFilter = UserSearchMatcher.Filter.ALL;  // Currently selected filter
 
     /**
      * onCreate - Sets up the Search screen when it's first created
@@ -97,9 +84,9 @@ public class SearchActivity extends ShakeBaseActivity {
         
         // Load and display the search screen layout from the XML file
         setContentView(R.layout.activity_search);
-        
-        // Apply the user's chosen theme (Dark mode, Light mode, etc.)
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot, R.id.main);
         
         // Handle system bars (status bar, navigation bar) properly
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -109,7 +96,7 @@ public class SearchActivity extends ShakeBaseActivity {
         });
         
         // Connect to Firebase database and get the current user's information
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         SharedPreferences sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
         currentUsername = sharedPreferences.getString("username", "");
 
@@ -127,20 +114,6 @@ public class SearchActivity extends ShakeBaseActivity {
         loadAllUsers();
     }
     
-    /**
-     * onResume - Runs when the user returns to this screen
-     * 
-     * This method is called whenever the user comes back to the Search screen
-     * after being on a different screen. It reapplies the theme in case the
-     * user changed it while they were away.
-     */
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply the current theme in case the user changed it in Settings
-        ThemeManager.applyTheme(this);
-    }
-    
     /**
      * Initialize Views - Find and set up all the visual elements
      * 
@@ -230,18 +203,18 @@ public class SearchActivity extends ShakeBaseActivity {
                 if (checkedIds.isEmpty()) {
                     // If no filter is selected, default to "All"
                     chipAll.setChecked(true);
-                    currentFilter = SearchFilter.ALL;
+                    currentFilter = UserSearchMatcher.Filter.ALL;
                 } else {
                     // Figure out which filter was selected and update accordingly
                     int checkedId = checkedIds.get(0);
                     if (checkedId == R.id.chipAll) {
-                        currentFilter = SearchFilter.ALL;
+                        currentFilter = UserSearchMatcher.Filter.ALL;
                     } else if (checkedId == R.id.chipUsername) {
-                        currentFilter = SearchFilter.USERNAME;
+                        currentFilter = UserSearchMatcher.Filter.USERNAME;
                     } else if (checkedId == R.id.chipTechStack) {
-                        currentFilter = SearchFilter.TECH_STACK;
+                        currentFilter = UserSearchMatcher.Filter.TECH_STACK;
                     } else if (checkedId == R.id.chipWantToLearn) {
-                        currentFilter = SearchFilter.WANT_TO_LEARN;
+                        currentFilter = UserSearchMatcher.Filter.WANT_TO_LEARN;
                     }
                 }
                 
@@ -259,7 +232,7 @@ public class SearchActivity extends ShakeBaseActivity {
     private void loadAllUsers() {
         showLoading();
         
-        databaseReference.addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference, new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 allUsers.clear();
@@ -333,30 +306,8 @@ public class SearchActivity extends ShakeBaseActivity {
             return;
         }
         
-        String lowercaseQuery = query.toLowerCase();
-        
-        for (User user : allUsers) {
-            boolean matches = false;
-            
-            switch (currentFilter) {
-                case ALL:
-                    matches = matchesAnyField(user, lowercaseQuery);
-                    break;
-                case USERNAME:
-                    matches = matchesUsername(user, lowercaseQuery);
-                    break;
-                case TECH_STACK:
-                    matches = matchesTechStack(user, lowercaseQuery);
-                    break;
-                case WANT_TO_LEARN:
-                    matches = matchesWantToLearn(user, lowercaseQuery);
-                    break;
-            }
-            
-            if (matches) {
-                filteredUsers.add(user);
-            }
-        }
+        // Find the users that match (see UserSearchMatcher)
+        filteredUsers.addAll(UserSearchMatcher.filter(allUsers, query, currentFilter));
         
         // Update UI based on results
         if (filteredUsers.isEmpty()) {
@@ -369,39 +320,6 @@ public class SearchActivity extends ShakeBaseActivity {
         adapter.updateUserList(filteredUsers);
     }
 
-    /**
-     * Check if user matches query in any searchable field
-     */
-    private boolean matchesAnyField(User user, String query) {
-        return matchesUsername(user, query) ||
-               matchesTechStack(user, query) ||
-               matchesWantToLearn(user, query);
-    }
-
-    /**
-     * Check if user's username matches query
-     */
-    private boolean matchesUsername(User user, String query) {
-        return user.getUsername() != null && 
-               user.getUsername().toLowerCase().contains(query);
-    }
-
-    /**
-     * Check if user's tech stack matches query
-     */
-    private boolean matchesTechStack(User user, String query) {
-        return user.getTechStack() != null && 
-               user.getTechStack().toLowerCase().contains(query);
-    }
-
-    /**
-     * Check if user's want to learn matches query
-     */
-    private boolean matchesWantToLearn(User user, String query) {
-        return user.getWantToLearn() != null && 
-               user.getWantToLearn().toLowerCase().contains(query);
-    }
-
     /**
      * Show loading state
      */
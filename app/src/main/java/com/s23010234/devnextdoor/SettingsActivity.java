@@ -46,6 +46,9 @@ public class SettingsActivity extends AppCompatActivity {
         try {
             setContentView(R.layout.activity_settings);
 
+            // Load the main background picture in the background instead of while the screen opens
+            BackgroundLoader.loadMainBackground(this, R.id.screenRoot);
+
             // Initialize SharedPreferences and FirebaseHelper
             sharedPreferences = getSharedPreferences("DevNextDoorPrefs", MODE_PRIVATE);
             firebaseHelper = new FirebaseHelper();
@@ -53,9 +56,6 @@ public class SettingsActivity extends AppCompatActivity {
             // Get current username from SharedPreferences
             currentUsername = sharedPreferences.getString("username", "");
 
-            // Apply current theme
-            ThemeManager.applyTheme(this);
-            
             // Initialize views and listeners
             setupBackButton();
             setupDarkModeToggle();
@@ -163,8 +163,8 @@ public class SettingsActivity extends AppCompatActivity {
                         // Save the preference locally
                         ThemeManager.saveDarkModePreference(SettingsActivity.this, isDarkMode);
                         
-                        // Apply theme without recreation
-                        ThemeManager.applyThemeToActivity(SettingsActivity.this, isDarkMode);
+                        // Switch modes only if the saved preference differs from the current one
+                        ThemeManager.applyNightMode(isDarkMode);
                     }
 
                     @Override
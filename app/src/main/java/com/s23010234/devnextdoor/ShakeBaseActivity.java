@@ -2,8 +2,6 @@ package com.s23010234.devnextdoor;
 
 import android.content.Context;
 import android.content.Intent;
-import android.hardware.Sensor;
-import android.hardware.SensorManager;
 import android.os.Vibrator;
 import android.widget.Toast;
 
@@ -29,65 +27,53 @@ import androidx.appcompat.app.AppCompatActivity;
  * 
  * Activities that extend this class just need to call
  * initializeShakeDetection() in their onCreate method.
+ * The accelerometer is not registered here - one shared registration
+ * for the whole app is kept by ShakeService.
  */
 public abstract class ShakeBaseActivity extends AppCompatActivity implements ShakeDetector.OnShakeListener {
     
-    // Objects needed for detecting phone shakes
-    private SensorManager sensorManager;    // Manages access to device sensors
-    private Sensor accelerometer;           // The motion sensor that detects movement
-    private ShakeDetector shakeDetector;    // Our custom shake detection logic
+    // Whether this screen asked for shake detection in onCreate
+    private boolean shakeDetectionInitialized = false;
     private boolean shakeDetectionEnabled = true;  // Whether shake detection is currently active
 
     /**
      * Initialize Shake Detection - Sets up the shake detection system
      * 
      * This method should be called by activities that want to enable
-     * shake detection. It sets up the sensors and shake detector.
+     * shake detection. The sensor itself is shared by the whole app
+     * (see ShakeService), which switches it on while this screen is visible
+     * and sends the shakes to this screen while it is in the foreground.
      */
     protected void initializeShakeDetection() {
-        // Get access to the device's sensor system
-        sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
-        if (sensorManager != null) {
-            // Get the accelerometer sensor (detects device movement)
-            accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-            if (accelerometer != null) {
-                // Create our shake detector and set this activity as the listener
-                shakeDetector = new ShakeDetector();
-                shakeDetector.setOnShakeListener(this);
-            }
-        }
+        shakeDetectionInitialized = true;
+        notifyShakeService();
     }
 
     /**
-     * Enable Shake Detection - Starts listening for shake gestures
+     * Turns shake detection on or off for this screen while it stays open.
      * 
-     * This activates the shake detection by registering our detector
-     * with the sensor manager to receive accelerometer updates.
+     * @param enabled True to receive shakes, false to ignore them
      */
-    protected void enableShakeDetection() {
-        if (sensorManager != null && accelerometer != null && shakeDetector != null && shakeDetectionEnabled) {
-            sensorManager.registerListener(shakeDetector, accelerometer, SensorManager.SENSOR_DELAY_UI);
-        }
+    protected void setShakeDetectionEnabled(boolean enabled) {
+        this.shakeDetectionEnabled = enabled;
+        notifyShakeService();
     }
 
     /**
-     * Disable Shake Detection - Stops listening for shake gestures
-     * 
-     * This deactivates shake detection to save battery and prevent
-     * unwanted shake events when the activity is not active.
+     * Checks whether this screen currently wants to receive shake events.
+     * Used by ShakeService to decide whether to count this screen.
      */
-    protected void disableShakeDetection() {
-        if (sensorManager != null && shakeDetector != null) {
-            sensorManager.unregisterListener(shakeDetector);
-        }
+    boolean isShakeDetectionActive() {
+        return shakeDetectionInitialized && shakeDetectionEnabled;
     }
 
-    protected void setShakeDetectionEnabled(boolean enabled) {
-        this.shakeDetectionEnabled = enabled;
-        if (!enabled) {
-            disableShakeDetection();
-        } else {
-            enableShakeDetection();
+    /**
+     * Lets the shared shake service know that this screen's setting changed
+     */
+    private void notifyShakeService() {
+        ShakeService shakeService = ShakeService.getInstance();
+        if (shakeService != null) {
+            shakeService.onShakeInterestChanged(this);
         }
     }
 
@@ -116,22 +102,4 @@ public abstract class ShakeBaseActivity extends AppCompatActivity implements Sha
             }
         }
     }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        enableShakeDetection();
-    }
-
-    @Override
-    protected void onPause() {
-        super.onPause();
-        disableShakeDetection();
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        disableShakeDetection();
-    }
 }
@@ -1,10 +1,8 @@
 package com.s23010234.devnextdoor;
 
-import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
 
 /**
  * Shake Detector - Detects when the user shakes their phone
@@ -15,23 +13,22 @@ import android.hardware.SensorManager;
  * 
  * The shake detection works by:
  * 1. Continuously monitoring the phone's movement in 3D space (X, Y, Z axes)
- * 2. Calculating the total force being applied to the device
+ * 2. Removing gravity and calculating the force of the user's movement
  * 3. Triggering a "shake detected" event when the force exceeds a threshold
  * 
+ * The calculations are done by ShakeKernel, which has no Android code
+ * so it can be tested on its own.
+ * 
  * This is commonly used for features like "shake to refresh" or
  * "shake to open settings" that many apps have.
  */
 public class ShakeDetector implements SensorEventListener {
     
-    // Sensitivity settings for shake detection
-    private static final float SHAKE_THRESHOLD_GRAVITY = 2.7F;        // How hard you need to shake
-    private static final int SHAKE_SLOP_TIME_MS = 500;                // Minimum time between shakes (milliseconds)
-    private static final int SHAKE_COUNT_RESET_TIME_MS = 3000;        // Reset shake count after this time
-    
-    // Variables to track shake state
-    private OnShakeListener shakeListener;    // Object that gets notified when shake happens
-    private long shakeTimestamp;              // When the last shake occurred
-    private int shakeCount;                   // How many times user has shaken recently
+    // The allocation-free detection math (gravity filtering, thresholds, timing)
+    private final ShakeKernel kernel = new ShakeKernel();
+
+    // Object that gets notified when shake happens
+    private OnShakeListener shakeListener;
 
     /**
      * Interface for Shake Events
@@ -78,9 +75,10 @@ public class ShakeDetector implements SensorEventListener {
      * onSensorChanged - The main shake detection logic
      * 
      * This method runs every time the accelerometer reports new movement data.
-     * It analyzes the movement to determine if it qualifies as a "shake".
-     * Think of this like a security guard who watches for suspicious movement
-     * and sounds an alarm when they detect something unusual.
+     * The actual math lives in ShakeKernel: it removes gravity from the reading
+     * and checks whether what is left is strong enough to be a "shake".
+     * When sensor samples arrive in a batch, this runs once per sample in the
+     * batch, and each sample is judged by the time it was actually measured.
      * 
      * @param event Contains the latest movement data from the accelerometer
      */
@@ -88,46 +86,22 @@ public class ShakeDetector implements SensorEventListener {
     public void onSensorChanged(SensorEvent event) {
         // Only process shake detection if someone is listening for shakes
         if (shakeListener != null) {
-            // Get the raw movement values from the accelerometer
-            // These represent how much the phone moved in each direction
-            float x = event.values[0];  // Left/right movement
-            float y = event.values[1];  // Forward/backward movement
-            float z = event.values[2];  // Up/down movement
-
-            // Convert raw values to gravity units (g-force)
-            // 1g = normal gravity when phone is sitting still
-            // Higher values = more violent movement
-            float gX = x / SensorManager.GRAVITY_EARTH;
-            float gY = y / SensorManager.GRAVITY_EARTH;
-            float gZ = z / SensorManager.GRAVITY_EARTH;
-
-            // Calculate total movement force using 3D math
-            // This combines all three directions into one number
-            float gForce = (float) Math.sqrt(gX * gX + gY * gY + gZ * gZ);
-
-            // Check if the movement is strong enough to be considered a "shake"
-            if (gForce > SHAKE_THRESHOLD_GRAVITY) {
-                final long now = System.currentTimeMillis();
-                
-                // Ignore shakes that happen too quickly after each other
-                // This prevents one physical shake from being counted multiple times
-                if (shakeTimestamp + SHAKE_SLOP_TIME_MS > now) {
-                    return;
-                }
-
-                // Reset the shake count if it's been a while since the last shake
-                // This prevents old shakes from being counted with new ones
-                if (shakeTimestamp + SHAKE_COUNT_RESET_TIME_MS < now) {
-                    shakeCount = 0;
-                }
+            int count = kernel.onSample(event.timestamp, event.values[0], event.values[1], event.values[2]);
 
-                // Record this shake and increment the count
-                shakeTimestamp = now;
-                shakeCount++;
-
-                // Notify whoever is listening that a shake occurred
-                shakeListener.onShake(shakeCount);
+            // Notify whoever is listening that a shake occurred
+            if (count > 0) {
+                shakeListener.onShake(count);
             }
         }
     }
+
+    /**
+     * Reset - Forgets the gravity estimate and the shake count
+     * 
+     * Called when the sensor is switched back on, so readings from a
+     * previous session don't affect the new one.
+     */
+    public void reset() {
+        kernel.reset();
+    }
 }
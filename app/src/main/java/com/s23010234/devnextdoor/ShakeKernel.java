@@ -0,0 +1,127 @@
+package com.s23010234.devnextdoor;
+
+/**
+ * Shake Kernel - The math behind shake detection, with no Android code in it
+ *
+ * ShakeDetector feeds every accelerometer sample into this class and only
+ * hears back when a shake happened. Keeping the math in plain Java means it
+ * can be tested on a normal computer by replaying recorded sensor traces
+ * (see ShakeKernelTraceReplayTest).
+ *
+ * How a sample is checked:
+ * 1. Gravity is tracked with a slow-moving average of the raw readings
+ *    (a low-pass filter). Subtracting it leaves only the movement caused
+ *    by the user (a high-pass filter), so tilting or turning the phone
+ *    no longer looks like a shake.
+ * 2. The strength of that movement is compared as a squared length
+ *    against a squared threshold, so no square root or division is needed.
+ * 3. Shakes that come too close together are ignored, and the count
+ *    resets after a quiet period - the same rules ShakeDetector always used.
+ *
+ * The class keeps all its state in a few number fields, so processing a
+ * sample never creates new objects.
+ */
+public class ShakeKernel {
+
+    // Standard gravity in m/s^2 (same value as SensorManager.GRAVITY_EARTH)
+    static final float GRAVITY_EARTH = 9.80665f;
+
+    // How hard you need to shake, in g. The old detector compared the total force,
+    // gravity included, against 2.7g - that is about 1.7g of movement on top of gravity
+    static final float SHAKE_THRESHOLD_GRAVITY = 1.7f;
+
+    // The same threshold in m/s^2, squared so it can be compared without a square root
+    private static final float SHAKE_THRESHOLD_SQUARED =
+            (SHAKE_THRESHOLD_GRAVITY * GRAVITY_EARTH) * (SHAKE_THRESHOLD_GRAVITY * GRAVITY_EARTH);
+
+    // How much of the old gravity estimate is kept with each sample (closer to 1 = slower)
+    static final float GRAVITY_FILTER_ALPHA = 0.8f;
+
+    // Number of samples used to settle the gravity estimate before shakes are reported
+    private static final int WARM_UP_SAMPLES = 5;
+
+    static final long SHAKE_SLOP_TIME_NS = 500_000_000L;          // Minimum time between shakes (500 ms)
+    static final long SHAKE_COUNT_RESET_TIME_NS = 3_000_000_000L; // Reset shake count after this time (3 s)
+
+    // Current gravity estimate for each axis
+    private float gravityX;
+    private float gravityY;
+    private float gravityZ;
+
+    // How many samples have been seen since the last reset (stops counting after warm-up)
+    private int samplesSeen;
+
+    // When the last shake occurred (sensor time in nanoseconds) and how many in a row
+    private long shakeTimestampNs;
+    private int shakeCount;
+    private boolean hasShaken;
+
+    /**
+     * Processes one accelerometer sample.
+     *
+     * @param timestampNs When the sample was taken (SensorEvent.timestamp, nanoseconds).
+     *                    The sensor's own time is used because batched samples arrive late.
+     * @param x Acceleration on the x axis in m/s^2
+     * @param y Acceleration on the y axis in m/s^2
+     * @param z Acceleration on the z axis in m/s^2
+     * @return The number of shakes in the current series if this sample completed
+     *         a new shake, or 0 if it did not
+     */
+    public int onSample(long timestampNs, float x, float y, float z) {
+        // Low-pass filter: the slow part of the signal is gravity
+        if (samplesSeen == 0) {
+            gravityX = x;
+            gravityY = y;
+            gravityZ = z;
+        } else {
+            gravityX = GRAVITY_FILTER_ALPHA * gravityX + (1 - GRAVITY_FILTER_ALPHA) * x;
+            gravityY = GRAVITY_FILTER_ALPHA * gravityY + (1 - GRAVITY_FILTER_ALPHA) * y;
+            gravityZ = GRAVITY_FILTER_ALPHA * gravityZ + (1 - GRAVITY_FILTER_ALPHA) * z;
+        }
+        if (samplesSeen < WARM_UP_SAMPLES) {
+            samplesSeen++;
+            return 0;
+        }
+
+        // High-pass filter: what is left after removing gravity is the user's movement
+        float linearX = x - gravityX;
+        float linearY = y - gravityY;
+        float linearZ = z - gravityZ;
+
+        // Compare squared lengths - same result as comparing lengths, without Math.sqrt
+        float forceSquared = linearX * linearX + linearY * linearY + linearZ * linearZ;
+        if (forceSquared <= SHAKE_THRESHOLD_SQUARED) {
+            return 0;
+        }
+
+        // Ignore shakes that happen too quickly after each other
+        // This prevents one physical shake from being counted multiple times
+        if (hasShaken && timestampNs - shakeTimestampNs < SHAKE_SLOP_TIME_NS) {
+            return 0;
+        }
+
+        // Reset the shake count if it's been a while since the last shake
+        if (!hasShaken || timestampNs - shakeTimestampNs > SHAKE_COUNT_RESET_TIME_NS) {
+            shakeCount = 0;
+        }
+
+        shakeTimestampNs = timestampNs;
+        hasShaken = true;
+        shakeCount++;
+        return shakeCount;
+    }
+
+    /**
+     * Forgets everything, for example when the sensor is switched off and
+     * back on later, so an old gravity estimate or shake count is not reused.
+     */
+    public void reset() {
+        gravityX = 0;
+        gravityY = 0;
+        gravityZ = 0;
+        samplesSeen = 0;
+        shakeTimestampNs = 0;
+        shakeCount = 0;
+        hasShaken = false;
+    }
+}
@@ -0,0 +1,195 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.os.Bundle;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Shake Service - One shared shake sensor for the whole app
+ *
+ * Before this class, every screen made its own ShakeDetector and turned the
+ * accelerometer on and off in its own onResume and onPause. Moving from one
+ * screen to the next switched the sensor off and straight back on again.
+ *
+ * Now the app has exactly one detector and one sensor registration:
+ * - Each visible screen that wants shakes is counted (a "reference count")
+ * - The sensor is switched on when the count goes from 0 to 1
+ * - The sensor is switched off when the count drops back to 0,
+ *   which happens as soon as the app goes to the background
+ * - A shake is handed to the screen the user is currently looking at
+ *
+ * The counting is driven by Android's activity lifecycle callbacks, so the
+ * screens themselves don't need to register or unregister anything.
+ * The next screen is started before the previous one is stopped, so the
+ * count never touches zero while the user moves between screens.
+ */
+public class ShakeService implements Application.ActivityLifecycleCallbacks, ShakeDetector.OnShakeListener {
+
+    // Sensor samples may be held back and delivered together for up to this long.
+    // This lets the processor sleep between batches instead of waking for every sample.
+    // Sensors without a hardware buffer ignore it and deliver samples one by one.
+    private static final int MAX_REPORT_LATENCY_US = 200_000;
+
+    // The single shared instance, created when the app starts
+    private static ShakeService instance;
+
+    // Objects needed for detecting phone shakes
+    private final SensorManager sensorManager;    // Manages access to device sensors
+    private final Sensor accelerometer;           // The motion sensor that detects movement
+    private final ShakeDetector shakeDetector;    // The one shake detector shared by all screens
+
+    // Visible screens that currently want shake events (their number is the reference count)
+    private final Set<Activity> interestedActivities = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // The screen in the foreground right now - shakes are delivered only to this screen
+    private Activity topActivity;
+
+    // Whether our detector is currently registered with the sensor
+    private boolean sensorRegistered = false;
+
+    private ShakeService(Context context) {
+        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        accelerometer = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER) : null;
+        shakeDetector = new ShakeDetector();
+        shakeDetector.setOnShakeListener(this);
+    }
+
+    /**
+     * Sets up the shared shake service and starts following the app's screens.
+     * This is called once from the Application class when the app starts.
+     *
+     * @param application The running app
+     */
+    public static void install(Application application) {
+        if (instance != null) {
+            return;
+        }
+        instance = new ShakeService(application);
+        application.registerActivityLifecycleCallbacks(instance);
+    }
+
+    /**
+     * Gets the shared shake service (null before install is called)
+     */
+    public static ShakeService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Tells the service that a screen turned shake detection on or off
+     * while it is visible (for example through setShakeDetectionEnabled).
+     *
+     * @param activity The screen whose setting changed
+     */
+    public void onShakeInterestChanged(Activity activity) {
+        if (wantsShakes(activity) && isVisible(activity)) {
+            interestedActivities.add(activity);
+        } else {
+            interestedActivities.remove(activity);
+        }
+        updateSensorRegistration();
+    }
+
+    /**
+     * Called by the shared detector when a shake is detected.
+     * The shake is passed on to the screen the user is looking at, if it wants shakes.
+     */
+    @Override
+    public void onShake(int count) {
+        if (topActivity != null && interestedActivities.contains(topActivity)
+                && topActivity instanceof ShakeDetector.OnShakeListener) {
+            ((ShakeDetector.OnShakeListener) topActivity).onShake(count);
+        }
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        // A screen became visible - count it if it wants shakes
+        if (wantsShakes(activity)) {
+            interestedActivities.add(activity);
+            updateSensorRegistration();
+        }
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        // This screen is now the one the user is looking at
+        topActivity = activity;
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        if (topActivity == activity) {
+            topActivity = null;
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        // A screen is no longer visible - stop counting it
+        if (interestedActivities.remove(activity)) {
+            updateSensorRegistration();
+        }
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        if (interestedActivities.remove(activity)) {
+            updateSensorRegistration();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        // Nothing to do - screens are counted once they become visible
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        // Nothing to save
+    }
+
+    /**
+     * Switches the sensor on when at least one visible screen wants shakes,
+     * and off when none do. Does nothing if it is already in the right state.
+     */
+    private void updateSensorRegistration() {
+        if (sensorManager == null || accelerometer == null) {
+            return;
+        }
+        boolean shouldBeRegistered = !interestedActivities.isEmpty();
+        if (shouldBeRegistered && !sensorRegistered) {
+            shakeDetector.reset();
+            sensorRegistered = sensorManager.registerListener(shakeDetector, accelerometer,
+                    SensorManager.SENSOR_DELAY_UI, MAX_REPORT_LATENCY_US);
+        } else if (!shouldBeRegistered && sensorRegistered) {
+            sensorManager.unregisterListener(shakeDetector);
+            sensorRegistered = false;
+        }
+    }
+
+    /**
+     * Checks whether a screen supports shakes and currently has them turned on
+     */
+    private static boolean wantsShakes(Activity activity) {
+        return activity instanceof ShakeBaseActivity && ((ShakeBaseActivity) activity).isShakeDetectionActive();
+    }
+
+    /**
+     * Checks whether a screen is currently visible (between onStart and onStop)
+     */
+    private static boolean isVisible(Activity activity) {
+        return activity instanceof LifecycleOwner
+                && ((LifecycleOwner) activity).getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+    }
+}
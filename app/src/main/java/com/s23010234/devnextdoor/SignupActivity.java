@@ -16,7 +16,6 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.HashMap;
@@ -63,6 +62,9 @@ public class SignupActivity extends AppCompatActivity {
         // Load and display the signup screen layout from the XML file
         setContentView(R.layout.activity_signup);
 
+        // Load the big background picture in the background instead of while the screen opens
+        BackgroundLoader.load(findViewById(R.id.main), R.drawable.login_signup_bg, R.color.login_signup_bg_placeholder);
+
         // Handle system bars (like status bar and navigation bar) properly
         // This makes sure the app content doesn't get hidden behind system elements
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -79,7 +81,7 @@ public class SignupActivity extends AppCompatActivity {
         loginButton = findViewById(R.id.loginButton);
 
         // Set up connection to Firebase database where user accounts are stored
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
 
         // Set up what happens when the signup button is pressed
         signupButton.setOnClickListener(v -> handleSignup());
@@ -157,7 +159,7 @@ public class SignupActivity extends AppCompatActivity {
      */
     private void checkUsernameAvailability(String username, String password) {
         // Look up this username in the database
-        databaseReference.child(username).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(username), new ValueEventListener() {
             /**
              * This method runs when we get a response from the database.
              * It tells us if the username is available or already taken.
@@ -216,6 +218,9 @@ public class SignupActivity extends AppCompatActivity {
                     
                     // Close this signup screen
                     finish();
+                    
+                    // New users start in light mode, even if the last user on this device used dark mode
+                    ThemeManager.applyNightMode(false);
                 } else {
                     // Show error message if account creation failed
                     Toast.makeText(SignupActivity.this, "Failed to create account", Toast.LENGTH_SHORT).show();
@@ -0,0 +1,252 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.gms.maps.MapsInitializer;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Startup Pipeline - Gets the app ready while the first screens are showing
+ *
+ * A returning user goes through Welcome, Get Started and Login before the
+ * homepage asks for anything. That's several seconds in which the app
+ * could already be downloading. This class uses that time, in stages:
+ *
+ * 1. Session: reads who was logged in last (a small file, so not on the main thread)
+ * 2. Firebase: creates the database connection (also not on the main thread)
+ * 3. Warm up: if someone was logged in, starts following what their first
+ *    screens will ask for - their profile, the homepage's list of users and
+ *    the Chats screen's list of chats. Firebase keeps data it is following
+ *    in memory, so when a screen then reads the same thing it is answered
+ *    straight away instead of going to the server.
+ * 4. Maps: loads Google Maps once the first screen is up and the main
+ *    thread has nothing else to do, so the Meet Friends map opens faster
+ *
+ * Warmed data is only followed until the screen that wants it has opened
+ * (it then holds its own read), or for KEEP_WARM_MILLIS at most if that
+ * screen never opens.
+ *
+ * Each stage's time since the app started is recorded as a "startup.*"
+ * metric, shown on the Performance screen (when metrics are switched on).
+ */
+public class StartupPipeline implements Application.ActivityLifecycleCallbacks {
+
+    // How long warmed data is followed if the screen that wants it never opens
+    static final long KEEP_WARM_MILLIS = 60_000;
+
+    // Time from the app starting until each stage is done
+    private static final Metrics.Histogram SESSION_TIME = Metrics.histogram("startup.session");
+    private static final Metrics.Histogram FIREBASE_TIME = Metrics.histogram("startup.firebase");
+    private static final Metrics.Histogram FIRST_SCREEN_TIME = Metrics.histogram("startup.first_screen");
+    private static final Metrics.Histogram PROFILE_TIME = Metrics.histogram("startup.warm.profile");
+    private static final Metrics.Histogram HOMEPAGE_TIME = Metrics.histogram("startup.warm.homepage");
+    private static final Metrics.Histogram CHATS_TIME = Metrics.histogram("startup.warm.chats");
+    private static final Metrics.Histogram MAPS_TIME = Metrics.histogram("startup.maps");
+
+    // The single shared instance, created when the app starts
+    private static StartupPipeline instance;
+
+    private final Context appContext;
+    private final Executor background;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // When the app started (0 when metrics are off)
+    private final long start;
+
+    // Queries being followed until the screen that wants them opens
+    private final List<WarmQuery> warmQueries = new ArrayList<>();
+
+    private boolean firstScreenShown = false;
+
+    // Set by start(); Maps is loaded once the first screen is up
+    private boolean mapsPending = false;
+
+    @VisibleForTesting
+    StartupPipeline(Context context, Executor background) {
+        this.appContext = context.getApplicationContext();
+        this.background = background;
+        this.start = Metrics.now();
+    }
+
+    /**
+     * Starts the pipeline and follows the app's screens.
+     * This is called once from the Application class when the app starts.
+     */
+    public static void install(Application application) {
+        if (instance != null) {
+            return;
+        }
+        instance = new StartupPipeline(application, runnable -> new Thread(runnable, "startup").start());
+        application.registerActivityLifecycleCallbacks(instance);
+        instance.start();
+    }
+
+    /**
+     * Gets the shared pipeline (null before install is called)
+     */
+    public static StartupPipeline getInstance() {
+        return instance;
+    }
+
+    /**
+     * Runs the session and Firebase stages in the background, then warms up on the main thread
+     */
+    @VisibleForTesting
+    void start() {
+        mapsPending = true;
+        background.execute(() -> {
+            SharedPreferences prefs = appContext.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE);
+            String username = prefs.getString("username", "");
+            SESSION_TIME.recordSince(start);
+
+            // Asking for a reference creates the database and starts connecting
+            Database.get().getReference();
+            FIREBASE_TIME.recordSince(start);
+
+            if (!username.isEmpty()) {
+                mainHandler.post(() -> warmUp(username));
+            }
+        });
+    }
+
+    /**
+     * Starts following what a returning user's first screens will read
+     */
+    @VisibleForTesting
+    void warmUp(String username) {
+        DatabaseGateway database = Database.get();
+        follow(database.getReference("users").child(username), HomepageActivity.class, PROFILE_TIME);
+        follow(database.getReference("users"), HomepageActivity.class, HOMEPAGE_TIME);
+        follow(ChatManager.chatIndexQuery(), ChatsActivity.class, CHATS_TIME);
+
+        // Stop following anything no screen has asked for after a while
+        mainHandler.postDelayed(() -> release(null), KEEP_WARM_MILLIS);
+    }
+
+    /**
+     * Loads Google Maps when the main thread is next idle
+     */
+    private void warmMapsWhenIdle() {
+        Looper.myQueue().addIdleHandler(() -> {
+            MapsInitializer.initialize(appContext, MapsInitializer.Renderer.LATEST,
+                    renderer -> MAPS_TIME.recordSince(start));
+            return false; // only once
+        });
+    }
+
+    // ---- Warm queries ----
+
+    /**
+     * A query followed on behalf of a screen that hasn't opened yet
+     */
+    private static class WarmQuery {
+        final Query query;
+        final Class<? extends Activity> screen;
+        final ValueEventListener listener;
+
+        WarmQuery(Query query, Class<? extends Activity> screen, ValueEventListener listener) {
+            this.query = query;
+            this.screen = screen;
+            this.listener = listener;
+        }
+    }
+
+    private void follow(Query query, Class<? extends Activity> screen, Metrics.Histogram readyTime) {
+        ValueEventListener listener = new ValueEventListener() {
+            private boolean first = true;
+
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (first) {
+                    first = false;
+                    readyTime.recordSince(start);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // Only a head start - the screen will read it again and show the error itself
+            }
+        };
+        warmQueries.add(new WarmQuery(query, screen, listener));
+        Database.get().listen(query, listener);
+    }
+
+    /**
+     * Stops following the queries kept for a screen (null for all of them)
+     */
+    private void release(Class<? extends Activity> screen) {
+        for (int i = warmQueries.size() - 1; i >= 0; i--) {
+            WarmQuery warm = warmQueries.get(i);
+            if (screen == null || warm.screen == screen) {
+                Database.get().stopListening(warm.query, warm.listener);
+                warmQueries.remove(i);
+            }
+        }
+    }
+
+    // ---- Following the screens ----
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+        if (!firstScreenShown) {
+            firstScreenShown = true;
+            FIRST_SCREEN_TIME.recordSince(start);
+        }
+        if (mapsPending) {
+            mapsPending = false;
+            warmMapsWhenIdle();
+        }
+
+        // The screen has made its own read by now (in onCreate or onStart), so ours can go
+        if (!warmQueries.isEmpty()) {
+            release(activity.getClass());
+        }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        // Nothing to save
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        // Nothing to do
+    }
+}
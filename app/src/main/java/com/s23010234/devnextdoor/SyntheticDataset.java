@@ -0,0 +1,507 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic Dataset - Made-up users, chats and notifications at any scale, for load tests
+ *
+ * Fills a database with data shaped like the real app's, laid out exactly
+ * where the app keeps it:
+ *   users/{username}                    profiles (with favorites/{username}: true)
+ *   geo/{geohash}/{username}            the location index
+ *   chats/{chatId}                      last message and unread counts
+ *   messages/{chatId}/{month}/{id}      messages, filed by month (see MessageBuckets)
+ *   messageBuckets/{chatId}/{month}     how many messages each month holds
+ *   notifications/{username}/{id}       notifications, oldest key first
+ *   counters/{username}                 unread totals (see UnreadCounters)
+ *
+ * To look real rather than uniform:
+ * - A few technologies are very popular and most are rare (a "Zipf"
+ *   spread, where the 2nd most popular is half as common as the 1st,
+ *   the 3rd a third as common, and so on)
+ * - About a third of users live in Colombo, the rest are spread over the
+ *   other cities, each placed up to a few km from the city centre
+ * - Popular people collect more favorites than others
+ * - Most chats are between people in the same city, and hold a varying
+ *   number of messages spread over several months
+ *
+ * The same seed always makes exactly the same data, so runs can be compared.
+ *
+ * Data is handed over in batches of multi-path updates, so a million
+ * messages never have to be held in memory at once:
+ *
+ *   SyntheticDataset dataset = new SyntheticDataset(SyntheticDataset.Scale.SMALL, gazetteer, 42, now);
+ *   dataset.writeTo(updates -> database.update("", updates));
+ */
+public class SyntheticDataset {
+
+    /**
+     * Where the data is written: each call is one multi-path update, with
+     * paths from the top of the database (e.g. "users/alice/city")
+     */
+    public interface Sink {
+        void write(Map<String, Object> updates) throws Exception;
+    }
+
+    /**
+     * How much data to make
+     */
+    public static final class Scale {
+        public static final Scale SMALL = new Scale(500, 8, 2, 40, 10, 3);
+        public static final Scale MEDIUM = new Scale(10_000, 10, 3, 60, 20, 6);
+        public static final Scale LARGE = new Scale(100_000, 15, 4, 100, 30, 12);
+
+        public final int users;
+        public final int favoritesPerUser;
+        public final int chatsStartedPerUser;
+        public final int messagesPerChat;         // on average; some chats have many more, some very few
+        public final int notificationsPerUser;
+        public final int monthsOfHistory;
+
+        public Scale(int users, int favoritesPerUser, int chatsStartedPerUser, int messagesPerChat,
+                     int notificationsPerUser, int monthsOfHistory) {
+            this.users = users;
+            this.favoritesPerUser = favoritesPerUser;
+            this.chatsStartedPerUser = chatsStartedPerUser;
+            this.messagesPerChat = messagesPerChat;
+            this.notificationsPerUser = notificationsPerUser;
+            this.monthsOfHistory = monthsOfHistory;
+        }
+
+        /**
+         * The same scale with a different number of users
+         */
+        public Scale withUsers(int users) {
+            return new Scale(users, favoritesPerUser, chatsStartedPerUser, messagesPerChat,
+                    notificationsPerUser, monthsOfHistory);
+        }
+    }
+
+    // Every made-up user can log in with this password
+    public static final String PASSWORD = "loadtest";
+
+    // Most popular first (the order sets how common each one is)
+    static final String[] TECHNOLOGIES = {
+            "Java", "JavaScript", "Python", "React", "Android", "Kotlin", "Node.js", "Flutter",
+            "TypeScript", "Firebase", "MySQL", "Spring Boot", "Django", "PHP", "Laravel",
+            "React Native", "Machine Learning", "Docker", "C#", ".NET", "MongoDB", "AWS",
+            "Dart", "Swift", "Go", "PostgreSQL", "Data Science", "Vue.js", "Angular",
+            "Next.js", "Tailwind CSS", "Kubernetes", "GraphQL", "Rust"
+    };
+
+    // The same choices as the profile screen
+    private static final String[] LEVELS = {
+            "Grade 6-11", "After O/L", "After A/L",
+            "1st Year Undergraduate", "2nd Year Undergraduate",
+            "3rd Year Undergraduate", "Final Year Undergraduate",
+            "Graduate", "Master's Student",
+            "Intern (Undergraduate / Graduate)",
+            "Professional / Employed", "Other"
+    };
+    private static final String[] AVAILABILITY = { "Weekdays", "Weekends", "Weekdays, Weekends" };
+    private static final String[] TIMES_OF_DAY = { "Morning", "Day", "Evening", "Night" };
+
+    private static final String[] NAME_PARTS = {
+            "dev", "code", "byte", "stack", "pixel", "node", "lambda", "kasun", "nimal",
+            "sahan", "dilini", "tharushi", "ruwan", "isuru", "chamod", "anjali", "malith"
+    };
+
+    private static final String[] MESSAGE_STARTS = {
+            "Are you free this weekend to work on some ",
+            "I found a good course on ",
+            "Can you help me with a bug in my ",
+            "How long have you been using ",
+            "Let's pair on a small ",
+            "Thanks for the tips on "
+    };
+
+    // Firebase's push id alphabet, in sorting order
+    private static final String PUSH_CHARS = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    // Paths sent to the sink in one update
+    static final int BATCH_SIZE = 500;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Roughly 3 km, in degrees of latitude/longitude near the equator
+    private static final double MAX_OFFSET_DEGREES = 0.027;
+
+    private final Scale scale;
+    private final CityGazetteer cities;
+    private final long seed;
+    private final long now;
+
+    // Worked out up front, so sessions can pick people and chats before anything is written
+    private final String[] usernames;
+    private final int[] cityOf;
+    private final int[] chatFrom;
+    private final int[] chatTo;
+    private final double[] technologyWeights;
+
+    /**
+     * @param scale How much data to make
+     * @param cities The cities users can live in
+     * @param seed The same seed always makes the same data
+     * @param now The time of the newest message; everything else is older
+     */
+    public SyntheticDataset(Scale scale, CityGazetteer cities, long seed, long now) {
+        this.scale = scale;
+        this.cities = cities;
+        this.seed = seed;
+        this.now = now;
+        this.technologyWeights = zipfWeights(TECHNOLOGIES.length);
+
+        Random random = new Random(seed);
+        usernames = new String[scale.users];
+        cityOf = new int[scale.users];
+        int colombo = cities.indexOf("Colombo");
+        for (int i = 0; i < scale.users; i++) {
+            usernames[i] = NAME_PARTS[random.nextInt(NAME_PARTS.length)]
+                    + NAME_PARTS[random.nextInt(NAME_PARTS.length)] + i;
+            cityOf[i] = colombo != CityGazetteer.UNKNOWN && random.nextInt(3) == 0
+                    ? colombo : random.nextInt(cities.size());
+        }
+
+        // Who chats with whom: mostly neighbours, never the same pair twice
+        List<List<Integer>> usersByCity = new ArrayList<>();
+        for (int c = 0; c < cities.size(); c++) {
+            usersByCity.add(new ArrayList<>());
+        }
+        for (int i = 0; i < scale.users; i++) {
+            usersByCity.get(cityOf[i]).add(i);
+        }
+        Set<String> chatIds = new HashSet<>();
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; scale.users > 1 && i < scale.users; i++) {
+            for (int n = 0; n < scale.chatsStartedPerUser; n++) {
+                List<Integer> neighbours = usersByCity.get(cityOf[i]);
+                int other = neighbours.size() > 1 && random.nextInt(10) < 7
+                        ? neighbours.get(random.nextInt(neighbours.size()))
+                        : random.nextInt(scale.users);
+                if (other != i && chatIds.add(Chat.generateChatId(usernames[i], usernames[other]))) {
+                    pairs.add(new int[] { i, other });
+                }
+            }
+        }
+        chatFrom = new int[pairs.size()];
+        chatTo = new int[pairs.size()];
+        for (int c = 0; c < pairs.size(); c++) {
+            chatFrom[c] = pairs.get(c)[0];
+            chatTo[c] = pairs.get(c)[1];
+        }
+    }
+
+    // ---- What will be (or has been) written ----
+
+    public int getUserCount() {
+        return usernames.length;
+    }
+
+    public String getUsername(int user) {
+        return usernames[user];
+    }
+
+    public String getCity(int user) {
+        return cities.getName(cityOf[user]);
+    }
+
+    public int getChatCount() {
+        return chatFrom.length;
+    }
+
+    public String getChatId(int chat) {
+        return Chat.generateChatId(usernames[chatFrom[chat]], usernames[chatTo[chat]]);
+    }
+
+    /**
+     * The person who started a chat
+     */
+    public String getChatStarter(int chat) {
+        return usernames[chatFrom[chat]];
+    }
+
+    /**
+     * The other person in a chat
+     */
+    public String getChatPartner(int chat) {
+        return usernames[chatTo[chat]];
+    }
+
+    /**
+     * A technology picked the way they are spread over profiles
+     * (popular ones more often), for search sessions
+     */
+    public String pickTechnology(Random random) {
+        return TECHNOLOGIES[pick(technologyWeights, random)];
+    }
+
+    // ---- Writing ----
+
+    /**
+     * Writes everything to the sink, in batches of up to BATCH_SIZE paths
+     *
+     * @return How many paths were written
+     * @throws Exception whatever the sink throws (writing stops there)
+     */
+    public long writeTo(Sink sink) throws Exception {
+        Batch batch = new Batch(sink);
+        long[] unreadChats = new long[usernames.length];
+        writeUsers(batch);
+        writeChats(batch, unreadChats);
+        writeNotificationsAndCounters(batch, unreadChats);
+        batch.flush();
+        return batch.written;
+    }
+
+    private void writeUsers(Batch batch) throws Exception {
+        Random random = new Random(seed + 1);
+
+        // Everyone favorited so far, once per favorite, so picking from it favours the popular
+        List<Integer> favorited = new ArrayList<>();
+
+        for (int i = 0; i < usernames.length; i++) {
+            String username = usernames[i];
+            int city = cityOf[i];
+            double latitude = cities.getLatitude(city) + (random.nextDouble() * 2 - 1) * MAX_OFFSET_DEGREES;
+            double longitude = cities.getLongitude(city) + (random.nextDouble() * 2 - 1) * MAX_OFFSET_DEGREES;
+            String geohash = GeoHash.encode(latitude, longitude, GeoIndexManager.STORED_PRECISION);
+            boolean male = random.nextBoolean();
+            String techStack = tags(random, 1 + random.nextInt(5), null);
+
+            Map<String, Object> user = new HashMap<>();
+            user.put("username", username);
+            user.put("password", PASSWORD);
+            user.put("isDarkMode", random.nextInt(4) == 0);
+            user.put("gender", male ? "Male" : "Female");
+            user.put("profilePicture", (male ? "male_" : "female_") + (1 + random.nextInt(6)) + ".png");
+            user.put("bio", "Into " + techStack + ". Happy to meet developers in " + cities.getName(city) + ".");
+            user.put("level", LEVELS[random.nextInt(LEVELS.length)]);
+            user.put("city", cities.getName(city));
+            user.put("availability", AVAILABILITY[random.nextInt(AVAILABILITY.length)]);
+            user.put("timeOfDay", TIMES_OF_DAY[random.nextInt(TIMES_OF_DAY.length)]);
+            user.put("techStack", techStack);
+            user.put("wantToLearn", tags(random, 1 + random.nextInt(6), techStack));
+            user.put("goals", "Build a project with " + pickTechnology(random));
+            user.put("profileCompleted", true);
+            user.put("timestamp", now - (long) (random.nextDouble() * scale.monthsOfHistory * 30 * DAY_MILLIS));
+            user.put("latitude", latitude);
+            user.put("longitude", longitude);
+            user.put("geohash", geohash);
+
+            Map<String, Object> favorites = new HashMap<>();
+            for (int n = 0; n < scale.favoritesPerUser && usernames.length > 1; n++) {
+                int other = !favorited.isEmpty() && random.nextBoolean()
+                        ? favorited.get(random.nextInt(favorited.size()))
+                        : random.nextInt(usernames.length);
+                if (other != i && favorites.put(usernames[other], true) == null) {
+                    favorited.add(other);
+                }
+            }
+            if (!favorites.isEmpty()) {
+                user.put("favorites", favorites);
+            }
+
+            batch.put("users/" + username, user);
+            batch.put("geo/" + geohash + "/" + username, true);
+        }
+    }
+
+    private void writeChats(Batch batch, long[] unreadChats) throws Exception {
+        Random random = new Random(seed + 2);
+        long history = scale.monthsOfHistory * 30 * DAY_MILLIS;
+
+        for (int c = 0; c < chatFrom.length; c++) {
+            String chatId = getChatId(c);
+            int[] people = { chatFrom[c], chatTo[c] };
+
+            // Anything from one message to about twice the average
+            int count = 1 + random.nextInt(Math.max(1, 2 * scale.messagesPerChat));
+            long[] times = new long[count];
+            long start = now - (long) (random.nextDouble() * history);
+            for (int m = 0; m < count; m++) {
+                times[m] = start + (long) (random.nextDouble() * (now - start));
+            }
+            Arrays.sort(times);
+
+            // Some chats end with a few messages the receiver hasn't read yet
+            int unread = random.nextInt(10) < 3 ? Math.min(count, 1 + random.nextInt(3)) : 0;
+            int lastSender = random.nextInt(2);
+
+            Map<String, Long> perMonth = new HashMap<>();
+            String lastContent = null;
+            for (int m = 0; m < count; m++) {
+                boolean inUnreadTail = m >= count - unread;
+                int sender = inUnreadTail ? lastSender : random.nextInt(2);
+                if (m == count - 1) {
+                    lastSender = sender;
+                }
+                String content = MESSAGE_STARTS[random.nextInt(MESSAGE_STARTS.length)]
+                        + pickTechnology(random).toLowerCase() + (random.nextBoolean() ? "?" : "!");
+                String messageId = pushId(times[m], random) + "_" + times[m];
+
+                Map<String, Object> message = new HashMap<>();
+                message.put("messageId", messageId);
+                message.put("chatId", chatId);
+                message.put("senderId", usernames[people[sender]]);
+                message.put("receiverId", usernames[people[1 - sender]]);
+                message.put("content", content);
+                message.put("timestamp", times[m]);
+                message.put("read", !inUnreadTail);
+                message.put("messageType", "text");
+                batch.put(MessageBuckets.messagePath(chatId, messageId, times[m]), message);
+
+                String bucket = MessageBuckets.bucketFor(times[m]);
+                Long inMonth = perMonth.get(bucket);
+                perMonth.put(bucket, inMonth == null ? 1 : inMonth + 1);
+                lastContent = content;
+            }
+            for (Map.Entry<String, Long> month : perMonth.entrySet()) {
+                batch.put(MessageBuckets.countPath(chatId, month.getKey()), month.getValue());
+            }
+
+            int receiver = people[1 - lastSender];
+            Map<String, Object> unreadCounts = new HashMap<>();
+            unreadCounts.put(usernames[people[0]], 0L);
+            unreadCounts.put(usernames[people[1]], 0L);
+            unreadCounts.put(usernames[receiver], (long) unread);
+            unreadChats[receiver] += unread;
+
+            Map<String, Object> chat = new HashMap<>();
+            chat.put("chatId", chatId);
+            chat.put("participant1", usernames[people[0]]);
+            chat.put("participant2", usernames[people[1]]);
+            chat.put("lastMessage", lastContent);
+            chat.put("lastMessageTimestamp", times[count - 1]);
+            chat.put("lastMessageSender", usernames[people[lastSender]]);
+            chat.put("unread", unreadCounts);
+            batch.put("chats/" + chatId, chat);
+        }
+    }
+
+    private void writeNotificationsAndCounters(Batch batch, long[] unreadChats) throws Exception {
+        Random random = new Random(seed + 3);
+        long history = scale.monthsOfHistory * 30 * DAY_MILLIS;
+
+        for (int i = 0; i < usernames.length; i++) {
+            String username = usernames[i];
+            long[] times = new long[scale.notificationsPerUser];
+            for (int n = 0; n < times.length; n++) {
+                times[n] = now - (long) (random.nextDouble() * history);
+            }
+            Arrays.sort(times);
+
+            // The newest few are usually still unread
+            int unread = times.length == 0 ? 0 : random.nextInt(Math.min(times.length, 5) + 1);
+            for (int n = 0; n < times.length; n++) {
+                String id = pushId(times[n], random);
+                Map<String, Object> notification = new HashMap<>();
+                notification.put("id", id);
+                if (n == 0) {
+                    notification.put("title", "Profile Completed!");
+                    notification.put("message", "Great! Your profile has been completed successfully.");
+                    notification.put("type", Notification.Types.PROFILE_CREATED);
+                } else {
+                    notification.put("title", "News from DevNextDoor");
+                    notification.put("message", "New developers near you are learning " + pickTechnology(random) + ".");
+                    notification.put("type", Notification.Types.GENERAL);
+                }
+                notification.put("timestamp", times[n]);
+                notification.put("read", n < times.length - unread);
+                batch.put("notifications/" + username + "/" + id, notification);
+            }
+
+            batch.put(UnreadCounters.path(username, UnreadCounters.UNREAD_NOTIFICATIONS), (long) unread);
+            batch.put(UnreadCounters.path(username, UnreadCounters.UNREAD_CHATS), unreadChats[i]);
+        }
+    }
+
+    // ---- Helpers ----
+
+    /**
+     * Collects paths and sends them to the sink BATCH_SIZE at a time
+     */
+    private static final class Batch {
+        private final Sink sink;
+        private Map<String, Object> updates = new HashMap<>();
+        private long written = 0;
+
+        Batch(Sink sink) {
+            this.sink = sink;
+        }
+
+        void put(String path, Object value) throws Exception {
+            updates.put(path, value);
+            if (updates.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws Exception {
+            if (!updates.isEmpty()) {
+                sink.write(updates);
+                written += updates.size();
+                updates = new HashMap<>();
+            }
+        }
+    }
+
+    /**
+     * A comma-separated list of different technologies, popular ones more often
+     *
+     * @param avoid Technologies not to pick (the user already knows them), or null
+     */
+    private String tags(Random random, int count, String avoid) {
+        Set<String> picked = new LinkedHashSet<>();
+        for (int attempt = 0; picked.size() < count && attempt < count * 10; attempt++) {
+            String technology = pickTechnology(random);
+            if (avoid == null || !avoid.contains(technology)) {
+                picked.add(technology);
+            }
+        }
+        return String.join(", ", picked);
+    }
+
+    /**
+     * Running totals of 1, 1/2, 1/3, ... so a random number below the last
+     * total lands on item 0 most often, item 1 half as often, and so on
+     */
+    static double[] zipfWeights(int count) {
+        double[] totals = new double[count];
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += 1.0 / (i + 1);
+            totals[i] = total;
+        }
+        return totals;
+    }
+
+    static int pick(double[] totals, Random random) {
+        double target = random.nextDouble() * totals[totals.length - 1];
+        int index = Arrays.binarySearch(totals, target);
+        return Math.min(totals.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * A key like the ones push() makes: 8 characters of time, then 12 random
+     * ones, so keys sort oldest first the same way real ones do
+     */
+    static String pushId(long timestamp, Random random) {
+        char[] id = new char[20];
+        for (int i = 7; i >= 0; i--) {
+            id[i] = PUSH_CHARS.charAt((int) (timestamp % 64));
+            timestamp /= 64;
+        }
+        for (int i = 8; i < 20; i++) {
+            id[i] = PUSH_CHARS.charAt(random.nextInt(64));
+        }
+        return new String(id);
+    }
+}
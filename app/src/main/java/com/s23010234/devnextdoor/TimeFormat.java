@@ -0,0 +1,82 @@
+package com.s23010234.devnextdoor;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Time Format - Turns message times into text for the chat screens
+ *
+ * ChatsAdapter shows how long ago the last message was sent ("2 hours
+ * ago"), and MessagesAdapter shows when each message was sent ("Today,
+ * 3:15 PM"). The current time is passed in, so this plain Java class can
+ * be unit tested and benchmarked on a computer.
+ */
+public class TimeFormat {
+
+    private TimeFormat() {
+        // Only static helpers
+    }
+
+    /**
+     * This method takes a raw timestamp (like 1234567890) and converts it
+     * into friendly text that users can understand (like "2 hours ago").
+     * It's like translating computer time into human time.
+     *
+     * @param timestamp The raw timestamp from when the message was sent
+     * @param now The current time
+     * @return A human-readable string showing when the message was sent
+     */
+    public static String timeAgo(long timestamp, long now) {
+        // If there's no valid timestamp, return empty string
+        if (timestamp <= 0) return "";
+
+        // Calculate how much time has passed
+        long timeDiff = now - timestamp;
+
+        // Convert the time difference to minutes, hours, and days
+        long minutes = timeDiff / (1000 * 60);
+        long hours = timeDiff / (1000 * 60 * 60);
+        long days = timeDiff / (1000 * 60 * 60 * 24);
+
+        // Return different formats based on how long ago the message was sent
+        if (minutes < 1) {
+            return "Just now";
+        } else if (minutes < 60) {
+            return minutes + " min ago";
+        } else if (hours < 24) {
+            return hours + " hour" + (hours > 1 ? "s" : "") + " ago";
+        } else if (days < 7) {
+            return days + " day" + (days > 1 ? "s" : "") + " ago";
+        } else {
+            // For older messages, show a simple date format (like "Jan 15")
+            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd", Locale.getDefault());
+            return sdf.format(new Date(timestamp));
+        }
+    }
+
+    /**
+     * Format timestamp to display date and time for all messages
+     *
+     * @param timestamp When the message was sent
+     * @param now The current time
+     */
+    public static String messageTime(long timestamp, long now) {
+        Date messageDate = new Date(timestamp);
+        Date today = new Date(now);
+
+        // Check if message is from today
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        boolean isToday = dateFormat.format(messageDate).equals(dateFormat.format(today));
+
+        if (isToday) {
+            // Show "Today" with time for today's messages
+            SimpleDateFormat timeFormat = new SimpleDateFormat("h:mm a", Locale.getDefault());
+            return "Today, " + timeFormat.format(messageDate);
+        } else {
+            // Show date and time for older messages
+            SimpleDateFormat fullFormat = new SimpleDateFormat("MMM dd, h:mm a", Locale.getDefault());
+            return fullFormat.format(messageDate);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.s23010234.devnextdoor;
+
+/**
+ * Typing Coalescer - Decides when "is typing" actually needs to be saved
+ *
+ * Writing to the database on every key press would mean dozens of writes a
+ * second per person typing. This class squeezes all those key presses into
+ * as few writes as possible:
+ * - The first key press saves "typing"; the following ones save nothing
+ * - When no key has been pressed for a while, "stopped typing" is saved
+ * - Two writes for the same chat are never closer together than a minimum
+ *   gap; a change that comes too early waits and is merged with whatever
+ *   happens next (typing, stopping and typing again quickly is one write, or none)
+ *
+ * The caller tells it the time and asks what to write; it returns TRUE
+ * (save "typing"), FALSE (save "stopped") or null (nothing to save). After
+ * each call, getNextCheckTime(now) says when to call poll() again. Keeping the
+ * clock outside this class means it has no Android code and can be tested.
+ */
+public class TypingCoalescer {
+
+    // Stop showing "typing..." after this long without a key press
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 4000;
+
+    // At most one write per this long, per chat
+    public static final long DEFAULT_MIN_WRITE_INTERVAL_MILLIS = 2000;
+
+    // Returned by getNextCheckTime when nothing is waiting
+    public static final long NO_CHECK = Long.MAX_VALUE;
+
+    private final long idleTimeoutMillis;
+    private final long minWriteIntervalMillis;
+
+    private boolean savedTyping = false;          // What the database says right now
+    private long lastWriteTime = Long.MIN_VALUE / 2;
+    private long lastKeystrokeTime = Long.MIN_VALUE / 2;
+    private boolean stopped = true;               // Message sent or screen left
+
+    public TypingCoalescer() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MIN_WRITE_INTERVAL_MILLIS);
+    }
+
+    public TypingCoalescer(long idleTimeoutMillis, long minWriteIntervalMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.minWriteIntervalMillis = minWriteIntervalMillis;
+    }
+
+    /**
+     * Call on every change to the text being typed
+     *
+     * @return TRUE to save "typing", or null if nothing needs saving now
+     */
+    public Boolean onKeystroke(long now) {
+        lastKeystrokeTime = now;
+        stopped = false;
+        return decide(now);
+    }
+
+    /**
+     * Call when typing is over for sure (message sent, text cleared, screen left)
+     *
+     * @return FALSE to save "stopped", or null if nothing needs saving now
+     */
+    public Boolean onStop(long now) {
+        stopped = true;
+        return decide(now);
+    }
+
+    /**
+     * Call at getNextCheckTime(now) to find out if a waiting change can be saved now
+     */
+    public Boolean poll(long now) {
+        return decide(now);
+    }
+
+    /**
+     * When poll() should be called next, or NO_CHECK if nothing is waiting
+     *
+     * @param now The current time
+     */
+    public long getNextCheckTime(long now) {
+        boolean wantTyping = wantsTyping(now);
+        long writeAllowedAt = lastWriteTime + minWriteIntervalMillis;
+        if (wantTyping != savedTyping) {
+            // A change is waiting for the minimum gap to pass
+            return Math.max(now, writeAllowedAt);
+        }
+        if (savedTyping) {
+            // "Typing" is saved - check again when it would time out
+            return Math.max(writeAllowedAt, lastKeystrokeTime + idleTimeoutMillis);
+        }
+        return NO_CHECK;
+    }
+
+    /**
+     * Whether "typing" is what's currently saved (as far as this class knows)
+     */
+    public boolean isSavedTyping() {
+        return savedTyping;
+    }
+
+    private boolean wantsTyping(long now) {
+        return !stopped && now - lastKeystrokeTime < idleTimeoutMillis;
+    }
+
+    private Boolean decide(long now) {
+        boolean wantTyping = wantsTyping(now);
+        if (wantTyping == savedTyping) {
+            return null;
+        }
+        if (now - lastWriteTime < minWriteIntervalMillis) {
+            return null; // Too soon after the last write - getNextCheckTime(now) says when to retry
+        }
+        savedTyping = wantTyping;
+        lastWriteTime = now;
+        return wantTyping;
+    }
+}
@@ -0,0 +1,327 @@
+package com.s23010234.devnextdoor;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unread Counters - Keeps a running count of each user's unread items
+ *
+ * To show "3 unread" on a badge, the app used to download every unread
+ * item and count them. Instead, each user now has a small folder of
+ * counters in the database:
+ *
+ *   counters/{user}/unreadNotifications - notifications not read yet
+ *   counters/{user}/unreadChats         - chat messages not read yet
+ *
+ * Whenever something is sent or read, the right counter is moved up or
+ * down. A badge then only has to listen to one number.
+ *
+ * Counters are changed with transactions. A transaction reads the current
+ * number and writes the new one in one step, and tries again if someone
+ * else changed it in between, so two phones changing the same counter at
+ * the same moment can't lose an update. Bulk writes that add to a counter
+ * instead put a ServerValue.increment for path() into the same multi-path
+ * update as the data, so the data and the counter change together in one
+ * write. Taking away goes through adjust() after the data is written,
+ * because an increment can't stop at 0 and a badge must never show "-2".
+ *
+ * If a counter ever drifts (for example an app was closed half way
+ * through), reconcile() counts the real items again and repairs it.
+ * The chats total is rebuilt from each chat's own count, so the database
+ * rules need ".indexOn": ["participant1", "participant2"] on chats.
+ */
+public class UnreadCounters {
+
+    // Names of the counters inside counters/{user}
+    public static final String UNREAD_NOTIFICATIONS = "unreadNotifications";
+    public static final String UNREAD_CHATS = "unreadChats";
+
+    private final DatabaseReference countersRef;
+    private final DatabaseReference notificationsRef;
+    private final DatabaseReference chatsRef;
+    private final DatabaseReference messagesRef;
+
+    public interface DatabaseCallback {
+        void onSuccess(boolean result);
+        void onError(String error);
+    }
+
+    public UnreadCounters() {
+        DatabaseGateway database = Database.get();
+        countersRef = database.getReference("counters");
+        notificationsRef = database.getReference("notifications");
+        chatsRef = database.getReference("chats");
+        messagesRef = database.getReference("messages");
+    }
+
+    /**
+     * The path of a counter from the top of the database, for use in
+     * multi-path updates (for example "counters/alice/unreadNotifications")
+     */
+    public static String path(String username, String counter) {
+        return "counters/" + username + "/" + counter;
+    }
+
+    /**
+     * The path of a user's unread count for one chat from the top of the
+     * database (for example "chats/alice_bob/unread/alice")
+     */
+    public static String chatPath(String chatId, String username) {
+        return "chats/" + chatId + "/unread/" + username;
+    }
+
+    /**
+     * A counter's new value after adding delta: a missing counter counts
+     * as 0, and the result never goes below 0
+     */
+    public static long adjusted(Long current, long delta) {
+        return Math.max(0, (current != null ? current : 0) + delta);
+    }
+
+    /**
+     * The folder holding a user's counters (to listen to both with one listener)
+     */
+    public DatabaseReference getCountersRef(String username) {
+        return countersRef.child(username);
+    }
+
+    /**
+     * Deletes a user's counters (when their account is deleted)
+     */
+    public void removeUser(String username) {
+        if (username != null && !username.isEmpty()) {
+            Database.get().removeValue(countersRef.child(username));
+        }
+    }
+
+    /**
+     * Moves a user's counters to their new username. The numbers are counted
+     * again under the new name, since their items have just been moved too.
+     */
+    public void renameUser(String oldUsername, String newUsername, DatabaseCallback callback) {
+        removeUser(oldUsername);
+        reconcile(newUsername, callback);
+    }
+
+    /**
+     * Moves a counter up or down with a transaction. The counter never goes below 0.
+     *
+     * @param username Whose counter to change
+     * @param counter UNREAD_NOTIFICATIONS or UNREAD_CHATS
+     * @param delta How much to add (negative to take away)
+     */
+    public void adjust(String username, String counter, int delta) {
+        if (username == null || username.isEmpty()) {
+            return;
+        }
+        adjustAt(countersRef.child(username).child(counter), delta);
+    }
+
+    /**
+     * Moves a user's unread count for one chat (chats/{chatId}/unread/{user})
+     * up or down with a transaction. The count never goes below 0.
+     *
+     * @param chatId The chat
+     * @param username Whose count to change
+     * @param delta How much to add (negative to take away)
+     */
+    public void adjustChat(String chatId, String username, int delta) {
+        if (chatId == null || username == null || username.isEmpty()) {
+            return;
+        }
+        adjustAt(Database.get().getReference(chatPath(chatId, username)), delta);
+    }
+
+    private void adjustAt(DatabaseReference ref, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        Database.get().runTransaction(ref, new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                currentData.setValue(adjusted(currentData.getValue(Long.class), delta));
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                // Nothing to do - if this failed, reconcile() repairs the counter later
+            }
+        });
+    }
+
+    /**
+     * Counts a user's unread notifications and unread chat messages again
+     * and writes the real numbers over the counters.
+     *
+     * This reads the user's notifications and their chats (and the messages
+     * of any chat whose own count is broken), so it is a repair job to run now and then (the app runs it once a day),
+     * not something badges should do.
+     *
+     * @param username Whose counters to repair
+     * @param callback What to do when this succeeds or fails
+     */
+    public void reconcile(String username, DatabaseCallback callback) {
+        if (username == null || username.isEmpty()) {
+            callback.onError("Username cannot be empty");
+            return;
+        }
+
+        Database.get().readOnce(notificationsRef.child(username), new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                long unreadNotifications = 0;
+                for (DataSnapshot notificationSnapshot : dataSnapshot.getChildren()) {
+                    Boolean read = notificationSnapshot.child("read").getValue(Boolean.class);
+                    if (read == null || !read) {
+                        unreadNotifications++;
+                    }
+                }
+                setCounter(username, UNREAD_NOTIFICATIONS, unreadNotifications);
+                reconcileChats(username, callback);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Adds up the user's unread count of every chat they are in (chats/{chatId}/unread/{user},
+     * kept up to date when messages are sent and read) into their total.
+     *
+     * Only the user's own chats are read, with one query for each side of the chat.
+     * A chat's messages are only counted again when its count is missing or below 0.
+     */
+    private void reconcileChats(String username, DatabaseCallback callback) {
+        // The user's chats by id (a chat with themselves would be found by both queries)
+        Map<String, DataSnapshot> chats = new LinkedHashMap<>();
+        int[] remaining = { 2 };
+        boolean[] failed = { false };
+        ValueEventListener collect = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
+                    chats.put(chatSnapshot.getKey(), chatSnapshot);
+                }
+                finishQuery();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                failed[0] = true;
+                finishQuery();
+            }
+
+            private void finishQuery() {
+                remaining[0]--;
+                if (remaining[0] > 0) {
+                    return;
+                }
+                if (failed[0]) {
+                    callback.onError("Could not read the chats");
+                } else {
+                    sumChats(username, chats, callback);
+                }
+            }
+        };
+        Database.get().readOnce(chatsRef.orderByChild("participant1").equalTo(username), collect);
+        Database.get().readOnce(chatsRef.orderByChild("participant2").equalTo(username), collect);
+    }
+
+    /**
+     * Adds up the per-chat counts, counting the messages of any chat whose count can't be trusted
+     */
+    private void sumChats(String username, Map<String, DataSnapshot> chats, DatabaseCallback callback) {
+        long unread = 0;
+        List<String> recount = new ArrayList<>();
+        for (Map.Entry<String, DataSnapshot> chat : chats.entrySet()) {
+            Long unreadInChat = chat.getValue().child("unread").child(username).getValue(Long.class);
+            if (unreadInChat == null || unreadInChat < 0) {
+                recount.add(chat.getKey());
+            } else {
+                unread += unreadInChat;
+            }
+        }
+        if (recount.isEmpty()) {
+            setCounter(username, UNREAD_CHATS, unread);
+            callback.onSuccess(true);
+            return;
+        }
+
+        long[] total = { unread };
+        int[] remaining = { recount.size() };
+        boolean[] failed = { false };
+        for (String chatId : recount) {
+            Database.get().readOnce(messagesRef.child(chatId), new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot messagesSnapshot) {
+                    long unreadInChat = 0;
+                    for (DataSnapshot messageSnapshot : ChatManager.getMessageSnapshots(messagesSnapshot)) {
+                        Message message = messageSnapshot.getValue(Message.class);
+                        if (message != null && username.equals(message.getReceiverId()) && !message.isRead()) {
+                            unreadInChat++;
+                        }
+                    }
+                    Database.get().setValue(chatsRef.child(chatId).child("unread").child(username), unreadInChat);
+                    total[0] += unreadInChat;
+                    finishChat();
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError databaseError) {
+                    failed[0] = true;
+                    finishChat();
+                }
+
+                private void finishChat() {
+                    remaining[0]--;
+                    if (remaining[0] > 0) {
+                        return;
+                    }
+                    if (failed[0]) {
+                        // Don't write a count we know is incomplete
+                        callback.onError("Could not read every chat");
+                    } else {
+                        setCounter(username, UNREAD_CHATS, total[0]);
+                        callback.onSuccess(true);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes an exact value over a counter (also as a transaction, so it
+     * doesn't clash with an adjust() happening at the same moment)
+     */
+    private void setCounter(String username, String counter, long value) {
+        Database.get().runTransaction(countersRef.child(username).child(counter), new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                currentData.setValue(value);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                // Nothing to do
+            }
+        });
+    }
+}
@@ -22,7 +22,6 @@ import androidx.core.view.WindowInsetsCompat;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 /**
@@ -67,9 +66,9 @@ public class UserDetailActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_user_detail);
-        
-        // Apply current theme
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot);
         
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -78,7 +77,7 @@ public class UserDetailActivity extends AppCompatActivity {
         });
 
         // Initialize Firebase and managers
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         firebaseHelper = new FirebaseHelper();
         chatManager = new ChatManager();
         
@@ -99,13 +98,6 @@ public class UserDetailActivity extends AppCompatActivity {
         checkIfFavorite();
     }
     
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply theme when returning to this activity (e.g., from Settings)
-        ThemeManager.applyTheme(this);
-    }
-
     /**
      * Initialize all view components from the layout
      */
@@ -155,7 +147,7 @@ public class UserDetailActivity extends AppCompatActivity {
         usernameText.setText("@" + targetUsername);
 
         // Fetch user data from Firebase
-        databaseReference.child(targetUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(targetUsername), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (dataSnapshot.exists()) {
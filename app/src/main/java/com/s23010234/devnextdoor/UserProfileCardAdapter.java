@@ -19,6 +19,9 @@ import java.util.List;
  */
 public class UserProfileCardAdapter extends RecyclerView.Adapter<UserProfileCardAdapter.UserCardViewHolder> {
 
+    // How long filling in one row takes (see Metrics)
+    private static final Metrics.Histogram BIND_TIME = Metrics.histogram("bind.userCards");
+
     // List of all the users that should be displayed as cards
     private List<User> userList;
     
@@ -60,11 +63,13 @@ public class UserProfileCardAdapter extends RecyclerView.Adapter<UserProfileCard
      */
     @Override
     public void onBindViewHolder(@NonNull UserCardViewHolder holder, int position) {
+        long start = Metrics.now();
         // Get the user data for this card position
         User user = userList.get(position);
         
         // Tell the view holder to fill the card with this user's information
         holder.bind(user);
+        BIND_TIME.recordSince(start);
     }
 
     /**
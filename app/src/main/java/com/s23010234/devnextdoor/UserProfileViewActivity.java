@@ -22,7 +22,6 @@ import androidx.core.view.WindowInsetsCompat;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 /**
@@ -72,9 +71,9 @@ public class UserProfileViewActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_user_profile_view);
-        
-        // Apply current theme
-        ThemeManager.applyTheme(this);
+
+        // Load the main background picture in the background instead of while the screen opens
+        BackgroundLoader.loadMainBackground(this, R.id.screenRoot);
         
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -83,7 +82,7 @@ public class UserProfileViewActivity extends AppCompatActivity {
         });
 
         // Initialize Firebase and managers
-        databaseReference = FirebaseDatabase.getInstance().getReference("users");
+        databaseReference = Database.get().getReference("users");
         firebaseHelper = new FirebaseHelper();
         chatManager = new ChatManager();
         
@@ -104,13 +103,6 @@ public class UserProfileViewActivity extends AppCompatActivity {
         setupClickListeners();
     }
     
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Reapply theme when returning to this activity (e.g., from Settings)
-        ThemeManager.applyTheme(this);
-    }
-
     /**
      * Initialize all view components from the layout
      */
@@ -162,7 +154,7 @@ public class UserProfileViewActivity extends AppCompatActivity {
         usernameText.setText("@" + targetUsername);
 
         // Fetch user data from Firebase
-        databaseReference.child(targetUsername).addListenerForSingleValueEvent(new ValueEventListener() {
+        Database.get().readOnce(databaseReference.child(targetUsername), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (dataSnapshot.exists()) {
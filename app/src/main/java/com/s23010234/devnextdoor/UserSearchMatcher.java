@@ -0,0 +1,95 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User Search Matcher - Decides which users match a search
+ *
+ * SearchActivity uses this to filter its list of users as the user types.
+ * It is plain Java (no Android), so the same matching can be unit tested
+ * and benchmarked on a computer (see the benchmark module).
+ */
+public class UserSearchMatcher {
+
+    /**
+     * Search Filter Types - Different ways to search for users
+     *
+     * These represent the different filter options available to users.
+     * Each filter searches through different parts of user profiles.
+     */
+    public enum Filter {
+        ALL,            // Search through all profile information
+        USERNAME,       // Search only usernames
+        TECH_STACK,     // Search only programming languages/skills
+        WANT_TO_LEARN   // Search only what users want to learn
+    }
+
+    private UserSearchMatcher() {
+        // Only static helpers
+    }
+
+    /**
+     * Finds the users that match a search
+     *
+     * @param users Every user that can be found
+     * @param query What the user typed (any letter case)
+     * @param filter Which part of the profile to search
+     * @return The matching users, in the same order as the given list
+     */
+    public static List<User> filter(List<User> users, String query, Filter filter) {
+        List<User> matches = new ArrayList<>();
+        String lowercaseQuery = query.toLowerCase();
+        for (User user : users) {
+            if (matches(user, lowercaseQuery, filter)) {
+                matches.add(user);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Check if one user matches a search
+     *
+     * @param lowercaseQuery The search text, already in lower case
+     */
+    public static boolean matches(User user, String lowercaseQuery, Filter filter) {
+        switch (filter) {
+            case USERNAME:
+                return matchesUsername(user, lowercaseQuery);
+            case TECH_STACK:
+                return matchesTechStack(user, lowercaseQuery);
+            case WANT_TO_LEARN:
+                return matchesWantToLearn(user, lowercaseQuery);
+            case ALL:
+            default:
+                return matchesUsername(user, lowercaseQuery) ||
+                       matchesTechStack(user, lowercaseQuery) ||
+                       matchesWantToLearn(user, lowercaseQuery);
+        }
+    }
+
+    /**
+     * Check if user's username matches query
+     */
+    private static boolean matchesUsername(User user, String query) {
+        return user.getUsername() != null &&
+               user.getUsername().toLowerCase().contains(query);
+    }
+
+    /**
+     * Check if user's tech stack matches query
+     */
+    private static boolean matchesTechStack(User user, String query) {
+        return user.getTechStack() != null &&
+               user.getTechStack().toLowerCase().contains(query);
+    }
+
+    /**
+     * Check if user's want to learn matches query
+     */
+    private static boolean matchesWantToLearn(User user, String query) {
+        return user.getWantToLearn() != null &&
+               user.getWantToLearn().toLowerCase().contains(query);
+    }
+}
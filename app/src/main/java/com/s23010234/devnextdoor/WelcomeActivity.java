@@ -35,6 +35,14 @@ public class WelcomeActivity extends AppCompatActivity {
         
         // Load and display the welcome screen layout from the XML file
         setContentView(R.layout.activity_welcome);
+
+        // Load the big background picture in the background instead of while the screen opens
+        BackgroundLoader.load(findViewById(R.id.main), R.drawable.welcome_bg, R.color.welcome_bg_placeholder);
+
+        // Start decoding the next screens' pictures now, so they are ready when the user continues
+        BackgroundLoader.preload(this, R.drawable.get_started_bg);
+        BackgroundLoader.preload(this, R.drawable.login_signup_bg);
+        BackgroundLoader.preload(this, R.drawable.main_bg);
         
         // Handle system bars (like status bar and navigation bar) properly
         // This makes sure the app content doesn't get hidden behind system elements
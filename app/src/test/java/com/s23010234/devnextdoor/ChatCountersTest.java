@@ -0,0 +1,182 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks the unread chat counters: each chat's own count and the user's total.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class ChatCountersTest {
+
+    private static final String ME = "alice";
+    private static final long JAN_2024 = 1_704_100_000_000L;
+
+    private RecordingGateway gateway;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FirebaseApp app = FirebaseApp.getApps(context).isEmpty()
+                ? FirebaseApp.initializeApp(context, new FirebaseOptions.Builder()
+                        .setApplicationId("1:000000000000:android:0000000000000000")
+                        .setApiKey("test-api-key")
+                        .setProjectId("devnextdoor-test")
+                        .setDatabaseUrl("https://devnextdoor-test.firebaseio.com")
+                        .build())
+                : FirebaseApp.getInstance();
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+
+        gateway = new RecordingGateway(database);
+        Database.setGateway(gateway);
+    }
+
+    @After
+    public void tearDown() {
+        Database.setGateway(null);
+    }
+
+    @Test
+    public void reconcileAddsUpEachChatsCount() {
+        // Two chats with a count, one (from before counts were kept) without
+        putChat("alice_bob", ME, "bob", 2L);
+        putChat("alice_carol", ME, "carol", 0L);
+        putChat("alice_dave", ME, "dave", null);
+        putChat("dan_alice", "dan", ME, 3L);
+        putMessage("alice_dave", "m1", "dave", ME, false);
+        putMessage("alice_dave", "m2", "dave", ME, true);
+        putMessage("alice_dave", "m3", ME, "dave", false);
+
+        // Other people's chats, with long histories
+        for (int i = 0; i < 20; i++) {
+            putChat("bob_x" + i, "bob", "x" + i, 1L);
+            putMessage("bob_x" + i, "m", "x" + i, "bob", false);
+        }
+        gateway.put(UnreadCounters.path(ME, UnreadCounters.UNREAD_CHATS), 99L);
+
+        new UnreadCounters().reconcile(ME, succeeds());
+        idle();
+
+        assertEquals(6L, gateway.get(UnreadCounters.path(ME, UnreadCounters.UNREAD_CHATS)));
+        assertEquals(1L, gateway.get("chats/alice_dave/unread/" + ME));
+
+        // Only the chat without a count had its messages read, and other people's chats weren't downloaded
+        assertEquals(gateway.log(), 1, gateway.reads("messages/alice_dave"));
+        assertEquals(gateway.log(), 0, gateway.reads("messages/alice_bob"));
+        assertEquals(gateway.log(), 0, gateway.reads("messages"));
+        assertTrue("downloaded " + gateway.bytes() + " bytes", gateway.bytes() < gateway.sizeOf("chats"));
+    }
+
+    @Test
+    public void markingReadTakesTheMessagesOffBothCounts() {
+        // Five unread, but only the two newest are loaded and seen
+        putChat("alice_bob", ME, "bob", 5L);
+        gateway.put(UnreadCounters.path(ME, UnreadCounters.UNREAD_CHATS), 7L);
+        List<Message> seen = Arrays.asList(
+                putMessage("alice_bob", "m4", "bob", ME, false),
+                putMessage("alice_bob", "m5", "bob", ME, false));
+
+        new ChatManager().markMessagesRead("alice_bob", ME, seen, chatSucceeds());
+        idle();
+
+        assertEquals(true, gateway.get(MessageBuckets.messagePath("alice_bob", "m5", JAN_2024) + "/read"));
+        assertEquals(3L, gateway.get("chats/alice_bob/unread/" + ME));
+        assertEquals(5L, gateway.get(UnreadCounters.path(ME, UnreadCounters.UNREAD_CHATS)));
+    }
+
+    @Test
+    public void markingReadStopsAtZero() {
+        // Both counts have drifted below the real number of unread messages
+        putChat("alice_bob", ME, "bob", 1L);
+        gateway.put(UnreadCounters.path(ME, UnreadCounters.UNREAD_CHATS), 0L);
+        List<Message> seen = Arrays.asList(
+                putMessage("alice_bob", "m1", "bob", ME, false),
+                putMessage("alice_bob", "m2", "bob", ME, false),
+                putMessage("alice_bob", "m3", "bob", ME, false));
+
+        new ChatManager().markMessagesRead("alice_bob", ME, seen, chatSucceeds());
+        idle();
+
+        assertEquals(0L, gateway.get("chats/alice_bob/unread/" + ME));
+        assertEquals(0L, gateway.get(UnreadCounters.path(ME, UnreadCounters.UNREAD_CHATS)));
+    }
+
+    private void putChat(String chatId, String participant1, String participant2, Long unreadForMe) {
+        Map<String, Object> chat = new HashMap<>();
+        chat.put("participant1", participant1);
+        chat.put("participant2", participant2);
+        chat.put("lastMessage", "hi");
+        chat.put("lastMessageTimestamp", JAN_2024);
+        gateway.put("chats/" + chatId, chat);
+        if (unreadForMe != null) {
+            gateway.put("chats/" + chatId + "/unread/" + ME, unreadForMe);
+        }
+    }
+
+    private Message putMessage(String chatId, String messageId, String sender, String receiver, boolean read) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("messageId", messageId);
+        message.put("chatId", chatId);
+        message.put("senderId", sender);
+        message.put("receiverId", receiver);
+        message.put("content", "hello");
+        message.put("timestamp", JAN_2024);
+        message.put("read", read);
+        gateway.put(MessageBuckets.messagePath(chatId, messageId, JAN_2024), message);
+        return new Message(messageId, chatId, sender, receiver, "hello", JAN_2024, read);
+    }
+
+    private static UnreadCounters.DatabaseCallback succeeds() {
+        return new UnreadCounters.DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+    }
+
+    private static ChatManager.DatabaseCallback chatSucceeds() {
+        return new ChatManager.DatabaseCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+    }
+
+    private static void idle() {
+        shadowOf(getMainLooper()).idle();
+    }
+}
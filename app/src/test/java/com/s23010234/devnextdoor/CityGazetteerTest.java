@@ -0,0 +1,103 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks reading the city list and looking cities up by name.
+ */
+public class CityGazetteerTest {
+
+    private static CityGazetteer parse(String... lines) throws IOException {
+        return CityGazetteer.parse(new StringReader(String.join("\n", lines)));
+    }
+
+    @Test
+    public void skipsCommentsBlankLinesAndTheHeader() throws IOException {
+        CityGazetteer cities = parse(
+                "# Cities",
+                "",
+                "name,latitude,longitude,aliases,listed",
+                "   ",
+                "Colombo,6.9271,79.8612,",
+                "  # indented comment",
+                "Kandy,7.2906,80.6337");
+
+        assertEquals(2, cities.size());
+        assertEquals("Colombo", cities.getName(0));
+        assertEquals("Kandy", cities.getName(1));
+        assertEquals(6.9271, cities.getLatitude(0), 0);
+        assertEquals(80.6337, cities.getLongitude(1), 0);
+        assertEquals(cities.distanceKm(0, 1), cities.distanceKm(1, 0), 0);
+        assertEquals(0, cities.distanceKm(0, 0), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBadCoordinates() throws IOException {
+        parse("Colombo,6.9271,east");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsLinesWithoutCoordinates() throws IOException {
+        parse("Colombo,6.9271");
+    }
+
+    @Test
+    public void normalizesCaseSpacesAndPunctuation() {
+        assertEquals("nuwara eliya", CityGazetteer.normalize("Nuwara Eliya"));
+        assertEquals("nuwara eliya", CityGazetteer.normalize("  NUWARA   ELIYA "));
+        assertEquals("nuwara eliya", CityGazetteer.normalize("nuwara-eliya"));
+        assertEquals("nuwara eliya", CityGazetteer.normalize("Nuwara_\tEliya."));
+        assertEquals("", CityGazetteer.normalize(null));
+        assertEquals("", CityGazetteer.normalize(" - "));
+    }
+
+    @Test
+    public void findsCitiesByAnySpelling() throws IOException {
+        CityGazetteer cities = parse(
+                "Colombo,6.9271,79.8612,",
+                "Nuwara Eliya,6.9497,80.7891,Nuwaraeliya|NE");
+
+        assertEquals(1, cities.indexOf("nuwara-eliya"));
+        assertEquals(1, cities.indexOf(" NUWARAELIYA "));
+        assertEquals(1, cities.indexOf("ne"));
+        assertEquals("Nuwara Eliya", cities.canonicalName("NUWARA  eliya"));
+        assertEquals(CityGazetteer.UNKNOWN, cities.indexOf("Atlantis"));
+        assertNull(cities.canonicalName("Atlantis"));
+        assertEquals(CityGazetteer.UNKNOWN, cities.indexOf(null));
+    }
+
+    @Test
+    public void unlistedCitiesAreFoundButNotOffered() throws IOException {
+        CityGazetteer cities = parse(
+                "Colombo,6.9271,79.8612,,",
+                "Negombo,7.2083,79.8358,,no",
+                "Kandy,7.2906,80.6337,,yes");
+
+        assertEquals(Arrays.asList("Colombo", "Kandy"), cities.getCityNames());
+        assertEquals(3, cities.size());
+        assertEquals("Negombo", cities.canonicalName("negombo"));
+    }
+
+    @Test
+    public void bundledListOffersTheDistrictsOnly() throws IOException {
+        // Unit tests run from the app folder
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream("src/main/assets/cities.csv"), StandardCharsets.UTF_8)) {
+            CityGazetteer cities = CityGazetteer.parse(reader);
+
+            assertEquals(25, cities.getCityNames().size());
+            assertFalse(cities.getCityNames().contains("Negombo"));
+            assertEquals("Negombo", cities.canonicalName("negombo"));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the developer spatial index against measuring every developer one by one.
+ */
+public class DeveloperSpatialIndexTest {
+
+    // Search points, including the poles and both sides of the 180th meridian
+    private static final double[][] SEARCH_POINTS = {
+            { 6.9271, 79.8612 },    // Colombo
+            { 0, 0 },
+            { 89.99, 10 },          // Next to the North Pole
+            { -90, 0 },             // The South Pole itself
+            { 10, 179.95 },         // Just west of the 180th meridian
+            { -10, -179.95 },       // Just east of it
+            { 65, 180 },
+    };
+
+    /**
+     * Developers spread over the world, with extra ones crowded around the
+     * poles and the 180th meridian where the geometry is most awkward
+     */
+    private static Map<String, double[]> randomDevelopers(int count, long seed) {
+        Random random = new Random(seed);
+        Map<String, double[]> developers = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            double latitude;
+            double longitude;
+            switch (i % 4) {
+                case 0:
+                    latitude = 85 + random.nextDouble() * 5;
+                    longitude = -180 + random.nextDouble() * 360;
+                    break;
+                case 1:
+                    latitude = -90 + random.nextDouble() * 5;
+                    longitude = -180 + random.nextDouble() * 360;
+                    break;
+                case 2:
+                    latitude = -60 + random.nextDouble() * 120;
+                    longitude = random.nextBoolean() ? 179 + random.nextDouble() : -180 + random.nextDouble();
+                    break;
+                default:
+                    latitude = -90 + random.nextDouble() * 180;
+                    longitude = -180 + random.nextDouble() * 360;
+                    break;
+            }
+            developers.put("user" + i, new double[] { latitude, longitude });
+        }
+        return developers;
+    }
+
+    private static DeveloperSpatialIndex indexOf(Map<String, double[]> developers) {
+        List<String> usernames = new ArrayList<>(developers.keySet());
+        double[] latitudes = new double[usernames.size()];
+        double[] longitudes = new double[usernames.size()];
+        for (int i = 0; i < usernames.size(); i++) {
+            double[] position = developers.get(usernames.get(i));
+            latitudes[i] = position[0];
+            longitudes[i] = position[1];
+        }
+        DeveloperSpatialIndex index = new DeveloperSpatialIndex();
+        index.replaceAll(usernames, latitudes, longitudes);
+        return index;
+    }
+
+    /**
+     * Every developer's distance from a point, nearest first (the slow way)
+     */
+    private static List<Double> bruteForceDistances(Map<String, double[]> developers, double latitude, double longitude) {
+        List<Double> distances = new ArrayList<>();
+        for (double[] position : developers.values()) {
+            distances.add(DeveloperSpatialIndex.distanceKm(latitude, longitude, position[0], position[1]));
+        }
+        Collections.sort(distances);
+        return distances;
+    }
+
+    private static void assertNearestMatches(DeveloperSpatialIndex index, Map<String, double[]> developers, int count) {
+        for (double[] point : SEARCH_POINTS) {
+            List<DeveloperSpatialIndex.Result> found = index.nearest(point[0], point[1], count);
+            List<Double> expected = bruteForceDistances(developers, point[0], point[1]);
+            String where = "near " + point[0] + "," + point[1];
+
+            assertEquals(where, Math.min(count, developers.size()), found.size());
+            for (int i = 0; i < found.size(); i++) {
+                // Compared by distance, since two developers can be equally far away
+                assertEquals(where + " #" + i, expected.get(i), found.get(i).getDistanceKm(), 1e-6);
+                double[] position = developers.get(found.get(i).getUsername());
+                assertEquals(position[0], found.get(i).getLatitude(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Map<String, double[]> developers = randomDevelopers(3_000, 1);
+        DeveloperSpatialIndex index = indexOf(developers);
+
+        assertNearestMatches(index, developers, 1);
+        assertNearestMatches(index, developers, 20);
+        assertNearestMatches(index, developers, 5_000);
+    }
+
+    @Test
+    public void withinRadiusMatchesBruteForce() {
+        Map<String, double[]> developers = randomDevelopers(3_000, 2);
+        DeveloperSpatialIndex index = indexOf(developers);
+
+        for (double[] point : SEARCH_POINTS) {
+            for (double radiusKm : new double[] { 0, 50, 400, 2_500, 25_000 }) {
+                List<DeveloperSpatialIndex.Result> found = index.withinRadius(point[0], point[1], radiusKm);
+                int expected = 0;
+                for (double distance : bruteForceDistances(developers, point[0], point[1])) {
+                    if (distance <= radiusKm) {
+                        expected++;
+                    }
+                }
+                String where = radiusKm + " km around " + point[0] + "," + point[1];
+                assertEquals(where, expected, found.size());
+                for (int i = 1; i < found.size(); i++) {
+                    assertTrue(where, found.get(i - 1).getDistanceKm() <= found.get(i).getDistanceKm());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void closeAcrossTheMeridianIsClose() {
+        DeveloperSpatialIndex index = new DeveloperSpatialIndex();
+        index.put("west", 0, 179.9);
+        index.put("east", 0, -179.9);
+        index.put("far", 0, 170);
+
+        List<DeveloperSpatialIndex.Result> found = index.nearest(0, 179.9, 2);
+        assertEquals("west", found.get(0).getUsername());
+        assertEquals("east", found.get(1).getUsername());
+        assertEquals(22.2, found.get(1).getDistanceKm(), 0.1);
+
+        // Every point at the pole is the same place, whatever its longitude
+        index.put("pole", 90, -135);
+        assertEquals(0, index.nearest(90, 45, 1).get(0).getDistanceKm(), 1e-6);
+    }
+
+    @Test
+    public void putsMovesAndRemovesKeepMatchingBruteForce() {
+        Map<String, double[]> developers = randomDevelopers(500, 3);
+        DeveloperSpatialIndex index = indexOf(developers);
+        Random random = new Random(4);
+
+        // Enough changes to go through several rebuilds
+        for (int i = 0; i < 3_000; i++) {
+            String username = "user" + random.nextInt(800);
+            if (random.nextInt(3) == 0) {
+                assertEquals(developers.remove(username) != null, index.remove(username));
+            } else {
+                double[] position = { -90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360 };
+                developers.put(username, position);
+                index.put(username, position[0], position[1]);
+            }
+            assertEquals(developers.size(), index.size());
+        }
+
+        assertNearestMatches(index, developers, 25);
+        for (String username : developers.keySet()) {
+            assertTrue(index.contains(username));
+        }
+    }
+
+    @Test
+    public void manyDevelopersAtTheSamePlace() {
+        // Everyone is placed at one of a few city centres, like the app does
+        double[][] cities = new double[26][];
+        Random random = new Random(5);
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new double[] { 5.9 + random.nextDouble() * 4, 79.6 + random.nextDouble() * 2.3 };
+        }
+        Map<String, double[]> developers = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            developers.put("user" + i, cities[i % cities.length]);
+        }
+
+        // Built in one go
+        DeveloperSpatialIndex index = indexOf(developers);
+        assertEquals(developers.size(), index.size());
+        assertNearestMatches(index, developers, 20);
+        double[] colombo = cities[0];
+        assertEquals(developers.size() / cities.length + 1, index.withinRadius(colombo[0], colombo[1], 0).size());
+
+        // And one at a time, with some moving to another city on the way
+        index = new DeveloperSpatialIndex();
+        for (int i = 0; i < 40_000; i++) {
+            double[] city = cities[i % cities.length];
+            index.put("user" + i, city[0], city[1]);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            index.put("user" + i, cities[0][0], cities[0][1]);
+            developers.put("user" + i, cities[0]);
+        }
+        for (int i = 40_000; i < 50_000; i++) {
+            developers.remove("user" + i);
+        }
+        assertEquals(developers.size(), index.size());
+        assertNearestMatches(index, developers, 20);
+        int expected = 0;
+        for (double[] position : developers.values()) {
+            if (position == colombo) {
+                expected++;
+            }
+        }
+        assertEquals(expected, index.withinRadius(colombo[0], colombo[1], 0).size());
+    }
+
+    @Test
+    public void emptyIndexFindsNobody() {
+        DeveloperSpatialIndex index = new DeveloperSpatialIndex();
+        assertTrue(index.nearest(0, 0, 5).isEmpty());
+        assertTrue(index.withinRadius(0, 0, 100).isEmpty());
+
+        index.put("someone", 1, 1);
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.nearest(0, 0, 5).isEmpty());
+    }
+}
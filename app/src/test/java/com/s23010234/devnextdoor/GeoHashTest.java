@@ -0,0 +1,153 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks geohash codes and the boxes picked to cover a search circle.
+ */
+public class GeoHashTest {
+
+    /**
+     * The point a distance away from a start point in a compass direction
+     * (great-circle formula), as {latitude, longitude}
+     */
+    private static double[] destination(double latitude, double longitude, double bearingDegrees, double distanceKm) {
+        double angle = distanceKm / DeveloperSpatialIndex.EARTH_RADIUS_KM;
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        double bearing = Math.toRadians(bearingDegrees);
+        double lat2 = Math.asin(Math.sin(lat) * Math.cos(angle) + Math.cos(lat) * Math.sin(angle) * Math.cos(bearing));
+        double lng2 = lng + Math.atan2(Math.sin(bearing) * Math.sin(angle) * Math.cos(lat),
+                Math.cos(angle) - Math.sin(lat) * Math.sin(lat2));
+        double longitude2 = Math.toDegrees(lng2);
+        // Back into -180..180
+        longitude2 = ((longitude2 + 540) % 360) - 180;
+        return new double[] { Math.toDegrees(lat2), longitude2 };
+    }
+
+    private static boolean covered(List<String> prefixes, double latitude, double longitude) {
+        for (String prefix : prefixes) {
+            if (GeoHash.encode(latitude, longitude, prefix.length()).equals(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the centre, and points all around the inside of the circle, fall in one of the boxes
+     */
+    private static void assertCircleCovered(double latitude, double longitude, double radiusKm) {
+        List<String> prefixes = GeoHash.coveringPrefixes(latitude, longitude, radiusKm, GeoIndexManager.MAX_RANGE_READS);
+        String where = radiusKm + " km around " + latitude + "," + longitude + " -> " + prefixes;
+
+        assertFalse(where, prefixes.isEmpty());
+        assertTrue(where, covered(prefixes, latitude, longitude));
+        for (double fraction : new double[] { 0.5, 0.99 }) {
+            for (int bearing = 0; bearing < 360; bearing += 10) {
+                double[] point = destination(latitude, longitude, bearing, radiusKm * fraction);
+                assertTrue(where + " misses " + point[0] + "," + point[1], covered(prefixes, point[0], point[1]));
+            }
+        }
+    }
+
+    @Test
+    public void encodesKnownPositions() {
+        // The example from the original geohash description
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+
+        // The corners of the map
+        assertEquals("0", GeoHash.encode(-90, -180, 1));
+        assertEquals("z", GeoHash.encode(90, 180, 1));
+        assertEquals("zzzzz", GeoHash.encode(89.99999, 179.99999, 5));
+
+        // Precision is kept between 1 and MAX_PRECISION
+        assertEquals(1, GeoHash.encode(0, 0, 0).length());
+        assertEquals(GeoHash.MAX_PRECISION, GeoHash.encode(0, 0, 50).length());
+    }
+
+    @Test
+    public void decodedCentreIsInsideTheBox() {
+        double[][] points = { { 6.9271, 79.8612 }, { -89.9, 179.9 }, { 89.9, -179.9 }, { 0, 0 } };
+        for (double[] point : points) {
+            for (int precision = 1; precision <= GeoHash.MAX_PRECISION; precision++) {
+                String hash = GeoHash.encode(point[0], point[1], precision);
+                double[] centre = GeoHash.decodeCenter(hash);
+                assertEquals(hash, GeoHash.encode(centre[0], centre[1], precision));
+                assertEquals(point[0], centre[0], GeoHash.cellHeightDegrees(precision) / 2);
+                assertEquals(point[1], centre[1], GeoHash.cellWidthDegrees(precision) / 2);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsLettersGeohashesDontUse() {
+        GeoHash.decodeCenter("tc1a");
+    }
+
+    @Test
+    public void coversCirclesAcrossThe180thMeridian() {
+        assertCircleCovered(0, 179.99, 50);
+        assertCircleCovered(0, -179.99, 50);
+        assertCircleCovered(-17.8, 178.4, 300);   // Fiji
+
+        // Boxes on both sides of the line are read
+        List<String> prefixes = GeoHash.coveringPrefixes(0, 179.99, 50, GeoIndexManager.MAX_RANGE_READS);
+        boolean east = false;
+        boolean west = false;
+        for (String prefix : prefixes) {
+            double longitude = GeoHash.decodeCenter(prefix)[1];
+            east |= longitude > 0;
+            west |= longitude < 0;
+        }
+        assertTrue(prefixes.toString(), east && west);
+    }
+
+    @Test
+    public void coversCirclesAroundThePoles() {
+        assertCircleCovered(89.9, 0, 50);
+        assertCircleCovered(-89.9, 120, 50);
+        assertCircleCovered(90, 0, 200);
+        assertCircleCovered(-90, 0, 200);
+
+        // Latitudes past the pole are clamped, so no box is read twice
+        List<String> prefixes = GeoHash.coveringPrefixes(90, 0, 200, GeoIndexManager.MAX_RANGE_READS);
+        assertEquals(prefixes.size(), new HashSet<>(prefixes).size());
+    }
+
+    @Test
+    public void coversOrdinaryCircles() {
+        for (double radiusKm : new double[] { 0.01, 1, 25, 400, 5_000 }) {
+            assertCircleCovered(6.9271, 79.8612, radiusKm);
+            assertCircleCovered(51.5, -0.12, radiusKm);
+        }
+    }
+
+    @Test
+    public void smallerCirclesUseSmallerBoxes() {
+        int previousLength = Integer.MAX_VALUE;
+        for (double radiusKm : new double[] { 0.01, 0.5, 5, 25, 100, 400, 2_000, 10_000 }) {
+            List<String> prefixes = GeoHash.coveringPrefixes(6.9271, 79.8612, radiusKm, GeoIndexManager.MAX_RANGE_READS);
+            int length = prefixes.get(0).length();
+            for (String prefix : prefixes) {
+                assertEquals(length, prefix.length());
+            }
+            assertTrue(radiusKm + " km", prefixes.size() <= GeoIndexManager.MAX_RANGE_READS || length == 1);
+            assertTrue(radiusKm + " km", length <= previousLength);
+            previousLength = length;
+        }
+
+        // A 25 km search reads boxes about 40 km wide (4 characters), not a whole region
+        assertEquals(4, GeoHash.coveringPrefixes(6.9271, 79.8612, 25, GeoIndexManager.MAX_RANGE_READS).get(0).length());
+
+        // With a single box allowed, the box grows until the circle fits in it
+        List<String> one = GeoHash.coveringPrefixes(6.9271, 79.8612, 25, 1);
+        assertEquals(1, one.size());
+        assertTrue(one.get(0).length() < 4);
+    }
+}
@@ -0,0 +1,107 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that a watched area reports developers as they arrive, move and leave.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GeoIndexManagerTest {
+
+    private static final double COLOMBO_LAT = 6.9271;
+    private static final double COLOMBO_LNG = 79.8612;
+
+    private RecordingGateway gateway;
+    private GeoIndexManager manager;
+
+    // What the watch last said about each developer ({lat, lng}, or null once they left)
+    private final Map<String, double[]> seen = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FirebaseApp app = FirebaseApp.getApps(context).isEmpty()
+                ? FirebaseApp.initializeApp(context, new FirebaseOptions.Builder()
+                        .setApplicationId("1:000000000000:android:0000000000000000")
+                        .setApiKey("test-api-key")
+                        .setProjectId("devnextdoor-test")
+                        .setDatabaseUrl("https://devnextdoor-test.firebaseio.com")
+                        .build())
+                : FirebaseApp.getInstance();
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+
+        gateway = new RecordingGateway(database);
+        Database.setGateway(gateway);
+        manager = new GeoIndexManager();
+    }
+
+    @After
+    public void tearDown() {
+        Database.setGateway(null);
+    }
+
+    @Test
+    public void watchFollowsDevelopersInTheArea() {
+        manager.updateLocation("dev1", COLOMBO_LAT, COLOMBO_LNG, null);
+        idle();
+
+        GeoIndexManager.AreaWatch watch = manager.watchArea(COLOMBO_LAT, COLOMBO_LNG, 25,
+                new GeoIndexManager.AreaListener() {
+                    @Override
+                    public void onDeveloperMoved(String username, double latitude, double longitude) {
+                        seen.put(username, new double[] { latitude, longitude });
+                    }
+
+                    @Override
+                    public void onDeveloperLeft(String username) {
+                        seen.put(username, null);
+                    }
+                });
+        idle();
+        assertEquals(COLOMBO_LAT, seen.get("dev1")[0], 1e-4);
+
+        // Someone new arrives, and the first developer moves a few kilometers
+        manager.updateLocation("dev2", 6.85, 79.9, null);
+        manager.updateLocation("dev1", 6.95, 79.85, null);
+        idle();
+        assertEquals(6.85, seen.get("dev2")[0], 1e-4);
+        assertEquals(6.95, seen.get("dev1")[0], 1e-4);
+
+        // Moving to Kandy takes them out of the area
+        manager.updateLocation("dev1", 7.2906, 80.6337, null);
+        idle();
+        assertTrue(seen.containsKey("dev1"));
+        assertNull(seen.get("dev1"));
+        assertNotNull(seen.get("dev2"));
+
+        manager.stopWatching(watch);
+        assertEquals(gateway.log(), 0, gateway.activeListeners());
+    }
+
+    private static void idle() {
+        shadowOf(getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,76 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that sending and reading group messages costs the same whatever
+ * the size of the group, and only making a group touches every member.
+ */
+public class GroupChatPathsTest {
+
+    private static List<String> members(int count) {
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            members.add("user" + i);
+        }
+        return members;
+    }
+
+    @Test
+    public void makingAGroupAddsEveryMemberOnce() {
+        Map<String, Object> updates = GroupChatPaths.createGroup("g1", "Android devs", "alice",
+                members(5), 1000L);
+        // The header, plus two entries for each of the 5 members and the creator
+        assertEquals(1 + 2 * 6, updates.size());
+        assertTrue(updates.containsKey("groupMembers/g1/alice"));
+        assertTrue(updates.containsKey("userGroups/user4/g1"));
+        assertEquals(6, ((Map<?, ?>) updates.get("groups/g1")).get("memberCount"));
+
+        List<String> withCreator = members(2);
+        withCreator.add("alice");
+        Map<String, Object> again = GroupChatPaths.createGroup("g1", "x", "alice", withCreator, 1000L);
+        assertEquals(3, ((Map<?, ?>) again.get("groups/g1")).get("memberCount"));
+    }
+
+    @Test
+    public void sendingWritesTheSameAmountForAnyGroupSize() {
+        Message message = new Message("-m1", "g1", "alice", null, "hi", 1000L, false);
+        Map<String, Object> updates = GroupChatPaths.sendMessage("g1", message);
+
+        assertEquals(6, updates.size());
+        assertSame(message, updates.get("groupMessages/g1/-m1"));
+        assertEquals("-m1", updates.get("userGroups/alice/g1/lastReadId"));
+        for (String path : updates.keySet()) {
+            assertFalse(path.startsWith("groupMembers/"));
+        }
+    }
+
+    @Test
+    public void readingMovesOnlyOneCursor() {
+        Map<String, Object> updates = GroupChatPaths.markRead("g1", "bob", "-m9");
+        assertEquals(1, updates.size());
+        assertEquals("-m9", updates.get("userGroups/bob/g1/lastReadId"));
+    }
+
+    @Test
+    public void leavingRemovesBothIndexEntries() {
+        Map<String, Object> updates = GroupChatPaths.leaveGroup("g1", "bob");
+        assertEquals(2, updates.size());
+        assertTrue(updates.containsKey("groupMembers/g1/bob"));
+        assertNull(updates.get("userGroups/bob/g1"));
+    }
+
+    @Test
+    public void laterPushIdsAreUnread() {
+        assertTrue(GroupChatPaths.isAfter("-Nb", "-Na"));
+        assertFalse(GroupChatPaths.isAfter("-Na", "-Na"));
+        assertTrue(GroupChatPaths.isAfter("-Na", null));
+        assertFalse(GroupChatPaths.isAfter(null, "-Na"));
+    }
+}
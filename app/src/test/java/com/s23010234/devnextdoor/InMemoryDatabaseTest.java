@@ -0,0 +1,254 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the in-memory database reads, queries and notifies the way Firebase does.
+ */
+public class InMemoryDatabaseTest {
+
+    private InMemoryDatabase database;
+    private long now = 1_000;
+
+    @Before
+    public void setUp() {
+        // Listener calls run straight away, so each test can check them right after a write
+        database = new InMemoryDatabase(Runnable::run, () -> now);
+    }
+
+    @Test
+    public void writesAndReadsByPath() {
+        database.set("users/alice", user("Colombo", 10));
+        database.update("", map("users/bob/city", "Kandy", "users/alice/bio", "Hi"));
+
+        assertEquals("Kandy", database.get("users/bob/city"));
+        assertEquals("Hi", database.get("/users/alice/bio/"));
+        assertEquals(10L, database.get("users/alice/timestamp"));   // whole numbers come back as Long
+        assertEquals(2, database.childCount("users"));
+
+        // Removing the last child removes the folders it leaves empty
+        database.remove("users/bob/city");
+        assertNull(database.get("users/bob"));
+        assertEquals(1, database.childCount("users"));
+    }
+
+    @Test
+    public void keysSortLikeFirebase() {
+        database.update("list", map("b", 1, "10", 1, "a", 1, "2", 1, "-1", 1, "01", 1));
+        assertEquals(Arrays.asList("-1", "2", "10", "01", "a", "b"), keysOf(database.get("list")));
+    }
+
+    @Test
+    public void orderByChildWithStartAtAndLimitToLast() {
+        for (int i = 0; i < 10; i++) {
+            database.set("messages/m" + i, map("timestamp", i * 100, "content", "hello " + i));
+        }
+
+        Object newest = database.query("messages",
+                InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").startAt(300).limitToLast(3));
+        assertEquals(Arrays.asList("m7", "m8", "m9"), keysOf(newest));
+
+        Object oldest = database.query("messages",
+                InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").startAt(300).limitToFirst(2));
+        assertEquals(Arrays.asList("m3", "m4"), keysOf(oldest));
+
+        Object nothing = database.query("messages",
+                InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").startAt(500).endAt(100));
+        assertNull(nothing);
+    }
+
+    @Test
+    public void equalToAndMissingValues() {
+        database.set("users/alice", user("Colombo", 1));
+        database.set("users/bob", user("Kandy", 2));
+        database.set("users/carol", user("Colombo", 3));
+        database.set("users/dave", map("bio", "No city yet"));
+
+        InMemoryDatabase.QuerySpec colombo = InMemoryDatabase.QuerySpec.ALL.orderByChild("city").equalTo("Colombo");
+        assertEquals(Arrays.asList("alice", "carol"), keysOf(database.query("users", colombo)));
+
+        // A child without the value sorts first
+        Object all = database.query("users", InMemoryDatabase.QuerySpec.ALL.orderByChild("city"));
+        assertEquals(Arrays.asList("dave", "alice", "carol", "bob"), keysOf(all));
+    }
+
+    @Test
+    public void indexFollowsWrites() {
+        database.set("users/alice", user("Colombo", 1));
+        database.set("users/bob", user("Kandy", 2));
+        InMemoryDatabase.QuerySpec colombo = InMemoryDatabase.QuerySpec.ALL.orderByChild("city").equalTo("Colombo");
+        assertEquals(Arrays.asList("alice"), keysOf(database.query("users", colombo)));
+
+        database.set("users/bob/city", "Colombo");
+        database.remove("users/alice");
+        database.set("users/carol", user("Colombo", 3));
+        assertEquals(Arrays.asList("bob", "carol"), keysOf(database.query("users", colombo)));
+
+        // Replacing the whole folder starts the index again
+        database.set("users", map("erin", user("Colombo", 4)));
+        assertEquals(Arrays.asList("erin"), keysOf(database.query("users", colombo)));
+    }
+
+    @Test
+    public void orderByValueAndMixedTypes() {
+        database.update("scores", map("a", "text", "b", 5, "c", true, "d", 2.5, "e", false));
+        Object sorted = database.query("scores", InMemoryDatabase.QuerySpec.ALL.orderByValue());
+        assertEquals(Arrays.asList("e", "c", "d", "b", "a"), keysOf(sorted));
+    }
+
+    @Test
+    public void serverValuesAreWorkedOut() {
+        Map<String, Object> increment = map(".sv", map("increment", 1));
+        database.update("", map("counters/alice/unread", increment, "chats/c1/lastSeen", map(".sv", "timestamp")));
+        database.update("", map("counters/alice/unread", increment));
+
+        assertEquals(2L, database.get("counters/alice/unread"));
+        assertEquals(now, database.get("chats/c1/lastSeen"));
+    }
+
+    @Test
+    public void transactionsCanAbort() {
+        database.set("counters/alice/unread", 3);
+        assertTrue(database.runTransaction("counters/alice/unread", current -> (Long) current - 1));
+        assertFalse(database.runTransaction("counters/alice/unread", current -> InMemoryDatabase.ABORT));
+        assertEquals(2L, database.get("counters/alice/unread"));
+    }
+
+    @Test
+    public void valueListenerHearsOnlyRealChanges() {
+        database.set("users/alice", user("Colombo", 1));
+        List<Object> heard = new ArrayList<>();
+        InMemoryDatabase.ValueListener listener = heard::add;
+        database.addValueListener("users/alice", InMemoryDatabase.QuerySpec.ALL, listener);
+        assertEquals(1, heard.size());
+
+        database.set("users/alice/bio", "Hello");             // below: changes the result
+        database.set("users/bob", user("Kandy", 2));          // beside: nothing to hear
+        database.set("users/alice/bio", "Hello");             // same value again
+        database.update("", map("users/alice/city", "Galle", "users/alice/bio", "Hey"));  // one call for both
+        assertEquals(3, heard.size());
+        assertEquals("Hey", ((Map<?, ?>) heard.get(2)).get("bio"));
+
+        database.remove("users");                             // above
+        assertEquals(4, heard.size());
+        assertNull(heard.get(3));
+
+        database.removeListener(listener);
+        database.set("users/alice", user("Colombo", 1));
+        assertEquals(4, heard.size());
+        assertEquals(0, database.listenerCount());
+    }
+
+    @Test
+    public void limitToLastChildListenerSlidesAlong() {
+        for (int i = 0; i < 5; i++) {
+            database.set("messages/m" + i, map("timestamp", i));
+        }
+        List<String> events = new ArrayList<>();
+        database.addChildListener("messages",
+                InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").limitToLast(2), recorder(events));
+        assertEquals(Arrays.asList("added m3 after null", "added m4 after m3"), events);
+
+        events.clear();
+        database.set("messages/m5", map("timestamp", 5));      // newest pushes the oldest out
+        database.set("messages/m0/read", true);                // outside the window: nothing
+        database.set("messages/m5/read", true);                // inside: changed
+        assertEquals(Arrays.asList("removed m3", "added m5 after m4", "changed m5 after m4"), events);
+    }
+
+    @Test
+    public void childListenerWithoutLimitFollowsItsRange() {
+        database.set("users/alice", user("Colombo", 1));
+        database.set("users/bob", user("Kandy", 2));
+        List<String> events = new ArrayList<>();
+        database.addChildListener("users",
+                InMemoryDatabase.QuerySpec.ALL.orderByChild("city").equalTo("Colombo"), recorder(events));
+        assertEquals(Arrays.asList("added alice after null"), events);
+
+        events.clear();
+        database.set("users/bob/city", "Colombo");             // moves into the range
+        database.set("users/alice/bio", "Hi");                 // changes inside it
+        database.set("users/alice/city", "Galle");             // leaves it
+        database.set("users/carol", user("Jaffna", 3));        // never in it
+        assertEquals(Arrays.asList("added bob after alice", "changed alice after null", "removed alice"), events);
+    }
+
+    @Test
+    public void hundredThousandUsers() {
+        String[] cities = { "Colombo", "Kandy", "Galle", "Jaffna", "Negombo" };
+        for (int i = 0; i < 100_000; i++) {
+            database.set("users/user" + i, user(cities[i % cities.length], i));
+        }
+        InMemoryDatabase.QuerySpec galle = InMemoryDatabase.QuerySpec.ALL.orderByChild("city").equalTo("Galle");
+        assertEquals(20_000, keysOf(database.query("users", galle)).size());
+        // Same city: ties go by key, as text
+        assertEquals(Arrays.asList("user10002", "user10007", "user10012"),
+                keysOf(database.query("users", galle.limitToFirst(3))));
+
+        InMemoryDatabase.QuerySpec newest = InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").limitToLast(2);
+        List<String> events = new ArrayList<>();
+        database.addChildListener("users", newest, recorder(events));
+        for (int i = 100_000; i < 100_100; i++) {
+            database.set("users/user" + i, user("Colombo", i));
+        }
+        assertEquals(2 + 2 * 100, events.size());
+        assertEquals(Arrays.asList("user100098", "user100099"), keysOf(database.query("users", newest)));
+    }
+
+    // ---- Helpers ----
+
+    private static InMemoryDatabase.ChildListener recorder(List<String> events) {
+        return new InMemoryDatabase.ChildListener() {
+            @Override
+            public void onChildAdded(String key, Object value, String previousKey) {
+                events.add("added " + key + " after " + previousKey);
+            }
+
+            @Override
+            public void onChildChanged(String key, Object value, String previousKey) {
+                events.add("changed " + key + " after " + previousKey);
+            }
+
+            @Override
+            public void onChildRemoved(String key, Object value) {
+                events.add("removed " + key);
+            }
+        };
+    }
+
+    private static Map<String, Object> user(String city, long timestamp) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("city", city);
+        user.put("timestamp", timestamp);
+        user.put("techStack", "Java, Kotlin");
+        return user;
+    }
+
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static List<String> keysOf(Object result) {
+        List<String> keys = new ArrayList<>();
+        if (result != null) {
+            for (Object key : ((Map<?, ?>) result).keySet()) {
+                keys.add((String) key);
+            }
+        }
+        return keys;
+    }
+}
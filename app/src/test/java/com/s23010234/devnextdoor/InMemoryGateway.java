@@ -0,0 +1,261 @@
+package com.s23010234.devnextdoor;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.InternalHelpers;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.OnDisconnect;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.database.core.utilities.encoding.CustomClassMapper;
+import com.google.firebase.database.core.view.QueryParams;
+import com.google.firebase.database.snapshot.ChildKey;
+import com.google.firebase.database.snapshot.Index;
+import com.google.firebase.database.snapshot.IndexedNode;
+import com.google.firebase.database.snapshot.Node;
+import com.google.firebase.database.snapshot.NodeUtilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A database gateway backed by InMemoryDatabase, so screens and managers can
+ * run on an ordinary computer (under Robolectric) with no Firebase server.
+ *
+ * References and queries are still real Firebase objects, taken from a
+ * FirebaseDatabase that has been put offline; only their path and query
+ * settings (orderBy, startAt, endAt, equalTo, limits) are read here and
+ * passed on to the in-memory engine. Answers come back as real DataSnapshots,
+ * on the main thread, like Firebase delivers them.
+ *
+ * Writes finish straight away (the returned Task is already complete).
+ * onDisconnect writes are accepted but never run, as if the app never lost
+ * its connection.
+ */
+public class InMemoryGateway implements DatabaseGateway {
+
+    private final FirebaseDatabase references;
+    private final InMemoryDatabase database;
+
+    // The engine listener made for each Firebase listener, so it can be removed again
+    private final Map<Object, Object> engineListeners = new HashMap<>();
+
+    public InMemoryGateway(FirebaseDatabase references) {
+        this.references = references;
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        this.database = new InMemoryDatabase(mainHandler::post);
+    }
+
+    /**
+     * The engine underneath, for filling it with test data and reading it back
+     */
+    public InMemoryDatabase database() {
+        return database;
+    }
+
+    /**
+     * Stores a value (a map, a model object like User, or a plain value) at a path
+     */
+    public void put(String path, Object value) {
+        database.set(path, CustomClassMapper.convertToPlainJavaTypes(value));
+    }
+
+    /**
+     * What a query returns right now, as plain Java values (see InMemoryDatabase.query)
+     */
+    public Object valueOf(Query query) {
+        return database.query(pathOf(query.getRef()), specOf(query));
+    }
+
+    // ---- DatabaseGateway ----
+
+    @Override
+    public DatabaseReference getReference() {
+        return references.getReference();
+    }
+
+    @Override
+    public DatabaseReference getReference(String path) {
+        return references.getReference(path);
+    }
+
+    @Override
+    public void readOnce(Query query, ValueEventListener listener) {
+        // A value listener that removes itself after the first answer
+        final DatabaseReference ref = query.getRef();
+        final Index index = query.getSpec().getParams().getIndex();
+        InMemoryDatabase.ValueListener once = new InMemoryDatabase.ValueListener() {
+            @Override
+            public void onValue(Object value) {
+                database.removeListener(this);
+                listener.onDataChange(snapshotOf(ref, value, index));
+            }
+        };
+        database.addValueListener(pathOf(ref), specOf(query), once);
+    }
+
+    @Override
+    public synchronized void listen(Query query, ValueEventListener listener) {
+        final DatabaseReference ref = query.getRef();
+        final Index index = query.getSpec().getParams().getIndex();
+        InMemoryDatabase.ValueListener engineListener =
+                value -> listener.onDataChange(snapshotOf(ref, value, index));
+        replace(listener, engineListener);
+        database.addValueListener(pathOf(ref), specOf(query), engineListener);
+    }
+
+    @Override
+    public synchronized void listen(Query query, ChildEventListener listener) {
+        final DatabaseReference ref = query.getRef();
+        InMemoryDatabase.ChildListener engineListener = new InMemoryDatabase.ChildListener() {
+            @Override
+            public void onChildAdded(String key, Object value, String previousKey) {
+                listener.onChildAdded(snapshotOf(ref.child(key), value, null), previousKey);
+            }
+
+            @Override
+            public void onChildChanged(String key, Object value, String previousKey) {
+                listener.onChildChanged(snapshotOf(ref.child(key), value, null), previousKey);
+            }
+
+            @Override
+            public void onChildRemoved(String key, Object value) {
+                listener.onChildRemoved(snapshotOf(ref.child(key), value, null));
+            }
+        };
+        replace(listener, engineListener);
+        database.addChildListener(pathOf(ref), specOf(query), engineListener);
+    }
+
+    @Override
+    public synchronized void stopListening(Query query, ValueEventListener listener) {
+        replace(listener, null);
+    }
+
+    @Override
+    public synchronized void stopListening(Query query, ChildEventListener listener) {
+        replace(listener, null);
+    }
+
+    @Override
+    public Task<Void> setValue(DatabaseReference ref, Object value) {
+        database.set(pathOf(ref), CustomClassMapper.convertToPlainJavaTypes(value));
+        return Tasks.forResult(null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Task<Void> updateChildren(DatabaseReference ref, Map<String, Object> values) {
+        database.update(pathOf(ref), (Map<String, Object>) CustomClassMapper.convertToPlainJavaTypes(values));
+        return Tasks.forResult(null);
+    }
+
+    @Override
+    public Task<Void> removeValue(DatabaseReference ref) {
+        database.remove(pathOf(ref));
+        return Tasks.forResult(null);
+    }
+
+    @Override
+    public void runTransaction(DatabaseReference ref, Transaction.Handler handler) {
+        String path = pathOf(ref);
+        boolean committed = database.runTransaction(path, current -> {
+            MutableData data = InternalHelpers.createMutableData(NodeUtilities.NodeFromJSON(current));
+            Transaction.Result result = handler.doTransaction(data);
+            return result.isSuccess() ? data.getValue() : InMemoryDatabase.ABORT;
+        });
+        DataSnapshot snapshot = snapshotOf(ref, database.get(path), null);
+        new Handler(Looper.getMainLooper()).post(() -> handler.onComplete(null, committed, snapshot));
+    }
+
+    @Override
+    public OnDisconnect onDisconnect(DatabaseReference ref) {
+        // Queued by the offline database and never sent
+        return ref.onDisconnect();
+    }
+
+    // ---- Firebase <-> engine ----
+
+    private void replace(Object firebaseListener, Object engineListener) {
+        Object old = engineListeners.remove(firebaseListener);
+        if (old != null) {
+            database.removeListener(old);
+        }
+        if (engineListener != null) {
+            engineListeners.put(firebaseListener, engineListener);
+        }
+    }
+
+    /**
+     * Reads a Firebase query's settings into the engine's QuerySpec
+     */
+    static InMemoryDatabase.QuerySpec specOf(Query query) {
+        QueryParams params = query.getSpec().getParams();
+        InMemoryDatabase.QuerySpec spec = InMemoryDatabase.QuerySpec.ALL;
+
+        // ".key", ".value", ".priority" or the child path given to orderByChild
+        String orderBy = params.getIndex().getQueryDefinition();
+        boolean byKey = ".key".equals(orderBy) || ".priority".equals(orderBy);
+        if (".value".equals(orderBy)) {
+            spec = spec.orderByValue();
+        } else if (!byKey) {
+            spec = spec.orderByChild(orderBy);
+        }
+
+        // For orderByKey the key itself is stored as the value
+        if (params.hasStart()) {
+            spec = byKey
+                    ? spec.startAt(params.getIndexStartValue().getValue())
+                    : spec.startAt(params.getIndexStartValue().getValue(), keyOf(params.getIndexStartName()));
+        }
+        if (params.hasEnd()) {
+            spec = byKey
+                    ? spec.endAt(params.getIndexEndValue().getValue())
+                    : spec.endAt(params.getIndexEndValue().getValue(), keyOf(params.getIndexEndName()));
+        }
+        if (params.hasLimit()) {
+            spec = params.isViewFromLeft() ? spec.limitToFirst(params.getLimit()) : spec.limitToLast(params.getLimit());
+        }
+        return spec;
+    }
+
+    private static String keyOf(ChildKey key) {
+        if (key.equals(ChildKey.getMinName())) {
+            return InMemoryDatabase.MIN_KEY;
+        }
+        if (key.equals(ChildKey.getMaxName())) {
+            return InMemoryDatabase.MAX_KEY;
+        }
+        return key.asString();
+    }
+
+    /**
+     * A real DataSnapshot holding a plain value, with children in the query's order
+     */
+    private static DataSnapshot snapshotOf(DatabaseReference ref, Object value, Index index) {
+        Node node = NodeUtilities.NodeFromJSON(value);
+        IndexedNode indexed = index == null ? IndexedNode.from(node) : IndexedNode.from(node, index);
+        return InternalHelpers.createDataSnapshot(ref, indexed);
+    }
+
+    /**
+     * "users/alice" for a reference to users/alice, "" for the top
+     */
+    static String pathOf(DatabaseReference ref) {
+        List<String> keys = new ArrayList<>();
+        for (DatabaseReference at = ref; at != null && at.getKey() != null; at = at.getParent()) {
+            keys.add(0, at.getKey());
+        }
+        return String.join("/", keys);
+    }
+}
@@ -0,0 +1,46 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stand-in for the Firebase notifications folder, kept in memory,
+ * so the retention job can be run in tests without a database.
+ * It answers straight away and counts the reads and writes it was asked for.
+ */
+public class InMemoryNotificationStore implements NotificationRetention.Store {
+
+    // username -> (notification id -> notification)
+    private final Map<String, Map<String, NotificationRetention.Entry>> folders = new HashMap<>();
+
+    int loads = 0;
+    int deleteWrites = 0;
+
+    public void add(String username, String id, long timestamp, boolean read) {
+        folders.computeIfAbsent(username, k -> new LinkedHashMap<>())
+                .put(id, new NotificationRetention.Entry(id, timestamp, read));
+    }
+
+    public Map<String, NotificationRetention.Entry> folder(String username) {
+        return folders.computeIfAbsent(username, k -> new LinkedHashMap<>());
+    }
+
+    @Override
+    public void loadEntries(String username, NotificationRetention.EntriesCallback callback) {
+        loads++;
+        callback.onSuccess(new ArrayList<>(folder(username).values()));
+    }
+
+    @Override
+    public void deleteEntries(String username, List<String> ids, NotificationRetention.DeleteCallback callback) {
+        deleteWrites++;
+        Map<String, NotificationRetention.Entry> folder = folder(username);
+        for (String id : ids) {
+            folder.remove(id);
+        }
+        callback.onSuccess();
+    }
+}
@@ -0,0 +1,103 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays a few sessions against the in-memory database and checks what they timed and wrote.
+ */
+public class LoadScenarioTest {
+
+    private SyntheticDataset dataset;
+    private InMemoryDatabase database;
+
+    @Before
+    public void setUp() throws Exception {
+        CityGazetteer cities = CityGazetteer.parse(new StringReader(
+                "Colombo,6.9271,79.8612,\nKandy,7.2906,80.6337,\n"));
+        dataset = new SyntheticDataset(new SyntheticDataset.Scale(100, 3, 2, 30, 5, 2),
+                cities, 42, System.currentTimeMillis());
+        database = new InMemoryDatabase(Runnable::run);
+        dataset.writeTo(updates -> database.update("", updates));
+    }
+
+    @Test
+    public void everyStepIsTimed() throws Exception {
+        LoadScenario scenario = new LoadScenario(LoadScenario.inMemory(database), dataset, 7);
+        scenario.run(10, 5);
+
+        assertEquals(10, scenario.getCount(LoadScenario.STEP_OPEN_HOMEPAGE));
+        assertEquals(10, scenario.getCount(LoadScenario.STEP_SEARCH));
+        assertEquals(10, scenario.getCount(LoadScenario.STEP_OPEN_CHAT));
+        assertEquals(50, scenario.getCount(LoadScenario.STEP_SEND));
+        assertTrue(scenario.getPercentileMicros(LoadScenario.STEP_SEND, 50)
+                <= scenario.getPercentileMicros(LoadScenario.STEP_SEND, 99));
+
+        String report = scenario.report();
+        assertTrue(report, report.contains(LoadScenario.STEP_OPEN_CHAT));
+        assertTrue(report, report.contains("p99"));
+    }
+
+    @Test
+    public void sendsLandWhereTheAppPutsThem() throws Exception {
+        LoadScenario scenario = new LoadScenario(LoadScenario.inMemory(database), dataset, 7);
+        scenario.run(1, 3);
+
+        // The one session's chat is the first one the same seed picks
+        int chat = new Random(7).nextInt(dataset.getChatCount());
+        String chatId = dataset.getChatId(chat);
+        String partner = dataset.getChatPartner(chat);
+        String month = MessageBuckets.bucketFor(System.currentTimeMillis());
+
+        assertEquals("Load test message 3", database.get("chats/" + chatId + "/lastMessage"));
+        assertEquals(dataset.getChatStarter(chat), database.get("chats/" + chatId + "/lastMessageSender"));
+        Map<?, ?> thisMonth = (Map<?, ?>) database.get("messages/" + chatId + "/" + month);
+        assertEquals((long) thisMonth.size(), database.get(MessageBuckets.countPath(chatId, month)));
+        assertTrue((Long) database.get(UnreadCounters.chatPath(chatId, partner)) >= 3);
+    }
+
+    @Test
+    public void openingAChatFilesLooseMessagesAndCountsStopAtZero() throws Exception {
+        int chat = new Random(7).nextInt(dataset.getChatCount());
+        String chatId = dataset.getChatId(chat);
+        String me = dataset.getChatStarter(chat);
+        long now = System.currentTimeMillis();
+        String month = MessageBuckets.bucketFor(now);
+
+        // An unread message kept the old way, and counts that have drifted to 0
+        Map<String, Object> loose = new HashMap<>();
+        loose.put("senderId", dataset.getChatPartner(chat));
+        loose.put("receiverId", me);
+        loose.put("content", "From the old app");
+        loose.put("timestamp", now);
+        loose.put("read", false);
+        database.set("messages/" + chatId + "/-loose", loose);
+        database.set(UnreadCounters.chatPath(chatId, me), 0L);
+        database.set(UnreadCounters.path(me, UnreadCounters.UNREAD_CHATS), 0L);
+
+        new LoadScenario(LoadScenario.inMemory(database), dataset, 7).run(1, 0);
+
+        assertNull(database.get("messages/" + chatId + "/-loose"));
+        assertEquals(true, database.get("messages/" + chatId + "/" + month + "/-loose/read"));
+        assertEquals(0L, database.get(UnreadCounters.chatPath(chatId, me)));
+        assertEquals(0L, database.get(UnreadCounters.path(me, UnreadCounters.UNREAD_CHATS)));
+    }
+
+    @Test
+    public void percentilesAreExact() throws Exception {
+        LoadScenario scenario = new LoadScenario(LoadScenario.inMemory(database), dataset, 7);
+        assertEquals(0, scenario.getPercentileMicros(LoadScenario.STEP_SEND, 50));
+
+        scenario.run(4, 0);
+        long max = scenario.getPercentileMicros(LoadScenario.STEP_SEARCH, 100);
+        assertEquals(max, scenario.getPercentileMicros(LoadScenario.STEP_SEARCH, 99));
+        assertTrue(scenario.getPercentileMicros(LoadScenario.STEP_SEARCH, 0) <= max);
+    }
+}
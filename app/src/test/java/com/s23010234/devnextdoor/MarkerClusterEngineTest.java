@@ -0,0 +1,118 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the marker clustering engine on the development machine.
+ */
+public class MarkerClusterEngineTest {
+
+    private static List<MarkerClusterEngine.Point> randomSriLankaPoints(int count, long seed) {
+        Random random = new Random(seed);
+        List<MarkerClusterEngine.Point> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new MarkerClusterEngine.Point("user" + i,
+                    5.9 + random.nextDouble() * 4.0, 79.7 + random.nextDouble() * 2.1));
+        }
+        return points;
+    }
+
+    @Test
+    public void everyLevelAccountsForEveryDeveloper() {
+        MarkerClusterEngine engine = new MarkerClusterEngine(0, 16, 60);
+        engine.build(randomSriLankaPoints(2_000, 1));
+
+        for (int zoom = 0; zoom <= 18; zoom++) {
+            int total = 0;
+            Set<String> ids = new HashSet<>();
+            for (MarkerClusterEngine.Cluster cluster : engine.getClusters(zoom)) {
+                total += cluster.getSize();
+                assertTrue("Duplicate id " + cluster.getId() + " at zoom " + zoom, ids.add(cluster.getId()));
+            }
+            assertEquals("Developers lost at zoom " + zoom, 2_000, total);
+        }
+    }
+
+    @Test
+    public void zoomingOutNeverAddsPins() {
+        MarkerClusterEngine engine = new MarkerClusterEngine(0, 16, 60);
+        engine.build(randomSriLankaPoints(2_000, 2));
+
+        int previous = Integer.MAX_VALUE;
+        for (int zoom = 17; zoom >= 0; zoom--) {
+            int pins = engine.getClusters(zoom).size();
+            assertTrue("More pins at zoom " + zoom + " than one level closer", pins <= previous);
+            previous = pins;
+        }
+        // The whole island fits in one pin at world zoom
+        assertEquals(1, engine.getClusters(0).size());
+        // Past maxZoom every developer has their own pin
+        assertEquals(2_000, engine.getClusters(17).size());
+    }
+
+    @Test
+    public void developersAtTheSamePlaceAreGroupedAtEveryLevel() {
+        List<MarkerClusterEngine.Point> points = new ArrayList<>();
+        points.add(new MarkerClusterEngine.Point("a", 6.9271, 79.8612));
+        points.add(new MarkerClusterEngine.Point("b", 6.9271, 79.8612));
+        points.add(new MarkerClusterEngine.Point("c", 9.6615, 80.0255));
+
+        MarkerClusterEngine engine = new MarkerClusterEngine(0, 16, 60);
+        engine.build(points);
+
+        List<MarkerClusterEngine.Cluster> atCityZoom = engine.getClusters(12);
+        assertEquals(2, atCityZoom.size());
+        for (MarkerClusterEngine.Cluster cluster : atCityZoom) {
+            if (cluster.isSingle()) {
+                assertEquals("c", cluster.getPointId());
+            } else {
+                assertEquals(2, cluster.getSize());
+                assertEquals(6.9271, cluster.getLatitude(), 1e-6);
+                assertEquals(79.8612, cluster.getLongitude(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void diffBetweenNeighbouringZoomLevelsOnlyTouchesChangedPins() {
+        MarkerClusterEngine engine = new MarkerClusterEngine(0, 16, 60);
+        engine.build(randomSriLankaPoints(500, 3));
+
+        List<MarkerClusterEngine.Cluster> before = engine.getClusters(9);
+        List<MarkerClusterEngine.Cluster> after = engine.getClusters(10);
+        Set<String> shown = new HashSet<>();
+        for (MarkerClusterEngine.Cluster cluster : before) {
+            shown.add(cluster.getId());
+        }
+
+        MarkerClusterEngine.Diff diff = MarkerClusterEngine.diff(shown, after);
+
+        // Applying the diff gives exactly the new level
+        Set<String> applied = new HashSet<>(shown);
+        applied.removeAll(diff.getRemovedIds());
+        for (MarkerClusterEngine.Cluster cluster : diff.getAdded()) {
+            applied.add(cluster.getId());
+        }
+        Set<String> expected = new HashSet<>();
+        for (MarkerClusterEngine.Cluster cluster : after) {
+            expected.add(cluster.getId());
+        }
+        assertEquals(expected, applied);
+
+        // Some pins are unchanged between the two levels and must be kept
+        assertTrue(diff.getAdded().size() < after.size());
+
+        // Showing the same level again changes nothing
+        MarkerClusterEngine.Diff none = MarkerClusterEngine.diff(expected, after);
+        assertTrue(none.getAdded().isEmpty());
+        assertTrue(none.getRemovedIds().isEmpty());
+    }
+}
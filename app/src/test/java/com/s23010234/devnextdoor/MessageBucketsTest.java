@@ -0,0 +1,47 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how messages are split into month folders and read back newest first.
+ */
+public class MessageBucketsTest {
+
+    // 2024-10-31T23:59:59.999Z and one millisecond later
+    private static final long END_OF_OCTOBER = 1_730_419_199_999L;
+
+    @Test
+    public void bucketIsTheUtcMonthOfTheTimestamp() {
+        assertEquals("202410", MessageBuckets.bucketFor(END_OF_OCTOBER));
+        assertEquals("202411", MessageBuckets.bucketFor(END_OF_OCTOBER + 1));
+        assertEquals("197001", MessageBuckets.bucketFor(0));
+    }
+
+    @Test
+    public void onlySixDigitMonthsAreBucketKeys() {
+        assertTrue(MessageBuckets.isBucketKey("202410"));
+        assertFalse(MessageBuckets.isBucketKey("202413"));
+        assertFalse(MessageBuckets.isBucketKey("-NxAbc_1730419199999"));
+        assertFalse(MessageBuckets.isBucketKey("2024"));
+        assertFalse(MessageBuckets.isBucketKey(null));
+    }
+
+    @Test
+    public void messagePathFilesTheMessageUnderItsMonth() {
+        assertEquals("messages/alice_bob/202410/-Nx1",
+                MessageBuckets.messagePath("alice_bob", "-Nx1", END_OF_OCTOBER));
+        assertEquals("messageBuckets/alice_bob/202410", MessageBuckets.countPath("alice_bob", "202410"));
+    }
+
+    @Test
+    public void readerOrderIsNewestFirstAndSkipsTheLiveMonth() {
+        List<String> keys = Arrays.asList("202312", "202410", "-Nx1", "202401", "202409");
+        assertEquals(Arrays.asList("202409", "202401", "202312"), MessageBuckets.newestFirst(keys, "202410"));
+        assertEquals(Arrays.asList("202410", "202409", "202401", "202312"), MessageBuckets.newestFirst(keys, null));
+    }
+}
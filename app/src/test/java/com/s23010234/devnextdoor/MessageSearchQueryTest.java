@@ -0,0 +1,57 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how typed text becomes a full-text search, and how matches are scored.
+ */
+public class MessageSearchQueryTest {
+
+    @Test
+    public void everyWordBecomesAPrefixSearch() {
+        assertEquals("meet* tom*", MessageSearchQuery.buildMatchExpression("  Meet TOM "));
+    }
+
+    @Test
+    public void searchSyntaxTypedByTheUserIsDropped() {
+        assertEquals("login* page*", MessageSearchQuery.buildMatchExpression("\"login\" -page*"));
+        assertEquals(Arrays.asList("a", "or", "b"), MessageSearchQuery.terms("a OR b"));
+        assertNull(MessageSearchQuery.buildMatchExpression("  *\"- "));
+        assertNull(MessageSearchQuery.buildMatchExpression(null));
+    }
+
+    @Test
+    public void onlyTheFirstWordsAreSearched() {
+        String input = "one two three four five six seven eight nine ten";
+        assertEquals(MessageSearchQuery.MAX_TERMS, MessageSearchQuery.terms(input).size());
+    }
+
+    /**
+     * matchinfo 'pcnalx' for one word in one column:
+     * p, c, n, average length, this length, hits here, hits everywhere, messages with hits
+     */
+    private static int[] matchinfo(int rows, int averageLength, int length, int hitsHere, int rowsWithHit) {
+        return new int[] { 1, 1, rows, averageLength, length, hitsHere, hitsHere, rowsWithHit };
+    }
+
+    @Test
+    public void shorterMessagesAndMoreHitsScoreHigher() {
+        double shortMessage = MessageSearchQuery.bm25Score(matchinfo(100, 10, 4, 1, 5));
+        double longMessage = MessageSearchQuery.bm25Score(matchinfo(100, 10, 40, 1, 5));
+        double twoHits = MessageSearchQuery.bm25Score(matchinfo(100, 10, 40, 2, 5));
+        assertTrue(shortMessage > longMessage);
+        assertTrue(twoHits > longMessage);
+    }
+
+    @Test
+    public void rareWordsScoreHigherThanCommonOnes() {
+        double rare = MessageSearchQuery.bm25Score(matchinfo(100, 10, 10, 1, 2));
+        double common = MessageSearchQuery.bm25Score(matchinfo(100, 10, 10, 1, 60));
+        assertTrue(rare > common);
+        assertTrue(common > 0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the counters and timing buckets behind the Performance screen.
+ */
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.setEnabled(true);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.reset();
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void sameNameGivesTheSameMetric() {
+        assertSame(Metrics.counter("test.same"), Metrics.counter("test.same"));
+        assertSame(Metrics.histogram("test.same"), Metrics.histogram("test.same"));
+    }
+
+    @Test
+    public void nothingIsRecordedWhileDisabled() {
+        Metrics.Counter counter = Metrics.counter("test.disabled");
+        Metrics.Histogram histogram = Metrics.histogram("test.disabled");
+        Metrics.setEnabled(false);
+
+        counter.increment();
+        counter.add(5);
+        histogram.record(1000);
+        assertEquals(0, Metrics.now());
+        histogram.recordSince(Metrics.now());
+
+        assertEquals(0, counter.get());
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void timingStartedWhileDisabledIsDropped() {
+        Metrics.Histogram histogram = Metrics.histogram("test.late");
+        Metrics.setEnabled(false);
+        long start = Metrics.now();
+        Metrics.setEnabled(true);
+
+        histogram.recordSince(start);
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void counterGoesUpAndDown() {
+        Metrics.Counter listeners = Metrics.counter("test.listeners");
+        listeners.increment();
+        listeners.increment();
+        listeners.decrement();
+        listeners.add(10);
+        assertEquals(11, listeners.get());
+    }
+
+    @Test
+    public void gaugeKeepsCountingWhileDisabledAndSurvivesReset() {
+        Metrics.Gauge listeners = Metrics.gauge("test.gauge.listeners");
+        assertSame(listeners, Metrics.gauge("test.gauge.listeners"));
+
+        // Attached while recording is off, removed after it is switched on
+        Metrics.setEnabled(false);
+        listeners.increment();
+        listeners.increment();
+        Metrics.setEnabled(true);
+        listeners.decrement();
+        assertEquals(1, listeners.get());
+
+        // Reset doesn't forget the listener that is still attached
+        Metrics.reset();
+        listeners.decrement();
+        assertEquals(0, listeners.get());
+        assertTrue(Metrics.report().contains("test.gauge.listeners"));
+    }
+
+    @Test
+    public void percentilesComeFromTheBuckets() {
+        Metrics.Histogram histogram = Metrics.histogram("test.percentiles");
+        // 90 fast reads (0.2 ms) and 10 slow ones (40 ms)
+        for (int i = 0; i < 90; i++) {
+            histogram.record(200);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(40_000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(40_000, histogram.getMaxMicros());
+        assertEquals((90 * 200 + 10 * 40_000) / 100.0, histogram.getMeanMicros(), 0.001);
+        assertEquals(250, histogram.getPercentileMicros(50));      // bucket "under 0.25 ms"
+        assertEquals(250, histogram.getPercentileMicros(90));
+        assertEquals(40_000, histogram.getPercentileMicros(95));   // bucket "under 50 ms", capped at the max
+    }
+
+    @Test
+    public void slowerThanTheLastBucketStillCounts() {
+        Metrics.Histogram histogram = Metrics.histogram("test.slow");
+        histogram.record(60_000_000);
+        assertEquals(Metrics.BUCKET_LIMITS_MICROS.length, Metrics.Histogram.bucketFor(60_000_000));
+        assertEquals(60_000_000, histogram.getPercentileMicros(50));
+    }
+
+    @Test
+    public void threadsRecordingAtOnceLoseNothing() throws Exception {
+        Metrics.Counter counter = Metrics.counter("test.threads");
+        Metrics.Histogram histogram = Metrics.histogram("test.threads");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.increment();
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, counter.get());
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void reportListsEveryMetric() {
+        Metrics.counter("test.report.reads").add(3);
+        Metrics.histogram("test.report.read").record(1500);
+
+        String report = Metrics.report();
+        assertTrue(report, report.contains("test.report.reads"));
+        assertTrue(report, report.contains("test.report.read "));
+        assertTrue(report, report.contains("1.50"));
+    }
+}
@@ -0,0 +1,165 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that marking and deleting notifications keeps the unread counter
+ * right, and never takes it below 0 when it has drifted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class NotificationCountersTest {
+
+    private static final String ME = "alice";
+    private static final List<String> IDS = Arrays.asList("-a", "-b", "-c");
+
+    private RecordingGateway gateway;
+    private NotificationManager manager;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FirebaseApp app = FirebaseApp.getApps(context).isEmpty()
+                ? FirebaseApp.initializeApp(context, new FirebaseOptions.Builder()
+                        .setApplicationId("1:000000000000:android:0000000000000000")
+                        .setApiKey("test-api-key")
+                        .setProjectId("devnextdoor-test")
+                        .setDatabaseUrl("https://devnextdoor-test.firebaseio.com")
+                        .build())
+                : FirebaseApp.getInstance();
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+
+        gateway = new RecordingGateway(database);
+        Database.setGateway(gateway);
+        for (String id : IDS) {
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("title", "Title");
+            notification.put("timestamp", 1_700_000_000_000L);
+            notification.put("read", false);
+            gateway.put("notifications/" + ME + "/" + id, notification);
+        }
+        manager = new NotificationManager();
+    }
+
+    @After
+    public void tearDown() {
+        Database.setGateway(null);
+    }
+
+    @Test
+    public void markingOneReadTakesOneOff() {
+        gateway.put(counterPath(), 3L);
+
+        manager.markNotificationAsRead(ME, "-b", succeeds());
+        idle();
+
+        assertEquals(true, gateway.get("notifications/" + ME + "/-b/read"));
+        assertEquals(2L, gateway.get(counterPath()));
+
+        // Already read - the counter stays where it is
+        manager.markNotificationAsRead(ME, "-b", succeeds());
+        idle();
+        assertEquals(2L, gateway.get(counterPath()));
+    }
+
+    @Test
+    public void markAllReadStopsAtZero() {
+        // The counter has drifted below the real number of unread notifications
+        gateway.put(counterPath(), 1L);
+
+        manager.markAllRead(ME, IDS, succeeds());
+        idle();
+
+        assertEquals(true, gateway.get("notifications/" + ME + "/-c/read"));
+        assertEquals(0L, gateway.get(counterPath()));
+    }
+
+    @Test
+    public void deleteManyStopsAtZero() {
+        gateway.put(counterPath(), 2L);
+
+        manager.deleteMany(ME, IDS, IDS.size(), succeeds());
+        idle();
+
+        assertNull(gateway.get("notifications/" + ME + "/-a"));
+        assertEquals(0L, gateway.get(counterPath()));
+    }
+
+    @Test
+    public void markAllReadReachesEveryUnreadOne() {
+        gateway.put(counterPath(), 3L);
+        Map<String, Object> alreadyRead = new HashMap<>();
+        alreadyRead.put("title", "Title");
+        alreadyRead.put("timestamp", 1_600_000_000_000L);
+        alreadyRead.put("read", true);
+        gateway.put("notifications/" + ME + "/-old", alreadyRead);
+
+        manager.markAllRead(ME, succeeds());
+        idle();
+
+        for (String id : IDS) {
+            assertEquals(true, gateway.get("notifications/" + ME + "/" + id + "/read"));
+        }
+        assertEquals(0L, gateway.get(counterPath()));
+        // Only the unread ones were downloaded
+        assertTrue("downloaded " + gateway.bytes() + " bytes",
+                gateway.bytes() < gateway.sizeOf("notifications/" + ME));
+    }
+
+    @Test
+    public void deleteAllEmptiesTheFolderAndTheCounter() {
+        gateway.put(counterPath(), 5L);
+
+        manager.deleteAll(ME, succeeds());
+        idle();
+
+        assertNull(gateway.get("notifications/" + ME));
+        assertEquals(0L, gateway.get(counterPath()));
+        assertEquals(gateway.log(), 0, gateway.reads());
+    }
+
+    private static String counterPath() {
+        return UnreadCounters.path(ME, UnreadCounters.UNREAD_NOTIFICATIONS);
+    }
+
+    private static NotificationManager.NotificationCallback succeeds() {
+        return new NotificationManager.NotificationCallback() {
+            @Override
+            public void onSuccess(boolean result) {
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+    }
+
+    private static void idle() {
+        shadowOf(getMainLooper()).idle();
+    }
+}
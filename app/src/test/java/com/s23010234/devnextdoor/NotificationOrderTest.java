@@ -0,0 +1,218 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that notifications come newest first when old ones are stored under
+ * millisecond keys and new ones under push IDs (every push ID sorts before
+ * every millisecond key, so the order has to come from the timestamps).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class NotificationOrderTest {
+
+    private static final String ME = "alice";
+    private static final long OLD = 1_700_000_000_000L;
+    private static final long NEW = 1_800_000_000_000L;
+    private static final int OLD_COUNT = 25;
+
+    private Application application;
+    private RecordingGateway gateway;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+        FirebaseApp app = FirebaseApp.getApps(application).isEmpty()
+                ? FirebaseApp.initializeApp(application, new FirebaseOptions.Builder()
+                        .setApplicationId("1:000000000000:android:0000000000000000")
+                        .setApiKey("test-api-key")
+                        .setProjectId("devnextdoor-test")
+                        .setDatabaseUrl("https://devnextdoor-test.firebaseio.com")
+                        .build())
+                : FirebaseApp.getInstance();
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+
+        gateway = new RecordingGateway(database);
+        Database.setGateway(gateway);
+
+        // Unread notifications from before push IDs, under their millisecond keys
+        for (int i = 0; i < OLD_COUNT; i++) {
+            gateway.put("notifications/" + ME + "/" + (OLD + i), notification(OLD + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Database.setGateway(null);
+    }
+
+    @Test
+    public void pagesGoNewestFirstAcrossBothKindsOfKey() {
+        Random random = new Random(1);
+        for (int i = 0; i < 3; i++) {
+            gateway.put("notifications/" + ME + "/" + SyntheticDataset.pushId(NEW + i, random), notification(NEW + i));
+        }
+        NotificationManager manager = new NotificationManager();
+
+        List<Notification> first = new ArrayList<>();
+        boolean[] firstHasMore = { false };
+        manager.getNotificationsPage(ME, 0, null, NotificationManager.PAGE_SIZE, pageInto(first, firstHasMore));
+        idle();
+
+        assertEquals(NotificationManager.PAGE_SIZE, first.size());
+        assertTrue(firstHasMore[0]);
+        assertEquals(NEW + 2, first.get(0).getTimestamp());
+        assertEquals(NEW, first.get(2).getTimestamp());
+        assertEquals(OLD + OLD_COUNT - 1, first.get(3).getTimestamp());
+
+        Notification oldest = first.get(first.size() - 1);
+        List<Notification> second = new ArrayList<>();
+        boolean[] secondHasMore = { true };
+        manager.getNotificationsPage(ME, oldest.getTimestamp(), oldest.getId(),
+                NotificationManager.PAGE_SIZE, pageInto(second, secondHasMore));
+        idle();
+
+        assertEquals(OLD_COUNT + 3 - NotificationManager.PAGE_SIZE, second.size());
+        assertFalse(secondHasMore[0]);
+        assertEquals(oldest.getTimestamp() - 1, second.get(0).getTimestamp());
+        assertEquals(OLD, second.get(second.size() - 1).getTimestamp());
+    }
+
+    @Test
+    public void newNotificationArrivesLiveAboveOldOnes() {
+        application.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", ME).commit();
+        NotificationStream.install(application);
+        try {
+            ActivityController<Activity> screen = Robolectric.buildActivity(Activity.class).setup();
+            idle();
+            List<Notification> shown = NotificationStream.getInstance().getNotifications();
+            assertEquals(NotificationManager.PAGE_SIZE, shown.size());
+            assertEquals(OLD + OLD_COUNT - 1, shown.get(0).getTimestamp());
+
+            Notification arriving = NotificationManager.createProfileCreatedNotification();
+            arriving.setTimestamp(NEW);
+            new NotificationManager().addNotification(ME, arriving, new NotificationManager.NotificationCallback() {
+                @Override
+                public void onSuccess(boolean result) {
+                }
+
+                @Override
+                public void onError(String error) {
+                    fail(error);
+                }
+            });
+            idle();
+
+            assertEquals(arriving.getId(), shown.get(0).getId());
+
+            // The oldest one was only pushed out of the newest page, so it stays
+            assertEquals(NotificationManager.PAGE_SIZE + 1, shown.size());
+            assertEquals(OLD + OLD_COUNT - NotificationManager.PAGE_SIZE, shown.get(shown.size() - 1).getTimestamp());
+
+            screen.pause().stop().destroy();
+        } finally {
+            NotificationStream.uninstall();
+        }
+    }
+
+    @Test
+    public void notificationsDeletedElsewhereLeaveTheList() {
+        application.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", ME).commit();
+        NotificationStream.install(application);
+        try {
+            ActivityController<Activity> screen = Robolectric.buildActivity(Activity.class).setup();
+            idle();
+            List<Notification> shown = NotificationStream.getInstance().getNotifications();
+            String middle = String.valueOf(OLD + OLD_COUNT - 3);
+            String oldest = String.valueOf(OLD + OLD_COUNT - NotificationManager.PAGE_SIZE);
+
+            // Deleted on another device, and by the daily tidy-up on this one
+            Database.get().removeValue(Database.get().getReference("notifications/" + ME + "/" + middle));
+            new NotificationManager().deleteEntries(ME, Collections.singletonList(oldest),
+                    new NotificationRetention.DeleteCallback() {
+                        @Override
+                        public void onSuccess() {
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            fail(error);
+                        }
+                    });
+            idle();
+
+            List<String> ids = new ArrayList<>();
+            for (Notification notification : shown) {
+                ids.add(notification.getId());
+            }
+            assertFalse(ids.contains(middle));
+            assertFalse(ids.contains(oldest));
+            // The page refilled with the next older ones
+            assertEquals(NotificationManager.PAGE_SIZE, shown.size());
+
+            screen.pause().stop().destroy();
+        } finally {
+            NotificationStream.uninstall();
+        }
+    }
+
+    private static NotificationManager.NotificationsPageCallback pageInto(List<Notification> page, boolean[] hasMore) {
+        return new NotificationManager.NotificationsPageCallback() {
+            @Override
+            public void onSuccess(List<Notification> notifications, boolean more) {
+                page.addAll(notifications);
+                hasMore[0] = more;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+    }
+
+    private static Map<String, Object> notification(long timestamp) {
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("title", "Title");
+        notification.put("message", "Message");
+        notification.put("type", Notification.Types.PROFILE_CREATED);
+        notification.put("timestamp", timestamp);
+        notification.put("read", false);
+        return notification;
+    }
+
+    private static void idle() {
+        shadowOf(getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,106 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the notification tidy-up rule, run against an in-memory store.
+ */
+public class NotificationRetentionTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static int run(NotificationRetention retention, InMemoryNotificationStore store, String username) {
+        final int[] deleted = { -1 };
+        retention.run(store, username, NOW, new NotificationRetention.RunCallback() {
+            @Override
+            public void onSuccess(int deletedCount) {
+                deleted[0] = deletedCount;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        return deleted[0];
+    }
+
+    @Test
+    public void oldReadNotificationsAreDeletedButUnreadOnesAreKept() {
+        InMemoryNotificationStore store = new InMemoryNotificationStore();
+        store.add("alice", "1", NOW - 40 * DAY, true);
+        store.add("alice", "2", NOW - 40 * DAY, false);
+        store.add("alice", "3", NOW - 2 * DAY, true);
+        store.add("bob", "4", NOW - 40 * DAY, true);
+
+        int deleted = run(new NotificationRetention(30 * DAY, 100), store, "alice");
+
+        assertEquals(1, deleted);
+        Map<String, NotificationRetention.Entry> folder = store.folder("alice");
+        assertFalse(folder.containsKey("1"));
+        assertTrue(folder.containsKey("2"));
+        assertTrue(folder.containsKey("3"));
+        // Other users are not touched
+        assertTrue(store.folder("bob").containsKey("4"));
+    }
+
+    @Test
+    public void onlyTheNewestReadNotificationsAreKeptPastTheCount() {
+        InMemoryNotificationStore store = new InMemoryNotificationStore();
+        for (int i = 0; i < 250; i++) {
+            // Every third one is unread
+            store.add("alice", "n" + i, NOW - i * 1000L, i % 3 != 0);
+        }
+
+        run(new NotificationRetention(30 * DAY, 50), store, "alice");
+
+        int read = 0;
+        int unread = 0;
+        for (NotificationRetention.Entry entry : store.folder("alice").values()) {
+            if (entry.isRead()) {
+                read++;
+                // The kept read ones are the newest
+                assertTrue(entry.getTimestamp() > NOW - 80 * 1000L);
+            } else {
+                unread++;
+            }
+        }
+        assertEquals(50, read);
+        assertEquals(84, unread);
+    }
+
+    @Test
+    public void oneReadAndAtMostOneWritePerRun() {
+        InMemoryNotificationStore store = new InMemoryNotificationStore();
+        for (int i = 0; i < 500; i++) {
+            store.add("alice", "n" + i, NOW - 60 * DAY + i, true);
+        }
+
+        NotificationRetention retention = new NotificationRetention();
+        assertEquals(500, run(retention, store, "alice"));
+        assertEquals(1, store.loads);
+        assertEquals(1, store.deleteWrites);
+
+        // Running again finds nothing to do and writes nothing
+        assertEquals(0, run(retention, store, "alice"));
+        assertEquals(1, store.deleteWrites);
+    }
+
+    @Test
+    public void selectionIsOldestFirst() {
+        InMemoryNotificationStore store = new InMemoryNotificationStore();
+        store.add("alice", "b", NOW - 31 * DAY, true);
+        store.add("alice", "a", NOW - 45 * DAY, true);
+        List<String> ids = new NotificationRetention().selectForDeletion(
+                new ArrayList<>(store.folder("alice").values()), NOW);
+        assertEquals(Arrays.asList("a", "b"), ids);
+    }
+}
@@ -0,0 +1,30 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the "use commas between items" rule on the Edit Profile screen.
+ */
+public class ProfileTextFormatTest {
+
+    @Test
+    public void listsWithCommasAndShortEntriesAreAccepted() {
+        assertTrue(ProfileTextFormat.isValidCommaSeparatedFormat("Java Kotlin Python, Go"));
+        assertTrue(ProfileTextFormat.isValidCommaSeparatedFormat("React Native"));
+        assertTrue(ProfileTextFormat.isValidCommaSeparatedFormat("   "));
+        assertTrue(ProfileTextFormat.isValidCommaSeparatedFormat(null));
+    }
+
+    @Test
+    public void manyWordsWithoutCommasAreRejected() {
+        assertFalse(ProfileTextFormat.isValidCommaSeparatedFormat("Java Kotlin Python"));
+        assertFalse(ProfileTextFormat.isValidCommaSeparatedFormat("Spring Boot Java Docker"));
+    }
+
+    @Test
+    public void knownThreeWordTechNamesAreAccepted() {
+        assertTrue(ProfileTextFormat.isValidCommaSeparatedFormat("Spring Boot apps"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Read budgets for the main screens.
+ *
+ * Each test opens a screen against a RecordingGateway and checks how many
+ * reads and listeners it used and how much data it pulled down. If a change
+ * makes a screen read the whole users list twice, or leaves a listener
+ * running after the screen is gone, one of these fails.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class ReadBudgetTest {
+
+    private static final String ME = "alice";
+    private static final int OTHER_USERS = 40;
+
+    private RecordingGateway gateway;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FirebaseApp app = FirebaseApp.getApps(context).isEmpty()
+                ? FirebaseApp.initializeApp(context, new FirebaseOptions.Builder()
+                        .setApplicationId("1:000000000000:android:0000000000000000")
+                        .setApiKey("test-api-key")
+                        .setProjectId("devnextdoor-test")
+                        .setDatabaseUrl("https://devnextdoor-test.firebaseio.com")
+                        .build())
+                : FirebaseApp.getInstance();
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+
+        gateway = new RecordingGateway(database);
+        Database.setGateway(gateway);
+
+        context.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", ME).commit();
+
+        gateway.put("users/" + ME, user(ME));
+        for (int i = 0; i < OTHER_USERS; i++) {
+            gateway.put("users/dev" + i, user("dev" + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Database.setGateway(null);
+    }
+
+    @Test
+    public void homepageReadsUsersOncePerVisit() {
+        ActivityController<HomepageActivity> homepage =
+                Robolectric.buildActivity(HomepageActivity.class).setup();
+        idle();
+        assertEquals(gateway.log(), 1, gateway.reads("users"));
+
+        // Pausing (a dialog, the notification shade) must not reload anything
+        homepage.pause().resume();
+        idle();
+        assertEquals(gateway.log(), 1, gateway.reads("users"));
+
+        // Coming back from another screen refreshes once
+        homepage.pause().stop().restart().start().resume();
+        idle();
+        assertEquals(gateway.log(), 2, gateway.reads("users"));
+
+        homepage.pause().stop().destroy();
+        assertEquals(0, gateway.activeListeners());
+    }
+
+    @Test
+    public void favoritesOnlyReadsTheFavoritedUsers() {
+        gateway.put("users/" + ME + "/favorites/dev1", true);
+        gateway.put("users/" + ME + "/favorites/dev2", true);
+        gateway.put("users/" + ME + "/favorites/dev3", true);
+
+        ActivityController<FavoritesActivity> favorites =
+                Robolectric.buildActivity(FavoritesActivity.class).setup();
+        idle();
+
+        // One read for the list of favorites, then one per favorite
+        assertEquals(gateway.log(), 1 + 3, gateway.reads());
+        assertEquals(0, gateway.reads("users"));
+        assertEquals(0, gateway.listens());
+        assertTrue("downloaded " + gateway.bytes() + " bytes", gateway.bytes() < gateway.sizeOf("users"));
+
+        favorites.pause().stop().destroy();
+    }
+
+    @Test
+    public void chatsKeepsOneListenerAndDropsItWhenHidden() {
+        Map<String, Object> chat = new HashMap<>();
+        chat.put("participant1", ME);
+        chat.put("participant2", "dev1");
+        chat.put("lastMessage", "hi");
+        chat.put("lastMessageTimestamp", 1000L);
+        gateway.put("chats/" + ME + "_dev1", chat);
+
+        ActivityController<ChatsActivity> chats =
+                Robolectric.buildActivity(ChatsActivity.class).setup();
+        idle();
+        assertEquals(gateway.log(), 1, gateway.activeListeners());
+
+        // Going back and forth must not stack up listeners
+        for (int i = 0; i < 3; i++) {
+            chats.pause().stop();
+            idle();
+            assertEquals(gateway.log(), 0, gateway.activeListeners());
+            chats.restart().start().resume();
+            idle();
+            assertEquals(gateway.log(), 1, gateway.activeListeners());
+        }
+        assertEquals(4, gateway.listens("chats"));
+
+        chats.pause().stop().destroy();
+        assertEquals(gateway.log(), 0, gateway.activeListeners());
+    }
+
+    @Test
+    public void searchReadsUsersOnce() {
+        ActivityController<SearchActivity> search =
+                Robolectric.buildActivity(SearchActivity.class).setup();
+        idle();
+        assertEquals(gateway.log(), 1, gateway.reads("users"));
+        assertEquals(0, gateway.listens());
+
+        search.pause().stop().destroy();
+    }
+
+    private static Map<String, Object> user(String username) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("username", username);
+        user.put("gender", "Other");
+        user.put("bio", "Hello, I'm " + username);
+        user.put("techStack", "Java, Kotlin");
+        user.put("wantToLearn", "Rust");
+        user.put("level", "Intermediate");
+        user.put("city", "Colombo");
+        user.put("goals", "Build things");
+        user.put("availability", "Weekends");
+        user.put("timeOfDay", "Evening");
+        user.put("profileCompleted", true);
+        user.put("timestamp", 1000L);
+        return user;
+    }
+
+    private static void idle() {
+        shadowOf(getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,222 @@
+package com.s23010234.devnextdoor;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.OnDisconnect;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A database gateway for tests that counts every read, listener, write and
+ * byte a screen asks for, so a test can say how much a screen is allowed to use.
+ *
+ * The data itself lives in an InMemoryGateway, so queries (orderBy, startAt,
+ * limitToLast, ...) and listeners behave the way the real database does.
+ */
+public class RecordingGateway implements DatabaseGateway {
+
+    private final InMemoryGateway gateway;
+
+    // What was asked for, one entry per call, e.g. "read users/alice"
+    private final List<String> log = new ArrayList<>();
+    private final Map<String, Integer> readsByPath = new HashMap<>();
+    private final Map<String, Integer> listensByPath = new HashMap<>();
+    private final Set<Object> activeListeners = new HashSet<>();
+    private int reads = 0;
+    private int listens = 0;
+    private int writes = 0;
+    private long bytes = 0;
+
+    public RecordingGateway(FirebaseDatabase database) {
+        this.gateway = new InMemoryGateway(database);
+    }
+
+    // ---- Test data ----
+
+    /**
+     * Stores a value (a map, a model object like User, or a plain value) at a path
+     */
+    public void put(String path, Object value) {
+        gateway.put(path, value);
+    }
+
+    /**
+     * The value stored at a path (null if there is nothing there)
+     */
+    public Object get(String path) {
+        return gateway.database().get(path);
+    }
+
+    /**
+     * Roughly how many bytes of JSON the data at a path would be
+     */
+    public long sizeOf(String path) {
+        return jsonLength(gateway.database().get(path));
+    }
+
+    // ---- Counts ----
+
+    public int reads() {
+        return reads;
+    }
+
+    public int reads(String path) {
+        Integer count = readsByPath.get(path);
+        return count == null ? 0 : count;
+    }
+
+    public int listens() {
+        return listens;
+    }
+
+    public int listens(String path) {
+        Integer count = listensByPath.get(path);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Listeners added and not yet removed
+     */
+    public int activeListeners() {
+        return activeListeners.size();
+    }
+
+    public int writes() {
+        return writes;
+    }
+
+    /**
+     * Bytes of data handed to reads, and to listeners when they were added
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Every call made so far, for failure messages
+     */
+    public String log() {
+        return String.join("\n", log);
+    }
+
+    // ---- DatabaseGateway ----
+
+    @Override
+    public DatabaseReference getReference() {
+        return gateway.getReference();
+    }
+
+    @Override
+    public DatabaseReference getReference(String path) {
+        return gateway.getReference(path);
+    }
+
+    @Override
+    public void readOnce(Query query, ValueEventListener listener) {
+        String path = InMemoryGateway.pathOf(query.getRef());
+        reads++;
+        readsByPath.put(path, reads(path) + 1);
+        log.add("read " + path);
+        bytes += jsonLength(gateway.valueOf(query));
+        gateway.readOnce(query, listener);
+    }
+
+    @Override
+    public void listen(Query query, ValueEventListener listener) {
+        startListening(query, listener);
+        gateway.listen(query, listener);
+    }
+
+    @Override
+    public void listen(Query query, ChildEventListener listener) {
+        startListening(query, listener);
+        gateway.listen(query, listener);
+    }
+
+    @Override
+    public void stopListening(Query query, ValueEventListener listener) {
+        activeListeners.remove(listener);
+        gateway.stopListening(query, listener);
+    }
+
+    @Override
+    public void stopListening(Query query, ChildEventListener listener) {
+        activeListeners.remove(listener);
+        gateway.stopListening(query, listener);
+    }
+
+    @Override
+    public Task<Void> setValue(DatabaseReference ref, Object value) {
+        countWrite("set", ref);
+        return gateway.setValue(ref, value);
+    }
+
+    @Override
+    public Task<Void> updateChildren(DatabaseReference ref, Map<String, Object> values) {
+        countWrite("update", ref);
+        return gateway.updateChildren(ref, values);
+    }
+
+    @Override
+    public Task<Void> removeValue(DatabaseReference ref) {
+        countWrite("remove", ref);
+        return gateway.removeValue(ref);
+    }
+
+    @Override
+    public void runTransaction(DatabaseReference ref, Transaction.Handler handler) {
+        countWrite("transaction", ref);
+        gateway.runTransaction(ref, handler);
+    }
+
+    @Override
+    public OnDisconnect onDisconnect(DatabaseReference ref) {
+        return gateway.onDisconnect(ref);
+    }
+
+    // ---- Helpers ----
+
+    private void startListening(Query query, Object listener) {
+        String path = InMemoryGateway.pathOf(query.getRef());
+        listens++;
+        listensByPath.put(path, listens(path) + 1);
+        activeListeners.add(listener);
+        log.add("listen " + path);
+        bytes += jsonLength(gateway.valueOf(query));
+    }
+
+    private void countWrite(String kind, DatabaseReference ref) {
+        writes++;
+        log.add(kind + " " + InMemoryGateway.pathOf(ref));
+    }
+
+    /**
+     * Length of a value written as JSON (close enough to what goes over the wire)
+     */
+    static long jsonLength(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 2;
+        }
+        if (value instanceof Map) {
+            long length = 2;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                length += String.valueOf(entry.getKey()).length() + 4 + jsonLength(entry.getValue());
+            }
+            return length;
+        }
+        return String.valueOf(value).length();
+    }
+}
@@ -0,0 +1,150 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays accelerometer traces through ShakeKernel on the development machine.
+ *
+ * Each trace in src/test/resources/shake_traces is a CSV file of
+ * "timestamp_ns,x,y,z" rows with an "# expected=shake" or "# expected=no_shake"
+ * header. A trace counts as a detected shake when the kernel reaches a shake
+ * count of 2, which is what ShakeBaseActivity needs before it opens Settings.
+ * Traces recorded on a real device in the same format can be dropped into the
+ * folder and added to TRACE_NAMES.
+ *
+ * Only the results are checked here. How fast the kernel is, and whether it
+ * allocates, is measured by ShakeKernelBenchmark in the benchmark module.
+ */
+public class ShakeKernelTraceReplayTest {
+
+    private static final String TRACE_FOLDER = "shake_traces/";
+
+    private static final String[] TRACE_NAMES = {
+            "rest_on_table.csv",
+            "walking_in_pocket.csv",
+            "pickup_and_rotate.csv",
+            "single_bump.csv",
+            "two_jolts_far_apart.csv",
+            "shake_flat_x.csv",
+            "shake_upright_y.csv",
+            "walk_then_shake.csv"
+    };
+
+    // Shake count ShakeBaseActivity needs before it reacts
+    private static final int TRIGGER_COUNT = 2;
+
+    private static final List<Trace> traces = new ArrayList<>();
+
+    @BeforeClass
+    public static void loadTraces() throws IOException {
+        for (String name : TRACE_NAMES) {
+            traces.add(Trace.load(name));
+        }
+    }
+
+    @Test
+    public void everyTraceIsClassifiedCorrectly() {
+        for (Trace trace : traces) {
+            int highestCount = replay(new ShakeKernel(), trace);
+            assertEquals("Wrong result for " + trace.name + " (highest count " + highestCount + ")",
+                    trace.expectShake, highestCount >= TRIGGER_COUNT);
+        }
+    }
+
+    @Test
+    public void resetForgetsPreviousSession() {
+        Trace shake = find("shake_flat_x.csv");
+        Trace rest = find("rest_on_table.csv");
+
+        ShakeKernel kernel = new ShakeKernel();
+        replay(kernel, shake);
+        kernel.reset();
+
+        // After a reset a quiet trace must not continue the old shake series
+        assertEquals(0, replay(kernel, rest));
+    }
+
+    /**
+     * Feeds a whole trace through the kernel and returns the highest shake count reached
+     */
+    private static int replay(ShakeKernel kernel, Trace trace) {
+        int highestCount = 0;
+        for (int i = 0; i < trace.size; i++) {
+            int count = kernel.onSample(trace.timestamps[i], trace.x[i], trace.y[i], trace.z[i]);
+            highestCount = Math.max(highestCount, count);
+        }
+        return highestCount;
+    }
+
+    private static Trace find(String name) {
+        for (Trace trace : traces) {
+            if (trace.name.equals(name)) {
+                return trace;
+            }
+        }
+        throw new IllegalArgumentException("Unknown trace " + name);
+    }
+
+    /**
+     * One recorded trace, stored as plain arrays
+     */
+    private static class Trace {
+        final String name;
+        final boolean expectShake;
+        final int size;
+        final long[] timestamps;
+        final float[] x;
+        final float[] y;
+        final float[] z;
+
+        private Trace(String name, boolean expectShake, List<String[]> rows) {
+            this.name = name;
+            this.expectShake = expectShake;
+            this.size = rows.size();
+            this.timestamps = new long[size];
+            this.x = new float[size];
+            this.y = new float[size];
+            this.z = new float[size];
+            for (int i = 0; i < size; i++) {
+                String[] row = rows.get(i);
+                timestamps[i] = Long.parseLong(row[0]);
+                x[i] = Float.parseFloat(row[1]);
+                y[i] = Float.parseFloat(row[2]);
+                z[i] = Float.parseFloat(row[3]);
+            }
+        }
+
+        static Trace load(String name) throws IOException {
+            InputStream stream = ShakeKernelTraceReplayTest.class.getClassLoader()
+                    .getResourceAsStream(TRACE_FOLDER + name);
+            assertNotNull("Missing trace " + name, stream);
+
+            Boolean expectShake = null;
+            List<String[]> rows = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.startsWith("# expected=")) {
+                        expectShake = line.substring("# expected=".length()).equals("shake");
+                    } else if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("timestamp_ns")) {
+                        rows.add(line.split(","));
+                    }
+                }
+            }
+            assertNotNull("Trace " + name + " has no '# expected=' line", expectShake);
+            return new Trace(name, expectShake, rows);
+        }
+    }
+}
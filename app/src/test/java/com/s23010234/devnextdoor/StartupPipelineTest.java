@@ -0,0 +1,176 @@
+package com.s23010234.devnextdoor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that a returning user's first screens are downloaded during startup,
+ * and that nothing is left downloading once those screens have opened.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class StartupPipelineTest {
+
+    private static final String ME = "alice";
+
+    private Application application;
+    private RecordingGateway gateway;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+        FirebaseApp app = FirebaseApp.getApps(application).isEmpty()
+                ? FirebaseApp.initializeApp(application, new FirebaseOptions.Builder()
+                        .setApplicationId("1:000000000000:android:0000000000000000")
+                        .setApiKey("test-api-key")
+                        .setProjectId("devnextdoor-test")
+                        .setDatabaseUrl("https://devnextdoor-test.firebaseio.com")
+                        .build())
+                : FirebaseApp.getInstance();
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+
+        gateway = new RecordingGateway(database);
+        Database.setGateway(gateway);
+
+        Map<String, Object> user = new HashMap<>();
+        user.put("username", ME);
+        user.put("city", "Colombo");
+        user.put("profileCompleted", true);
+        gateway.put("users/" + ME, user);
+        gateway.put("users/dev1", user);
+
+        Metrics.setEnabled(true);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Database.setGateway(null);
+        Metrics.reset();
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void returningUserIsWarmedUp() {
+        application.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE)
+                .edit().putString("username", ME).commit();
+
+        // The background stages run straight away here
+        new StartupPipeline(application, Runnable::run).start();
+        idle();
+
+        assertEquals(gateway.log(), 1, gateway.listens("users/" + ME));
+        assertEquals(gateway.log(), 1, gateway.listens("users"));
+        assertEquals(gateway.log(), 1, gateway.listens("chats"));
+        assertEquals(0, gateway.reads());
+        assertEquals(1, Metrics.histogram("startup.session").getCount());
+        assertEquals(1, Metrics.histogram("startup.warm.homepage").getCount());
+    }
+
+    @Test
+    public void nobodyLoggedInMeansNothingToWarm() {
+        new StartupPipeline(application, Runnable::run).start();
+        idle();
+
+        assertEquals(gateway.log(), 0, gateway.listens());
+        assertEquals(1, Metrics.histogram("startup.firebase").getCount());
+    }
+
+    @Test
+    public void dailyTidyUpRunsOnTheFirstScreen() {
+        // The shared streams no longer make their managers when the app starts,
+        // so the first screen of a new day must find them made on demand
+        long twoDaysAgo = System.currentTimeMillis() - 2L * 24 * 60 * 60 * 1000;
+        application.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE).edit()
+                .putString("username", ME)
+                .putLong("notificationsCompactedAt_" + ME, twoDaysAgo)
+                .commit();
+        gateway.put("notifications/" + ME + "/1700000000000", notification(true));
+        gateway.put("notifications/" + ME + "/1700000000001", notification(false));
+
+        NotificationStream.install(application);
+        try {
+            ActivityController<Activity> screen = Robolectric.buildActivity(Activity.class).setup();
+            idle();
+
+            // The old read notification is gone, the unread one is kept and counted
+            assertNull(gateway.log(), gateway.get("notifications/" + ME + "/1700000000000"));
+            assertNotNull(gateway.get("notifications/" + ME + "/1700000000001"));
+            assertEquals(1L, gateway.get(UnreadCounters.path(ME, UnreadCounters.UNREAD_NOTIFICATIONS)));
+            assertEquals(1, NotificationStream.getInstance().getNotifications().size());
+            assertTrue(application.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE)
+                    .getLong("notificationsCompactedAt_" + ME, 0) > twoDaysAgo);
+
+            screen.pause().stop().destroy();
+        } finally {
+            NotificationStream.uninstall();
+        }
+    }
+
+    @Test
+    public void warmDataIsLetGoOnceItsScreenOpens() {
+        StartupPipeline pipeline = new StartupPipeline(application, Runnable::run);
+        application.registerActivityLifecycleCallbacks(pipeline);
+        try {
+            pipeline.warmUp(ME);
+            idle();
+            assertEquals(gateway.log(), 3, gateway.activeListeners());
+
+            // The homepage makes its own read, so the profile and user list stop being followed
+            application.getSharedPreferences("DevNextDoorPrefs", Context.MODE_PRIVATE)
+                    .edit().putString("username", ME).commit();
+            ActivityController<HomepageActivity> homepage =
+                    Robolectric.buildActivity(HomepageActivity.class).setup();
+            idle();
+            assertEquals(gateway.log(), 1, gateway.activeListeners());
+            assertEquals(gateway.log(), 1, gateway.reads("users"));
+
+            // The chat list is let go after a while, even if Chats never opens
+            shadowOf(getMainLooper()).idleFor(StartupPipeline.KEEP_WARM_MILLIS, TimeUnit.MILLISECONDS);
+            assertEquals(gateway.log(), 0, gateway.activeListeners());
+
+            homepage.pause().stop().destroy();
+        } finally {
+            application.unregisterActivityLifecycleCallbacks(pipeline);
+        }
+    }
+
+    private static Map<String, Object> notification(boolean read) {
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("title", "Title");
+        notification.put("message", "Message");
+        notification.put("type", Notification.Types.PROFILE_CREATED);
+        notification.put("timestamp", 1_700_000_000_000L);
+        notification.put("read", read);
+        return notification;
+    }
+
+    private static void idle() {
+        shadowOf(getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,147 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the made-up data is repeatable and laid out the way the app reads it.
+ */
+public class SyntheticDatasetTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    // A small scale that still has every kind of data
+    private static final SyntheticDataset.Scale SCALE = new SyntheticDataset.Scale(200, 5, 2, 10, 6, 3);
+
+    private CityGazetteer cities;
+
+    @Before
+    public void setUp() throws Exception {
+        cities = CityGazetteer.parse(new StringReader(
+                "name,latitude,longitude,aliases\n"
+                        + "Colombo,6.9271,79.8612,\n"
+                        + "Kandy,7.2906,80.6337,\n"
+                        + "Galle,6.0535,80.2210,\n"));
+    }
+
+    @Test
+    public void sameSeedMakesTheSameData() throws Exception {
+        Map<String, Object> first = new HashMap<>();
+        Map<String, Object> second = new HashMap<>();
+        new SyntheticDataset(SCALE, cities, 42, NOW).writeTo(first::putAll);
+        new SyntheticDataset(SCALE, cities, 42, NOW).writeTo(second::putAll);
+        assertEquals(first, second);
+
+        Map<String, Object> other = new HashMap<>();
+        new SyntheticDataset(SCALE, cities, 43, NOW).writeTo(other::putAll);
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    public void writesInBatches() throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        long written = new SyntheticDataset(SCALE, cities, 42, NOW).writeTo(updates -> sizes.add(updates.size()));
+
+        long total = 0;
+        for (int size : sizes) {
+            assertTrue(size <= SyntheticDataset.BATCH_SIZE);
+            total += size;
+        }
+        assertEquals(written, total);
+        assertTrue(sizes.size() > 1);
+    }
+
+    @Test
+    public void everythingIsWhereTheAppLooks() throws Exception {
+        SyntheticDataset dataset = new SyntheticDataset(SCALE, cities, 42, NOW);
+        InMemoryDatabase database = new InMemoryDatabase(Runnable::run);
+        dataset.writeTo(updates -> database.update("", updates));
+
+        assertEquals(SCALE.users, database.childCount("users"));
+        assertEquals(dataset.getChatCount(), database.childCount("chats"));
+        assertTrue(dataset.getChatCount() > SCALE.users);
+
+        String someone = dataset.getUsername(7);
+        Map<?, ?> user = (Map<?, ?>) database.get("users/" + someone);
+        assertEquals(dataset.getCity(7), user.get("city"));
+        assertEquals(true, user.get("profileCompleted"));
+        assertEquals(true, database.get("geo/" + user.get("geohash") + "/" + someone));
+        assertNotEquals(CityGazetteer.UNKNOWN, cities.indexOf((String) user.get("city")));
+        assertEquals(SCALE.notificationsPerUser, database.childCount("notifications/" + someone));
+
+        // Nobody is their own favorite
+        for (int i = 0; i < SCALE.users; i++) {
+            assertNull(database.get("users/" + dataset.getUsername(i) + "/favorites/" + dataset.getUsername(i)));
+        }
+    }
+
+    @Test
+    public void countsAgreeWithTheMessages() throws Exception {
+        SyntheticDataset dataset = new SyntheticDataset(SCALE, cities, 42, NOW);
+        InMemoryDatabase database = new InMemoryDatabase(Runnable::run);
+        dataset.writeTo(updates -> database.update("", updates));
+
+        Map<String, Long> unreadByUser = new HashMap<>();
+        for (int c = 0; c < dataset.getChatCount(); c++) {
+            String chatId = dataset.getChatId(c);
+            Map<?, ?> months = (Map<?, ?>) database.get("messages/" + chatId);
+            long newest = 0;
+            for (Map.Entry<?, ?> month : months.entrySet()) {
+                // Each month's count matches what is in it
+                assertEquals(database.get("messageBuckets/" + chatId + "/" + month.getKey()),
+                        (long) ((Map<?, ?>) month.getValue()).size());
+                for (Object value : ((Map<?, ?>) month.getValue()).values()) {
+                    Map<?, ?> message = (Map<?, ?>) value;
+                    newest = Math.max(newest, (Long) message.get("timestamp"));
+                    if (Boolean.FALSE.equals(message.get("read"))) {
+                        unreadByUser.merge((String) message.get("receiverId"), 1L, Long::sum);
+                    }
+                }
+            }
+            assertEquals(newest, database.get("chats/" + chatId + "/lastMessageTimestamp"));
+            assertTrue(newest <= NOW);
+        }
+
+        // The unread badges match the unread messages
+        for (int i = 0; i < SCALE.users; i++) {
+            String username = dataset.getUsername(i);
+            assertEquals(unreadByUser.getOrDefault(username, 0L),
+                    database.get(UnreadCounters.path(username, UnreadCounters.UNREAD_CHATS)));
+        }
+    }
+
+    @Test
+    public void popularTechnologiesComeUpMoreOften() {
+        SyntheticDataset dataset = new SyntheticDataset(SCALE, cities, 42, NOW);
+        Random random = new Random(1);
+        int first = 0;
+        int last = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String technology = dataset.pickTechnology(random);
+            if (technology.equals(SyntheticDataset.TECHNOLOGIES[0])) {
+                first++;
+            } else if (technology.equals(SyntheticDataset.TECHNOLOGIES[SyntheticDataset.TECHNOLOGIES.length - 1])) {
+                last++;
+            }
+        }
+        assertTrue(first + " vs " + last, first > 10 * last);
+    }
+
+    @Test
+    public void pushIdsSortOldestFirst() {
+        Random random = new Random(1);
+        String older = SyntheticDataset.pushId(NOW, random);
+        String newer = SyntheticDataset.pushId(NOW + 1, random);
+        assertEquals(20, older.length());
+        assertTrue(older.compareTo(newer) < 0);
+    }
+}
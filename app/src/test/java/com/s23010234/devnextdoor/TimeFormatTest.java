@@ -0,0 +1,29 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the message times shown in the chat list and in a chat.
+ */
+public class TimeFormatTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void chatListTimesCountUpFromJustNow() {
+        assertEquals("Just now", TimeFormat.timeAgo(NOW - 30 * 1000L, NOW));
+        assertEquals("5 min ago", TimeFormat.timeAgo(NOW - 5 * MINUTE, NOW));
+        assertEquals("1 hour ago", TimeFormat.timeAgo(NOW - 61 * MINUTE, NOW));
+        assertEquals("3 days ago", TimeFormat.timeAgo(NOW - 3 * 24 * 60 * MINUTE, NOW));
+        assertEquals("", TimeFormat.timeAgo(0, NOW));
+    }
+
+    @Test
+    public void onlyTodaysMessagesSayToday() {
+        assertTrue(TimeFormat.messageTime(NOW, NOW).startsWith("Today, "));
+        assertFalse(TimeFormat.messageTime(NOW - 30 * 24 * 60 * MINUTE, NOW).startsWith("Today"));
+    }
+}
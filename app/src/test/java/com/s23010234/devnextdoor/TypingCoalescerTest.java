@@ -0,0 +1,69 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a burst of key presses turns into as few typing writes as possible.
+ */
+public class TypingCoalescerTest {
+
+    private static final long IDLE = 4000;
+    private static final long GAP = 2000;
+
+    @Test
+    public void aBurstOfKeystrokesIsOneWriteThenOneStopAfterTheIdleTimeout() {
+        TypingCoalescer coalescer = new TypingCoalescer(IDLE, GAP);
+        int writes = 0;
+
+        // 10 key presses a second for 3 seconds
+        for (long now = 0; now < 3000; now += 100) {
+            Boolean write = coalescer.onKeystroke(now);
+            if (write != null) {
+                assertTrue(write);
+                writes++;
+            }
+        }
+        assertEquals(1, writes);
+        assertTrue(coalescer.isSavedTyping());
+
+        // Nothing more is typed: the next check is when the last key press times out
+        long check = coalescer.getNextCheckTime(2900);
+        assertEquals(2900 + IDLE, check);
+        assertNull(coalescer.poll(check - 1));
+        assertEquals(Boolean.FALSE, coalescer.poll(check));
+        assertEquals(TypingCoalescer.NO_CHECK, coalescer.getNextCheckTime(check));
+    }
+
+    @Test
+    public void stopTooSoonAfterStartWaitsForTheMinimumGap() {
+        TypingCoalescer coalescer = new TypingCoalescer(IDLE, GAP);
+        assertEquals(Boolean.TRUE, coalescer.onKeystroke(0));
+
+        // Message sent half a second later: "stopped" has to wait
+        assertNull(coalescer.onStop(500));
+        assertEquals(GAP, coalescer.getNextCheckTime(500));
+        assertEquals(Boolean.FALSE, coalescer.poll(GAP));
+        assertFalse(coalescer.isSavedTyping());
+    }
+
+    @Test
+    public void stoppingAndStartingAgainWithinTheGapWritesNothing() {
+        TypingCoalescer coalescer = new TypingCoalescer(IDLE, GAP);
+        assertEquals(Boolean.TRUE, coalescer.onKeystroke(0));
+        assertNull(coalescer.onStop(300));
+        assertNull(coalescer.onKeystroke(600));
+
+        // By the time the gap has passed, "typing" is already what's saved
+        assertNull(coalescer.poll(GAP));
+        assertTrue(coalescer.isSavedTyping());
+    }
+
+    @Test
+    public void stopWithoutTypingWritesNothing() {
+        TypingCoalescer coalescer = new TypingCoalescer(IDLE, GAP);
+        assertNull(coalescer.onStop(1000));
+        assertEquals(TypingCoalescer.NO_CHECK, coalescer.getNextCheckTime(1000));
+    }
+}
@@ -0,0 +1,40 @@
+package com.s23010234.devnextdoor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which users SearchActivity finds for each filter.
+ */
+public class UserSearchMatcherTest {
+
+    private static User user(String username, String techStack, String wantToLearn) {
+        User user = new User();
+        user.setUsername(username);
+        user.setTechStack(techStack);
+        user.setWantToLearn(wantToLearn);
+        return user;
+    }
+
+    private final User kasun = user("kasun", "Java, Spring Boot", "Kotlin");
+    private final User dilini = user("Dilini", "Python", "Java");
+    private final User empty = user("nobody", null, null);
+    private final List<User> users = Arrays.asList(kasun, dilini, empty);
+
+    @Test
+    public void allSearchesEveryFieldIgnoringCase() {
+        assertEquals(Arrays.asList(kasun, dilini), UserSearchMatcher.filter(users, "JAVA", UserSearchMatcher.Filter.ALL));
+        assertEquals(Arrays.asList(dilini), UserSearchMatcher.filter(users, "dil", UserSearchMatcher.Filter.ALL));
+    }
+
+    @Test
+    public void eachFilterSearchesOnlyItsField() {
+        assertEquals(Arrays.asList(kasun), UserSearchMatcher.filter(users, "java", UserSearchMatcher.Filter.TECH_STACK));
+        assertEquals(Arrays.asList(dilini), UserSearchMatcher.filter(users, "java", UserSearchMatcher.Filter.WANT_TO_LEARN));
+        assertTrue(UserSearchMatcher.filter(users, "java", UserSearchMatcher.Filter.USERNAME).isEmpty());
+    }
+}
@@ -0,0 +1,61 @@
+// JVM benchmarks (JMH) for the app's plain-Java code.
+//
+// The app is an Android module, so a plain JVM module can't depend on it.
+// Instead the classes that don't use Android are compiled here straight
+// from the app's sources, and measured on any computer with:
+//
+//   ./gradlew :benchmark:jmh
+//
+// Results (operations per second, and bytes allocated per operation from
+// the gc profiler) are written to benchmark/build/results/jmh/results.json.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/s23010234/devnextdoor/Chat.java",
+                "com/s23010234/devnextdoor/InMemoryDatabase.java",
+                "com/s23010234/devnextdoor/Notification.java",
+                "com/s23010234/devnextdoor/ProfileTextFormat.java",
+                "com/s23010234/devnextdoor/ShakeKernel.java",
+                "com/s23010234/devnextdoor/TimeFormat.java",
+                "com/s23010234/devnextdoor/User.java",
+                "com/s23010234/devnextdoor/UserSearchMatcher.java"
+            )
+        }
+        resources {
+            // The accelerometer traces the shake unit tests replay
+            srcDir("../app/src/test/resources")
+            include("shake_traces/**")
+        }
+    }
+}
+
+dependencies {
+    // User has two helpers that take an Android Context. They are compiled
+    // against the Android stub jar, and never called by the benchmarks.
+    compileOnly(libs.android.stubs)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("s")
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,46 @@
+package com.s23010234.devnextdoor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures building the chat list: sorting the chats newest first (done
+ * every time any chat changes) and making chat ids.
+ */
+@State(Scope.Benchmark)
+public class ChatListBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    public int chats;
+
+    private List<Chat> unsorted;
+    private final String[] usernames = { "kasun99", "dilini_dev", "alice", "zack_codes" };
+    private int next;
+
+    @Setup
+    public void setUp() {
+        unsorted = SyntheticDirectory.chats(chats, System.currentTimeMillis(), 7);
+    }
+
+    /**
+     * Copies then sorts, the same as ChatManager does with each new download
+     */
+    @Benchmark
+    public List<Chat> sortNewestFirst() {
+        List<Chat> list = new ArrayList<>(unsorted);
+        Chat.sortNewestFirst(list);
+        return list;
+    }
+
+    @Benchmark
+    public String generateChatId() {
+        next = (next + 1) & 3;
+        return Chat.generateChatId(usernames[next], usernames[3 - next]);
+    }
+}
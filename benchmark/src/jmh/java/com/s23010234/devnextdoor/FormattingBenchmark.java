@@ -0,0 +1,84 @@
+package com.s23010234.devnextdoor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the small bits of text work done for every row on screen:
+ * message times, "want to learn" summaries and the profile list check.
+ * Each of these runs once per row bound by an adapter, so the bytes
+ * allocated per operation matter as much as the speed.
+ */
+@State(Scope.Benchmark)
+public class FormattingBenchmark {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private long now;
+    private User shortList;
+    private User longList;
+    private Notification notification;
+
+    @Setup
+    public void setUp() {
+        now = System.currentTimeMillis();
+        shortList = new User();
+        shortList.setWantToLearn("Kotlin, Flutter");
+        longList = new User();
+        longList.setWantToLearn("Kotlin, Flutter, Rust, Go, Docker, Kubernetes");
+        notification = new Notification();
+        notification.setTimestamp(now - 3 * 60 * MINUTE);
+    }
+
+    @Benchmark
+    public String chatListTimeRecent() {
+        return TimeFormat.timeAgo(now - 5 * MINUTE, now);
+    }
+
+    @Benchmark
+    public String chatListTimeOld() {
+        return TimeFormat.timeAgo(now - 30 * 24 * 60 * MINUTE, now);
+    }
+
+    @Benchmark
+    public String messageTimeToday() {
+        return TimeFormat.messageTime(now - MINUTE, now);
+    }
+
+    @Benchmark
+    public String notificationDate() {
+        return notification.getFormattedDate();
+    }
+
+    @Benchmark
+    public String notificationTimeAgo() {
+        return notification.getTimeAgo();
+    }
+
+    @Benchmark
+    public String truncatedWantToLearnShort() {
+        return shortList.getTruncatedWantToLearn();
+    }
+
+    @Benchmark
+    public String truncatedWantToLearnLong() {
+        return longList.getTruncatedWantToLearn();
+    }
+
+    @Benchmark
+    public boolean commaFormatWithCommas() {
+        return ProfileTextFormat.isValidCommaSeparatedFormat("Java, Kotlin, Spring Boot");
+    }
+
+    @Benchmark
+    public boolean commaFormatMissingCommas() {
+        return ProfileTextFormat.isValidCommaSeparatedFormat("Java Kotlin Python Docker");
+    }
+
+    @Benchmark
+    public boolean commaFormatTechPhrase() {
+        return ProfileTextFormat.isValidCommaSeparatedFormat("React Native apps");
+    }
+}
@@ -0,0 +1,105 @@
+package com.s23010234.devnextdoor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the in-memory database used for offline load tests, filled with a
+ * realistic amount of data: the city query behind the homepage, loading the
+ * newest page of a chat, and sending a message while a chat screen listens.
+ */
+@State(Scope.Benchmark)
+public class InMemoryDatabaseBenchmark {
+
+    @Param({"10000", "100000"})
+    public int users;
+
+    private static final String[] CITIES = { "Colombo", "Kandy", "Galle", "Jaffna", "Negombo" };
+    private static final int CHATS = 1000;
+    private static final int MESSAGES_PER_CHAT = 100;
+
+    private InMemoryDatabase database;
+    private final InMemoryDatabase.QuerySpec colombo =
+            InMemoryDatabase.QuerySpec.ALL.orderByChild("city").equalTo("Colombo").limitToFirst(20);
+    private final InMemoryDatabase.QuerySpec newestPage =
+            InMemoryDatabase.QuerySpec.ALL.orderByChild("timestamp").limitToLast(50);
+    private long next;
+
+    @Setup
+    public void setUp() {
+        // Listener calls run straight away, on the benchmark thread
+        database = new InMemoryDatabase(Runnable::run);
+
+        List<User> made = SyntheticDirectory.users(users, 7);
+        for (int i = 0; i < made.size(); i++) {
+            Map<String, Object> user = new HashMap<>();
+            user.put("username", made.get(i).getUsername());
+            user.put("techStack", made.get(i).getTechStack());
+            user.put("wantToLearn", made.get(i).getWantToLearn());
+            user.put("city", CITIES[i % CITIES.length]);
+            database.set("users/" + made.get(i).getUsername(), user);
+        }
+        for (int c = 0; c < CHATS; c++) {
+            for (int m = 0; m < MESSAGES_PER_CHAT; m++) {
+                database.set("messages/chat" + c + "/m" + m, message(m));
+            }
+        }
+
+        // One open chat screen, listening to its newest page
+        database.addChildListener("messages/chat0", newestPage, new InMemoryDatabase.ChildListener() {
+            @Override
+            public void onChildAdded(String key, Object value, String previousKey) {
+            }
+
+            @Override
+            public void onChildChanged(String key, Object value, String previousKey) {
+            }
+
+            @Override
+            public void onChildRemoved(String key, Object value) {
+            }
+        });
+        next = MESSAGES_PER_CHAT;
+    }
+
+    /**
+     * The first 20 people in a city, like the homepage asks for
+     */
+    @Benchmark
+    public Object usersInCity() {
+        return database.query("users", colombo);
+    }
+
+    /**
+     * The newest 50 messages of a chat, like opening a chat screen
+     */
+    @Benchmark
+    public Object newestMessages() {
+        return database.query("messages/chat" + (next % CHATS), newestPage);
+    }
+
+    /**
+     * A new message in the open chat, sliding its listener's window along
+     */
+    @Benchmark
+    public void sendWhileListening() {
+        database.set("messages/chat0/m" + next, message(next));
+        next++;
+    }
+
+    private static Map<String, Object> message(long number) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("senderId", "user" + (number % 2));
+        message.put("content", "message " + number);
+        message.put("timestamp", number);
+        message.put("read", false);
+        return message;
+    }
+}
@@ -0,0 +1,107 @@
+package com.s23010234.devnextdoor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures ShakeKernel on the recorded accelerometer traces, one sensor
+ * sample per operation. The sensor delivers around 50 samples a second
+ * for as long as a screen is open, so the kernel should stay well under a
+ * microsecond per sample and the gc profiler should show no bytes
+ * allocated per operation.
+ *
+ * The traces are the ones the unit tests replay (app/src/test/resources/shake_traces).
+ */
+@State(Scope.Thread)
+public class ShakeKernelBenchmark {
+
+    private static final String[] TRACE_NAMES = {
+            "rest_on_table.csv",
+            "walking_in_pocket.csv",
+            "pickup_and_rotate.csv",
+            "single_bump.csv",
+            "two_jolts_far_apart.csv",
+            "shake_flat_x.csv",
+            "shake_upright_y.csv",
+            "walk_then_shake.csv"
+    };
+
+    private final ShakeKernel kernel = new ShakeKernel();
+
+    // All traces one after another, as plain arrays so reading them creates no objects
+    private long[] timestamps;
+    private float[] x;
+    private float[] y;
+    private float[] z;
+
+    // Where each trace starts, so the kernel is reset between traces
+    private boolean[] traceStart;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        for (String name : TRACE_NAMES) {
+            starts.add(rows.size());
+            rows.addAll(load(name));
+        }
+
+        int size = rows.size();
+        timestamps = new long[size];
+        x = new float[size];
+        y = new float[size];
+        z = new float[size];
+        traceStart = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            String[] row = rows.get(i);
+            timestamps[i] = Long.parseLong(row[0]);
+            x[i] = Float.parseFloat(row[1]);
+            y[i] = Float.parseFloat(row[2]);
+            z[i] = Float.parseFloat(row[3]);
+        }
+        for (int start : starts) {
+            traceStart[start] = true;
+        }
+    }
+
+    @Benchmark
+    public int onSample() {
+        int i = next;
+        if (traceStart[i]) {
+            kernel.reset();
+        }
+        next = i + 1 == timestamps.length ? 0 : i + 1;
+        return kernel.onSample(timestamps[i], x[i], y[i], z[i]);
+    }
+
+    private static List<String[]> load(String name) throws IOException {
+        InputStream stream = ShakeKernelBenchmark.class.getClassLoader()
+                .getResourceAsStream("shake_traces/" + name);
+        if (stream == null) {
+            throw new IOException("Missing trace " + name);
+        }
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("timestamp_ns")) {
+                    rows.add(line.split(","));
+                }
+            }
+        }
+        return rows;
+    }
+}
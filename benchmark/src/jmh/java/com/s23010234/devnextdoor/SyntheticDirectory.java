@@ -0,0 +1,81 @@
+package com.s23010234.devnextdoor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic Directory - Made-up users and chats for the benchmarks
+ *
+ * The data looks like the real app's: usernames, tech stacks and "want to
+ * learn" lists made from common technologies. A fixed seed means every run
+ * measures exactly the same data.
+ */
+final class SyntheticDirectory {
+
+    static final String[] TECHNOLOGIES = {
+            "Java", "Kotlin", "Python", "JavaScript", "TypeScript", "React", "React Native",
+            "Node.js", "Spring Boot", "Android", "Flutter", "Dart", "Swift", "Go", "Rust",
+            "C#", ".NET", "PHP", "Laravel", "Django", "Firebase", "MongoDB", "MySQL",
+            "PostgreSQL", "Docker", "Kubernetes", "AWS", "Machine Learning", "Data Science",
+            "Vue.js", "Angular", "Next.js", "Tailwind CSS", "GraphQL"
+    };
+
+    private static final String[] NAME_PARTS = {
+            "dev", "code", "byte", "stack", "pixel", "node", "lambda", "kasun", "nimal",
+            "sahan", "dilini", "tharushi", "ruwan", "isuru", "chamod", "anjali", "malith"
+    };
+
+    private SyntheticDirectory() {
+    }
+
+    /**
+     * Makes the given number of users with unique usernames
+     */
+    static List<User> users(int count, long seed) {
+        Random random = new Random(seed);
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUsername(NAME_PARTS[random.nextInt(NAME_PARTS.length)]
+                    + NAME_PARTS[random.nextInt(NAME_PARTS.length)] + i);
+            user.setTechStack(tags(random, 1 + random.nextInt(5)));
+            user.setWantToLearn(tags(random, 1 + random.nextInt(6)));
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Makes chats with last-message times spread over the past 30 days
+     */
+    static List<Chat> chats(int count, long now, long seed) {
+        Random random = new Random(seed);
+        List<Chat> chats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Chat chat = new Chat();
+            chat.setChatId(Chat.generateChatId("me", "user" + i));
+            chat.setParticipant1("me");
+            chat.setParticipant2("user" + i);
+            chat.setLastMessage("message " + i);
+            chat.setLastMessageTimestamp(now - (long) (random.nextDouble() * 30L * 24 * 60 * 60 * 1000));
+            chats.add(chat);
+        }
+        return chats;
+    }
+
+    /**
+     * A comma-separated list of different technologies, like a real profile
+     */
+    static String tags(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        int start = random.nextInt(TECHNOLOGIES.length);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(TECHNOLOGIES[(start + i * 7) % TECHNOLOGIES.length]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.s23010234.devnextdoor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Measures SearchActivity's matching (UserSearchMatcher) over directories
+ * of 1,000 to 100,000 users: one operation is one search over the whole
+ * directory, as happens on every key press.
+ */
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int users;
+
+    // A common word, a rare one, a username fragment and something that matches nothing
+    @Param({"java", "rust", "kasun", "cobol"})
+    public String query;
+
+    @Param({"ALL", "TECH_STACK"})
+    public UserSearchMatcher.Filter filter;
+
+    private List<User> directory;
+
+    @Setup
+    public void setUp() {
+        directory = SyntheticDirectory.users(users, 42);
+    }
+
+    @Benchmark
+    public List<User> search() {
+        return UserSearchMatcher.filter(directory, query, filter);
+    }
+}